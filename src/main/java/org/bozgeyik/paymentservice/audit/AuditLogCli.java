@@ -0,0 +1,63 @@
+package org.bozgeyik.paymentservice.audit;
+
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Denetim günlüğünü Spring bağlamı olmadan okuyan komut satırı aracı.
+ * <pre>
+ *   java -cp payment-service.jar org.bozgeyik.paymentservice.audit.AuditLogCli scan &lt;dizin&gt; [--wallet &lt;id&gt;]
+ *   java -cp payment-service.jar org.bozgeyik.paymentservice.audit.AuditLogCli tail &lt;dizin&gt; [--wallet &lt;id&gt;]
+ * </pre>
+ * {@code scan} tüm kayıtları basıp çıkar; {@code tail} yalnızca yeni kayıtları izler.
+ * Çıktı sekmeyle ayrılmış sütunlardır: sıra no, zaman, cüzdan, para birimi, değişiklik, sonuç bakiye,
+ * referans, durum (COMMITTED/ROLLED_BACK).
+ */
+public final class AuditLogCli {
+
+    private static final long TAIL_POLL_MILLIS = 200;
+
+    private AuditLogCli() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2 || !(args[0].equals("scan") || args[0].equals("tail"))) {
+            System.err.println("Kullanım: AuditLogCli (scan|tail) <dizin> [--wallet <id>]");
+            System.exit(2);
+        }
+        Long walletFilter = null;
+        if (args.length >= 4 && args[2].equals("--wallet")) {
+            walletFilter = Long.parseLong(args[3]);
+        }
+        Long wallet = walletFilter;
+        Consumer<AuditRecord> printer = auditRecord -> {
+            if (wallet == null || auditRecord.walletId() == wallet) {
+                System.out.println(format(auditRecord));
+            }
+        };
+
+        AuditLogReader reader = new AuditLogReader(Path.of(args[1]));
+        if (args[0].equals("scan")) {
+            reader.poll(printer);
+            return;
+        }
+        reader.seekToEnd();
+        while (true) {
+            if (reader.poll(printer) == 0) {
+                Thread.sleep(TAIL_POLL_MILLIS);
+            }
+        }
+    }
+
+    static String format(AuditRecord auditRecord) {
+        return String.join("\t",
+                Long.toString(auditRecord.sequence()),
+                auditRecord.timestamp().toString(),
+                Long.toString(auditRecord.walletId()),
+                auditRecord.currency(),
+                auditRecord.delta().toPlainString(),
+                auditRecord.resultingBalance() != null ? auditRecord.resultingBalance().toPlainString() : "-",
+                auditRecord.reference() != null ? auditRecord.reference() : "-",
+                auditRecord.committed() ? "COMMITTED" : "ROLLED_BACK");
+    }
+}
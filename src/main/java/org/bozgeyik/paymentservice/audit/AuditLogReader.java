@@ -0,0 +1,93 @@
+package org.bozgeyik.paymentservice.audit;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import static org.bozgeyik.paymentservice.audit.AuditRecordFormat.RECORD_SIZE;
+import static org.bozgeyik.paymentservice.audit.AuditRecordFormat.decode;
+import static org.bozgeyik.paymentservice.audit.AuditRecordFormat.isValid;
+
+/**
+ * Denetim günlüğünü segment sırasıyla okuyan imleç. Veritabanından bağımsızdır; yazan süreç çalışırken de
+ * kullanılabilir. Her {@link #poll} çağrısı, son okunan kayıttan sonra yazılmış geçerli kayıtları döner.
+ */
+public class AuditLogReader {
+
+    private final Path directory;
+    private final CRC32 crc = new CRC32();
+
+    private Path current;
+    private MappedByteBuffer buffer;
+    private int position;
+
+    public AuditLogReader(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Son okunan konumdan itibaren mevcut tüm geçerli kayıtları tüketiciye verir.
+     *
+     * @return Okunan kayıt sayısı.
+     */
+    public int poll(Consumer<AuditRecord> consumer) throws IOException {
+        int count = 0;
+        while (true) {
+            if (buffer == null) {
+                List<Path> segments = AuditSegments.list(directory);
+                if (segments.isEmpty()) {
+                    return count;
+                }
+                open(segments.get(0));
+            }
+            if (isValid(buffer, position, crc)) {
+                consumer.accept(decode(buffer, position));
+                position += RECORD_SIZE;
+                count++;
+                continue;
+            }
+            // Yazıcı yalnızca segment dolunca yenisine geçer; sonraki segment varsa bu segment bitmiştir.
+            Path next = nextSegment();
+            if (next == null) {
+                return count;
+            }
+            open(next);
+        }
+    }
+
+    /**
+     * İmleci son kaydın sonrasına taşır; yalnızca bundan sonra yazılan kayıtlar okunur.
+     */
+    public void seekToEnd() throws IOException {
+        List<Path> segments = AuditSegments.list(directory);
+        if (segments.isEmpty()) {
+            return;
+        }
+        open(segments.get(segments.size() - 1));
+        while (isValid(buffer, position, crc)) {
+            position += RECORD_SIZE;
+        }
+    }
+
+    private Path nextSegment() throws IOException {
+        for (Path segment : AuditSegments.list(directory)) {
+            if (segment.compareTo(current) > 0) {
+                return segment;
+            }
+        }
+        return null;
+    }
+
+    private void open(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        current = segment;
+        position = 0;
+    }
+}
@@ -0,0 +1,20 @@
+package org.bozgeyik.paymentservice.audit;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Denetim günlüğünden okunan tek bir bakiye güncellemesi.
+ *
+ * @param sequence         Günlükteki sıra numarası (1'den başlar).
+ * @param timestamp        Kaydın yazıldığı an.
+ * @param walletId         Cüzdan ID'si.
+ * @param currency         Para birimi.
+ * @param delta            Bakiyedeki değişiklik.
+ * @param resultingBalance Değişiklik sonrası bakiye; motor bilmiyorsa {@code null}.
+ * @param reference        İşlemin idempotency anahtarı; yoksa {@code null}.
+ * @param committed        Çağıranın veritabanı transaction'ı commit edildiyse {@code true}.
+ */
+public record AuditRecord(long sequence, Instant timestamp, long walletId, String currency, BigDecimal delta,
+                          BigDecimal resultingBalance, String reference, boolean committed) {
+}
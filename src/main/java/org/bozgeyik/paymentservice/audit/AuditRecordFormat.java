@@ -0,0 +1,82 @@
+package org.bozgeyik.paymentservice.audit;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.zip.CRC32;
+
+/**
+ * Denetim kayıtlarının sabit uzunluklu ikili düzeni. Tutarlar 4 ondalık basamaklı {@code long} olarak saklanır.
+ * <pre>
+ *   0  sıra no (long)        8  zaman, epoch ms (long)   16 cüzdan ID (long)
+ *  24  değişiklik (long)    32  sonuç bakiye (long)      40 para birimi (3 bayt ASCII)
+ *  43  bayraklar (bayt)     44  referans uzunluğu (bayt) 45 referans (100 bayt ASCII)
+ * 148  CRC32 (int, 0-147 aralığı)
+ * </pre>
+ * Önceden ayrılmış segmentlerde sıra numarası 0 olan konum, yazılmamış alanı gösterir.
+ */
+final class AuditRecordFormat {
+
+    static final int RECORD_SIZE = 152;
+    static final int SCALE = 4;
+    static final int MAX_REFERENCE_LENGTH = 100;
+
+    static final int SEQUENCE = 0;
+    static final int TIMESTAMP = 8;
+    static final int WALLET_ID = 16;
+    static final int DELTA = 24;
+    static final int BALANCE = 32;
+    static final int CURRENCY = 40;
+    static final int FLAGS = 43;
+    static final int REFERENCE_LENGTH = 44;
+    static final int REFERENCE = 45;
+    static final int CRC = 148;
+
+    static final byte FLAG_HAS_BALANCE = 1;
+    static final byte FLAG_COMMITTED = 2;
+
+    private AuditRecordFormat() {
+    }
+
+    /**
+     * {@code buffer} içindeki {@code offset} konumunda geçerli bir kayıt olup olmadığını kontrol eder.
+     * Tamponun konum/sınır değerleri değiştirilir.
+     */
+    static boolean isValid(ByteBuffer buffer, int offset, CRC32 crc) {
+        if (offset + RECORD_SIZE > buffer.capacity() || buffer.getLong(offset + SEQUENCE) == 0) {
+            return false;
+        }
+        return checksum(buffer, offset, crc) == buffer.getInt(offset + CRC);
+    }
+
+    static int checksum(ByteBuffer buffer, int offset, CRC32 crc) {
+        crc.reset();
+        buffer.limit(offset + CRC).position(offset);
+        crc.update(buffer);
+        buffer.limit(buffer.capacity());
+        return (int) crc.getValue();
+    }
+
+    static AuditRecord decode(ByteBuffer buffer, int offset) {
+        byte flags = buffer.get(offset + FLAGS);
+        byte[] currency = new byte[3];
+        buffer.get(offset + CURRENCY, currency);
+        int referenceLength = buffer.get(offset + REFERENCE_LENGTH) & 0xFF;
+        String reference = null;
+        if (referenceLength > 0) {
+            byte[] bytes = new byte[referenceLength];
+            buffer.get(offset + REFERENCE, bytes);
+            reference = new String(bytes, java.nio.charset.StandardCharsets.US_ASCII);
+        }
+        return new AuditRecord(
+                buffer.getLong(offset + SEQUENCE),
+                Instant.ofEpochMilli(buffer.getLong(offset + TIMESTAMP)),
+                buffer.getLong(offset + WALLET_ID),
+                new String(currency, java.nio.charset.StandardCharsets.US_ASCII),
+                BigDecimal.valueOf(buffer.getLong(offset + DELTA), SCALE),
+                (flags & FLAG_HAS_BALANCE) != 0 ? BigDecimal.valueOf(buffer.getLong(offset + BALANCE), SCALE) : null,
+                reference,
+                (flags & FLAG_COMMITTED) != 0
+        );
+    }
+}
@@ -0,0 +1,142 @@
+package org.bozgeyik.paymentservice.audit;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.bozgeyik.paymentservice.audit.AuditRecordFormat.*;
+
+/**
+ * Denetim kayıtlarını önceden ayrılmış, belleğe eşlenmiş (mmap) segment dosyalarına yazar.
+ * <p>
+ * Kayıtlar sabit uzunlukludur ({@link AuditRecordFormat}) ve doğrudan eşlenmiş tampona yazılır; kayıt başına
+ * nesne oluşturulmaz ve sistem çağrısı yapılmaz. Segment dolduğunda diske zorlanır ve yenisi
+ * {@code audit-<ilk sıra no>.seg} adıyla açılır. Açılışta son segment taranır ve yazım, son geçerli kayıttan
+ * sonra devam eder; yarım kalmış bir kayıt (CRC'si tutmayan) üzerine yazılır.
+ * <p>
+ * Eşlenmiş tampon paylaşıldığı için yazılan kayıtlar, diske zorlanmasa bile aynı makinedeki okuyuculara
+ * ve süreç çöktüğünde işletim sistemine hemen görünür. Makine çökmesine karşı {@link #force()} gerekir.
+ */
+@Slf4j
+public class AuditSegmentWriter implements AutoCloseable {
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final CRC32 crc = new CRC32();
+
+    private MappedByteBuffer segment;
+    private int position;
+    private long nextSequence = 1;
+
+    /**
+     * @param segmentBytes Segment boyutu; kayıt boyutunun katına yuvarlanır.
+     */
+    public AuditSegmentWriter(Path directory, int segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = Math.max(1, segmentBytes / RECORD_SIZE) * RECORD_SIZE;
+        Files.createDirectories(directory);
+        List<Path> segments = AuditSegments.list(directory);
+        if (segments.isEmpty()) {
+            roll();
+        } else {
+            resume(segments.get(segments.size() - 1));
+        }
+    }
+
+    /**
+     * Kaydı ekler ve sıra numarasını döner.
+     *
+     * @param delta     4 ondalık basamaklı değişiklik (ör. 12.5 için 125000).
+     * @param balance   4 ondalık basamaklı sonuç bakiye; {@code hasBalance} false ise yok sayılır.
+     * @param reference ASCII referans; {@value AuditRecordFormat#MAX_REFERENCE_LENGTH} karakterden uzunsa kesilir.
+     */
+    public synchronized long append(long timestampMillis, long walletId, CharSequence currency, long delta,
+                                    long balance, boolean hasBalance, CharSequence reference, boolean committed) {
+        if (position + RECORD_SIZE > segment.capacity()) {
+            segment.force();
+            roll();
+        }
+        int offset = position;
+        long sequence = nextSequence;
+        segment.putLong(offset + TIMESTAMP, timestampMillis);
+        segment.putLong(offset + WALLET_ID, walletId);
+        segment.putLong(offset + DELTA, delta);
+        segment.putLong(offset + BALANCE, hasBalance ? balance : 0L);
+        for (int i = 0; i < 3; i++) {
+            segment.put(offset + CURRENCY + i, (byte) currency.charAt(i));
+        }
+        byte flags = 0;
+        if (hasBalance) {
+            flags |= FLAG_HAS_BALANCE;
+        }
+        if (committed) {
+            flags |= FLAG_COMMITTED;
+        }
+        segment.put(offset + FLAGS, flags);
+        int referenceLength = reference == null ? 0 : Math.min(reference.length(), MAX_REFERENCE_LENGTH);
+        segment.put(offset + REFERENCE_LENGTH, (byte) referenceLength);
+        for (int i = 0; i < MAX_REFERENCE_LENGTH; i++) {
+            segment.put(offset + REFERENCE + i, i < referenceLength ? (byte) reference.charAt(i) : 0);
+        }
+        segment.putLong(offset + SEQUENCE, sequence);
+        segment.putInt(offset + CRC, checksum(segment, offset, crc));
+        position += RECORD_SIZE;
+        nextSequence++;
+        return sequence;
+    }
+
+    /**
+     * Etkin segmentteki kayıtları diske zorlar (fsync).
+     */
+    public synchronized void force() {
+        segment.force();
+    }
+
+    public synchronized long lastSequence() {
+        return nextSequence - 1;
+    }
+
+    @Override
+    public synchronized void close() {
+        segment.force();
+    }
+
+    private void resume(Path last) throws IOException {
+        segment = map(last);
+        long firstSequence = AuditSegments.firstSequenceOf(last);
+        position = 0;
+        nextSequence = firstSequence;
+        while (isValid(segment, position, crc)) {
+            nextSequence = segment.getLong(position + SEQUENCE) + 1;
+            position += RECORD_SIZE;
+        }
+        log.info("Denetim günlüğü {} numaralı kayıttan devam ediyor: {}", nextSequence, last);
+    }
+
+    private void roll() {
+        Path path = directory.resolve(AuditSegments.fileName(nextSequence));
+        try {
+            segment = map(path);
+        } catch (IOException e) {
+            throw new IllegalStateException("Denetim segmenti açılamadı: " + path, e);
+        }
+        position = 0;
+    }
+
+    private MappedByteBuffer map(Path path) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            if (file.length() < segmentBytes) {
+                // Dosya baştan ayrılır; yeni alan sıfırlarla dolu olduğundan sıra no 0 "yazılmamış" demektir.
+                file.setLength(segmentBytes);
+            }
+            return file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, file.length());
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package org.bozgeyik.paymentservice.audit;
+
+/**
+ * Denetim kayıtlarının diske ne zaman zorlanacağını (fsync) belirler.
+ */
+public enum AuditSyncPolicy {
+    NONE,         // İşletim sistemine bırakılır; süreç çökmesine dayanıklı, makine çökmesinde son kayıtlar kaybolabilir
+    INTERVAL,     // Sabit aralıklarla (payment.audit.fsync-interval-ms)
+    EVERY_RECORD  // Her kayıttan sonra; en yavaş, en güvenli
+}
@@ -0,0 +1,115 @@
+package org.bozgeyik.paymentservice.audit;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bozgeyik.paymentservice.model.Money;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.math.RoundingMode;
+import java.nio.file.Path;
+
+/**
+ * Her bakiye güncellemesini (cüzdan, para birimi, değişiklik, sonuç bakiye, idempotency anahtarı, zaman)
+ * veritabanından bağımsız, yalnızca eklenen bir denetim günlüğüne yazar ({@link AuditSegmentWriter}).
+ * <p>
+ * Güncelleme bir transaction içinde yapılıyorsa kayıt transaction tamamlandığında, commit edilip edilmediği
+ * bilgisiyle birlikte yazılır; böylece geri alınan güncellemeler de izlenebilir. Günlük
+ * {@link AuditLogCli} ile okunabilir. Yazma hataları loglanır, ödeme akışını etkilemez.
+ * Kapalıyken ({@code payment.audit.enabled=false}) hiçbir şey yapmaz.
+ */
+@Component
+@Slf4j
+public class LedgerAuditLog {
+
+    private AuditSegmentWriter writer;
+
+    @Value("${payment.audit.enabled:false}")
+    private boolean enabled;
+
+    @Value("${payment.audit.dir:./data/ledger-audit}")
+    private Path directory;
+
+    @Value("${payment.audit.segment-bytes:67108864}")
+    private int segmentBytes;
+
+    @Value("${payment.audit.fsync-policy:INTERVAL}")
+    private AuditSyncPolicy syncPolicy;
+
+    @PostConstruct
+    void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        writer = new AuditSegmentWriter(directory, segmentBytes);
+        log.info("Denetim günlüğü etkin: {} (fsync: {})", directory.toAbsolutePath(), syncPolicy);
+    }
+
+    @PreDestroy
+    void close() {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    /**
+     * Bakiye güncellemesini denetim günlüğüne ekler.
+     *
+     * @param resultingBalance Güncelleme sonrası bakiye; motor bilmiyorsa {@code null}. Yalnızca satırı kilitleyerek
+     *                         okuyan (kötümser) yol bilir; diğer motorlarda bakiyeyi bulmak her güncellemeye ek bir
+     *                         okuma ekleyeceği için yazılmaz.
+     * @param reference        İşlemin idempotency anahtarı; yoksa {@code null}.
+     */
+    public void record(Long walletId, Money amountDelta, Money resultingBalance, String reference) {
+        if (writer == null) {
+            return;
+        }
+        String currency = amountDelta.currency();
+        long timestamp = System.currentTimeMillis();
+        long delta = toUnits(amountDelta);
+        long balance = resultingBalance != null ? toUnits(resultingBalance) : 0L;
+        boolean hasBalance = resultingBalance != null;
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            write(timestamp, walletId, currency, delta, balance, hasBalance, reference, true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                write(timestamp, walletId, currency, delta, balance, hasBalance, reference, status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${payment.audit.fsync-interval-ms:1000}")
+    public void syncPeriodically() {
+        if (writer != null && syncPolicy == AuditSyncPolicy.INTERVAL) {
+            writer.force();
+        }
+    }
+
+    private void write(long timestamp, Long walletId, String currency, long delta, long balance,
+                       boolean hasBalance, String reference, boolean committed) {
+        try {
+            writer.append(timestamp, walletId, currency, delta, balance, hasBalance, reference, committed);
+            if (syncPolicy == AuditSyncPolicy.EVERY_RECORD) {
+                writer.force();
+            }
+        } catch (RuntimeException e) {
+            log.error("Denetim kaydı yazılamadı: Cüzdan {} - {}", walletId, currency, e);
+        }
+    }
+
+    private static long toUnits(Money amount) {
+        if (amount.scale() == AuditRecordFormat.SCALE) {
+            return amount.units();
+        }
+        return amount.toBigDecimal().setScale(AuditRecordFormat.SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+}
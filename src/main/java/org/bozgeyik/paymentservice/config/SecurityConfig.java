@@ -21,6 +21,9 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 @RequiredArgsConstructor
 public class SecurityConfig {
 
+    private static final String[] ADMIN_ENDPOINTS = {"/actuator/reconciliation/**", "/actuator/fxhistory/**",
+            "/actuator/postings/**", "/actuator/archive/**", "/actuator/walletstats/**"};
+
     private final JwtAuthenticationFilter jwtAuthFilter;
     private final CustomUserDetailsService userDetailsService;
 
@@ -29,9 +32,11 @@ public class SecurityConfig {
         http
                 .csrf(csrf -> csrf.disable()) // Token tabanlı olduğu için CSRF kapalı
                 .authorizeHttpRequests(auth -> auth
-                        // 1. Bu yollara herkes erişebilir (Giriş, Kayıt, Actuator)
+                        // 1. Yönetim uçları yalnızca yöneticiye açık: raporlar diğer müşterilerin cüzdan ve tutarlarını içerir
+                        .requestMatchers(ADMIN_ENDPOINTS).hasRole("ADMIN")
+                        // 2. Bu yollara herkes erişebilir (Giriş, Kayıt, Actuator)
                         .requestMatchers("/auth/**", "/users", "/actuator/**").permitAll()
-                        // 2. Diğer tüm istekler Token (Kimlik Doğrulama) gerektirir
+                        // 3. Diğer tüm istekler Token (Kimlik Doğrulama) gerektirir
                         .anyRequest().authenticated()
                 )
                 // Oturum yönetimi yok (Stateless), her istekte Token bakılacak
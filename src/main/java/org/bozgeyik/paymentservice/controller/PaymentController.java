@@ -1,24 +1,44 @@
 package org.bozgeyik.paymentservice.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
 import org.bozgeyik.paymentservice.dto.*;
 import org.bozgeyik.paymentservice.exception.InsufficientFundsException;
+import org.bozgeyik.paymentservice.idempotency.IdempotencyService;
+import org.bozgeyik.paymentservice.model.Money;
 import org.bozgeyik.paymentservice.model.Transaction;
 import org.bozgeyik.paymentservice.model.User;
 import org.bozgeyik.paymentservice.model.Wallet;
+import org.bozgeyik.paymentservice.service.DepositPipeline;
+import org.bozgeyik.paymentservice.service.FXService;
 import org.bozgeyik.paymentservice.service.PaymentOrchestratorService;
 import org.bozgeyik.paymentservice.service.WalletService;
+import org.bozgeyik.paymentservice.service.export.ExportFormat;
+import org.bozgeyik.paymentservice.service.export.TransactionExportService;
+import org.bozgeyik.paymentservice.service.fx.FxQuote;
+import org.bozgeyik.paymentservice.service.fx.FxQuoteService;
+import org.bozgeyik.paymentservice.service.stats.WalletStatsService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/")
@@ -27,6 +47,14 @@ public class PaymentController {
 
     private final PaymentOrchestratorService paymentOrchestratorService;
     private final WalletService walletService;
+    private final DepositPipeline depositPipeline;
+    private final IdempotencyService idempotencyService;
+    private final FxQuoteService fxQuoteService;
+    private final FXService fxService;
+    private final TransactionExportService transactionExportService;
+    private final WalletStatsService walletStatsService;
+
+    private static final int MAX_SLICE_SIZE = 200;
 
     @PostMapping("/wallets")
     public ResponseEntity<WalletBalanceResponse> createWallet(@Valid @RequestBody CreateWalletRequest request) {
@@ -36,18 +64,27 @@ public class PaymentController {
 
     @GetMapping("/wallets/{walletId}")
     public ResponseEntity<WalletBalanceResponse> getWalletById(@PathVariable Long walletId) {
-        Wallet wallet = walletService.getWalletById(walletId);
-        return ResponseEntity.ok(mapWalletToResponse(wallet));
+        return ResponseEntity.ok(walletService.getWalletView(walletId));
     }
 
     // YENİ EKLENEN: Kullanıcının tüm cüzdanlarını getir
     @GetMapping("/wallets")
     public ResponseEntity<List<WalletBalanceResponse>> getWalletsByUser(@RequestParam String customerId) {
-        List<Wallet> wallets = walletService.getWalletsByUserEmail(customerId);
-        List<WalletBalanceResponse> response = wallets.stream()
-                .map(this::mapWalletToResponse)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok(walletService.getWalletViewsByUserEmail(customerId));
+    }
+
+    /**
+     * Cüzdanın günlük işlem istatistikleri ve aralık toplamları (para birimi ve işlem türü başına).
+     *
+     * @param from İlk gün (dahil), örn. {@code 2024-01-01}; varsayılan son bir yıl.
+     * @param to   Son gün (dahil); varsayılan bugün.
+     */
+    @GetMapping("/wallets/{walletId}/stats")
+    public ResponseEntity<WalletStatsResponse> getWalletStats(
+            @PathVariable Long walletId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(walletStatsService.getStats(walletId, from, to));
     }
 
     @DeleteMapping("/wallets/{walletId}")
@@ -58,31 +95,48 @@ public class PaymentController {
 
     @PostMapping("/payments/deposit")
     public ResponseEntity<Transaction> depositOnRamp(@Valid @RequestBody DepositRequest request) {
-        Transaction transaction = paymentOrchestratorService.depositOnRamp(request);
+        Transaction transaction = idempotencyService.execute(request.getIdempotencyKey(), () -> depositPipeline.deposit(request));
         return ResponseEntity.status(HttpStatus.CREATED).body(transaction);
     }
 
     @PostMapping("/payments/withdraw")
     public ResponseEntity<Transaction> withdrawOffRamp(@Valid @RequestBody WithdrawRequest request)
             throws InsufficientFundsException {
-        Transaction transaction = paymentOrchestratorService.withdrawOffRamp(request);
+        Transaction transaction = idempotencyService.execute(request.getIdempotencyKey(), () -> paymentOrchestratorService.withdrawOffRamp(request));
         return ResponseEntity.ok(transaction);
     }
 
     @PostMapping("/payments/transfer")
     public ResponseEntity<Transaction> transfer(@Valid @RequestBody TransferRequest request)
             throws InsufficientFundsException {
-        Transaction transaction = paymentOrchestratorService.transferMoney(request);
+        Transaction transaction = idempotencyService.execute(request.getIdempotencyKey(), () -> paymentOrchestratorService.transferMoney(request));
         return ResponseEntity.ok(transaction);
     }
 
     @PostMapping("/payments/fx")
     public ResponseEntity<Transaction> executeFxTrade(@Valid @RequestBody FxRequest request)
             throws InsufficientFundsException {
-        Transaction transaction = paymentOrchestratorService.executeFx(request);
+        Transaction transaction = idempotencyService.execute(request.getIdempotencyKey(), () -> paymentOrchestratorService.executeFx(request));
         return ResponseEntity.ok(transaction);
     }
 
+    @PostMapping("/payments/fx/quotes")
+    public ResponseEntity<FxQuoteResponse> createFxQuote(@Valid @RequestBody FxQuoteRequest request) {
+        FxQuote quote = fxQuoteService.issue(request.getCustomerId(), request.getFromCurrency(), request.getToCurrency());
+        BigDecimal convertedAmount = request.getAmount() == null ? null
+                : fxService.convert(Money.of(request.getAmount(), quote.fromCurrency()), quote.rate().rate(), quote.toCurrency()).toBigDecimal();
+        return ResponseEntity.status(HttpStatus.CREATED).body(new FxQuoteResponse(
+                quote.quoteId(),
+                quote.fromCurrency(),
+                quote.toCurrency(),
+                quote.rate().rate(),
+                quote.rate().path(),
+                request.getAmount(),
+                convertedAmount,
+                quote.expiresAt()
+        ));
+    }
+
     @GetMapping("/payments/transactions")
     public ResponseEntity<Page<Transaction>> getTransactions(
             @RequestParam @NotNull String customerId,
@@ -91,6 +145,53 @@ public class PaymentController {
         return ResponseEntity.ok(transactions);
     }
 
+    /**
+     * İşlemleri yeniden eskiye, imleçle sayfalar; derin sayfalar ilk sayfa kadar hızlıdır. Bir sonraki sayfa için
+     * yanıttaki {@code nextCursor} değeri {@code cursor} parametresiyle gönderilir.
+     */
+    @GetMapping("/payments/transactions/cursor")
+    public ResponseEntity<TransactionSliceResponse> getTransactionSlice(
+            @RequestParam @NotNull String customerId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_SLICE_SIZE));
+        Slice<Transaction> slice = paymentOrchestratorService.getTransactionSliceForUser(
+                customerId, cursor != null && !cursor.isBlank() ? TransactionCursor.decode(cursor) : null, pageSize);
+        String nextCursor = slice.hasNext() ? TransactionCursor.after(slice.getContent().get(slice.getNumberOfElements() - 1)).encode() : null;
+        return ResponseEntity.ok(new TransactionSliceResponse(slice.getContent(), slice.getNumberOfElements(), slice.hasNext(), nextCursor));
+    }
+
+    /**
+     * Kullanıcının işlemlerini (isteğe bağlı tarih aralığında) tek yanıtta, veritabanından okundukça yazar.
+     * {@code Accept-Encoding: gzip} gönderilirse yanıt sıkıştırılır.
+     *
+     * @param format {@code NDJSON} (varsayılan) veya {@code CSV}.
+     * @param from İşlem tarihi alt sınırı (dahil), örn. {@code 2024-01-01T00:00:00}.
+     * @param to   İşlem tarihi üst sınırı (hariç).
+     */
+    @GetMapping("/payments/transactions/export")
+    public void exportTransactions(
+            @RequestParam @NotNull String customerId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) throws IOException {
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        response.setContentType(format.contentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename("transactions." + format.extension()).build().toString());
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        OutputStream body = response.getOutputStream();
+        try (OutputStream out = gzip ? new GZIPOutputStream(body, 64 * 1024) : body) {
+            transactionExportService.export(customerId, from, to, format, out);
+        }
+    }
+
     private WalletBalanceResponse mapWalletToResponse(@NotNull Wallet wallet) {
         User user = wallet.getUser();
         return new WalletBalanceResponse(
@@ -98,15 +199,15 @@ public class PaymentController {
                 user.getId().toString(),
                 user.getName(),
                 wallet.getStatus(),
-                wallet.getBalances().stream()
-                        .map(b -> new WalletBalanceDto(b.getCurrency(), b.getBalance()))
+                walletService.getBalances(wallet).entrySet().stream()
+                        .map(b -> new WalletBalanceDto(b.getKey(), b.getValue()))
                         .collect(Collectors.toSet())
         );
     }
 
     @PostMapping("/payments/external-transfer")
     public ResponseEntity<Transaction> externalTransfer(@Valid @RequestBody ExternalTransferRequest request) {
-        Transaction transaction = paymentOrchestratorService.externalTransfer(request);
+        Transaction transaction = idempotencyService.execute(request.getIdempotencyKey(), () -> paymentOrchestratorService.externalTransfer(request));
         return ResponseEntity.ok(transaction);
     }
 }
\ No newline at end of file
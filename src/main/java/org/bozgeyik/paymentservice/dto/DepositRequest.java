@@ -3,6 +3,7 @@
 package org.bozgeyik.paymentservice.dto;
 
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -22,6 +23,7 @@ public class DepositRequest {
 
     @NotNull(message = "Miktar boş olamaz.")
     @DecimalMin(value = "0.01", message = "Miktar 0'dan büyük olmalıdır.")
+    @Digits(integer = 14, fraction = 4, message = "Miktar en fazla 14 tam ve 4 ondalık basamak içerebilir.")
     private BigDecimal amount;
 
     @NotBlank(message = "Para birimi boş olamaz.")
@@ -1,6 +1,7 @@
 package org.bozgeyik.paymentservice.dto;
 
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
@@ -27,6 +28,7 @@ public class ExternalTransferRequest {
 
     @NotNull(message = "Miktar boş olamaz.")
     @DecimalMin(value = "1.00", message = "Dış transfer için minimum miktar 1.00 olmalıdır.")
+    @Digits(integer = 14, fraction = 4, message = "Miktar en fazla 14 tam ve 4 ondalık basamak içerebilir.")
     private BigDecimal amount;
 
     @NotBlank(message = "Para birimi boş olamaz.")
@@ -0,0 +1,27 @@
+package org.bozgeyik.paymentservice.dto;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+import java.math.BigDecimal;
+
+@Data
+public class FxQuoteRequest {
+
+    @NotBlank(message = "Müşteri ID (e-posta) boş olamaz.")
+    @Email(message = "Geçerli bir e-posta adresi giriniz.")
+    private String customerId;
+
+    @NotBlank(message = "Kaynak para birimi boş olamaz.")
+    private String fromCurrency;
+
+    @NotBlank(message = "Hedef para birimi boş olamaz.")
+    private String toCurrency;
+
+    // İsteğe bağlı; verilirse yanıtta dönüştürülmüş tutar da hesaplanır.
+    @DecimalMin(value = "0.01", message = "Miktar 0'dan büyük olmalıdır.")
+    @Digits(integer = 14, fraction = 4, message = "Miktar en fazla 14 tam ve 4 ondalık basamak içerebilir.")
+    private BigDecimal amount;
+}
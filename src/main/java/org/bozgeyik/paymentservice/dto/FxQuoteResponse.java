@@ -0,0 +1,20 @@
+package org.bozgeyik.paymentservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+public class FxQuoteResponse {
+    private String quoteId;
+    private String fromCurrency;
+    private String toCurrency;
+    private BigDecimal rate;
+    private String ratePath;
+    private BigDecimal amount; // İstekte tutar yoksa null
+    private BigDecimal convertedAmount;
+    private Instant expiresAt;
+}
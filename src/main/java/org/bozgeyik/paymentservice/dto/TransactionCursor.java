@@ -0,0 +1,41 @@
+package org.bozgeyik.paymentservice.dto;
+
+import org.bozgeyik.paymentservice.exception.InvalidCursorException;
+import org.bozgeyik.paymentservice.model.Transaction;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * İşlem listesinde bir sonraki sayfanın başladığı yer: son okunan işlemin (tarih, ID) ikilisi. İstemciye opak bir
+ * metin olarak verilir; içeriği bir sözleşme değildir.
+ */
+public record TransactionCursor(LocalDateTime transactionDate, Long id) {
+
+    private static final char SEPARATOR = '|';
+
+    public static TransactionCursor after(Transaction transaction) {
+        return new TransactionCursor(transaction.getTransactionDate(), transaction.getId());
+    }
+
+    /**
+     * @throws InvalidCursorException Eğer değer bu sınıfın ürettiği bir imleç değilse.
+     */
+    public static TransactionCursor decode(String value) {
+        try {
+            String text = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            int separator = text.indexOf(SEPARATOR);
+            return new TransactionCursor(LocalDateTime.parse(text.substring(0, separator)),
+                    Long.parseLong(text.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new InvalidCursorException("Geçersiz sayfa imleci: " + value);
+        }
+    }
+
+    public String encode() {
+        String text = transactionDate.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,16 @@
+package org.bozgeyik.paymentservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.bozgeyik.paymentservice.model.Transaction;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class TransactionSliceResponse {
+    private List<Transaction> content;
+    private int size;
+    private boolean hasNext;
+    private String nextCursor; // Son sayfada null
+}
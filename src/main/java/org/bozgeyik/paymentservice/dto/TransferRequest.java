@@ -2,6 +2,7 @@
 package org.bozgeyik.paymentservice.dto;
 
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -24,6 +25,7 @@ public class TransferRequest {
 
     @NotNull(message = "Miktar boş olamaz.")
     @DecimalMin(value = "0.01", message = "Miktar 0'dan büyük olmalıdır.")
+    @Digits(integer = 14, fraction = 4, message = "Miktar en fazla 14 tam ve 4 ondalık basamak içerebilir.")
     private BigDecimal amount;
 
     @NotBlank(message = "Gönderen para birimi boş olamaz.")
@@ -33,4 +35,7 @@ public class TransferRequest {
     private String targetCurrency;
 
     private String description;
+
+    // İsteğe bağlı; /payments/fx/quotes ile alınan teklifin kuru kullanılır.
+    private String quoteId;
 }
\ No newline at end of file
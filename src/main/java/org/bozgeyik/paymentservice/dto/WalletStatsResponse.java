@@ -0,0 +1,22 @@
+package org.bozgeyik.paymentservice.dto;
+
+import org.bozgeyik.paymentservice.model.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Bir cüzdanın tarih aralığındaki işlem istatistikleri: (para birimi, tür) başına aralık toplamları ve günlük satırlar.
+ * Borç tutarları kaynak para biriminde ve komisyon hariçtir; alacak tutarları hedef para birimindedir.
+ */
+public record WalletStatsResponse(Long walletId, LocalDate from, LocalDate to, List<Total> totals, List<Day> days) {
+
+    public record Total(String currency, TransactionType type, long debitCount, BigDecimal debitAmount,
+                        long creditCount, BigDecimal creditAmount, BigDecimal feeAmount) {
+    }
+
+    public record Day(LocalDate date, String currency, TransactionType type, long debitCount, BigDecimal debitAmount,
+                      long creditCount, BigDecimal creditAmount, BigDecimal feeAmount) {
+    }
+}
@@ -0,0 +1,34 @@
+package org.bozgeyik.paymentservice.event;
+
+import lombok.Getter;
+import org.bozgeyik.paymentservice.model.ExchangeRate;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Bu instance'ta bir döviz kuru eklendiğinde, değiştiğinde veya silindiğinde fırlatılacak olay.
+ * Bellek içi kur tablosu, olayı fırlatan transaction commit edildikten sonra güncellenir.
+ */
+@Getter
+public class ExchangeRatesChangedEvent extends ApplicationEvent {
+
+    public enum Change {
+        INSERTED,
+        /** Mevcut bir satırın kuru değişti. */
+        UPDATED,
+        DELETED
+    }
+
+    private final ExchangeRate rate;
+    private final Change change;
+
+    /**
+     * @param source Olayı başlatan bileşen
+     * @param rate   Değişen kur kaydı
+     * @param change Değişikliğin türü
+     */
+    public ExchangeRatesChangedEvent(Object source, ExchangeRate rate, Change change) {
+        super(source);
+        this.rate = rate;
+        this.change = change;
+    }
+}
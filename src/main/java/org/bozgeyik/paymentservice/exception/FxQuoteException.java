@@ -0,0 +1,10 @@
+package org.bozgeyik.paymentservice.exception;
+
+/**
+ * Kur teklifi bulunamadığında, süresi dolduğunda veya isteğe (müşteri, para birimleri) uymadığında fırlatılır.
+ */
+public class FxQuoteException extends RuntimeException {
+    public FxQuoteException(String message) {
+        super(message);
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 import java.time.LocalDateTime;
 import java.util.stream.Collectors;
@@ -38,6 +39,26 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
     }
 
+    // 400 Geçersiz veya Süresi Dolmuş Kur Teklifi
+    @ExceptionHandler(FxQuoteException.class)
+    public ResponseEntity<ErrorResponse> handleFxQuote(FxQuoteException ex, WebRequest request) {
+        ErrorResponse error = createErrorResponse(HttpStatus.BAD_REQUEST, ex.getMessage(), request);
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+
+    // 400 Geçersiz Sayfa İmleci
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidCursor(InvalidCursorException ex, WebRequest request) {
+        ErrorResponse error = createErrorResponse(HttpStatus.BAD_REQUEST, ex.getMessage(), request);
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(InvalidStatsRangeException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidStatsRange(InvalidStatsRangeException ex, WebRequest request) {
+        ErrorResponse error = createErrorResponse(HttpStatus.BAD_REQUEST, ex.getMessage(), request);
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+
     // 409 Tekrarlanan İşlem
     @ExceptionHandler(IdempotencyException.class)
     public ResponseEntity<ErrorResponse> handleIdempotency(IdempotencyException ex, WebRequest request) {
@@ -55,6 +76,13 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
     }
 
+    // 400 Dönüştürülemeyen İstek Parametreleri (tarih, biçim vb.)
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    public ResponseEntity<ErrorResponse> handleTypeMismatch(MethodArgumentTypeMismatchException ex, WebRequest request) {
+        ErrorResponse error = createErrorResponse(HttpStatus.BAD_REQUEST, "Geçersiz parametre: " + ex.getName() + "=" + ex.getValue(), request);
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+
     // 500 Diğer Tüm Hatalar
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> handleGlobalException(Exception ex, WebRequest request) {
@@ -0,0 +1,10 @@
+package org.bozgeyik.paymentservice.exception;
+
+/**
+ * Sayfalama imleci çözümlenemediğinde fırlatılır.
+ */
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
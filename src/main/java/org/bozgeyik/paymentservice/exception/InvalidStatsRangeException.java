@@ -0,0 +1,10 @@
+package org.bozgeyik.paymentservice.exception;
+
+/**
+ * İstatistik sorgusunun tarih aralığı geçersiz olduğunda fırlatılır.
+ */
+public class InvalidStatsRangeException extends RuntimeException {
+    public InvalidStatsRangeException(String message) {
+        super(message);
+    }
+}
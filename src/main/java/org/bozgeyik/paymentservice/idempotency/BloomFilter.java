@@ -0,0 +1,129 @@
+package org.bozgeyik.paymentservice.idempotency;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sabit kapasiteli, thread-safe Bloom filtresi. Bitler {@link AtomicLongArray} üzerinde CAS ile set edilir;
+ * eş zamanlı eklemeler birbirinin bitini kaybettirmez. Anahtar başına iki 64 bitlik özet üretilir ve
+ * {@code k} konum bunlardan türetilir (Kirsch-Mitzenmacher).
+ */
+final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final long capacity;
+    private final double targetFpp;
+    private final AtomicLong insertions = new AtomicLong();
+
+    /**
+     * @param capacity Hedef yanlış pozitif oranında tutulabilecek anahtar sayısı.
+     * @param fpp      Kapasite dolduğundaki hedef yanlış pozitif oranı.
+     */
+    BloomFilter(long capacity, double fpp) {
+        long bits = (long) Math.ceil(-capacity * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.max(1, (bits + 63) / 64);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = (long) wordCount * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+        this.capacity = capacity;
+        this.targetFpp = fpp;
+    }
+
+    /**
+     * @return Anahtar filtrede yokken eklendiyse (en az bir bit değiştiyse) {@code true}.
+     */
+    boolean put(long hash1, long hash2) {
+        boolean changed = false;
+        long combined = hash1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = (combined & Long.MAX_VALUE) % bitCount;
+            changed |= setBit(bit);
+            combined += hash2;
+        }
+        if (changed) {
+            insertions.incrementAndGet();
+        }
+        return changed;
+    }
+
+    boolean mightContain(long hash1, long hash2) {
+        long combined = hash1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = (combined & Long.MAX_VALUE) % bitCount;
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+            combined += hash2;
+        }
+        return true;
+    }
+
+    boolean isFull() {
+        return insertions.get() >= capacity;
+    }
+
+    long capacity() {
+        return capacity;
+    }
+
+    double targetFpp() {
+        return targetFpp;
+    }
+
+    long insertions() {
+        return insertions.get();
+    }
+
+    long memoryBytes() {
+        return bitCount / 8;
+    }
+
+    /**
+     * Eklenen anahtar sayısına göre tahmini yanlış pozitif oranı: {@code (1 - e^(-kn/m))^k}.
+     */
+    double expectedFpp() {
+        return Math.pow(1 - Math.exp(-hashCount * (double) insertions.get() / bitCount), hashCount);
+    }
+
+    /**
+     * Anahtarın birinci özeti (FNV-1a ve karıştırma).
+     */
+    static long hash1(CharSequence key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    /**
+     * Birinci özetten türetilen ikinci özet; adım olarak kullanıldığı için tektir.
+     */
+    static long hash2(long hash1) {
+        return mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1L;
+    }
+
+    private boolean setBit(long bit) {
+        int index = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long word = words.get(index);
+        while ((word & mask) == 0) {
+            long witness = words.compareAndExchange(index, word, word | mask);
+            if (witness == word) {
+                return true;
+            }
+            word = witness;
+        }
+        return false;
+    }
+
+    // SplitMix64 sonlandırıcısı.
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,13 @@
+package org.bozgeyik.paymentservice.idempotency;
+
+/**
+ * Bir idempotency anahtarını sahiplenme girişiminin sonucu.
+ */
+public enum ClaimResult {
+    /** Anahtar bu istek adına sahiplenildi; işlem yapılabilir. */
+    CLAIMED,
+    /** Anahtar başka bir istek tarafından sahiplenilmiş ve o istek henüz bitmemiş. */
+    IN_PROGRESS,
+    /** Anahtarla yapılan işlem daha önce commit edilmiş. */
+    COMPLETED
+}
@@ -0,0 +1,223 @@
+package org.bozgeyik.paymentservice.idempotency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bozgeyik.paymentservice.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * {@code transactions.idempotency_key} sorgularının önüne konan, zamana göre bölümlenmiş ölçeklenebilir Bloom filtresi.
+ * <p>
+ * Filtre "kesinlikle yeni" yanıtını bellekten verir; veritabanına yalnızca olası bir eşleşmede gidilir. Anahtarlar,
+ * işlem tarihine göre {@code partition-period} uzunluğundaki bölümlere ({@link ScalableBloomFilter}) eklenir ve
+ * {@code retention-partitions}'tan eski bölümler atılır.
+ * <ul>
+ *     <li>Açılışta tablo ID sırasıyla, parça parça taranarak doldurulur; bitene kadar her anahtar "olası" sayılır.</li>
+ *     <li>Bu instance'ta eklenen işlemler anında, diğer instance'ların eklediği işlemler {@code refresh-ms} aralıklarla
+ *     tablonun sonundan okunarak eklenir. Commit sırası ID sırasından farklı olabileceği için son
+ *     {@code refresh-overlap-ids} kadar ID yeniden okunur.</li>
+ * </ul>
+ * Filtrede olmayan ama veritabanında olan bir anahtar (atılmış bölüm veya başka instance'ın henüz okunmamış kaydı),
+ * paylaşılan depodaki sahiplik veya işlem kaydının benzersiz indeksiyle yakalanır.
+ * <p>
+ * Metrikler: {@code idempotency.bloom.memory} (bayt), {@code idempotency.bloom.expected-fpp} (tahmini oran),
+ * {@code idempotency.bloom.observed-fpp} (veritabanında bulunamayan olası eşleşmelerin oranı) ve sayaçlar.
+ */
+@Component
+@Slf4j
+public class IdempotencyKeyFilter {
+
+    private static final String KEYS_SQL =
+            "SELECT id, idempotency_key, transaction_date FROM transactions WHERE id > ? ORDER BY id LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionRepository transactionRepository;
+    private final ConcurrentSkipListMap<Long, ScalableBloomFilter> partitions = new ConcurrentSkipListMap<>();
+
+    private final Counter negatives;
+    private final Counter positives;
+    private final Counter falsePositives;
+
+    private volatile boolean ready;
+    private volatile long lastSeenId;
+
+    @Value("${payment.idempotency.bloom.enabled:true}")
+    private boolean enabled;
+
+    @Value("${payment.idempotency.bloom.partition-period:7d}")
+    private Duration partitionPeriod;
+
+    @Value("${payment.idempotency.bloom.retention-partitions:13}")
+    private int retentionPartitions;
+
+    @Value("${payment.idempotency.bloom.initial-capacity:100000}")
+    private long initialCapacity;
+
+    @Value("${payment.idempotency.bloom.fpp:0.01}")
+    private double fpp;
+
+    @Value("${payment.idempotency.bloom.batch-size:50000}")
+    private int batchSize;
+
+    @Value("${payment.idempotency.bloom.refresh-overlap-ids:1000}")
+    private long refreshOverlapIds;
+
+    public IdempotencyKeyFilter(JdbcTemplate jdbcTemplate,
+                                TransactionRepository transactionRepository,
+                                MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionRepository = transactionRepository;
+        this.negatives = meterRegistry.counter("idempotency.bloom.checks", "result", "negative");
+        this.positives = meterRegistry.counter("idempotency.bloom.checks", "result", "positive");
+        this.falsePositives = meterRegistry.counter("idempotency.bloom.false-positives");
+        Gauge.builder("idempotency.bloom.memory", this, IdempotencyKeyFilter::memoryBytes)
+                .baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("idempotency.bloom.expected-fpp", this, IdempotencyKeyFilter::expectedFpp).register(meterRegistry);
+        Gauge.builder("idempotency.bloom.observed-fpp", this, IdempotencyKeyFilter::observedFpp).register(meterRegistry);
+        Gauge.builder("idempotency.bloom.keys", this, f -> f.partitions.values().stream()
+                .mapToLong(ScalableBloomFilter::insertions).sum()).register(meterRegistry);
+    }
+
+    /**
+     * Açılışta filtreyi doldurur, sonra tablonun sonunu izler. İlk çalıştırma bitene kadar filtre kullanılmaz.
+     */
+    @Scheduled(fixedDelayString = "${payment.idempotency.bloom.refresh-ms:5000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.nanoTime();
+        long from = ready ? Math.max(0, lastSeenId - refreshOverlapIds) : lastSeenId;
+        long cutoff = partitionOf(LocalDateTime.now()) - retentionPartitions + 1;
+        long scanned = 0;
+        while (true) {
+            long[] maxId = {from};
+            int rows = jdbcTemplate.query(KEYS_SQL, rs -> {
+                int count = 0;
+                while (rs.next()) {
+                    count++;
+                    maxId[0] = rs.getLong(1);
+                    Timestamp date = rs.getTimestamp(3);
+                    LocalDateTime transactionDate = date != null ? date.toLocalDateTime() : LocalDateTime.now();
+                    if (partitionOf(transactionDate) >= cutoff) {
+                        add(rs.getString(2), transactionDate);
+                    }
+                }
+                return count;
+            }, from, batchSize);
+            scanned += rows;
+            from = maxId[0];
+            lastSeenId = Math.max(lastSeenId, from);
+            if (rows < batchSize) {
+                break;
+            }
+        }
+        partitions.headMap(cutoff).clear();
+        if (!ready) {
+            ready = true;
+            log.info("İdempotency Bloom filtresi hazır: {} işlem, {} bölüm, {} KB, {} ms", scanned, partitions.size(),
+                    memoryBytes() / 1024, Duration.ofNanos(System.nanoTime() - started).toMillis());
+        }
+    }
+
+    /**
+     * Yeni eklenen işlemin anahtarını filtreye ekler. Kayıt geri alınırsa anahtar yalnızca yanlış pozitife yol açar.
+     */
+    public void add(String key, LocalDateTime transactionDate) {
+        if (!enabled) {
+            return;
+        }
+        long hash1 = BloomFilter.hash1(key);
+        partitions.computeIfAbsent(partitionOf(transactionDate), p -> new ScalableBloomFilter(initialCapacity, fpp))
+                .put(hash1, BloomFilter.hash2(hash1));
+    }
+
+    /**
+     * @return Anahtar kesinlikle veritabanında yoksa {@code false}; filtre hazır değilse hep {@code true}.
+     */
+    public boolean mightContain(String key) {
+        if (!enabled || !ready) {
+            return true;
+        }
+        long hash1 = BloomFilter.hash1(key);
+        long hash2 = BloomFilter.hash2(hash1);
+        for (ScalableBloomFilter partition : partitions.descendingMap().values()) {
+            if (partition.mightContain(hash1, hash2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Anahtarın veritabanında olup olmadığını, yalnızca olası eşleşmelerde sorgu atarak kontrol eder.
+     */
+    public boolean existsInDatabase(String key) {
+        if (!mightContain(key)) {
+            negatives.increment();
+            return false;
+        }
+        boolean exists = transactionRepository.existsByIdempotencyKey(key);
+        recordPositives(1, exists ? 1 : 0);
+        return exists;
+    }
+
+    /**
+     * Verilen anahtarlardan veritabanında olanları döner; filtrenin kesinlikle yeni dediği anahtarlar sorgulanmaz.
+     */
+    public Set<String> findExisting(Collection<String> keys) {
+        List<String> candidates = keys.stream().filter(this::mightContain).toList();
+        negatives.increment(keys.size() - candidates.size());
+        if (candidates.isEmpty()) {
+            return Set.of();
+        }
+        Set<String> existing = transactionRepository.findExistingIdempotencyKeys(candidates);
+        recordPositives(candidates.size(), existing.size());
+        return existing;
+    }
+
+    private void recordPositives(int candidates, int found) {
+        if (!enabled || !ready) {
+            return;
+        }
+        positives.increment(candidates);
+        falsePositives.increment(candidates - found);
+    }
+
+    private long partitionOf(LocalDateTime date) {
+        return Math.floorDiv(date.toEpochSecond(ZoneOffset.UTC), partitionPeriod.toSeconds());
+    }
+
+    private double memoryBytes() {
+        return partitions.values().stream().mapToLong(ScalableBloomFilter::memoryBytes).sum();
+    }
+
+    private double expectedFpp() {
+        double allNegative = 1;
+        for (Map.Entry<Long, ScalableBloomFilter> partition : partitions.entrySet()) {
+            allNegative *= 1 - partition.getValue().expectedFpp();
+        }
+        return 1 - allNegative;
+    }
+
+    // Veritabanında olmayan anahtarlardan filtrenin "olası" dediklerinin oranı.
+    private double observedFpp() {
+        double absent = negatives.count() + falsePositives.count();
+        return absent == 0 ? 0 : falsePositives.count() / absent;
+    }
+}
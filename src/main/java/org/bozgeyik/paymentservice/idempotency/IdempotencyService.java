@@ -0,0 +1,338 @@
+package org.bozgeyik.paymentservice.idempotency;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.bozgeyik.paymentservice.exception.IdempotencyException;
+import org.bozgeyik.paymentservice.model.Transaction;
+import org.bozgeyik.paymentservice.repository.TransactionRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Ödeme isteklerinin idempotency anahtarlarını, her istekte veritabanına gitmeden ve eş zamanlı tekrarlara karşı
+ * güvenli şekilde denetleyen iki katmanlı depo.
+ * <ol>
+ *     <li>Bu instance'ta yakın zamanda tamamlanan anahtarlar ve sonuçları bellekte ({@link RecentResultCache}) tutulur;
+ *     tekrarlanan istekler ağa çıkmadan yanıtlanır.</li>
+ *     <li>Diğer anahtarlar paylaşılan depoda ({@link IdempotencyStore}, varsayılan Redis) atomik olarak sahiplenilir.
+ *     Aynı anahtarla eş zamanlı gelen ikinci istek sahiplenemez.</li>
+ *     <li>Sahiplik, isteğin transaction'ı commit edilince işlemin kodlanmış sonucuyla ({@link TransactionCodec})
+ *     birlikte tamamlanmış anahtara dönüştürülür ({@code retention} süresince saklanır); geri alınırsa bırakılır ve
+ *     istek aynı anahtarla tekrar denenebilir.</li>
+ * </ol>
+ * {@link #execute} ile çalıştırılan tekrarlanan istekler hata yerine asıl işlemin sonucunu alır: asıl istek bu
+ * instance'ta sürüyorsa aynı sonucu bekler, başka bir instance'ta sürüyorsa paylaşılan depoda tamamlanmasını bekler.
+ * <p>
+ * Paylaşılan depo yanıt veremezse kontrol veritabanından, {@link IdempotencyKeyFilter} üzerinden yapılır.
+ * {@code retention}'dan eski bir anahtarın tekrarı ise işlem kaydının benzersiz indeksine takılır ve sonucu
+ * veritabanından okunur. İşlem tablosu aylık bölümlere ayrılmışsa ({@code payment.archive.partitioning}) bu benzersiz
+ * indeks yoktur; onun yerine her işlemin anahtarı aynı transaction'da bölümlenmemiş {@code idempotency_keys} tablosuna
+ * eklenir ({@link #recordKey}) ve tekrar, bu tablonun birincil anahtarına takılır. Sahiplenme bu yüzden veritabanına
+ * gitmez; arşive taşınmış işlemlerin anahtarları da tanınmaya devam eder.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    private static final long MAX_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+    private static final String INSERT_KEY_SQL = "INSERT INTO idempotency_keys (idempotency_key, transaction_id) VALUES (?, ?)";
+    private static final String KEY_EXISTS_SQL = "SELECT COUNT(*) FROM idempotency_keys WHERE idempotency_key = ?";
+
+    private final TransactionRepository transactionRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final IdempotencyKeyFilter keyFilter;
+    private final ObjectProvider<StringRedisTemplate> redisTemplateProvider;
+
+    // Bu instance'ta işlenmekte olan istekler; aynı anahtarla gelen tekrarlar bu sonuçları bekler.
+    private final ConcurrentHashMap<String, CompletableFuture<Transaction>> inFlight = new ConcurrentHashMap<>();
+    // Transaction'ı henüz tamamlanmamış sahiplikler.
+    private final ConcurrentHashMap<String, PendingClaim> claims = new ConcurrentHashMap<>();
+
+    private IdempotencyStore store;
+    private RecentResultCache recentResults;
+
+    @Value("${payment.idempotency.shared-store:REDIS}")
+    private IdempotencySharedStore sharedStore;
+
+    @Value("${payment.idempotency.key-prefix:payment:idempotency:}")
+    private String keyPrefix;
+
+    @Value("${payment.idempotency.claim-ttl:5m}")
+    private Duration claimTtl;
+
+    @Value("${payment.idempotency.retention:7d}")
+    private Duration retention;
+
+    @Value("${payment.idempotency.local-cache-size:100000}")
+    private int localCacheSize;
+
+    @Value("${payment.idempotency.local-result-ttl:10m}")
+    private Duration localResultTtl;
+
+    @Value("${payment.idempotency.replay-wait:10s}")
+    private Duration replayWait;
+
+    @Value("${payment.archive.partitioning:false}")
+    private boolean partitionedTransactions;
+
+    public IdempotencyService(TransactionRepository transactionRepository,
+                              JdbcTemplate jdbcTemplate,
+                              IdempotencyKeyFilter keyFilter,
+                              ObjectProvider<StringRedisTemplate> redisTemplateProvider) {
+        this.transactionRepository = transactionRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.keyFilter = keyFilter;
+        this.redisTemplateProvider = redisTemplateProvider;
+    }
+
+    @PostConstruct
+    void init() {
+        store = sharedStore == IdempotencySharedStore.REDIS
+                ? new RedisIdempotencyStore(redisTemplateProvider.getObject(), keyPrefix)
+                : new InMemoryIdempotencyStore();
+        recentResults = new RecentResultCache(localCacheSize, localResultTtl.toNanos());
+        log.info("İdempotency deposu: {} (yerel önbellek {} anahtar, saklama {})", sharedStore, localCacheSize, retention);
+    }
+
+    /**
+     * İsteği idempotent olarak çalıştırır. Transaction dışında çağrılmalıdır; {@code action} kendi transaction'ında
+     * anahtarı {@link #claim} ile sahiplenir.
+     * <ul>
+     *     <li>Anahtarla daha önce işlem yapılmışsa {@code action} çalıştırılmaz, asıl işlemin sonucu döner.</li>
+     *     <li>Aynı anahtarlı istek bu instance'ta sürüyorsa onun sonucu (veya hatası) beklenir.</li>
+     *     <li>Başka bir instance'ta sürüyorsa {@code replay-wait} süresince tamamlanması beklenir; asıl istek geri
+     *     alınırsa istek bu anahtarla yeniden işlenir.</li>
+     * </ul>
+     *
+     * @throws IdempotencyException Eğer asıl istek {@code replay-wait} içinde tamamlanmazsa.
+     */
+    public Transaction execute(String key, Supplier<Transaction> action) {
+        Transaction cached = cachedResult(key);
+        if (cached != null) {
+            return cached;
+        }
+        CompletableFuture<Transaction> mine = new CompletableFuture<>();
+        CompletableFuture<Transaction> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            log.debug("Aynı anahtarlı istek bekleniyor: {}", key);
+            return join(running);
+        }
+        try {
+            Transaction result = runOrReplay(key, action);
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Anahtarı, çağıranın transaction'ı adına sahiplenir. Transaction commit edilirse anahtar,
+     * {@link #recordResult} ile bildirilen sonuçla birlikte tamamlanmış sayılır; geri alınırsa bırakılır.
+     *
+     * @param key İsteğin idempotency anahtarı.
+     * @throws IdempotencyException  Eğer anahtarla daha önce işlem yapılmışsa veya anahtar şu anda başka bir istekte işleniyorsa.
+     * @throws IllegalStateException Eğer etkin bir transaction yoksa.
+     */
+    public void claim(String key) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("İdempotency anahtarı bir transaction içinde sahiplenilmelidir.");
+        }
+        if (recentResults.get(key) != null) {
+            throw alreadyProcessed(key);
+        }
+
+        String owner = UUID.randomUUID().toString();
+        ClaimResult result;
+        try {
+            result = store.claim(key, owner, claimTtl);
+        } catch (DataAccessException e) {
+            log.warn("İdempotency deposuna erişilemedi, veritabanı kontrolü yapılıyor: {}", e.getMessage());
+            if (existsInDatabase(key)) {
+                throw alreadyProcessed(key);
+            }
+            // Sonuç yine de yerel önbelleğe alınır; depo o arada düzelmişse anahtar tamamlanır.
+            result = ClaimResult.CLAIMED;
+        }
+
+        switch (result) {
+            case COMPLETED -> throw alreadyProcessed(key);
+            case IN_PROGRESS -> throw new IdempotencyException("Bu işlem şu anda işleniyor: " + key);
+            case CLAIMED -> {
+                PendingClaim claim = new PendingClaim(key, owner);
+                claims.put(key, claim);
+                TransactionSynchronizationManager.registerSynchronization(claim);
+            }
+        }
+    }
+
+    /**
+     * İşlem tablosu bölümlenmişse kaydedilen işlemin anahtarını, işlemle aynı transaction'da {@code idempotency_keys}
+     * tablosuna ekler; bölümlenmemiş tabloda benzersizliği işlem kaydının kendi indeksi sağlar.
+     *
+     * @throws IdempotencyException Eğer anahtarla daha önce işlem yapılmışsa.
+     */
+    public void recordKey(Transaction transaction) {
+        if (!partitionedTransactions) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(INSERT_KEY_SQL, transaction.getIdempotencyKey(), transaction.getId());
+        } catch (DuplicateKeyException e) {
+            throw alreadyProcessed(transaction.getIdempotencyKey());
+        }
+    }
+
+    /**
+     * Kaydedilen işlemi bildirir: anahtar {@link IdempotencyKeyFilter}'a eklenir ve anahtar bu instance'ta
+     * sahiplenilmişse sonuç commit'ten sonra tekrarlanan isteklere döndürülmek üzere saklanır.
+     */
+    public void recordResult(Transaction transaction) {
+        keyFilter.add(transaction.getIdempotencyKey(), transaction.getTransactionDate() != null
+                ? transaction.getTransactionDate() : LocalDateTime.now());
+        PendingClaim claim = claims.get(transaction.getIdempotencyKey());
+        if (claim != null) {
+            claim.result = transaction;
+        }
+    }
+
+    private Transaction runOrReplay(String key, Supplier<Transaction> action) {
+        long deadline = System.nanoTime() + replayWait.toNanos();
+        while (true) {
+            try {
+                return action.get();
+            } catch (IdempotencyException e) {
+                Transaction stored = awaitStoredResult(key, deadline);
+                if (stored != null) {
+                    return stored;
+                }
+                if (System.nanoTime() - deadline >= 0) {
+                    throw e;
+                }
+                // Asıl istek geri alındı ve anahtarı bıraktı; istek bu anahtarla yeniden işlenir.
+                log.info("Tekrarlanan isteğin asıl işlemi geri alınmış, yeniden işleniyor: {}", key);
+            }
+        }
+    }
+
+    // Asıl işlemin sonucunu bekler; anahtar bırakılmışsa veya süre dolarsa null döner.
+    private Transaction awaitStoredResult(String key, long deadline) {
+        long pause = TimeUnit.MILLISECONDS.toNanos(10);
+        while (true) {
+            Transaction cached = cachedResult(key);
+            if (cached != null) {
+                return cached;
+            }
+            KeyState state;
+            try {
+                state = store.lookup(key);
+            } catch (DataAccessException e) {
+                state = null;
+            }
+            if (state != null && state.state() == ClaimResult.COMPLETED && state.result() != null) {
+                byte[] data = Base64.getDecoder().decode(state.result());
+                recentResults.put(key, data);
+                return TransactionCodec.decode(key, data);
+            }
+            if (state == null || state.state() == ClaimResult.COMPLETED) {
+                // Sonucu bilinmeyen, saklama süresi geçmiş veya depo erişilemezken işlenmiş anahtar.
+                return transactionRepository.findByIdempotencyKey(key)
+                        .map(transaction -> {
+                            recentResults.put(key, TransactionCodec.encode(transaction));
+                            return transaction;
+                        })
+                        .orElse(null);
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            LockSupport.parkNanos(Math.min(pause, remaining));
+            pause = Math.min(pause * 2, MAX_POLL_NANOS);
+        }
+    }
+
+    // Filtre yalnızca saklama dönemlerindeki anahtarları bilir; bölümlenmiş tabloda anahtar tablosu her anahtarı bilir.
+    private boolean existsInDatabase(String key) {
+        if (partitionedTransactions) {
+            Integer count = jdbcTemplate.queryForObject(KEY_EXISTS_SQL, Integer.class, key);
+            return count != null && count > 0;
+        }
+        return keyFilter.existsInDatabase(key);
+    }
+
+    private Transaction cachedResult(String key) {
+        RecentResultCache.Entry entry = recentResults.get(key);
+        return entry != null && entry.result() != null ? TransactionCodec.decode(key, entry.result()) : null;
+    }
+
+    private void finish(PendingClaim claim, boolean committed) {
+        claims.remove(claim.key, claim);
+        byte[] result = committed && claim.result != null ? TransactionCodec.encode(claim.result) : null;
+        if (committed) {
+            recentResults.put(claim.key, result);
+        }
+        try {
+            if (committed) {
+                store.complete(claim.key, result != null ? Base64.getEncoder().encodeToString(result) : null, retention);
+            } else {
+                store.release(claim.key, claim.owner);
+            }
+        } catch (DataAccessException e) {
+            // Sahiplik claim-ttl sonunda kendiliğinden düşer; tamamlanmış anahtar veritabanındaki benzersiz indeksle korunur.
+            log.warn("İdempotency anahtarı güncellenemedi: {} - {}", claim.key, e.getMessage());
+        }
+    }
+
+    private static Transaction join(CompletableFuture<Transaction> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static IdempotencyException alreadyProcessed(String key) {
+        return new IdempotencyException("Bu işlem daha önce gerçekleştirildi: " + key);
+    }
+
+    private final class PendingClaim implements TransactionSynchronization {
+        private final String key;
+        private final String owner;
+        private volatile Transaction result;
+
+        private PendingClaim(String key, String owner) {
+            this.key = key;
+            this.owner = owner;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            finish(this, status == STATUS_COMMITTED);
+        }
+    }
+}
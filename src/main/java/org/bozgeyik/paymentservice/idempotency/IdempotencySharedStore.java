@@ -0,0 +1,11 @@
+package org.bozgeyik.paymentservice.idempotency;
+
+/**
+ * İdempotency anahtarlarının instance'lar arasında paylaşıldığı depo ({@code payment.idempotency.shared-store}).
+ */
+public enum IdempotencySharedStore {
+    /** Redis; birden fazla instance aynı anahtar kümesini görür. */
+    REDIS,
+    /** Yalnızca bu instance'ın belleği; tek instance kurulumları ve testler için. */
+    MEMORY
+}
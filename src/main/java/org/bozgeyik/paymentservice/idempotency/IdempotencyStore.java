@@ -0,0 +1,36 @@
+package org.bozgeyik.paymentservice.idempotency;
+
+import java.time.Duration;
+
+/**
+ * İdempotency anahtarlarının paylaşılan deposu. Her anahtar ya bir isteğe ait geçici bir sahiplik (süresi dolunca
+ * kendiliğinden düşer) ya da tamamlanmış bir işlem kaydıdır.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Anahtar boştaysa tek atomik adımda sahiplenir.
+     *
+     * @param owner Sahipliği alan isteğe özgü değer; yalnızca aynı sahip {@link #release} ile bırakabilir.
+     * @param ttl   Sahipliğin, tamamlanmaz veya bırakılmazsa düşeceği süre.
+     */
+    ClaimResult claim(String key, String owner, Duration ttl);
+
+    /**
+     * Anahtarı tamamlanmış olarak işaretler.
+     *
+     * @param result    Tekrarlanan isteklere döndürülecek, kodlanmış işlem sonucu ({@code null} olabilir).
+     * @param retention Tamamlanmış anahtarın depoda tutulacağı süre.
+     */
+    void complete(String key, String result, Duration retention);
+
+    /**
+     * Anahtarın durumunu döner; anahtar yoksa (hiç sahiplenilmemiş, bırakılmış veya süresi dolmuş) {@code null}.
+     */
+    KeyState lookup(String key);
+
+    /**
+     * Anahtar hâlâ verilen sahibe aitse sahipliği bırakır; anahtar yeniden kullanılabilir.
+     */
+    void release(String key, String owner);
+}
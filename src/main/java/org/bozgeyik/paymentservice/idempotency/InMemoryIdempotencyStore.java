@@ -0,0 +1,68 @@
+package org.bozgeyik.paymentservice.idempotency;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tek instance için bellekte tutulan idempotency deposu ({@link RedisIdempotencyStore}'un yerel karşılığı).
+ * Süresi dolan kayıtlar erişimde yok sayılır ve belirli aralıklarla toplu olarak temizlenir.
+ */
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private static final int PURGE_INTERVAL = 4096;
+
+    // owner == null: tamamlanmış anahtar.
+    private record Entry(String owner, String result, long expiresAtNanos) {
+        boolean expired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicInteger operations = new AtomicInteger();
+
+    @Override
+    public ClaimResult claim(String key, String owner, Duration ttl) {
+        purgeOccasionally();
+        long now = System.nanoTime();
+        ClaimResult[] result = new ClaimResult[1];
+        entries.compute(key, (k, entry) -> {
+            if (entry == null || entry.expired(now)) {
+                result[0] = ClaimResult.CLAIMED;
+                return new Entry(owner, null, now + ttl.toNanos());
+            }
+            result[0] = entry.owner() == null ? ClaimResult.COMPLETED : ClaimResult.IN_PROGRESS;
+            return entry;
+        });
+        return result[0];
+    }
+
+    @Override
+    public void complete(String key, String result, Duration retention) {
+        entries.put(key, new Entry(null, result, System.nanoTime() + retention.toNanos()));
+    }
+
+    @Override
+    public KeyState lookup(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.expired(System.nanoTime())) {
+            return null;
+        }
+        return entry.owner() == null
+                ? new KeyState(ClaimResult.COMPLETED, entry.result())
+                : new KeyState(ClaimResult.IN_PROGRESS, null);
+    }
+
+    @Override
+    public void release(String key, String owner) {
+        entries.computeIfPresent(key, (k, entry) -> owner.equals(entry.owner()) ? null : entry);
+    }
+
+    private void purgeOccasionally() {
+        if (operations.incrementAndGet() % PURGE_INTERVAL == 0) {
+            long now = System.nanoTime();
+            entries.values().removeIf(entry -> entry.expired(now));
+        }
+    }
+}
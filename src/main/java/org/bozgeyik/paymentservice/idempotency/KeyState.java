@@ -0,0 +1,10 @@
+package org.bozgeyik.paymentservice.idempotency;
+
+/**
+ * Paylaşılan depodaki bir anahtarın durumu.
+ *
+ * @param state  {@link ClaimResult#IN_PROGRESS} veya {@link ClaimResult#COMPLETED}.
+ * @param result Tamamlanmış anahtarlarda {@link TransactionCodec} ile kodlanmış işlem sonucu; bilinmiyorsa {@code null}.
+ */
+public record KeyState(ClaimResult state, String result) {
+}
@@ -0,0 +1,62 @@
+package org.bozgeyik.paymentservice.idempotency;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Bu instance'ta tamamlandığı görülen son anahtarların ve kodlanmış sonuçlarının ({@link TransactionCodec})
+ * süreli ve sınırlı önbelleği. Kapasite aşıldığında en eski anahtarlar (ekleme sırasına göre) çıkarılır.
+ * Kilitsizdir; eş zamanlı eklemelerde boyut kapasiteyi kısa süreliğine aşabilir.
+ */
+final class RecentResultCache {
+
+    /**
+     * @param result Kodlanmış sonuç; anahtarın tamamlandığı biliniyor ama sonucu bilinmiyorsa {@code null}.
+     */
+    record Entry(byte[] result, long expiresAtNanos) {
+    }
+
+    private final int capacity;
+    private final long ttlNanos;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String> order = new ConcurrentLinkedQueue<>();
+
+    RecentResultCache(int capacity, long ttlNanos) {
+        this.capacity = capacity;
+        this.ttlNanos = ttlNanos;
+    }
+
+    /**
+     * Anahtarın süresi dolmamış kaydını döner, yoksa {@code null}.
+     */
+    Entry get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.expiresAtNanos() >= 0) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    void put(String key, byte[] result) {
+        if (capacity <= 0) {
+            return;
+        }
+        Entry entry = new Entry(result, System.nanoTime() + ttlNanos);
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            return;
+        }
+        order.add(key);
+        while (entries.size() > capacity) {
+            String eldest = order.poll();
+            if (eldest == null) {
+                break;
+            }
+            entries.remove(eldest);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.bozgeyik.paymentservice.idempotency;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Redis üzerinde paylaşılan idempotency deposu. Sahiplenme ve bırakma Lua betikleriyle tek gidiş-dönüşte
+ * ve atomik yapılır. Değer, sahipliklerde {@code P:<sahip>}, tamamlanmış anahtarlarda {@code C:<kodlanmış sonuç>}'tur.
+ */
+public class RedisIdempotencyStore implements IdempotencyStore {
+
+    private static final String COMPLETED_PREFIX = "C:";
+    private static final String PENDING_PREFIX = "P:";
+
+    // Anahtar varsa değerini döner; yoksa sahiplik değeriyle ve süreyle yazar, boş metin döner.
+    private static final RedisScript<String> CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "local v = redis.call('GET', KEYS[1]) " +
+            "if v then return v end " +
+            "redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2]) " +
+            "return ''", String.class);
+
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end " +
+            "return 0", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final String keyPrefix;
+
+    public RedisIdempotencyStore(StringRedisTemplate redisTemplate, String keyPrefix) {
+        this.redisTemplate = redisTemplate;
+        this.keyPrefix = keyPrefix;
+    }
+
+    @Override
+    public ClaimResult claim(String key, String owner, Duration ttl) {
+        String existing = redisTemplate.execute(CLAIM_SCRIPT, List.of(keyPrefix + key),
+                PENDING_PREFIX + owner, String.valueOf(ttl.toMillis()));
+        if (existing == null || existing.isEmpty()) {
+            return ClaimResult.CLAIMED;
+        }
+        return existing.startsWith(COMPLETED_PREFIX) ? ClaimResult.COMPLETED : ClaimResult.IN_PROGRESS;
+    }
+
+    @Override
+    public void complete(String key, String result, Duration retention) {
+        redisTemplate.opsForValue().set(keyPrefix + key, COMPLETED_PREFIX + (result != null ? result : ""), retention);
+    }
+
+    @Override
+    public KeyState lookup(String key) {
+        String value = redisTemplate.opsForValue().get(keyPrefix + key);
+        if (value == null) {
+            return null;
+        }
+        if (!value.startsWith(COMPLETED_PREFIX)) {
+            return new KeyState(ClaimResult.IN_PROGRESS, null);
+        }
+        String result = value.substring(COMPLETED_PREFIX.length());
+        return new KeyState(ClaimResult.COMPLETED, result.isEmpty() ? null : result);
+    }
+
+    @Override
+    public void release(String key, String owner) {
+        redisTemplate.execute(RELEASE_SCRIPT, List.of(keyPrefix + key), PENDING_PREFIX + owner);
+    }
+}
@@ -0,0 +1,76 @@
+package org.bozgeyik.paymentservice.idempotency;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Anahtar sayısı önceden bilinmeden hedef yanlış pozitif oranını koruyan, katmanlı Bloom filtresi.
+ * Son katman dolduğunda iki kat kapasiteli ve yarı hata oranlı yeni bir katman eklenir; toplam yanlış pozitif
+ * oranı geometrik seriyle {@code fpp} altında kalır.
+ */
+final class ScalableBloomFilter {
+
+    private static final int GROWTH = 2;
+    private static final double TIGHTENING = 0.5;
+
+    private final List<BloomFilter> stages = new CopyOnWriteArrayList<>();
+
+    ScalableBloomFilter(long initialCapacity, double fpp) {
+        stages.add(new BloomFilter(initialCapacity, fpp * (1 - TIGHTENING)));
+    }
+
+    void put(long hash1, long hash2) {
+        if (mightContain(hash1, hash2)) {
+            return;
+        }
+        currentStage().put(hash1, hash2);
+    }
+
+    boolean mightContain(long hash1, long hash2) {
+        for (BloomFilter stage : stages) {
+            if (stage.mightContain(hash1, hash2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    long memoryBytes() {
+        return stages.stream().mapToLong(BloomFilter::memoryBytes).sum();
+    }
+
+    long insertions() {
+        return stages.stream().mapToLong(BloomFilter::insertions).sum();
+    }
+
+    int stageCount() {
+        return stages.size();
+    }
+
+    /**
+     * Katmanların tahmini oranlarından birleşik yanlış pozitif oranı: {@code 1 - Π(1 - p_i)}.
+     */
+    double expectedFpp() {
+        double allNegative = 1;
+        for (BloomFilter stage : stages) {
+            allNegative *= 1 - stage.expectedFpp();
+        }
+        return 1 - allNegative;
+    }
+
+    private BloomFilter currentStage() {
+        BloomFilter last = stages.get(stages.size() - 1);
+        if (!last.isFull()) {
+            return last;
+        }
+        synchronized (this) {
+            last = stages.get(stages.size() - 1);
+            if (last.isFull()) {
+                double fpp = last.targetFpp() * TIGHTENING;
+                last = new BloomFilter(last.capacity() * GROWTH, fpp);
+                stages.add(last);
+            }
+            return last;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package org.bozgeyik.paymentservice.idempotency;
+
+import org.bozgeyik.paymentservice.model.Transaction;
+import org.bozgeyik.paymentservice.model.TransactionStatus;
+import org.bozgeyik.paymentservice.model.TransactionType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Tekrarlanan isteklere döndürülecek {@link Transaction} sonuçlarının sıkıştırılmış ikili kodlaması.
+ * <p>
+ * Alanlar sabit sırayla yazılır; boş olabilen alanlar başta bir bit maskesiyle işaretlenir. ID'ler ve zaman değişken
+ * uzunluklu tam sayı, para birimleri 3 bayt ASCII, tutarlar ölçek ve ölçeksiz değer baytları olarak tutulur.
+ * Tipik bir işlem 50-100 bayt yer kaplar. Anahtarın kendisi kodlanmaz. Sonradan eklenen alanlar sona yazılır; bu
+ * yüzden eski kayıtlar aynı sürümle çözülebilir.
+ */
+public final class TransactionCodec {
+
+    private static final byte VERSION = 1;
+
+    private static final int FROM_WALLET = 1;
+    private static final int TO_WALLET = 1 << 1;
+    private static final int ORIGINAL_AMOUNT = 1 << 2;
+    private static final int ORIGINAL_CURRENCY = 1 << 3;
+    private static final int CONVERTED_AMOUNT = 1 << 4;
+    private static final int TARGET_CURRENCY = 1 << 5;
+    private static final int EXCHANGE_RATE = 1 << 6;
+    private static final int FEE_AMOUNT = 1 << 7;
+    private static final int DESCRIPTION = 1 << 8;
+    private static final int TRANSACTION_DATE = 1 << 9;
+    private static final int EXCHANGE_RATE_PATH = 1 << 10;
+
+    private TransactionCodec() {
+    }
+
+    public static byte[] encode(Transaction transaction) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            int mask = (transaction.getFromWalletId() != null ? FROM_WALLET : 0)
+                    | (transaction.getToWalletId() != null ? TO_WALLET : 0)
+                    | (transaction.getOriginalAmount() != null ? ORIGINAL_AMOUNT : 0)
+                    | (transaction.getOriginalCurrency() != null ? ORIGINAL_CURRENCY : 0)
+                    | (transaction.getConvertedAmount() != null ? CONVERTED_AMOUNT : 0)
+                    | (transaction.getTargetCurrency() != null ? TARGET_CURRENCY : 0)
+                    | (transaction.getExchangeRateUsed() != null ? EXCHANGE_RATE : 0)
+                    | (transaction.getFeeAmount() != null ? FEE_AMOUNT : 0)
+                    | (transaction.getDescription() != null ? DESCRIPTION : 0)
+                    | (transaction.getTransactionDate() != null ? TRANSACTION_DATE : 0)
+                    | (transaction.getExchangeRatePath() != null ? EXCHANGE_RATE_PATH : 0);
+            out.writeByte(VERSION);
+            out.writeShort(mask);
+            writeVarLong(out, transaction.getId());
+            if ((mask & FROM_WALLET) != 0) {
+                writeVarLong(out, transaction.getFromWalletId());
+            }
+            if ((mask & TO_WALLET) != 0) {
+                writeVarLong(out, transaction.getToWalletId());
+            }
+            writeDecimal(out, mask & ORIGINAL_AMOUNT, transaction.getOriginalAmount());
+            if ((mask & ORIGINAL_CURRENCY) != 0) {
+                writeCurrency(out, transaction.getOriginalCurrency());
+            }
+            writeDecimal(out, mask & CONVERTED_AMOUNT, transaction.getConvertedAmount());
+            if ((mask & TARGET_CURRENCY) != 0) {
+                writeCurrency(out, transaction.getTargetCurrency());
+            }
+            writeDecimal(out, mask & EXCHANGE_RATE, transaction.getExchangeRateUsed());
+            writeDecimal(out, mask & FEE_AMOUNT, transaction.getFeeAmount());
+            if ((mask & DESCRIPTION) != 0) {
+                out.writeUTF(transaction.getDescription());
+            }
+            out.writeUTF(transaction.getTransactionType().name());
+            out.writeUTF(transaction.getStatus().name());
+            if ((mask & TRANSACTION_DATE) != 0) {
+                LocalDateTime date = transaction.getTransactionDate();
+                writeVarLong(out, date.toEpochSecond(ZoneOffset.UTC));
+                writeVarLong(out, date.getNano());
+            }
+            if ((mask & EXCHANGE_RATE_PATH) != 0) {
+                out.writeUTF(transaction.getExchangeRatePath());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param idempotencyKey Sonucun ait olduğu anahtar (kodlamada tutulmaz).
+     * @throws IllegalArgumentException Eğer veri bu sürümle kodlanmamışsa.
+     */
+    public static Transaction decode(String idempotencyKey, byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            if (in.readByte() != VERSION) {
+                throw new IllegalArgumentException("Desteklenmeyen işlem sonucu sürümü.");
+            }
+            int mask = in.readUnsignedShort();
+            Transaction transaction = new Transaction();
+            transaction.setIdempotencyKey(idempotencyKey);
+            transaction.setId(readVarLong(in));
+            if ((mask & FROM_WALLET) != 0) {
+                transaction.setFromWalletId(readVarLong(in));
+            }
+            if ((mask & TO_WALLET) != 0) {
+                transaction.setToWalletId(readVarLong(in));
+            }
+            transaction.setOriginalAmount(readDecimal(in, mask & ORIGINAL_AMOUNT));
+            if ((mask & ORIGINAL_CURRENCY) != 0) {
+                transaction.setOriginalCurrency(readCurrency(in));
+            }
+            transaction.setConvertedAmount(readDecimal(in, mask & CONVERTED_AMOUNT));
+            if ((mask & TARGET_CURRENCY) != 0) {
+                transaction.setTargetCurrency(readCurrency(in));
+            }
+            transaction.setExchangeRateUsed(readDecimal(in, mask & EXCHANGE_RATE));
+            transaction.setFeeAmount(readDecimal(in, mask & FEE_AMOUNT));
+            if ((mask & DESCRIPTION) != 0) {
+                transaction.setDescription(in.readUTF());
+            }
+            transaction.setTransactionType(TransactionType.valueOf(in.readUTF()));
+            transaction.setStatus(TransactionStatus.valueOf(in.readUTF()));
+            if ((mask & TRANSACTION_DATE) != 0) {
+                transaction.setTransactionDate(LocalDateTime.ofEpochSecond(readVarLong(in), (int) readVarLong(in), ZoneOffset.UTC));
+            }
+            if ((mask & EXCHANGE_RATE_PATH) != 0) {
+                transaction.setExchangeRatePath(in.readUTF());
+            }
+            return transaction;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("İşlem sonucu çözülemedi.", e);
+        }
+    }
+
+    // 7 bitlik gruplar halinde, küçük değerler için daha az bayt; yalnızca negatif olmayan değerler.
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Geçersiz değişken uzunluklu tam sayı.");
+    }
+
+    private static void writeCurrency(DataOutputStream out, String currency) throws IOException {
+        out.write(currency.getBytes(StandardCharsets.US_ASCII), 0, 3);
+    }
+
+    private static String readCurrency(DataInputStream in) throws IOException {
+        byte[] currency = new byte[3];
+        in.readFully(currency);
+        return new String(currency, StandardCharsets.US_ASCII);
+    }
+
+    private static void writeDecimal(DataOutputStream out, int present, BigDecimal value) throws IOException {
+        if (present == 0) {
+            return;
+        }
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        out.writeByte(value.scale());
+        out.writeByte(unscaled.length);
+        out.write(unscaled);
+    }
+
+    private static BigDecimal readDecimal(DataInputStream in, int present) throws IOException {
+        if (present == 0) {
+            return null;
+        }
+        int scale = in.readByte();
+        byte[] unscaled = new byte[in.readUnsignedByte()];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+}
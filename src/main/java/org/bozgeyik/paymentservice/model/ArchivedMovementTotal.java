@@ -0,0 +1,31 @@
+package org.bozgeyik.paymentservice.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * Arşive taşınmış tamamlanmış işlemlerin bir bakiyeye net hareketi. Tam mutabakat taraması artık sıcak tabloda
+ * olmayan bu işlemleri, taradığı hareketlere bu toplamları ekleyerek hesaba katar.
+ */
+@Entity
+@Data
+@Table(name = "reconciliation_archived_totals",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"wallet_id", "currency"})
+)
+public class ArchivedMovementTotal {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "wallet_id", nullable = false)
+    private Long walletId;
+
+    @Column(name = "currency", nullable = false, length = 3)
+    private String currency;
+
+    @Column(name = "net_amount", nullable = false, precision = 19, scale = 4)
+    private BigDecimal netAmount;
+}
@@ -0,0 +1,20 @@
+package org.bozgeyik.paymentservice.model;
+
+import java.util.Comparator;
+
+/**
+ * Bir bakiye satırını tanımlayan (cüzdan, para birimi) çifti.
+ * Doğal sıralaması, birden fazla bakiye kilitlenirken tüm işlemlerin aynı global sırayı
+ * izlemesi (ve böylece deadlock oluşmaması) için kullanılır.
+ */
+public record BalanceKey(Long walletId, String currency) implements Comparable<BalanceKey> {
+
+    private static final Comparator<BalanceKey> ORDER = Comparator
+            .comparing(BalanceKey::walletId)
+            .thenComparing(BalanceKey::currency);
+
+    @Override
+    public int compareTo(BalanceKey other) {
+        return ORDER.compare(this, other);
+    }
+}
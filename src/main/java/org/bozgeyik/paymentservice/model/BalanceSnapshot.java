@@ -0,0 +1,41 @@
+package org.bozgeyik.paymentservice.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Bir cüzdan bakiyesinin belirli bir yevmiye satırına kadarki (dahil) değeri.
+ * Güncel bakiye = en son snapshot + {@code lastEntryId}'den sonraki yevmiye satırlarının toplamı.
+ * Snapshot'lar da yalnızca eklenir.
+ */
+@Entity
+@Data
+@Table(name = "balance_snapshots",
+        indexes = @Index(name = "idx_balance_snapshots_key", columnList = "wallet_id, currency, id")
+)
+public class BalanceSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "wallet_id", nullable = false)
+    private Long walletId;
+
+    @Column(name = "currency", nullable = false, length = 3)
+    private String currency;
+
+    @Column(name = "balance", nullable = false, precision = 19, scale = 4)
+    private BigDecimal balance;
+
+    @Column(name = "last_entry_id", nullable = false)
+    private Long lastEntryId;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,14 @@
+package org.bozgeyik.paymentservice.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Bir bakiye satırının kilitsiz okunmuş anlık durumu. Yönetilen bir entity olmadığı için
+ * her okumada veritabanından güncel değer gelir ve persistence context'i kirletmez.
+ *
+ * @param id      Bakiye satırının ID'si.
+ * @param balance Okuma anındaki bakiye.
+ * @param version Okuma anındaki {@code @Version} değeri.
+ */
+public record BalanceState(Long id, BigDecimal balance, Long version) {
+}
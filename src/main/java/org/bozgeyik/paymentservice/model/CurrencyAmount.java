@@ -0,0 +1,9 @@
+package org.bozgeyik.paymentservice.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Para birimi bazında toplanmış bir tutar (sorgu projeksiyonu).
+ */
+public record CurrencyAmount(String currency, BigDecimal amount) {
+}
@@ -0,0 +1,48 @@
+package org.bozgeyik.paymentservice.model;
+
+import java.util.Currency;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Para birimlerinin {@link Money} ile kullanılan ondalık basamak bilgileri.
+ * <ul>
+ *     <li>Muhasebe ölçeği: tutarların tam sayı olarak saklandığı en küçük birim. Bakiye ve işlem tablolarındaki
+ *     tutar sütunları {@code numeric(19,4)} olduğundan tüm para birimleri için {@value #LEDGER_SCALE}'tür.</li>
+ *     <li>Gösterim basamağı: bildirim metinlerinde kullanılan basamak sayısı (ISO 4217, ör. TRY 2, JPY 0).
+ *     Bilinmeyen kodlar için 2 kullanılır.</li>
+ * </ul>
+ */
+public final class CurrencyRegistry {
+
+    public static final int LEDGER_SCALE = 4;
+    private static final int DEFAULT_DISPLAY_DIGITS = 2;
+
+    private static final Map<String, Integer> DISPLAY_DIGITS = new ConcurrentHashMap<>();
+
+    private CurrencyRegistry() {
+    }
+
+    /**
+     * Para biriminin muhasebe ölçeğini (tutarların saklandığı ondalık basamak sayısı) döner.
+     */
+    public static int scaleOf(String currency) {
+        return LEDGER_SCALE;
+    }
+
+    /**
+     * Para biriminin gösterimde kullanılan ondalık basamak sayısını döner.
+     */
+    public static int displayDigitsOf(String currency) {
+        return DISPLAY_DIGITS.computeIfAbsent(currency, CurrencyRegistry::lookupDisplayDigits);
+    }
+
+    private static int lookupDisplayDigits(String currency) {
+        try {
+            int digits = Currency.getInstance(currency).getDefaultFractionDigits();
+            return digits >= 0 ? Math.min(digits, LEDGER_SCALE) : DEFAULT_DISPLAY_DIGITS;
+        } catch (IllegalArgumentException e) {
+            return DEFAULT_DISPLAY_DIGITS;
+        }
+    }
+}
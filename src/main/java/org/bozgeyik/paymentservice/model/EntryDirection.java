@@ -0,0 +1,6 @@
+package org.bozgeyik.paymentservice.model;
+
+public enum EntryDirection {
+    DEBIT,  // Hesaptan çıkış (borç)
+    CREDIT  // Hesaba giriş (alacak)
+}
@@ -2,12 +2,14 @@ package org.bozgeyik.paymentservice.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.bozgeyik.paymentservice.service.fx.ExchangeRateChangeListener;
 import org.hibernate.annotations.UpdateTimestamp;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
 @Data
+@EntityListeners(ExchangeRateChangeListener.class)
 @Table(name = "exchange_rates",
         uniqueConstraints = @UniqueConstraint(columnNames = {"from_currency", "to_currency"})
 )
@@ -0,0 +1,35 @@
+package org.bozgeyik.paymentservice.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Bir döviz kurunun belirli bir andan itibaren geçerli olan değeri. Tablo yalnızca eklenir; kurun geçmişteki
+ * bir andaki değeri, o andan önceki son kayıttır.
+ */
+@Entity
+@Data
+@Table(name = "exchange_rate_history",
+        indexes = @Index(name = "idx_exchange_rate_history_pair_time", columnList = "from_currency, to_currency, effective_at, id")
+)
+public class ExchangeRateHistory {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "from_currency", length = 3, nullable = false)
+    private String fromCurrency;
+
+    @Column(name = "to_currency", length = 3, nullable = false)
+    private String toCurrency;
+
+    @Column(name = "rate", precision = 19, scale = 8, nullable = false)
+    private BigDecimal rate;
+
+    @Column(name = "effective_at", nullable = false)
+    private LocalDateTime effectiveAt;
+}
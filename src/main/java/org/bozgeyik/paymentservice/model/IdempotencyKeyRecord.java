@@ -0,0 +1,22 @@
+package org.bozgeyik.paymentservice.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * İşlem tablosu aylık bölümlere ayrıldığında ({@code payment.archive.partitioning}) {@code idempotency_key}'in
+ * benzersizliğini taşıyan, bölümlenmemiş tablo. Her işlem kaydıyla aynı transaction'da eklenir; aynı anahtarın ikinci
+ * eklemesi birincil anahtara takılır. Arşivlenen işlemlerin anahtarları da burada kalır.
+ */
+@Entity
+@Data
+@Table(name = "idempotency_keys")
+public class IdempotencyKeyRecord {
+
+    @Id
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey;
+
+    @Column(name = "transaction_id", nullable = false)
+    private Long transactionId;
+}
@@ -0,0 +1,8 @@
+package org.bozgeyik.paymentservice.model;
+
+public enum LedgerAccountType {
+    WALLET,            // Müşteri cüzdanı (wallet_id ile birlikte)
+    EXTERNAL_CLEARING, // Sisteme giren/çıkan para için karşı hesap (yatırma, çekme, SWIFT)
+    FX_POSITION,       // Döviz alım/satımlarında para birimi pozisyonu
+    FEE_INCOME         // Tahsil edilen komisyonlar
+}
@@ -0,0 +1,22 @@
+package org.bozgeyik.paymentservice.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Bellek içi muhasebe motorunda, bir bölümün önyazım günlüğünden (WAL) veritabanına işlenmiş son kaydın sıra numarası.
+ * {@code wallet_balances} güncellemeleriyle aynı transaction içinde yazılır; açılışta bu noktadan sonraki
+ * kayıtlar veritabanına yeniden işlenir.
+ */
+@Entity
+@Data
+@Table(name = "ledger_checkpoints")
+public class LedgerCheckpoint {
+
+    @Id
+    @Column(name = "partition_no")
+    private Integer partitionNo;
+
+    @Column(name = "last_sequence", nullable = false)
+    private Long lastSequence;
+}
@@ -0,0 +1,52 @@
+package org.bozgeyik.paymentservice.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Çift taraflı muhasebe yevmiyesinin tek bir satırı. Satırlar yalnızca eklenir, asla güncellenmez.
+ * Her para hareketi, aynı {@code transactionId}'ye bağlı bir borç (DEBIT) ve bir alacak (CREDIT) satırı üretir.
+ * Satırlar JDBC batch ile yazılır (bkz. {@code LedgerJournal}); bu sınıf şema ve okuma için kullanılır.
+ */
+@Entity
+@Data
+@Table(name = "ledger_entries",
+        indexes = {
+                @Index(name = "idx_ledger_entries_account", columnList = "account_type, wallet_id, currency, id"),
+                @Index(name = "idx_ledger_entries_transaction", columnList = "transaction_id")
+        }
+)
+public class LedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "transaction_id", nullable = false)
+    private Long transactionId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "account_type", nullable = false, length = 20)
+    private LedgerAccountType accountType;
+
+    // Sadece WALLET hesapları için dolu
+    @Column(name = "wallet_id")
+    private Long walletId;
+
+    @Column(name = "currency", nullable = false, length = 3)
+    private String currency;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "direction", nullable = false, length = 6)
+    private EntryDirection direction;
+
+    // Her zaman pozitif; yönü direction belirler
+    @Column(name = "amount", nullable = false, precision = 19, scale = 4)
+    private BigDecimal amount;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
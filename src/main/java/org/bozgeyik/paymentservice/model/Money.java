@@ -0,0 +1,192 @@
+package org.bozgeyik.paymentservice.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Objects;
+
+/**
+ * Para biriminin en küçük muhasebe birimi cinsinden {@code long} olarak tutulan tutar
+ * (ör. ölçek 4 ile 12.5 TRY = 125000 birim).
+ * <p>
+ * Toplama, çıkarma ve karşılaştırma kesindir; taşma durumunda {@link ArithmeticException} fırlatılır.
+ * Kur ve oran çarpımları her zaman açıkça verilen yuvarlama moduyla hedef ölçeğe yuvarlanır. {@link BigDecimal}'e
+ * dönüşüm yalnızca DTO ve JPA sınırlarında ({@link #of(BigDecimal, String)}, {@link #toBigDecimal()}) yapılır.
+ * Ölçekler {@link CurrencyRegistry}'den okunur.
+ */
+public record Money(long units, String currency) implements Comparable<Money> {
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L,
+            10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L, 10_000_000_000_000L, 100_000_000_000_000L,
+            1_000_000_000_000_000L, 10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L
+    };
+
+    public Money {
+        Objects.requireNonNull(currency, "currency");
+    }
+
+    /**
+     * {@link BigDecimal} tutarı kesin olarak dönüştürür.
+     *
+     * @throws ArithmeticException Eğer tutar para biriminin ölçeğinden fazla ondalık basamak içeriyorsa
+     *                             veya {@code long} sınırlarını aşıyorsa.
+     */
+    public static Money of(BigDecimal amount, String currency) {
+        return new Money(amount.movePointRight(CurrencyRegistry.scaleOf(currency)).longValueExact(), currency);
+    }
+
+    public static Money zero(String currency) {
+        return new Money(0L, currency);
+    }
+
+    public int scale() {
+        return CurrencyRegistry.scaleOf(currency);
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(units, scale());
+    }
+
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.addExact(units, other.units), currency);
+    }
+
+    public Money minus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.subtractExact(units, other.units), currency);
+    }
+
+    public Money negate() {
+        return new Money(Math.negateExact(units), currency);
+    }
+
+    public int signum() {
+        return Long.signum(units);
+    }
+
+    public boolean isNegative() {
+        return units < 0;
+    }
+
+    /**
+     * Tutarı bir oranla (ör. komisyon oranı) çarpar ve sonucu aynı para biriminin ölçeğine yuvarlar.
+     */
+    public Money multiply(BigDecimal factor, RoundingMode roundingMode) {
+        return convert(factor, currency, roundingMode);
+    }
+
+    /**
+     * Tutarı bir kurla çarparak hedef para birimine çevirir ve sonucu hedefin ölçeğine yuvarlar.
+     * Sonuç, {@code toBigDecimal().multiply(rate).setScale(hedef ölçek, roundingMode)} ile aynıdır.
+     */
+    public Money convert(BigDecimal rate, String targetCurrency, RoundingMode roundingMode) {
+        int rateScale = rate.scale();
+        if (rateScale >= 0 && rate.precision() <= 18) {
+            // Küçük kurların ölçeklenmemiş değeri long'a sığar; çarpım taşarsa BigDecimal yoluna düşülür.
+            Money result = multiplyExact(rate.unscaledValue().longValue(), rateScale, targetCurrency, roundingMode);
+            if (result != null) {
+                return result;
+            }
+        }
+        BigDecimal product = toBigDecimal().multiply(rate)
+                .setScale(CurrencyRegistry.scaleOf(targetCurrency), roundingMode);
+        return new Money(product.unscaledValue().longValueExact(), targetCurrency);
+    }
+
+    /**
+     * Tutarı verilen basamak sayısına yuvarlanmış düz metin olarak döner (ör. {@code -12.50}).
+     */
+    public String format(int fractionDigits, RoundingMode roundingMode) {
+        int scale = scale();
+        long value = units;
+        int digits = fractionDigits;
+        if (fractionDigits < scale) {
+            value = divide(units, POWERS_OF_TEN[scale - fractionDigits], roundingMode);
+        } else {
+            digits = scale;
+        }
+        StringBuilder text = new StringBuilder(24);
+        if (value < 0) {
+            text.append('-');
+        }
+        long absolute = Math.abs(value);
+        long unit = POWERS_OF_TEN[digits];
+        text.append(absolute / unit);
+        if (fractionDigits > 0) {
+            text.append('.');
+            long fraction = absolute % unit;
+            for (int i = digits - 1; i >= 0; i--) {
+                text.append((char) ('0' + (fraction / POWERS_OF_TEN[i]) % 10));
+            }
+            for (int i = digits; i < fractionDigits; i++) {
+                text.append('0');
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Bildirimlerde kullanılan gösterim: para biriminin gösterim basamağına yarım yukarı yuvarlanmış tutar
+     * ve para birimi (ör. {@code 12.50 TRY}).
+     */
+    public String toDisplayString() {
+        return format(CurrencyRegistry.displayDigitsOf(currency), RoundingMode.HALF_UP) + " " + currency;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        requireSameCurrency(other);
+        return Long.compare(units, other.units);
+    }
+
+    @Override
+    public String toString() {
+        return format(scale(), RoundingMode.UNNECESSARY) + " " + currency;
+    }
+
+    // Taşma olursa null döner.
+    private Money multiplyExact(long factor, int factorScale, String targetCurrency, RoundingMode roundingMode) {
+        int shift = scale() + factorScale - CurrencyRegistry.scaleOf(targetCurrency);
+        if (shift >= POWERS_OF_TEN.length || -shift >= POWERS_OF_TEN.length) {
+            return null;
+        }
+        try {
+            long product = Math.multiplyExact(units, factor);
+            long result = shift >= 0
+                    ? divide(product, POWERS_OF_TEN[shift], roundingMode)
+                    : Math.multiplyExact(product, POWERS_OF_TEN[-shift]);
+            return new Money(result, targetCurrency);
+        } catch (ArithmeticException overflow) {
+            return null;
+        }
+    }
+
+    private static long divide(long dividend, long divisor, RoundingMode roundingMode) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (remainder == 0) {
+            return quotient;
+        }
+        int sign = dividend < 0 ? -1 : 1;
+        // Kalanın yarıma göre konumu; 2 * kalan taşmasın diye farkla karşılaştırılır.
+        int half = Long.compare(Math.abs(remainder), divisor - Math.abs(remainder));
+        boolean awayFromZero = switch (roundingMode) {
+            case UP -> true;
+            case DOWN -> false;
+            case CEILING -> sign > 0;
+            case FLOOR -> sign < 0;
+            case HALF_UP -> half >= 0;
+            case HALF_DOWN -> half > 0;
+            case HALF_EVEN -> half > 0 || (half == 0 && (quotient & 1) != 0);
+            case UNNECESSARY -> throw new ArithmeticException("Yuvarlama gerekiyor: " + dividend + " / " + divisor);
+        };
+        return awayFromZero ? quotient + sign : quotient;
+    }
+
+    private void requireSameCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Para birimleri uyuşmuyor: " + currency + " - " + other.currency);
+        }
+    }
+}
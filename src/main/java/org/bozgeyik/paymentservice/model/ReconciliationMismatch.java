@@ -0,0 +1,40 @@
+package org.bozgeyik.paymentservice.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * Mutabakatta işlem geçmişiyle uyuşmayan bir bakiye.
+ * Beklenen bakiye = açılış bakiyesi + tamamlanmış işlemlerin net hareketi; fark = gerçek − beklenen.
+ */
+@Entity
+@Data
+@Table(name = "reconciliation_mismatches",
+        indexes = @Index(name = "idx_reconciliation_mismatches_run", columnList = "run_id")
+)
+public class ReconciliationMismatch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_id", nullable = false)
+    private Long runId;
+
+    @Column(name = "wallet_id", nullable = false)
+    private Long walletId;
+
+    @Column(name = "currency", nullable = false, length = 3)
+    private String currency;
+
+    @Column(name = "expected_balance", nullable = false, precision = 19, scale = 4)
+    private BigDecimal expectedBalance;
+
+    @Column(name = "actual_balance", nullable = false, precision = 19, scale = 4)
+    private BigDecimal actualBalance;
+
+    @Column(name = "difference", nullable = false, precision = 19, scale = 4)
+    private BigDecimal difference;
+}
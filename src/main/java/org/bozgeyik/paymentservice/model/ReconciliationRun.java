@@ -0,0 +1,53 @@
+package org.bozgeyik.paymentservice.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Bir mutabakat çalıştırması. Tamamlanmış son çalıştırmanın {@code toTransactionId} değeri, bir sonraki artımlı
+ * çalıştırmanın başlangıç noktasıdır (kontrol noktası); o ana kadarki net hareketler {@code reconciliation_totals}
+ * tablosunda tutulur.
+ */
+@Entity
+@Data
+@Table(name = "reconciliation_runs")
+public class ReconciliationRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "full_scan", nullable = false)
+    private boolean fullScan;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private ReconciliationStatus status;
+
+    // Taranan işlem aralığı: (fromTransactionId, toTransactionId]
+    @Column(name = "from_transaction_id", nullable = false)
+    private Long fromTransactionId;
+
+    @Column(name = "to_transaction_id", nullable = false)
+    private Long toTransactionId;
+
+    @Column(name = "scanned_transactions")
+    private Long scannedTransactions;
+
+    @Column(name = "checked_balances")
+    private Long checkedBalances;
+
+    @Column(name = "mismatch_count")
+    private Long mismatchCount;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(name = "error", length = 1000)
+    private String error;
+}
@@ -0,0 +1,7 @@
+package org.bozgeyik.paymentservice.model;
+
+public enum ReconciliationStatus {
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
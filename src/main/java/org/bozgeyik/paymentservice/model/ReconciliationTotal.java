@@ -0,0 +1,31 @@
+package org.bozgeyik.paymentservice.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * Bir bakiyenin, son tamamlanmış mutabakatın kontrol noktasına kadarki tamamlanmış işlemlerden gelen net hareketi.
+ * Artımlı çalıştırmalar yalnızca kontrol noktasından sonraki işlemleri tarayıp bu toplamlara ekler.
+ */
+@Entity
+@Data
+@Table(name = "reconciliation_totals",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"wallet_id", "currency"})
+)
+public class ReconciliationTotal {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "wallet_id", nullable = false)
+    private Long walletId;
+
+    @Column(name = "currency", nullable = false, length = 3)
+    private String currency;
+
+    @Column(name = "net_amount", nullable = false, precision = 19, scale = 4)
+    private BigDecimal netAmount;
+}
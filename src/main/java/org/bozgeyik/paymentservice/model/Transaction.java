@@ -8,7 +8,13 @@ import java.time.LocalDateTime;
 
 @Entity
 @Data
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        // İmleçle sayfalama: cüzdan ve yön başına (tarih, id) sırasıyla aralık taraması
+        @Index(name = "idx_transactions_from_wallet_date", columnList = "from_wallet_id, transaction_date, id"),
+        @Index(name = "idx_transactions_to_wallet_date", columnList = "to_wallet_id, transaction_date, id"),
+        // Aylık arşivleme ve günlük istatistiklerin yeniden oluşturulması: tarih aralığı taraması
+        @Index(name = "idx_transactions_date", columnList = "transaction_date, id")
+})
 public class Transaction {
 
     @Id
@@ -39,6 +45,12 @@ public class Transaction {
     @Column(name = "exchange_rate_used", precision = 19, scale = 8)
     private BigDecimal exchangeRateUsed;
 
+    @Column(name = "exchange_rate_path", length = 64)
+    private String exchangeRatePath; // örn: "TRY>USD~EUR" (bkz. CrossRate)
+
+    @Column(name = "fee_amount", precision = 19, scale = 4)
+    private BigDecimal feeAmount; // Kaynak para biriminde kesilen komisyon (örn: SWIFT)
+
     @Column(name = "description", length = 1000)
     private String description;
 
@@ -0,0 +1,47 @@
+package org.bozgeyik.paymentservice.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Sıcak tablodan ({@code transactions}) arşiv dosyasına taşınmış bir ayın kaydı. Dosyanın kendisi
+ * {@code payment.archive.dir} altında, {@code fileName} adıyla durur ve yazıldıktan sonra değişmez.
+ * {@code purged} false ise ayın sıcak satırları henüz silinmemiştir; arşivleyici bir sonraki çalıştırmada tamamlar.
+ */
+@Entity
+@Data
+@Table(name = "transaction_archive_segments")
+public class TransactionArchiveSegment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** Ayın ilk günü. */
+    @Column(name = "month_start", nullable = false, unique = true)
+    private LocalDate month;
+
+    @Column(name = "file_name", nullable = false, length = 64)
+    private String fileName;
+
+    @Column(name = "row_count", nullable = false)
+    private long rowCount;
+
+    @Column(name = "file_bytes", nullable = false)
+    private long fileBytes;
+
+    @Column(name = "min_transaction_id")
+    private Long minTransactionId;
+
+    @Column(name = "max_transaction_id")
+    private Long maxTransactionId;
+
+    @Column(name = "purged", nullable = false)
+    private boolean purged;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
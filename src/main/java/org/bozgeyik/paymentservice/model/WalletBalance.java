@@ -29,6 +29,10 @@ public class WalletBalance {
     @Column(name = "balance", nullable = false, precision = 19, scale = 4)
     private BigDecimal balance = BigDecimal.ZERO;
 
+    // Cüzdan açılırken verilen bakiye; işlem kaydı olmadığı için mutabakatta başlangıç noktasıdır (boşsa sıfır).
+    @Column(name = "opening_balance", precision = 19, scale = 4)
+    private BigDecimal openingBalance;
+
     @Version
     private Long version;
 }
\ No newline at end of file
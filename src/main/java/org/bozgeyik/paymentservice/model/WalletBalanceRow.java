@@ -0,0 +1,18 @@
+package org.bozgeyik.paymentservice.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Cüzdan okuma uçları için tek sorguda okunan düz satır: cüzdan, sahibi ve bakiye satırlarından biri.
+ * Yönetilen bir entity olmadığı için tembel yükleme veya dirty checking tetiklemez.
+ *
+ * @param walletId  Cüzdan ID'si.
+ * @param userId    Cüzdan sahibinin ID'si.
+ * @param ownerName Cüzdan sahibinin adı.
+ * @param status    Cüzdan durumu.
+ * @param currency  Bakiye satırının para birimi; cüzdanın hiç bakiye satırı yoksa {@code null}.
+ * @param balance   Bakiye satırındaki değer; cüzdanın hiç bakiye satırı yoksa {@code null}.
+ */
+public record WalletBalanceRow(Long walletId, Long userId, String ownerName, AccountStatus status,
+                               String currency, BigDecimal balance) {
+}
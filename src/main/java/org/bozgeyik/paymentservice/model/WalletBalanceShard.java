@@ -0,0 +1,39 @@
+package org.bozgeyik.paymentservice.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * Sıcak (çok yoğun para girişi alan) cüzdanlar için bakiyenin bir parçası.
+ * Bir sıcak cüzdanın toplam bakiyesi, {@code wallet_balances} satırı ile bu tablodaki
+ * aynı (cüzdan, para birimi) için tüm parçaların toplamıdır. Para girişleri rastgele bir parçaya
+ * yazıldığı için tek bir satır üzerinde kilit sırası oluşmaz.
+ */
+@Entity
+@Data
+@Table(name = "wallet_balance_shards",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"wallet_id", "currency", "shard_no"})
+)
+public class WalletBalanceShard {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "wallet_id", nullable = false)
+    private Long walletId;
+
+    @Column(name = "currency", nullable = false, length = 3)
+    private String currency;
+
+    @Column(name = "shard_no", nullable = false)
+    private Integer shardNo;
+
+    @Column(name = "balance", nullable = false, precision = 19, scale = 4)
+    private BigDecimal balance = BigDecimal.ZERO;
+
+    @Version
+    private Long version;
+}
@@ -0,0 +1,61 @@
+package org.bozgeyik.paymentservice.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Bir cüzdanın bir günde, bir para biriminde ve bir işlem türündeki tamamlanmış işlem hareketlerinin özeti. İstatistik
+ * sorguları işlemleri taramak yerine bu satırları okur: bir yıllık aktivite cüzdan, para birimi ve tür başına en fazla
+ * 365 satırdır. Satırlar JDBC ile artımlı yazılır (bkz. {@code WalletStatsWriter}); bu sınıf şema ve okuma için
+ * kullanılır.
+ */
+@Entity
+@Data
+@Table(name = "wallet_daily_stats",
+        uniqueConstraints = {
+                // Artımlı yazmanın upsert anahtarı; cüzdan başına tarih aralığı okuması da bu indeksi kullanır
+                @UniqueConstraint(name = "uk_wallet_daily_stats_key",
+                        columnNames = {"wallet_id", "stat_date", "currency", "transaction_type"})
+        }
+)
+public class WalletDailyStat {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "wallet_id", nullable = false)
+    private Long walletId;
+
+    // İşlem tarihinin günü
+    @Column(name = "stat_date", nullable = false)
+    private LocalDate statDate;
+
+    @Column(name = "currency", nullable = false, length = 3)
+    private String currency;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "transaction_type", nullable = false, length = 20)
+    private TransactionType transactionType;
+
+    // Cüzdanın gönderen olduğu işlemler ve kaynak para birimindeki toplam tutarları (komisyon hariç)
+    @Column(name = "debit_count", nullable = false)
+    private long debitCount;
+
+    @Column(name = "debit_amount", nullable = false, precision = 19, scale = 4)
+    private BigDecimal debitAmount;
+
+    // Cüzdanın alıcı olduğu işlemler ve hedef para birimindeki toplam tutarları
+    @Column(name = "credit_count", nullable = false)
+    private long creditCount;
+
+    @Column(name = "credit_amount", nullable = false, precision = 19, scale = 4)
+    private BigDecimal creditAmount;
+
+    // Gönderen tarafta kesilen komisyonlar
+    @Column(name = "fee_amount", nullable = false, precision = 19, scale = 4)
+    private BigDecimal feeAmount;
+}
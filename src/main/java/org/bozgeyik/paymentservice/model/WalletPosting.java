@@ -0,0 +1,54 @@
+package org.bozgeyik.paymentservice.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Bir işlemin tek bir cüzdan tarafı: işlem geçmişi sorguları için {@code transactions} tablosunun cüzdan bazında
+ * denormalize edilmiş dizini. Her işlem için gönderen (DEBIT) ve alıcı (CREDIT) cüzdan başına birer satır yazılır;
+ * döviz alım/satımında iki satır da aynı cüzdana aittir. Satırlar işlemle aynı transaction'da JDBC ile yazılır
+ * (bkz. {@code WalletPostings}); bu sınıf şema ve okuma için kullanılır.
+ */
+@Entity
+@Data
+@Table(name = "wallet_postings",
+        indexes = {
+                // Geçmiş okuması: cüzdan başına (tarih, işlem) sırasıyla tek aralık taraması, tabloya dönmeden
+                @Index(name = "idx_wallet_postings_wallet_date", columnList = "wallet_id, transaction_date, transaction_id")
+        },
+        uniqueConstraints = {
+                // Geçmiş doldurma işinin canlı yazılarla çakışan satırları atlayabilmesi için
+                @UniqueConstraint(name = "uk_wallet_postings_side", columnNames = {"transaction_id", "wallet_id", "direction"})
+        }
+)
+public class WalletPosting {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "wallet_id", nullable = false)
+    private Long walletId;
+
+    @Column(name = "transaction_id", nullable = false)
+    private Long transactionId;
+
+    // İşlemin tarihiyle aynı
+    @Column(name = "transaction_date", nullable = false)
+    private LocalDateTime transactionDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "direction", nullable = false, length = 6)
+    private EntryDirection direction;
+
+    // İşaretli tutar: gönderende −original_amount, alıcıda +converted_amount (komisyon hariç). Başarısız
+    // işlemlerde dönüştürülmüş tutar hesaplanmamış olabilir; o durumda boştur.
+    @Column(name = "amount", precision = 19, scale = 4)
+    private BigDecimal amount;
+
+    @Column(name = "currency", length = 3)
+    private String currency;
+}
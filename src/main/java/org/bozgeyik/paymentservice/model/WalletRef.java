@@ -0,0 +1,13 @@
+package org.bozgeyik.paymentservice.model;
+
+/**
+ * Ödeme akışlarının bir cüzdan hakkında bilmesi gerekenler: bakiyeler ve kullanıcı entity'si yüklenmeden,
+ * yalnızca ID'lerle çalışmak için. Yönetilen bir entity değildir; önbellekte tutulabilir.
+ *
+ * @param walletId   Cüzdan ID'si.
+ * @param userId     Cüzdan sahibinin ID'si.
+ * @param customerId Cüzdan sahibinin müşteri kimliği (bildirimler için).
+ * @param status     Okuma anındaki cüzdan durumu.
+ */
+public record WalletRef(Long walletId, Long userId, String customerId, AccountStatus status) {
+}
@@ -0,0 +1,31 @@
+package org.bozgeyik.paymentservice.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * {@code wallet_daily_stats} tablosunun yeniden oluşturulma durumu; tüm instance'lar arasında paylaşılan tek satır
+ * ({@code id = 1}). Satırlar JDBC ile yazılır (bkz. {@code WalletStatsWriter}); bu sınıf şema için kullanılır.
+ */
+@Entity
+@Data
+@Table(name = "wallet_stats_rebuild")
+public class WalletStatsRebuildState {
+
+    @Id
+    @Column(name = "id")
+    private Integer id;
+
+    // Yeniden oluşturma sürerken hiçbir instance istatistik yazmaz, toplamlarını bekletir
+    @Column(name = "running", nullable = false)
+    private boolean running;
+
+    // Son yeniden oluşturmanın okuduğu son işlem ID'si; bu ID'ye kadarki işlemler tabloda sayılmıştır
+    @Column(name = "counted_through_id", nullable = false)
+    private long countedThroughId;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+}
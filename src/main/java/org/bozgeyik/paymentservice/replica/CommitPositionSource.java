@@ -0,0 +1,11 @@
+package org.bozgeyik.paymentservice.replica;
+
+/**
+ * Replikaların birincil veritabanını ne kadar yakaladığının ölçüldüğü kaynak ({@code payment.replicas.position-source}).
+ */
+public enum CommitPositionSource {
+    /** MySQL GTID kümeleri; ek tablo veya yazma gerektirmez. */
+    GTID,
+    /** Birincil veritabanında düzenli artırılan bir sayaç satırı; GTID'siz kurulumlar ve H2 ile testler için. */
+    HEARTBEAT
+}
@@ -0,0 +1,23 @@
+package org.bozgeyik.paymentservice.replica;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Birincil veritabanının commit konumunu okur ve bir replikanın o konuma ulaşıp ulaşmadığını kontrol eder.
+ */
+public interface CommitPositions {
+
+    /**
+     * Birincil veritabanında bu çağrıdan önce commit edilmiş tüm işlemleri kapsayan konum.
+     */
+    String current() throws SQLException;
+
+    /**
+     * Replikanın verilen konuma kadar olan tüm işlemleri uygulayıp uygulamadığı.
+     *
+     * @param replica  Replika bağlantısı; kapatılmaz.
+     * @param position {@link #current()}'in döndüğü bir konum.
+     */
+    boolean reached(Connection replica, String position) throws SQLException;
+}
@@ -0,0 +1,39 @@
+package org.bozgeyik.paymentservice.replica;
+
+/**
+ * Geçerli thread'deki işin replikadan okuyup okuyamayacağı ve okuyacaksa replikanın en az hangi konumda olması
+ * gerektiği. Varsayılan olarak (kapsam açılmamışsa) tüm bağlantılar birincilden alınır; böylece zamanlanmış işler,
+ * kuyruk tüketicileri ve yazma isteklerinin commit sonrası okumaları gecikmeli veri görmez.
+ */
+public final class ConsistencyContext {
+
+    private record Scope(String requiredPosition) {
+    }
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private ConsistencyContext() {
+    }
+
+    /**
+     * Bu thread'deki salt okunur transaction'ların replikadan okumasına izin verir.
+     *
+     * @param requiredPosition Replikanın ulaşmış olması gereken konum; yoksa {@code null}.
+     */
+    public static void enter(String requiredPosition) {
+        CURRENT.set(new Scope(requiredPosition));
+    }
+
+    public static void exit() {
+        CURRENT.remove();
+    }
+
+    static boolean replicaAllowed() {
+        return CURRENT.get() != null;
+    }
+
+    static String requiredPosition() {
+        Scope scope = CURRENT.get();
+        return scope != null ? scope.requiredPosition() : null;
+    }
+}
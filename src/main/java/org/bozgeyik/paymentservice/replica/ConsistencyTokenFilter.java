@@ -0,0 +1,77 @@
+package org.bozgeyik.paymentservice.replica;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Base64;
+
+/**
+ * Okuma isteklerinde (GET, HEAD) replikadan okumaya izin verir; diğer istekler tamamen birincil veritabanında çalışır.
+ * <p>
+ * Yazma isteklerinin yanıtına, işlemler commit edildikten sonra okunan birincil konumu {@value #HEADER} başlığıyla
+ * eklenir (gövde bunun için bellekte tutulur). İstemci bu değeri sonraki okuma isteğinde aynı başlıkla gönderirse
+ * okuma, kendi yazmasını görmüş bir replikadan veya birincilden yapılır.
+ */
+@Slf4j
+public class ConsistencyTokenFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-Consistency-Token";
+    private static final int MAX_TOKEN_LENGTH = 8192;
+
+    private final ReplicaRoutingDataSource dataSource;
+
+    public ConsistencyTokenFilter(ReplicaRoutingDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String method = request.getMethod();
+        if ("GET".equals(method) || "HEAD".equals(method)) {
+            ConsistencyContext.enter(decode(request.getHeader(HEADER)));
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                ConsistencyContext.exit();
+            }
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        try {
+            chain.doFilter(request, wrapper);
+            if (wrapper.getStatus() < 500) {
+                response.setHeader(HEADER, encode(dataSource.currentPosition()));
+            }
+        } catch (SQLException e) {
+            log.warn("Tutarlılık konumu okunamadı: {}", e.getMessage());
+        } finally {
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private static String encode(String position) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Çözümlenemeyen değerler yok sayılır; okuma konum beklemeden yapılır.
+    private static String decode(String token) {
+        if (token == null || token.isBlank() || token.length() > MAX_TOKEN_LENGTH) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(token.strip()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
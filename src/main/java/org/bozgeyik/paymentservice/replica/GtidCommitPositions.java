@@ -0,0 +1,41 @@
+package org.bozgeyik.paymentservice.replica;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * MySQL GTID tabanlı konumlar: birincilin {@code gtid_executed} kümesi, replikanın kümesinin alt kümesi olduğunda
+ * replika o ana kadarki tüm işlemleri uygulamıştır. {@code gtid_mode=ON} gerektirir.
+ */
+final class GtidCommitPositions implements CommitPositions {
+
+    private final DataSource primary;
+
+    GtidCommitPositions(DataSource primary) {
+        this.primary = primary;
+    }
+
+    @Override
+    public String current() throws SQLException {
+        try (Connection connection = primary.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT @@GLOBAL.gtid_executed")) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    @Override
+    public boolean reached(Connection replica, String position) throws SQLException {
+        try (PreparedStatement statement = replica.prepareStatement("SELECT GTID_SUBSET(?, @@GLOBAL.gtid_executed)")) {
+            statement.setString(1, position);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+}
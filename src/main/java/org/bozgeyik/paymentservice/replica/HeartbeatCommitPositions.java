@@ -0,0 +1,106 @@
+package org.bozgeyik.paymentservice.replica;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sayaç tabanlı konumlar: birincildeki {@code replication_heartbeat} satırı {@code interval-ms} aralıklarla artırılır
+ * ve satır replikalara diğer işlemlerle aynı sırayla ulaşır.
+ * <p>
+ * {@link #current()} sayacın okunan değerinden bir fazlasını döner: o değer okunduktan sonra commit edilecektir, yani
+ * replikada göründüğünde okumadan önce commit edilmiş her işlem de görünür. Bu yüzden bir yazmanın replikada okunabilmesi
+ * en az bir sayaç aralığı kadar sürer. Birden fazla instance aynı satırı artırabilir.
+ */
+@Slf4j
+final class HeartbeatCommitPositions implements CommitPositions, AutoCloseable {
+
+    private final DataSource primary;
+    private final ScheduledExecutorService ticker;
+
+    HeartbeatCommitPositions(DataSource primary, long intervalMillis) throws SQLException {
+        this.primary = primary;
+        createTable();
+        this.ticker = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("replica-heartbeat").daemon().factory());
+        if (intervalMillis > 0) {
+            ticker.scheduleWithFixedDelay(this::tickQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public String current() throws SQLException {
+        try (Connection connection = primary.getConnection()) {
+            return Long.toString(read(connection) + 1);
+        }
+    }
+
+    @Override
+    public boolean reached(Connection replica, String position) throws SQLException {
+        long required;
+        try {
+            required = Long.parseLong(position);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        return read(replica) >= required;
+    }
+
+    /**
+     * Sayacı bir artırır.
+     */
+    void tick() throws SQLException {
+        try (Connection connection = primary.getConnection();
+             Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(true);
+            statement.executeUpdate("UPDATE replication_heartbeat SET position = position + 1 WHERE id = 1");
+        }
+    }
+
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+    }
+
+    private void tickQuietly() {
+        try {
+            tick();
+        } catch (SQLException | RuntimeException e) {
+            log.warn("Replikasyon sayacı artırılamadı: {}", e.getMessage());
+        }
+    }
+
+    private void createTable() throws SQLException {
+        try (Connection connection = primary.getConnection();
+             Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(true);
+            statement.execute("CREATE TABLE IF NOT EXISTS replication_heartbeat (id INT PRIMARY KEY, position BIGINT NOT NULL)");
+            try (ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM replication_heartbeat WHERE id = 1")) {
+                rs.next();
+                if (rs.getInt(1) > 0) {
+                    return;
+                }
+            }
+            statement.executeUpdate("INSERT INTO replication_heartbeat (id, position) VALUES (1, 0)");
+        } catch (SQLException e) {
+            // Başka bir instance aynı anda eklemiş olabilir.
+            if (!"23000".equals(e.getSQLState()) && !"23505".equals(e.getSQLState())) {
+                throw e;
+            }
+        }
+    }
+
+    private static long read(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT position FROM replication_heartbeat WHERE id = 1");
+             ResultSet rs = statement.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : -1;
+        }
+    }
+}
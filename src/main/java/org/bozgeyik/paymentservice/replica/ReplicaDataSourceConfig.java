@@ -0,0 +1,109 @@
+package org.bozgeyik.paymentservice.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@code payment.replicas.enabled} açıkken uygulamanın DataSource'unu birincil ve replika havuzlarından oluşan bir
+ * {@link ReplicaRoutingDataSource} ile değiştirir. Birincil havuz {@code spring.datasource.*} ayarlarıyla kurulur;
+ * replikalar aynı kullanıcı ve sürücüyü, salt okunur bağlantılarla kullanır.
+ */
+@Configuration
+@ConditionalOnProperty(name = "payment.replicas.enabled", havingValue = "true")
+@Slf4j
+public class ReplicaDataSourceConfig {
+
+    @Value("${payment.replicas.urls:}")
+    private String replicaUrls;
+
+    @Value("${payment.replicas.pool-size:10}")
+    private int replicaPoolSize;
+
+    // Erişilemeyen bir replika okumayı bu süreden fazla bekletmez.
+    @Value("${payment.replicas.connection-timeout:250ms}")
+    private Duration replicaConnectionTimeout;
+
+    @Value("${payment.replicas.position-source:GTID}")
+    private CommitPositionSource positionSource;
+
+    @Value("${payment.replicas.heartbeat-ms:50}")
+    private long heartbeatMillis;
+
+    @Value("${payment.replicas.max-wait:200ms}")
+    private Duration maxWait;
+
+    @Value("${payment.replicas.poll-interval:10ms}")
+    private Duration pollInterval;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public CommitPositions commitPositions(HikariDataSource primaryDataSource) throws SQLException {
+        return positionSource == CommitPositionSource.HEARTBEAT
+                ? new HeartbeatCommitPositions(primaryDataSource, heartbeatMillis)
+                : new GtidCommitPositions(primaryDataSource);
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                                                             DataSourceProperties properties,
+                                                             CommitPositions commitPositions,
+                                                             MeterRegistry meterRegistry) {
+        List<DataSource> replicas = new ArrayList<>();
+        List<String> urls = Arrays.stream(replicaUrls.split(",")).map(String::strip).filter(url -> !url.isEmpty()).toList();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + (i + 1));
+            replica.setJdbcUrl(urls.get(i));
+            replica.setUsername(properties.determineUsername());
+            replica.setPassword(properties.determinePassword());
+            replica.setDriverClassName(properties.determineDriverClassName());
+            replica.setMaximumPoolSize(replicaPoolSize);
+            replica.setConnectionTimeout(replicaConnectionTimeout.toMillis());
+            replica.setTransactionIsolation(primaryDataSource.getTransactionIsolation());
+            replica.setReadOnly(true);
+            // Açılışta erişilemeyen replika uygulamayı durdurmaz; bağlantı alınamadığında okuma birincile düşer.
+            replica.setInitializationFailTimeout(-1);
+            replicas.add(replica);
+        }
+        log.info("Replika yönlendirme: {} replika, konum kaynağı {}, en fazla bekleme {}", replicas.size(), positionSource, maxWait);
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, commitPositions, maxWait, pollInterval, meterRegistry);
+    }
+
+    // Bağlantı ilk sorguda alınır; o anda transaction'ın salt okunur olduğu bilinir.
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ConsistencyTokenFilter> consistencyTokenFilter(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        FilterRegistrationBean<ConsistencyTokenFilter> registration =
+                new FilterRegistrationBean<>(new ConsistencyTokenFilter(replicaRoutingDataSource));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+}
@@ -0,0 +1,142 @@
+package org.bozgeyik.paymentservice.replica;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Salt okunur transaction'ları ({@code @Transactional(readOnly = true)}) replikalara, diğer her şeyi birincil
+ * veritabanına yönlendiren DataSource.
+ * <p>
+ * Bağlantının transaction'ın salt okunur olduğu bilindikten sonra, ilk sorguda alınması için
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} ile sarılarak kullanılmalıdır.
+ * Replikalar yalnızca {@link ConsistencyContext} kapsamı açık thread'lerde kullanılır. Kapsam bir konum istiyorsa
+ * replikalar {@code maxWait} süresince {@code pollInterval} aralıklarla yoklanır; hiçbiri o konuma ulaşmazsa veya
+ * erişilemezse bağlantı birincilden alınır.
+ * <p>
+ * Metrikler: {@code datasource.replica.reads} (replikadan alınan bağlantılar),
+ * {@code datasource.replica.fallbacks} (konum veya erişim yüzünden birincile düşenler) ve
+ * {@code datasource.replica.wait} (konum beklemesi).
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final CommitPositions positions;
+    private final long maxWaitNanos;
+    private final long pollIntervalMillis;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final Counter replicaReads;
+    private final Counter fallbacks;
+    private final Timer waits;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, CommitPositions positions,
+                                    Duration maxWait, Duration pollInterval, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.positions = positions;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.pollIntervalMillis = Math.max(1, pollInterval.toMillis());
+        this.replicaReads = meterRegistry.counter("datasource.replica.reads");
+        this.fallbacks = meterRegistry.counter("datasource.replica.fallbacks");
+        this.waits = meterRegistry.timer("datasource.replica.wait");
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (replicas.isEmpty() || !ConsistencyContext.replicaAllowed()
+                || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return primary.getConnection();
+        }
+        Connection replica = replicaConnection(ConsistencyContext.requiredPosition());
+        if (replica != null) {
+            replicaReads.increment();
+            return replica;
+        }
+        fallbacks.increment();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    /**
+     * Birincil veritabanının güncel commit konumu.
+     */
+    public String currentPosition() throws SQLException {
+        return positions.current();
+    }
+
+    /**
+     * Replika havuzlarını kapatır; birincil havuz ayrı bir bean olarak yönetilir.
+     */
+    @Override
+    public void close() throws Exception {
+        for (DataSource replica : replicas) {
+            if (replica instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    // Konuma ulaşmış bir replika bağlantısı veya null.
+    private Connection replicaConnection(String requiredPosition) {
+        long start = System.nanoTime();
+        int first = Math.floorMod(next.getAndIncrement(), replicas.size());
+        try {
+            while (true) {
+                for (int i = 0; i < replicas.size(); i++) {
+                    Connection connection = caughtUp(replicas.get((first + i) % replicas.size()), requiredPosition);
+                    if (connection != null) {
+                        return connection;
+                    }
+                }
+                if (requiredPosition == null || System.nanoTime() - start >= maxWaitNanos) {
+                    return null;
+                }
+                Thread.sleep(pollIntervalMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            if (requiredPosition != null) {
+                waits.record(Duration.ofNanos(System.nanoTime() - start));
+            }
+        }
+    }
+
+    private Connection caughtUp(DataSource replica, String requiredPosition) {
+        Connection connection = null;
+        try {
+            connection = replica.getConnection();
+            if (requiredPosition == null || positions.reached(connection, requiredPosition)) {
+                return connection;
+            }
+        } catch (SQLException e) {
+            log.warn("Replika bağlantısı alınamadı: {}", e.getMessage());
+        }
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException ignored) {
+                // Havuz bağlantıyı zaten geri almıştır.
+            }
+        }
+        return null;
+    }
+}
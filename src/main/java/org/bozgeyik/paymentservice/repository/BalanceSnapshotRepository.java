@@ -0,0 +1,17 @@
+package org.bozgeyik.paymentservice.repository;
+
+import org.bozgeyik.paymentservice.model.BalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot, Long> {
+
+    Optional<BalanceSnapshot> findFirstByWalletIdAndCurrencyOrderByIdDesc(Long walletId, String currency);
+
+    @Query("SELECT COALESCE(MAX(s.lastEntryId), 0) FROM BalanceSnapshot s")
+    Long findMaxLastEntryId();
+}
@@ -0,0 +1,17 @@
+package org.bozgeyik.paymentservice.repository;
+
+import org.bozgeyik.paymentservice.model.LedgerCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface LedgerCheckpointRepository extends JpaRepository<LedgerCheckpoint, Integer> {
+
+    @Modifying
+    @Query(value = "INSERT INTO ledger_checkpoints (partition_no, last_sequence) VALUES (:partitionNo, :lastSequence) " +
+            "ON DUPLICATE KEY UPDATE last_sequence = VALUES(last_sequence)", nativeQuery = true)
+    int saveCheckpoint(@Param("partitionNo") int partitionNo, @Param("lastSequence") long lastSequence);
+}
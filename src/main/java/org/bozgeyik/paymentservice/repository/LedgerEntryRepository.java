@@ -0,0 +1,37 @@
+package org.bozgeyik.paymentservice.repository;
+
+import org.bozgeyik.paymentservice.model.BalanceKey;
+import org.bozgeyik.paymentservice.model.LedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Yevmiye satırları ({@link LedgerEntry}) için okuma sorguları. Yazma işlemleri JDBC batch ile yapılır.
+ */
+@Repository
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+
+    /**
+     * Bir cüzdan hesabının (afterId, upToId] aralığındaki satırlarının net toplamını (alacak - borç) hesaplar.
+     * {@code idx_ledger_entries_account} indeksi üzerinde aralık taraması yapar.
+     */
+    @Query("SELECT COALESCE(SUM(CASE WHEN e.direction = org.bozgeyik.paymentservice.model.EntryDirection.CREDIT " +
+            "THEN e.amount ELSE -e.amount END), 0) FROM LedgerEntry e " +
+            "WHERE e.accountType = org.bozgeyik.paymentservice.model.LedgerAccountType.WALLET " +
+            "AND e.walletId = :walletId AND e.currency = :currency AND e.id > :afterId AND e.id <= :upToId")
+    BigDecimal sumWalletEntries(@Param("walletId") Long walletId, @Param("currency") String currency,
+                                @Param("afterId") Long afterId, @Param("upToId") Long upToId);
+
+    /**
+     * (afterId, upToId] aralığında hareket görmüş cüzdan bakiyelerini döner.
+     */
+    @Query("SELECT DISTINCT new org.bozgeyik.paymentservice.model.BalanceKey(e.walletId, e.currency) FROM LedgerEntry e " +
+            "WHERE e.accountType = org.bozgeyik.paymentservice.model.LedgerAccountType.WALLET " +
+            "AND e.id > :afterId AND e.id <= :upToId")
+    List<BalanceKey> findWalletKeysBetween(@Param("afterId") Long afterId, @Param("upToId") Long upToId);
+}
@@ -0,0 +1,13 @@
+package org.bozgeyik.paymentservice.repository;
+
+import org.bozgeyik.paymentservice.model.ReconciliationMismatch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ReconciliationMismatchRepository extends JpaRepository<ReconciliationMismatch, Long> {
+
+    List<ReconciliationMismatch> findTop100ByRunIdOrderByIdAsc(Long runId);
+}
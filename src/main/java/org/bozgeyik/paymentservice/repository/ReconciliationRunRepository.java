@@ -0,0 +1,16 @@
+package org.bozgeyik.paymentservice.repository;
+
+import org.bozgeyik.paymentservice.model.ReconciliationRun;
+import org.bozgeyik.paymentservice.model.ReconciliationStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ReconciliationRunRepository extends JpaRepository<ReconciliationRun, Long> {
+
+    Optional<ReconciliationRun> findFirstByStatusOrderByIdDesc(ReconciliationStatus status);
+
+    Optional<ReconciliationRun> findFirstByOrderByIdDesc();
+}
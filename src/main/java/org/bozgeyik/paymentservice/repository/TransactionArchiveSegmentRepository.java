@@ -0,0 +1,16 @@
+package org.bozgeyik.paymentservice.repository;
+
+import org.bozgeyik.paymentservice.model.TransactionArchiveSegment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TransactionArchiveSegmentRepository extends JpaRepository<TransactionArchiveSegment, Long> {
+
+    List<TransactionArchiveSegment> findAllByOrderByMonthAsc();
+
+    Optional<TransactionArchiveSegment> findFirstByOrderByMonthDesc();
+}
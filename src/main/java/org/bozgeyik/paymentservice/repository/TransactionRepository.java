@@ -4,16 +4,21 @@ import org.bozgeyik.paymentservice.model.Transaction;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * Finansal işlem (Transaction) entity'si için veritabanı işlemlerini yöneten repository arayüzü.
  * JpaRepository'yi genişleterek temel CRUD operasyonlarını sağlar ve özel sorgular içerir.
  */
 @Repository
-public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+public interface TransactionRepository extends JpaRepository<Transaction, Long>, TransactionRepositoryCustom {
 
     /**
      * Belirtilen idempotency anahtarının veritabanında mevcut olup olmadığını kontrol eder.
@@ -25,6 +30,25 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
      */
     boolean existsByIdempotencyKey(String idempotencyKey);
 
+    /**
+     * Belirtilen idempotency anahtarıyla kaydedilmiş işlemi getirir. Tekrarlanan isteklere asıl işlemin sonucunu
+     * döndürmek için, sonuç önbellekte bulunamadığında kullanılır.
+     *
+     * @param idempotencyKey İşlemin idempotency anahtarı.
+     * @return İşlem kaydı; yoksa boş.
+     */
+    Optional<Transaction> findByIdempotencyKey(String idempotencyKey);
+
+    /**
+     * Verilen idempotency anahtarlarından veritabanında zaten mevcut olanları tek sorguda döner.
+     * Toplu işlenen isteklerin her biri için ayrı {@link #existsByIdempotencyKey(String)} sorgusu atmamak için kullanılır.
+     *
+     * @param idempotencyKeys Kontrol edilecek anahtarlar.
+     * @return Mevcut anahtarlar.
+     */
+    @Query("SELECT t.idempotencyKey FROM Transaction t WHERE t.idempotencyKey IN :keys")
+    Set<String> findExistingIdempotencyKeys(@Param("keys") Collection<String> idempotencyKeys);
+
     /**
      * Belirtilen cüzdan ID listelerine göre işlemleri (transaction) arar.
      * Bir işlem, kaynak cüzdan (fromWallet) VEYA hedef cüzdan (toWallet) olarak bu listelerden herhangi birinde
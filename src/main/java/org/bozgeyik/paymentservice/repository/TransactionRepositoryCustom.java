@@ -0,0 +1,25 @@
+package org.bozgeyik.paymentservice.repository;
+
+import org.bozgeyik.paymentservice.model.Transaction;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * {@link TransactionRepository} için Spring Data'nın türetemediği, dinamik olarak oluşturulan sorgular.
+ */
+public interface TransactionRepositoryCustom {
+
+    /**
+     * Cüzdanların kaynak veya hedef olduğu işlemlerden (tarih, ID) sırasına göre yeniden eskiye ilk {@code limit}
+     * tanesini döner. OFFSET ve COUNT kullanmaz: her cüzdan ve yön için {@code (cüzdan, tarih, id)} indeksinde
+     * imleçten başlayan ve en fazla {@code limit} satır okuyan ayrı bir aralık taranır, sonuçlar birleştirilir.
+     * Böylece sayfa süresi listenin derinliğinden bağımsızdır.
+     *
+     * @param walletIds  Cüzdan ID'leri.
+     * @param beforeDate İmlecin tarihi; ilk sayfa için {@code null}.
+     * @param beforeId   İmlecin işlem ID'si; ilk sayfa için {@code null}.
+     * @param limit      En fazla satır sayısı.
+     */
+    List<Transaction> findLatestForWallets(List<Long> walletIds, LocalDateTime beforeDate, Long beforeId, int limit);
+}
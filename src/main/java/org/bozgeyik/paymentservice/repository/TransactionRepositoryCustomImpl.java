@@ -0,0 +1,57 @@
+package org.bozgeyik.paymentservice.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.bozgeyik.paymentservice.model.Transaction;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+class TransactionRepositoryCustomImpl implements TransactionRepositoryCustom {
+
+    private static final String[] WALLET_COLUMNS = {"from_wallet_id", "to_wallet_id"};
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Transaction> findLatestForWallets(List<Long> walletIds, LocalDateTime beforeDate, Long beforeId, int limit) {
+        if (walletIds.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        // OR-of-IN yerine cüzdan ve yön başına indeks sırasıyla okunan, kendi LIMIT'i olan alt sorgular.
+        // UNION, kaynağı ve hedefi aynı kullanıcıya ait işlemleri (döviz alım/satımı, kendi cüzdanları arası) tekilleştirir.
+        // Satır karşılaştırması MySQL'de indekse yansımadığı için imleç koşulu açık yazılır.
+        String seek = beforeDate != null ? " AND (transaction_date < ? OR (transaction_date = ? AND id < ?))" : "";
+        StringBuilder sql = new StringBuilder("SELECT * FROM (");
+        for (int i = 0; i < walletIds.size(); i++) {
+            for (String column : WALLET_COLUMNS) {
+                if (sql.charAt(sql.length() - 1) != '(') {
+                    sql.append(" UNION ");
+                }
+                sql.append("(SELECT * FROM transactions WHERE ").append(column).append(" = ?").append(seek)
+                        .append(" ORDER BY transaction_date DESC, id DESC LIMIT ?)");
+            }
+        }
+        sql.append(") t ORDER BY t.transaction_date DESC, t.id DESC LIMIT ?");
+
+        Query query = entityManager.createNativeQuery(sql.toString(), Transaction.class);
+        int position = 1;
+        for (Long walletId : walletIds) {
+            for (int side = 0; side < WALLET_COLUMNS.length; side++) {
+                query.setParameter(position++, walletId);
+                if (beforeDate != null) {
+                    query.setParameter(position++, beforeDate);
+                    query.setParameter(position++, beforeDate);
+                    query.setParameter(position++, beforeId);
+                }
+                query.setParameter(position++, limit);
+            }
+        }
+        query.setParameter(position, limit);
+        return query.getResultList();
+    }
+}
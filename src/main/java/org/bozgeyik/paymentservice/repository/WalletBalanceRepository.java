@@ -1,14 +1,17 @@
 package org.bozgeyik.paymentservice.repository;
 
 import jakarta.persistence.LockModeType;
+import org.bozgeyik.paymentservice.model.BalanceState;
 import org.bozgeyik.paymentservice.model.Wallet;
 import org.bozgeyik.paymentservice.model.WalletBalance;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.Optional;
 
 /**
@@ -17,7 +20,7 @@ import java.util.Optional;
  * pesimistik kilitleme gibi önemli mekanizmalar içerir.
  */
 @Repository
-public interface WalletBalanceRepository extends JpaRepository<WalletBalance, Long> {
+public interface WalletBalanceRepository extends JpaRepository<WalletBalance, Long>, WalletBalanceRepositoryCustom {
 
     /**
      * Bir cüzdanın belirli bir para birimindeki bakiyesini, veritabanı seviyesinde kilitleyerek seçer.
@@ -43,4 +46,82 @@ public interface WalletBalanceRepository extends JpaRepository<WalletBalance, Lo
      * @return Bakiye bilgilerini içeren bir {@link Optional<WalletBalance>}. Bakiye bulunamazsa boş Optional döner.
      */
     Optional<WalletBalance> findByWalletAndCurrency(Wallet wallet, String currency);
+
+    /**
+     * Bakiyeyi tek bir koşullu UPDATE ifadesi ile değiştirir. Koşul ({@code balance + delta >= 0}) sayesinde
+     * yetersiz bakiye kontrolü veritabanında, satır kilidi yalnızca bu ifade süresince alınarak yapılır.
+     * Sorgu native olduğu için persistence context'teki {@link WalletBalance} nesneleri güncellenmez.
+     *
+     * @param walletId Cüzdan ID'si.
+     * @param currency Para birimi.
+     * @param delta    Bakiyeye eklenecek (negatifse düşülecek) tutar.
+     * @return Güncellenen satır sayısı. Satır yoksa veya bakiye yetersizse {@code 0} döner.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE wallet_balances SET balance = balance + :delta, version = version + 1 " +
+            "WHERE wallet_id = :walletId AND currency = :currency AND balance + :delta >= 0", nativeQuery = true)
+    int applyDeltaIfSufficient(@Param("walletId") Long walletId, @Param("currency") String currency, @Param("delta") BigDecimal delta);
+
+    /**
+     * İlk kez görülen bir para birimi için bakiye satırını oluşturur. Satır bu arada eş zamanlı bir işlem
+     * tarafından oluşturulmuşsa, {@code ON DUPLICATE KEY UPDATE} sayesinde tutar mevcut bakiyeye eklenir.
+     * Yalnızca para girişleri (pozitif tutar) için kullanılmalıdır.
+     *
+     * @param walletId Cüzdan ID'si.
+     * @param currency Para birimi.
+     * @param amount   Yatırılan (pozitif) tutar.
+     * @return Etkilenen satır sayısı.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO wallet_balances (wallet_id, currency, balance, version) VALUES (:walletId, :currency, :amount, 0) " +
+            "ON DUPLICATE KEY UPDATE balance = balance + VALUES(balance), version = version + 1", nativeQuery = true)
+    int upsertCredit(@Param("walletId") Long walletId, @Param("currency") String currency, @Param("amount") BigDecimal amount);
+
+    /**
+     * Belirtilen cüzdan ve para birimi için bir bakiye satırı olup olmadığını kontrol eder.
+     *
+     * @param walletId Cüzdan ID'si.
+     * @param currency Para birimi.
+     * @return Satır varsa {@code true}.
+     */
+    boolean existsByWallet_IdAndCurrency(Long walletId, String currency);
+
+    /**
+     * Bakiye satırının güncel değerini ve versiyonunu kilit almadan okur (iyimser kilitleme için).
+     *
+     * @param walletId Cüzdan ID'si.
+     * @param currency Para birimi.
+     * @return Satırın anlık durumu. Satır yoksa boş Optional döner.
+     */
+    @Query("SELECT new org.bozgeyik.paymentservice.model.BalanceState(wb.id, wb.balance, wb.version) " +
+            "FROM WalletBalance wb WHERE wb.wallet.id = :walletId AND wb.currency = :currency")
+    Optional<BalanceState> findState(@Param("walletId") Long walletId, @Param("currency") String currency);
+
+    /**
+     * Bakiyeyi, satır okunduğundan beri değişmemişse (versiyon aynıysa) yeni değere ayarlar.
+     *
+     * @param id              Bakiye satırının ID'si.
+     * @param expectedVersion Okuma anındaki versiyon.
+     * @param newBalance      Yazılacak yeni bakiye.
+     * @return Güncellenen satır sayısı. Araya başka bir yazma girdiyse {@code 0} döner.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE wallet_balances SET balance = :newBalance, version = version + 1 " +
+            "WHERE id = :id AND version = :expectedVersion", nativeQuery = true)
+    int compareAndSetBalance(@Param("id") Long id, @Param("expectedVersion") Long expectedVersion, @Param("newBalance") BigDecimal newBalance);
+
+    /**
+     * Bakiye tutarını {@code FOR UPDATE} ile kilitleyerek okur. Sonuç entity değil skaler olduğu için
+     * persistence context'te eski bir kopya olsa bile veritabanındaki güncel değer döner.
+     */
+    @Query(value = "SELECT balance FROM wallet_balances WHERE wallet_id = :walletId AND currency = :currency FOR UPDATE", nativeQuery = true)
+    Optional<BigDecimal> lockBalanceAmount(@Param("walletId") Long walletId, @Param("currency") String currency);
+
+    /**
+     * Bakiye tutarını doğrudan verilen değere ayarlar. Satırın önceden kilitlenmiş olması gerekir.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE wallet_balances SET balance = :balance, version = version + 1 " +
+            "WHERE wallet_id = :walletId AND currency = :currency", nativeQuery = true)
+    int setBalance(@Param("walletId") Long walletId, @Param("currency") String currency, @Param("balance") BigDecimal balance);
 }
@@ -0,0 +1,22 @@
+package org.bozgeyik.paymentservice.repository;
+
+import org.bozgeyik.paymentservice.model.BalanceKey;
+import org.bozgeyik.paymentservice.model.WalletBalance;
+
+import java.util.List;
+
+/**
+ * {@link WalletBalanceRepository} için Spring Data'nın türetemediği, dinamik olarak oluşturulan sorgular.
+ */
+public interface WalletBalanceRepositoryCustom {
+
+    /**
+     * Verilen bakiye satırlarını tek bir {@code SELECT ... FOR UPDATE} sorgusu ile kilitler.
+     * Satırlar (cüzdan ID, para birimi) sırasına göre okunur; böylece aynı satırları kilitlemeye çalışan
+     * tüm işlemler kilitleri aynı sırada alır ve birbirini karşılıklı olarak bekleyemez.
+     *
+     * @param keys Kilitlenecek bakiyeler. Sıralı ve tekrarsız olmalıdır.
+     * @return Bulunan ve kilitlenen bakiye satırları. Henüz oluşturulmamış satırlar listede yer almaz.
+     */
+    List<WalletBalance> lockAllForUpdate(List<BalanceKey> keys);
+}
@@ -0,0 +1,41 @@
+package org.bozgeyik.paymentservice.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.bozgeyik.paymentservice.model.BalanceKey;
+import org.bozgeyik.paymentservice.model.WalletBalance;
+
+import java.util.List;
+
+class WalletBalanceRepositoryCustomImpl implements WalletBalanceRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<WalletBalance> lockAllForUpdate(List<BalanceKey> keys) {
+        if (keys.isEmpty()) {
+            return List.of();
+        }
+
+        // (wallet_id, currency) benzersiz indeksi üzerinde, indeks sırasıyla taranan tek bir sorgu.
+        StringBuilder jpql = new StringBuilder("SELECT wb FROM WalletBalance wb WHERE ");
+        for (int i = 0; i < keys.size(); i++) {
+            if (i > 0) {
+                jpql.append(" OR ");
+            }
+            jpql.append("(wb.wallet.id = :w").append(i).append(" AND wb.currency = :c").append(i).append(')');
+        }
+        jpql.append(" ORDER BY wb.wallet.id, wb.currency");
+
+        TypedQuery<WalletBalance> query = entityManager.createQuery(jpql.toString(), WalletBalance.class)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE);
+        for (int i = 0; i < keys.size(); i++) {
+            query.setParameter("w" + i, keys.get(i).walletId());
+            query.setParameter("c" + i, keys.get(i).currency());
+        }
+        return query.getResultList();
+    }
+}
@@ -0,0 +1,72 @@
+package org.bozgeyik.paymentservice.repository;
+
+import org.bozgeyik.paymentservice.model.CurrencyAmount;
+import org.bozgeyik.paymentservice.model.WalletBalanceShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Sıcak cüzdanların bakiye parçaları ({@link WalletBalanceShard}) için repository arayüzü.
+ * Yazma sorguları native'dir; parça satırları persistence context'e hiç yüklenmez.
+ */
+@Repository
+public interface WalletBalanceShardRepository extends JpaRepository<WalletBalanceShard, Long> {
+
+    /**
+     * Kilit altında okunan bir parçanın numarası ve bakiyesi.
+     */
+    interface ShardAmount {
+        Integer getShardNo();
+
+        BigDecimal getBalance();
+    }
+
+    /**
+     * Belirtilen parçaya para ekler; parça henüz yoksa oluşturur.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO wallet_balance_shards (wallet_id, currency, shard_no, balance, version) " +
+            "VALUES (:walletId, :currency, :shardNo, :amount, 0) " +
+            "ON DUPLICATE KEY UPDATE balance = balance + VALUES(balance), version = version + 1", nativeQuery = true)
+    int credit(@Param("walletId") Long walletId, @Param("currency") String currency,
+               @Param("shardNo") int shardNo, @Param("amount") BigDecimal amount);
+
+    /**
+     * Parçada yeterli bakiye varsa tutarı düşer.
+     *
+     * @return Parça yetersizse veya yoksa {@code 0}.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE wallet_balance_shards SET balance = balance - :amount, version = version + 1 " +
+            "WHERE wallet_id = :walletId AND currency = :currency AND shard_no = :shardNo AND balance >= :amount", nativeQuery = true)
+    int debitIfSufficient(@Param("walletId") Long walletId, @Param("currency") String currency,
+                          @Param("shardNo") int shardNo, @Param("amount") BigDecimal amount);
+
+    /**
+     * Bir bakiyenin tüm parçalarını, parça numarası sırasıyla kilitleyerek okur.
+     */
+    @Query(value = "SELECT shard_no AS shardNo, balance AS balance FROM wallet_balance_shards " +
+            "WHERE wallet_id = :walletId AND currency = :currency ORDER BY shard_no FOR UPDATE", nativeQuery = true)
+    List<ShardAmount> lockShards(@Param("walletId") Long walletId, @Param("currency") String currency);
+
+    /**
+     * Kilitli parçaları sıfırlar (bakiyeleri ana satıra taşındıktan sonra).
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE wallet_balance_shards SET balance = 0, version = version + 1 " +
+            "WHERE wallet_id = :walletId AND currency = :currency AND shard_no IN (:shardNos)", nativeQuery = true)
+    int clearShards(@Param("walletId") Long walletId, @Param("currency") String currency, @Param("shardNos") List<Integer> shardNos);
+
+    /**
+     * Bir cüzdanın parçalarının para birimi bazında toplamlarını getirir.
+     */
+    @Query("SELECT new org.bozgeyik.paymentservice.model.CurrencyAmount(s.currency, SUM(s.balance)) " +
+            "FROM WalletBalanceShard s WHERE s.walletId = :walletId GROUP BY s.currency")
+    List<CurrencyAmount> sumByCurrency(@Param("walletId") Long walletId);
+}
@@ -0,0 +1,14 @@
+package org.bozgeyik.paymentservice.repository;
+
+import org.bozgeyik.paymentservice.model.WalletDailyStat;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface WalletDailyStatRepository extends JpaRepository<WalletDailyStat, Long> {
+
+    List<WalletDailyStat> findByWalletIdAndStatDateBetweenOrderByStatDateAsc(Long walletId, LocalDate from, LocalDate to);
+}
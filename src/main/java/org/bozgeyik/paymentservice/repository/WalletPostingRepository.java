@@ -0,0 +1,29 @@
+package org.bozgeyik.paymentservice.repository;
+
+import org.bozgeyik.paymentservice.model.WalletPosting;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+@Repository
+public interface WalletPostingRepository extends JpaRepository<WalletPosting, Long> {
+
+    /**
+     * Verilen cüzdanlara dokunan işlemlerin ID'lerini sayfalar. Kullanıcının kendi cüzdanları arasındaki transferler ve
+     * döviz alım/satımları iki satır ürettiği için ID'ler gruplanır. Sorgu yalnızca
+     * {@code (wallet_id, transaction_date, transaction_id)} indeksini okur.
+     *
+     * @param walletIds Cüzdan ID'leri.
+     * @param pageable  Sayfalama; sıralama yalnızca {@code transactionDate} ve {@code transactionId} alanlarıyla yapılabilir.
+     * @return İşlem ID'leri sayfası.
+     */
+    @Query(value = "SELECT p.transactionId FROM WalletPosting p WHERE p.walletId IN :walletIds " +
+            "GROUP BY p.transactionId, p.transactionDate",
+            countQuery = "SELECT COUNT(DISTINCT p.transactionId) FROM WalletPosting p WHERE p.walletId IN :walletIds")
+    Page<Long> findTransactionIdsByWalletIds(@Param("walletIds") Collection<Long> walletIds, Pageable pageable);
+}
@@ -1,6 +1,8 @@
 package org.bozgeyik.paymentservice.repository;
 
 import org.bozgeyik.paymentservice.model.Wallet;
+import org.bozgeyik.paymentservice.model.WalletBalanceRow;
+import org.bozgeyik.paymentservice.model.WalletRef;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -25,6 +27,18 @@ public interface WalletRepository extends JpaRepository<Wallet, Long> {
     @Query("SELECT w FROM Wallet w JOIN w.user u JOIN w.balances b WHERE u.email = :email AND b.currency = :currency")
     Optional<Wallet> findByUserEmailAndCurrency(@Param("email") String email, @Param("currency") String currency);
 
+    @Query("SELECT new org.bozgeyik.paymentservice.model.WalletRef(w.id, u.id, u.customerId, w.status) " +
+            "FROM Wallet w JOIN w.user u JOIN w.balances b WHERE u.email = :email AND b.currency = :currency")
+    Optional<WalletRef> findRefByUserEmailAndCurrency(@Param("email") String email, @Param("currency") String currency);
+
+    @Query("SELECT new org.bozgeyik.paymentservice.model.WalletBalanceRow(w.id, u.id, u.name, w.status, b.currency, b.balance) " +
+            "FROM Wallet w JOIN w.user u LEFT JOIN w.balances b WHERE w.id = :walletId")
+    List<WalletBalanceRow> findBalanceRowsById(@Param("walletId") Long walletId);
+
+    @Query("SELECT new org.bozgeyik.paymentservice.model.WalletBalanceRow(w.id, u.id, u.name, w.status, b.currency, b.balance) " +
+            "FROM Wallet w JOIN w.user u LEFT JOIN w.balances b WHERE u.email = :email ORDER BY w.id")
+    List<WalletBalanceRow> findBalanceRowsByUserEmail(@Param("email") String email);
+
     // YENİ EKLENEN: Kullanıcının e-postasına göre tüm cüzdanlarını getir
     @Query("SELECT w FROM Wallet w JOIN FETCH w.user u LEFT JOIN FETCH w.balances WHERE u.email = :email")
     List<Wallet> findAllByUserEmail(@Param("email") String email);
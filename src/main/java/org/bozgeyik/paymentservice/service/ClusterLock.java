@@ -0,0 +1,116 @@
+package org.bozgeyik.paymentservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Birden fazla instance'ta zamanlanan işlerin (mutabakat, arşivleme) aynı anda yalnızca birinde çalışmasını sağlayan
+ * isimli kilit.
+ * <p>
+ * MySQL'de {@code GET_LOCK(name, 0)} kullanılır: kilit bir bağlantıya aittir, bu yüzden iş süresince birincil
+ * veritabanından ayrı bir bağlantı tutulur ve kilit {@link Held#close()} ile bırakılır. Bağlantı koparsa (instance
+ * çökerse) sunucu kilidi kendiliğinden bırakır. {@code GET_LOCK} olmayan veritabanlarında (ör. testlerdeki H2) kilit
+ * yalnızca bu JVM içinde geçerlidir.
+ */
+@Component
+@Slf4j
+public class ClusterLock {
+
+    private static final String PREFIX = "payment.";
+
+    private final DataSource dataSource;
+    private final Set<String> localLocks = ConcurrentHashMap.newKeySet();
+
+    public ClusterLock(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Kilidi beklemeden almayı dener.
+     *
+     * @param name Kilidin adı (ör. {@code "reconciliation"}).
+     * @return Kilit alındıysa bırakılması gereken tutamaç; başka bir instance tutuyorsa boş.
+     */
+    public Optional<Held> tryAcquire(String name) {
+        String lockName = PREFIX + name;
+        if (!localLocks.add(lockName)) {
+            return Optional.empty();
+        }
+        Connection connection = null;
+        try {
+            connection = dataSource.getConnection();
+            if (!connection.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql")) {
+                connection.close();
+                return Optional.of(new Held(lockName, null));
+            }
+            try (PreparedStatement ps = connection.prepareStatement("SELECT GET_LOCK(?, 0)")) {
+                ps.setString(1, lockName);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next() && rs.getInt(1) == 1) {
+                        return Optional.of(new Held(lockName, connection));
+                    }
+                }
+            }
+            connection.close();
+            localLocks.remove(lockName);
+            return Optional.empty();
+        } catch (SQLException e) {
+            closeQuietly(connection);
+            localLocks.remove(lockName);
+            throw new DataAccessResourceFailureException("Küme kilidi alınamadı: " + lockName, e);
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.warn("Kilit bağlantısı kapatılamadı: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Alınmış bir kilit. {@code try}-with-resources ile kullanılmalıdır.
+     */
+    public final class Held implements AutoCloseable {
+
+        private final String name;
+        private final Connection connection;
+
+        private Held(String name, Connection connection) {
+            this.name = name;
+            this.connection = connection;
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (connection != null) {
+                    try (PreparedStatement ps = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+                        ps.setString(1, name);
+                        ps.executeQuery().close();
+                    } catch (SQLException e) {
+                        // Bağlantı kapanınca sunucu kilidi yine bırakır.
+                        log.warn("Küme kilidi bırakılamadı: {} - {}", name, e.getMessage());
+                    }
+                    closeQuietly(connection);
+                }
+            } finally {
+                localLocks.remove(name);
+            }
+        }
+    }
+}
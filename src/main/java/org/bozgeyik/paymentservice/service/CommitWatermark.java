@@ -0,0 +1,76 @@
+package org.bozgeyik.paymentservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * AUTO_INCREMENT ID'li, yalnızca eklenen tablolar için commit sırasına dayalı filigran (watermark).
+ * <p>
+ * ID'ler satır eklenirken dağıtılır, commit sırası ise farklıdır: küçük ID'li bir satır, büyük ID'li bir satır
+ * commit edildikten sonra görünür hale gelebilir. Zaman penceresine ("X saniyeden eski satırlar") dayanan bir üst
+ * sınır, bu pencereden uzun süren bir transaction'ın satırını kaçırır. Bu sınıf bunun yerine görünen en büyük ID'yi
+ * okur ve aradaki satırları {@code SELECT ... FOR UPDATE} ile parça parça kilitleyerek tarar; InnoDB kilitli okuma,
+ * commit edilmemiş bir satıra geldiğinde o transaction bitene kadar bekler. Tarama bittiğinde aralıktaki her satır
+ * ya commit edilmiş ya da geri alınmıştır ve dönen ID'ye kadar olan satırlar kesinleşmiştir. Bekleme InnoDB'nin
+ * kilitli okuma davranışıdır; commit edilmemiş satırları atlayan veritabanlarında (ör. testlerdeki H2) filigran
+ * yalnızca görünen en büyük ID'dir.
+ * <p>
+ * Kilitler READ COMMITTED altında (boşluk kilidi olmadan), her parça için ayrı ve kısa bir transaction'da alınır;
+ * satırlar commit edildikten sonra değişmediği için canlı yazmaları bekletmez.
+ */
+@Component
+@Slf4j
+public class CommitWatermark {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate lockTemplate;
+
+    // Tek transaction'da kilitlenen en fazla satır sayısı
+    @Value("${payment.watermark.lock-batch-size:1000}")
+    private int lockBatchSize;
+
+    public CommitWatermark(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.lockTemplate = new TransactionTemplate(transactionManager);
+        this.lockTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.lockTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+    }
+
+    /**
+     * Verilen filigrandan sonra eklenen satırların commit veya geri alma ile sonuçlanmasını bekler ve yeni filigranı
+     * döner. Çağıranın transaction'ı dışında çalışır; sonucu kullanan okumalar bu metot döndükten sonra
+     * başlayan bir transaction'da yapılmalıdır.
+     *
+     * @param table   {@code id} kolonu AUTO_INCREMENT olan tablo. Sabit bir tablo adı olmalıdır (kullanıcı girdisi değil).
+     * @param afterId Önceki filigran; bu ID'ye kadarki satırlar kesinleşmiş kabul edilir.
+     * @return (afterId, dönen değer] aralığındaki tüm satırların kesinleştiği en büyük ID. Yeni satır yoksa {@code afterId}.
+     */
+    public long settle(String table, long afterId) {
+        Long upper = lockTemplate.execute(status ->
+                jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Long.class));
+        if (upper == null || upper <= afterId) {
+            return afterId;
+        }
+
+        String lockSql = "SELECT id FROM " + table + " WHERE id > ? AND id <= ? ORDER BY id LIMIT ? FOR UPDATE";
+        long from = afterId;
+        while (true) {
+            long lower = from;
+            List<Long> ids = lockTemplate.execute(status ->
+                    jdbcTemplate.queryForList(lockSql, Long.class, lower, upper, lockBatchSize));
+            if (ids == null || ids.size() < lockBatchSize) {
+                break;
+            }
+            from = ids.get(ids.size() - 1);
+        }
+        log.debug("Filigran ilerletildi: {} {} -> {}", table, afterId, upper);
+        return upper;
+    }
+}
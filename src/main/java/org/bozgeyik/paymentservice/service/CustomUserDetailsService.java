@@ -3,12 +3,15 @@ package org.bozgeyik.paymentservice.service;
 import lombok.RequiredArgsConstructor;
 import org.bozgeyik.paymentservice.model.User;
 import org.bozgeyik.paymentservice.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -16,6 +19,10 @@ public class CustomUserDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
 
+    // Yönetim uçlarını (mutabakat, arşivleme vb.) okuyabilen ve başlatabilen kullanıcılar ROLE_ADMIN alır
+    @Value("${payment.security.admin-emails:}")
+    private Set<String> adminEmails;
+
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
         // Veritabanımızdan kendi User nesnemizi buluyoruz
@@ -26,7 +33,7 @@ public class CustomUserDetailsService implements UserDetailsService {
         return new org.springframework.security.core.userdetails.User(
                 user.getEmail(),
                 user.getPassword(),
-                new ArrayList<>() // Şimdilik rol/yetki listesi boş
+                adminEmails.contains(user.getEmail()) ? List.of(new SimpleGrantedAuthority("ROLE_ADMIN")) : List.of()
         );
     }
 }
\ No newline at end of file
@@ -0,0 +1,254 @@
+package org.bozgeyik.paymentservice.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bozgeyik.paymentservice.dto.DepositRequest;
+import org.bozgeyik.paymentservice.exception.IdempotencyException;
+import org.bozgeyik.paymentservice.idempotency.IdempotencyKeyFilter;
+import org.bozgeyik.paymentservice.model.BalanceKey;
+import org.bozgeyik.paymentservice.model.Transaction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Para yatırma isteklerini (cüzdan, para birimi) bazında kuyruğa alıp küçük gruplar halinde işleyen boru hattı.
+ * <p>
+ * Kuyruklar her {@code linger-ms} milisaniyede bir veya bir kuyruk {@code max-batch-size}'a ulaştığında boşaltılır.
+ * Bir grup {@link PaymentOrchestratorService#applyDepositBatch} ile tek transaction'da işlenir: bakiyeye toplam
+ * tutar bir kez uygulanır, her istek için ayrı işlem kaydı atılır ve tek commit yapılır. Her çağıran, kendi
+ * isteğinin sonucunu veya hatasını alır:
+ * <ul>
+ *     <li>Daha önce işlenmiş veya aynı grupta tekrarlanan idempotency anahtarları gruptan önce tek tek reddedilir.</li>
+ *     <li>Grup hata verirse (ör. eş zamanlı aynı anahtar), istekler klasik yoldan tek tek yeniden işlenir.</li>
+ * </ul>
+ * Kapalıyken ({@code payment.deposit-batching.enabled=false}) ve kapanış başladıktan sonra istekler doğrudan
+ * {@link PaymentOrchestratorService#depositOnRamp} ile işlenir. Çağıran sonucu en fazla {@code result-timeout-ms}
+ * bekler; süre dolduğunda istek henüz gruba alınmadıysa kuyruktan çıkarılır, alındıysa işlenmeye devam edebilir
+ * (aynı idempotency anahtarıyla tekrar denemek güvenlidir).
+ */
+@Service
+@Slf4j
+public class DepositPipeline {
+
+    private final PaymentOrchestratorService orchestratorService;
+    private final WalletService walletService;
+    private final IdempotencyKeyFilter idempotencyKeyFilter;
+
+    // Bekleyen istekler. Kuyruklara yalnızca compute/computeIfPresent içinden erişilir.
+    private final ConcurrentHashMap<BalanceKey, ArrayDeque<PendingDeposit>> lanes = new ConcurrentHashMap<>();
+    // O anda işlenmekte olan kuyruklar. Bir kuyruk aynı anda tek bir grup ile işlenir; gruplar aynı satır için yarışmaz.
+    private final Set<BalanceKey> draining = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService ticker;
+    private ExecutorService workers;
+    // Kapanış başladıktan sonra yeni istekler kuyruğa alınmaz.
+    private volatile boolean stopping;
+
+    @Value("${payment.deposit-batching.enabled:false}")
+    private boolean enabled;
+
+    @Value("${payment.deposit-batching.linger-ms:5}")
+    private long lingerMillis;
+
+    @Value("${payment.deposit-batching.max-batch-size:200}")
+    private int maxBatchSize;
+
+    @Value("${payment.deposit-batching.worker-threads:4}")
+    private int workerThreads;
+
+    @Value("${payment.deposit-batching.result-timeout-ms:30000}")
+    private long resultTimeoutMillis;
+
+    public DepositPipeline(PaymentOrchestratorService orchestratorService,
+                           WalletService walletService,
+                           IdempotencyKeyFilter idempotencyKeyFilter) {
+        this.orchestratorService = orchestratorService;
+        this.walletService = walletService;
+        this.idempotencyKeyFilter = idempotencyKeyFilter;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        workers = Executors.newFixedThreadPool(workerThreads, Thread.ofPlatform().name("deposit-batch-", 0).factory());
+        ticker = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("deposit-batch-ticker").factory());
+        ticker.scheduleWithFixedDelay(this::drainAll, lingerMillis, lingerMillis, TimeUnit.MILLISECONDS);
+        log.info("Toplu para yatırma etkin: {} ms, en fazla {} istek/grup", lingerMillis, maxBatchSize);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        stopping = true;
+        ticker.shutdown();
+        ticker.awaitTermination(5, TimeUnit.SECONDS);
+        drainAll();
+        workers.shutdown();
+        workers.awaitTermination(30, TimeUnit.SECONDS);
+        // Kuyrukta kalan istekler kapanmadan önce işlenir. Havuz kapandığından gruplar bu thread'de işlenir.
+        while (!lanes.isEmpty()) {
+            drainAll();
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Para yatırma isteğini işler ve sonucunu bekler.
+     *
+     * @param request Para yatırma isteği.
+     * @return Oluşturulan işlem kaydı.
+     */
+    public Transaction deposit(DepositRequest request) {
+        if (!enabled || stopping) {
+            return orchestratorService.depositOnRamp(request);
+        }
+        // Cüzdan bulunamazsa klasik yol hatayı mevcut davranışla üretir.
+        Long walletId;
+        try {
+            walletId = walletService.resolveWallet(request.getCustomerId(), request.getCurrency()).walletId();
+        } catch (RuntimeException e) {
+            return orchestratorService.depositOnRamp(request);
+        }
+
+        PendingDeposit pending = new PendingDeposit(request, new CompletableFuture<>());
+        BalanceKey key = new BalanceKey(walletId, request.getCurrency());
+        boolean full = lanes.compute(key, (k, lane) -> {
+            ArrayDeque<PendingDeposit> queue = lane != null ? lane : new ArrayDeque<>();
+            queue.add(pending);
+            return queue;
+        }).size() >= maxBatchSize;
+        // Kapanış kuyruğa eklerken başladıysa son boşaltma bu isteği kaçırabilir; kuyruk hemen işlenir.
+        if (full || stopping) {
+            scheduleDrain(key);
+        }
+
+        try {
+            return pending.result().orTimeout(resultTimeoutMillis, TimeUnit.MILLISECONDS).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                lanes.computeIfPresent(key, (k, lane) -> {
+                    lane.remove(pending);
+                    return lane.isEmpty() ? null : lane;
+                });
+                throw new IllegalStateException("Para yatırma isteği zaman aşımına uğradı: " + request.getIdempotencyKey(), e.getCause());
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void drainAll() {
+        lanes.keySet().forEach(this::scheduleDrain);
+    }
+
+    private void scheduleDrain(BalanceKey key) {
+        if (!draining.add(key)) {
+            return;
+        }
+        try {
+            workers.execute(() -> drain(key));
+        } catch (RejectedExecutionException e) {
+            // Havuz kapanmış: kuyruk çağıran thread'de işlenir ve anahtar draining'den çıkarılır.
+            drain(key);
+        }
+    }
+
+    private void drain(BalanceKey key) {
+        try {
+            List<PendingDeposit> batch = new ArrayList<>();
+            lanes.computeIfPresent(key, (k, lane) -> {
+                while (!lane.isEmpty() && batch.size() < maxBatchSize) {
+                    batch.add(lane.poll());
+                }
+                return lane.isEmpty() ? null : lane;
+            });
+            if (!batch.isEmpty()) {
+                try {
+                    process(key, batch);
+                } catch (Throwable t) {
+                    // Error gibi beklenmeyen hatalarda da hiçbir çağıran sonsuza kadar beklemez.
+                    batch.forEach(p -> p.result().completeExceptionally(t));
+                    throw t;
+                }
+            }
+        } finally {
+            // Bu arada kuyruğa eklenenler bir sonraki tick'te veya kuyruk dolduğunda işlenir.
+            draining.remove(key);
+        }
+    }
+
+    private void process(BalanceKey key, List<PendingDeposit> batch) {
+        List<PendingDeposit> accepted = rejectDuplicates(batch);
+        if (accepted.isEmpty()) {
+            return;
+        }
+        try {
+            List<Transaction> transactions = orchestratorService.applyDepositBatch(
+                    key.walletId(), key.currency(), accepted.stream().map(PendingDeposit::request).toList());
+            for (int i = 0; i < accepted.size(); i++) {
+                accepted.get(i).result().complete(transactions.get(i));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Toplu para yatırma başarısız, istekler tek tek işlenecek: Cüzdan {} - {}", key.walletId(), e.getMessage());
+            for (PendingDeposit pending : accepted) {
+                try {
+                    pending.result().complete(orchestratorService.depositOnRamp(pending.request()));
+                } catch (RuntimeException individual) {
+                    pending.result().completeExceptionally(individual);
+                }
+            }
+        }
+    }
+
+    // Veritabanında zaten olan veya aynı grupta tekrarlanan anahtarlar kendi istekleri için reddedilir.
+    private List<PendingDeposit> rejectDuplicates(List<PendingDeposit> batch) {
+        Set<String> existing;
+        try {
+            existing = idempotencyKeyFilter.findExisting(
+                    batch.stream().map(p -> p.request().getIdempotencyKey()).toList());
+        } catch (RuntimeException e) {
+            batch.forEach(p -> p.result().completeExceptionally(e));
+            return List.of();
+        }
+        Set<String> seen = new HashSet<>();
+        List<PendingDeposit> accepted = new ArrayList<>(batch.size());
+        for (PendingDeposit pending : batch) {
+            String idempotencyKey = pending.request().getIdempotencyKey();
+            if (existing.contains(idempotencyKey) || !seen.add(idempotencyKey)) {
+                pending.result().completeExceptionally(
+                        new IdempotencyException("Bu işlem daha önce gerçekleştirildi: " + idempotencyKey));
+            } else {
+                accepted.add(pending);
+            }
+        }
+        return accepted;
+    }
+
+    private record PendingDeposit(DepositRequest request, CompletableFuture<Transaction> result) {
+    }
+}
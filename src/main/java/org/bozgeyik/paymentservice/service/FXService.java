@@ -1,23 +1,97 @@
 package org.bozgeyik.paymentservice.service;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bozgeyik.paymentservice.event.ExchangeRatesChangedEvent;
 import org.bozgeyik.paymentservice.model.ExchangeRate;
+import org.bozgeyik.paymentservice.model.Money;
 import org.bozgeyik.paymentservice.repository.ExchangeRateRepository;
+import org.bozgeyik.paymentservice.service.fx.CrossRate;
+import org.bozgeyik.paymentservice.service.fx.RateTable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Döviz Kuru (Foreign Exchange) işlemlerini yöneten servis sınıfı.
  * Bu servis, para birimleri arasındaki dönüşüm oranlarını sağlar ve tutar dönüştürme işlemlerini gerçekleştirir.
+ * <p>
+ * Kurlar veritabanından değil, {@code exchange_rates} tablosunun bellekteki değişmez kopyasından ({@link RateTable})
+ * okunur. Tablo açılışta yüklenir; bu instance'taki kur değişikliklerinde commit sonrası, diğer değişiklikler için
+ * {@code payment.fx.refresh-ms} aralıklarla yeniden yüklenir ve yalnızca kurlar değiştiyse atomik olarak değiştirilir.
+ * <p>
+ * Tabloda satırı olmayan çiftler için ters ve çapraz kurlar ({@code payment.fx.pivot-currencies} üzerinden, en fazla
+ * {@code payment.fx.max-hops} satırla) önceden hesaplanır; yalnızca bir satırın kuru değiştiğinde tablo baştan
+ * oluşturulmaz, o satırı kullanan kurlar güncellenir.
  */
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class FXService {
 
     private final ExchangeRateRepository rateRepository;
+    private final AtomicReference<RateTable> rateTable = new AtomicReference<>(RateTable.empty());
+
+    @Value("${payment.fx.pivot-currencies:USD,EUR}")
+    private Set<String> pivotCurrencies;
+
+    @Value("${payment.fx.max-hops:3}")
+    private int maxHops;
+
+    @PostConstruct
+    void loadRates() {
+        reloadRates();
+    }
+
+    /**
+     * Kur tablosunu veritabanından yeniden yükler. Kurlar değişmediyse mevcut tablo (ve sürümü) korunur.
+     *
+     * @return Güncel kur tablosu.
+     */
+    @Scheduled(fixedDelayString = "${payment.fx.refresh-ms:30000}", initialDelayString = "${payment.fx.refresh-ms:30000}")
+    public synchronized RateTable reloadRates() {
+        RateTable current = rateTable.get();
+        RateTable loaded = RateTable.of(current.version() + 1, rateRepository.findAll(), pivotCurrencies, maxHops);
+        if (current.version() > 0 && loaded.sameRatesAs(current)) {
+            return current;
+        }
+        rateTable.set(loaded);
+        log.info("Kur tablosu yüklendi: sürüm {}, {} para birimi, {} doğrudan ve {} türetilmiş kur",
+                loaded.version(), loaded.size(), loaded.directCount(), loaded.derivedCount());
+        return loaded;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    synchronized void onRatesChanged(ExchangeRatesChangedEvent event) {
+        if (event.getChange() == ExchangeRatesChangedEvent.Change.UPDATED) {
+            RateTable current = rateTable.get();
+            ExchangeRate changed = event.getRate();
+            RateTable updated = current.withRate(current.version() + 1,
+                    changed.getFromCurrency(), changed.getToCurrency(), changed.getRate());
+            if (updated != null) {
+                rateTable.set(updated);
+                log.info("Kur güncellendi: {} -> {} = {} (tablo sürümü {})",
+                        changed.getFromCurrency(), changed.getToCurrency(), changed.getRate(), updated.version());
+                return;
+            }
+        }
+        reloadRates();
+    }
+
+    /**
+     * Güncel kur tablosunu döner. Birden fazla kur okuyan çağıranlar hepsini aynı tablodan okumalıdır.
+     */
+    public RateTable rates() {
+        return rateTable.get();
+    }
 
     /**
      * Belirtilen para birimleri arasındaki dönüşüm oranını (kurunu) getirir.
@@ -25,17 +99,36 @@ public class FXService {
      * @param from Kaynak para birimi kodu (örn: "USD").
      * @param to   Hedef para birimi kodu (örn: "TRY").
      * @return Dönüşüm oranı olarak {@link BigDecimal}.
-     * @throws EntityNotFoundException Eğer belirtilen kur veritabanında bulunamazsa.
+     * @throws EntityNotFoundException Eğer belirtilen kur tabloda bulunamaz ve türetilemezse.
      */
     public BigDecimal getRate(String from, String to) {
+        return resolve(rateTable.get(), from, to).rate();
+    }
+
+    /**
+     * Belirtilen para birimleri arasındaki kuru, denetim için türetme yoluyla birlikte getirir.
+     *
+     * @throws EntityNotFoundException Eğer belirtilen kur tabloda bulunamaz ve türetilemezse.
+     */
+    public CrossRate resolve(String from, String to) {
+        return resolve(rateTable.get(), from, to);
+    }
+
+    /**
+     * Belirtilen para birimleri arasındaki kuru, verilen kur tablosundan getirir.
+     *
+     * @throws EntityNotFoundException Eğer belirtilen kur tabloda bulunamaz ve türetilemezse.
+     */
+    public CrossRate resolve(RateTable rates, String from, String to) {
         // Eğer kaynak ve hedef para birimi aynı ise, dönüşüm oranı 1'dir.
         if (from.equalsIgnoreCase(to)) {
-            return BigDecimal.ONE;
+            return CrossRate.SAME_CURRENCY;
         }
-        // Veritabanından kuru bul ve döndür. Bulunamazsa hata fırlat.
-        return rateRepository.findByFromCurrencyAndToCurrency(from, to)
-                .map(ExchangeRate::getRate)
-                .orElseThrow(() -> new EntityNotFoundException("Dönüşüm kuru bulunamadı: " + from + " -> " + to));
+        CrossRate rate = rates.crossRate(from, to);
+        if (rate == null) {
+            throw new EntityNotFoundException("Dönüşüm kuru bulunamadı: " + from + " -> " + to);
+        }
+        return rate;
     }
 
     /**
@@ -61,5 +154,19 @@ public class FXService {
         return amount.multiply(rate).setScale(4, RoundingMode.HALF_EVEN);
     }
 
-
+    /**
+     * Tutarı, {@link #getRate(String, String)} ile önceden alınmış kurla hedef para birimine dönüştürür.
+     * Yuvarlama {@link #convert(BigDecimal, String, String)} ile aynıdır; ara {@link BigDecimal} oluşturulmaz.
+     *
+     * @param amount Dönüştürülecek tutar.
+     * @param rate   Kaynak para biriminden hedefe kur.
+     * @param to     Hedef para birimi kodu.
+     * @return Hedef para biriminin ölçeğine yuvarlanmış tutar.
+     */
+    public Money convert(Money amount, BigDecimal rate, String to) {
+        if (amount.currency().equalsIgnoreCase(to)) {
+            return amount;
+        }
+        return amount.convert(rate, to, RoundingMode.HALF_EVEN);
+    }
 }
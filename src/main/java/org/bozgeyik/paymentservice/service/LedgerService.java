@@ -3,16 +3,33 @@ package org.bozgeyik.paymentservice.service;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bozgeyik.paymentservice.audit.LedgerAuditLog;
 import org.bozgeyik.paymentservice.exception.InsufficientFundsException;
+import org.bozgeyik.paymentservice.model.BalanceKey;
+import org.bozgeyik.paymentservice.model.Money;
+import org.bozgeyik.paymentservice.model.Transaction;
 import org.bozgeyik.paymentservice.model.Wallet;
 import org.bozgeyik.paymentservice.model.WalletBalance;
 import org.bozgeyik.paymentservice.repository.WalletBalanceRepository;
 import org.bozgeyik.paymentservice.repository.WalletRepository;
+import org.bozgeyik.paymentservice.service.ledger.BalanceChange;
+import org.bozgeyik.paymentservice.service.ledger.ConditionalLedgerEngine;
+import org.bozgeyik.paymentservice.service.ledger.InMemoryLedgerEngine;
+import org.bozgeyik.paymentservice.service.ledger.JournalLedgerEngine;
+import org.bozgeyik.paymentservice.service.ledger.LedgerJournal;
+import org.bozgeyik.paymentservice.service.ledger.LedgerMode;
+import org.bozgeyik.paymentservice.service.ledger.OptimisticLedgerEngine;
+import org.bozgeyik.paymentservice.service.ledger.ShardedBalanceEngine;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Muhasebe (Ledger) işlemlerini yöneten servis sınıfı.
@@ -26,24 +43,122 @@ public class LedgerService {
 
     private final WalletRepository walletRepository;
     private final WalletBalanceRepository balanceRepository;
+    private final ConditionalLedgerEngine conditionalLedgerEngine;
+    private final OptimisticLedgerEngine optimisticLedgerEngine;
+    private final ShardedBalanceEngine shardedBalanceEngine;
+    private final JournalLedgerEngine journalLedgerEngine;
+    private final InMemoryLedgerEngine inMemoryLedgerEngine;
+    private final LedgerJournal ledgerJournal;
+    private final LedgerAuditLog ledgerAuditLog;
+
+    // Bakiye güncellemelerinde kullanılacak motor (application.yml: payment.ledger.mode)
+    @Value("${payment.ledger.mode:PESSIMISTIC}")
+    private LedgerMode ledgerMode;
 
     /**
      * Bir cüzdanın belirli bir para birimindeki bakiyesini atomik olarak günceller.
-     * Bu metot, {@code PESSIMISTIC_WRITE} kilidi kullanarak, aynı bakiye üzerinde eş zamanlı olarak
-     * birden fazla işlemin çalışmasını engeller ve veri bütünlüğünü garanti altına alır.
+     * Varsayılan ({@link LedgerMode#PESSIMISTIC}) modda {@code PESSIMISTIC_WRITE} kilidi kullanılarak, aynı bakiye
+     * üzerinde eş zamanlı olarak birden fazla işlemin çalışması engellenir. {@link LedgerMode#CONDITIONAL} modda ise
+     * değişiklik tek bir koşullu UPDATE ifadesi ile uygulanır ({@link ConditionalLedgerEngine}).
+     * {@link LedgerMode#OPTIMISTIC} modda satır kilitlenmeden okunur ve versiyon kontrolüyle yazılır
+     * ({@link OptimisticLedgerEngine}); çekişmeli satırlarda kötümser kilitlemeye geri dönülür.
+     * {@link LedgerMode#JOURNAL} modda bakiye satırı güncellenmez; değişiklik doğrulanır ve işlem kaydedilirken
+     * yevmiyeye yazılır ({@link JournalLedgerEngine}, {@link #recordTransaction(Transaction, BigDecimal)}).
+     * {@link LedgerMode#IN_MEMORY} modda değişiklik bellekteki tek yazıcılı motora gönderilir ve önyazım günlüğüne
+     * kalıcı olarak yazıldıktan sonra dönülür ({@link InMemoryLedgerEngine}); veritabanı arka planda güncellenir.
+     * Diğer modlarda sıcak cüzdan olarak işaretlenmiş cüzdanlar parçalı bakiye motoruna
+     * ({@link ShardedBalanceEngine}) yönlendirilir.
      * Metot, kendisini çağıran servisin (örneğin, PaymentOrchestratorService) mevcut transaction'ına katılır.
      * Eğer çağıran serviste bir transaction yoksa, yeni bir tane başlatılır.
      *
      * @param walletId    Bakiyesi güncellenecek cüzdanın ID'si.
      * @param currency    Güncellenecek bakiyenin para birimi.
      * @param amountDelta Bakiyedeki değişiklik miktarı. Pozitif değer para girişi, negatif değer para çıkışı anlamına gelir.
-     * @return Güncellenmiş ve veritabanına kaydedilmiş {@link WalletBalance} nesnesi.
      * @throws InsufficientFundsException Eğer para çıkışı isteniyorsa ve cüzdanda yeterli bakiye yoksa.
      * @throws EntityNotFoundException    Eğer belirtilen ID'ye sahip bir cüzdan bulunamazsa.
      */
     @Transactional(propagation = Propagation.REQUIRED)
-    public WalletBalance updateBalance(Long walletId, String currency, BigDecimal amountDelta)
+    public void updateBalance(Long walletId, String currency, BigDecimal amountDelta)
             throws InsufficientFundsException, EntityNotFoundException {
+        updateBalance(walletId, Money.of(amountDelta, currency), null);
+    }
+
+    /**
+     * {@link #updateBalance(Long, String, BigDecimal)} ile aynıdır; ayrıca güncellemeyi, verilen referansla
+     * (işlemin idempotency anahtarı) denetim günlüğüne ({@link LedgerAuditLog}) yazar.
+     *
+     * @param amountDelta Bakiyedeki değişiklik; para birimi güncellenecek bakiyeyi belirler.
+     * @param reference   Güncellemeye yol açan işlemin idempotency anahtarı (yoksa {@code null}).
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public void updateBalance(Long walletId, Money amountDelta, String reference)
+            throws InsufficientFundsException, EntityNotFoundException {
+        Money resultingBalance = applyChange(walletId, amountDelta, reference);
+        ledgerAuditLog.record(walletId, amountDelta, resultingBalance, reference);
+    }
+
+    /**
+     * Aynı bakiyeye yönelik birden fazla değişikliği (ör. toplu para yatırma) toplam tutar olarak tek seferde uygular.
+     * Denetim günlüğüne ise her değişiklik kendi referansıyla ayrı bir kayıt olarak yazılır; sonuç bakiye biliniyorsa
+     * her kayda o değişiklikten sonraki ara bakiye yazılır.
+     *
+     * @param amountDeltas Değişiklikler; hepsi aynı para biriminde olmalıdır.
+     * @param references   Değişikliklerle aynı sırada, güncellemelere yol açan işlemlerin idempotency anahtarları.
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public void updateBalanceBatch(Long walletId, List<Money> amountDeltas, List<String> references)
+            throws InsufficientFundsException, EntityNotFoundException {
+        Money total = Money.zero(amountDeltas.get(0).currency());
+        for (Money amountDelta : amountDeltas) {
+            total = total.plus(amountDelta);
+        }
+        // Değişiklikler aynı transaction'da commit edildiği için bellek içi motora ilk referans yeter.
+        Money resultingBalance = applyChange(walletId, total, references.get(0));
+        Money running = resultingBalance != null ? resultingBalance.minus(total) : null;
+        for (int i = 0; i < amountDeltas.size(); i++) {
+            Money amountDelta = amountDeltas.get(i);
+            if (running != null) {
+                running = running.plus(amountDelta);
+            }
+            ledgerAuditLog.record(walletId, amountDelta, running, references.get(i));
+        }
+    }
+
+    // Değişikliği moda uygun motorla uygular. Sonuç bakiyeyi yalnızca satırı kilitleyerek okuyan yol bilir;
+    // diğer motorlar için null döner. Koşullu, iyimser ve parçalı yollar tek ifadeyle (okumadan) yazar; yevmiye ve
+    // bellek içi motorlarda bakiye satırı güncellenmez. Sonucu bu yollarda da bulmak her güncellemeye ek bir okuma
+    // (parçalı bakiyede tüm parçaların toplamı) ekler ve motorların amacını bozar. Denetim günlüğünde bakiye bu
+    // yüzden isteğe bağlıdır; bakiyeler değişikliklerin toplamından ve mutabakattan izlenir.
+    // Motorlar tutarları veritabanı sınırında BigDecimal olarak alır.
+    private Money applyChange(Long walletId, Money amountDelta, String reference) {
+        String currency = amountDelta.currency();
+        if (ledgerMode == LedgerMode.JOURNAL) {
+            // Girişler zaten kilitsiz eklendiği için bu modda parçalı bakiyeye gerek yoktur.
+            journalLedgerEngine.apply(walletId, currency, amountDelta.toBigDecimal());
+            return null;
+        }
+        if (ledgerMode == LedgerMode.IN_MEMORY) {
+            inMemoryLedgerEngine.apply(walletId, currency, amountDelta.toBigDecimal(), reference);
+            return null;
+        }
+        if (shardedBalanceEngine.isSharded(walletId)) {
+            shardedBalanceEngine.apply(walletId, currency, amountDelta.toBigDecimal());
+            return null;
+        }
+        return switch (ledgerMode) {
+            case CONDITIONAL -> {
+                conditionalLedgerEngine.apply(walletId, currency, amountDelta.toBigDecimal());
+                yield null;
+            }
+            case OPTIMISTIC -> optimisticLedgerEngine.tryApply(walletId, currency, amountDelta.toBigDecimal())
+                    ? null
+                    : updateBalanceWithLock(walletId, amountDelta);
+            default -> updateBalanceWithLock(walletId, amountDelta);
+        };
+    }
+
+    private Money updateBalanceWithLock(Long walletId, Money amountDelta) {
+        String currency = amountDelta.currency();
 
         // Adım 1: İlgili cüzdanın var olduğundan emin ol.
         Wallet wallet = walletRepository.findById(walletId)
@@ -67,12 +182,12 @@ public class LedgerService {
         log.info("Kilit alındı: Cüzdan {} - Para Birimi {}", walletId, currency);
 
         // Adım 3: Yeni bakiyeyi hesapla.
-        BigDecimal newBalanceAmount = balance.getBalance().add(amountDelta);
+        Money newBalanceAmount = Money.of(balance.getBalance(), currency).plus(amountDelta);
 
         // Adım 4: Yetersiz bakiye kontrolü yap.
         // Sadece para çıkışı (amountDelta < 0) durumunda kontrol yapılır.
-        if (amountDelta.compareTo(BigDecimal.ZERO) < 0 && newBalanceAmount.compareTo(BigDecimal.ZERO) < 0) {
-            log.warn("Yetersiz Bakiye: Cüzdan {}, İstenen Çıkış: {}, Mevcut Bakiye: {}", walletId, amountDelta.abs(), balance.getBalance());
+        if (amountDelta.isNegative() && newBalanceAmount.isNegative()) {
+            log.warn("Yetersiz Bakiye: Cüzdan {}, İstenen Çıkış: {}, Mevcut Bakiye: {}", walletId, amountDelta.negate(), balance.getBalance());
             // Hata durumunda, transaction geri alınacak ve kilit serbest bırakılacaktır.
             throw new InsufficientFundsException(
                     String.format("Yetersiz Bakiye: %s ID'li cüzdanın %s para biriminde yeterli bakiyesi yok.", walletId, currency)
@@ -80,13 +195,144 @@ public class LedgerService {
         }
 
         // Adım 5: Hesaplanan yeni bakiyeyi nesne üzerinde güncelle.
-        balance.setBalance(newBalanceAmount);
+        balance.setBalance(newBalanceAmount.toBigDecimal());
         
         // Adım 6: Güncellenmiş bakiye nesnesini veritabanına kaydet.
         // Transaction başarılı bir şekilde tamamlandığında, değişiklikler commit edilir ve kilit serbest bırakılır.
-        WalletBalance savedBalance = balanceRepository.save(balance);
+        balanceRepository.save(balance);
         log.info("Kilit serbest bırakıldı ve bakiye güncellendi: Cüzdan {} - Yeni Bakiye {}", walletId, newBalanceAmount);
+        return newBalanceAmount;
+    }
+
+    /**
+     * Birden fazla bakiyeyi tek bir transaction içinde, deadlock oluşturmadan günceller.
+     * Kilitlenecek (cüzdan, para birimi) anahtarları global olarak sıralanır ve tek bir
+     * {@code SELECT ... FOR UPDATE} sorgusu ile aynı sırada kilitlenir. Böylece eş zamanlı A→B ve B→A
+     * transferleri birbirini karşılıklı beklemez; biri diğerinin bitmesini bekler.
+     * Değişiklikler, verilen sırayla uygulanır ve her para çıkışında bakiye kontrolü yapılır.
+     *
+     * @param changes Uygulanacak bakiye değişiklikleri.
+     * @throws InsufficientFundsException Eğer herhangi bir para çıkışı için yeterli bakiye yoksa.
+     * @throws EntityNotFoundException    Eğer değişikliklerden birinin cüzdanı bulunamazsa.
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public void updateBalances(List<BalanceChange> changes)
+            throws InsufficientFundsException, EntityNotFoundException {
+        updateBalances(changes, null);
+    }
+
+    /**
+     * {@link #updateBalances(List)} ile aynıdır; ayrıca her değişikliği, verilen referansla denetim günlüğüne yazar.
+     *
+     * @param reference Değişikliklere yol açan işlemin idempotency anahtarı (yoksa {@code null}).
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public void updateBalances(List<BalanceChange> changes, String reference)
+            throws InsufficientFundsException, EntityNotFoundException {
+        boolean anySharded = changes.stream().anyMatch(c -> shardedBalanceEngine.isSharded(c.key().walletId()));
+        if (ledgerMode == LedgerMode.PESSIMISTIC && !anySharded) {
+            updateBalancesWithLock(changes, reference);
+            return;
+        }
+        // Diğer modlarda her satır ayrı yazılır; aynı global sırayı izlemek yine deadlock'u önler.
+        changes.stream()
+                .sorted(Comparator.comparing(BalanceChange::key))
+                .forEach(change -> updateBalance(change.key().walletId(), change.delta(), reference));
+    }
+
+    /**
+     * Tamamlanmış bir işlemi çift taraflı yevmiyeye kaydeder. Yalnızca {@link LedgerMode#JOURNAL} modunda
+     * etkilidir; diğer modlarda bakiye satırları zaten güncellendiği için bir şey yapmaz.
+     *
+     * @param transaction Kaydedilmiş işlem.
+     * @param fee         İşlemden kesilen komisyon (yoksa {@code null}).
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public void recordTransaction(Transaction transaction, BigDecimal fee) {
+        ledgerJournal.record(transaction, fee);
+    }
+
+    /**
+     * Bir cüzdanın para birimi bazında güncel bakiyelerini döner. Sıcak cüzdanlarda
+     * ana satıra parçaların toplamı eklenir; diğer cüzdanlar için ek sorgu atılmaz.
+     * {@link LedgerMode#JOURNAL} modda bakiyeler son snapshot ve sonrasındaki yevmiye satırlarından hesaplanır.
+     * {@link LedgerMode#IN_MEMORY} modda veritabanı geriden geldiği için bellekteki değerler önceliklidir.
+     *
+     * @param wallet Bakiyeleri okunacak cüzdan (bakiye satırları yüklü).
+     * @return Para birimi → bakiye eşlemesi.
+     */
+    public Map<String, BigDecimal> getBalances(Wallet wallet) {
+        Map<String, BigDecimal> stored = new HashMap<>();
+        for (WalletBalance balance : wallet.getBalances()) {
+            stored.put(balance.getCurrency(), balance.getBalance());
+        }
+        return getBalances(wallet.getId(), stored);
+    }
+
+    /**
+     * {@link #getBalances(Wallet)}'in entity yüklemeden çalışan hali.
+     *
+     * @param walletId       Cüzdan ID'si.
+     * @param storedBalances Cüzdanın bakiye satırlarından okunan para birimi → bakiye eşlemesi; değiştirilmez.
+     * @return Para birimi → bakiye eşlemesi.
+     */
+    public Map<String, BigDecimal> getBalances(Long walletId, Map<String, BigDecimal> storedBalances) {
+        Map<String, BigDecimal> balances = new HashMap<>();
+        if (ledgerMode == LedgerMode.JOURNAL) {
+            for (String currency : storedBalances.keySet()) {
+                balances.put(currency, ledgerJournal.balanceOf(walletId, currency));
+            }
+            return balances;
+        }
+        balances.putAll(storedBalances);
+        if (ledgerMode == LedgerMode.IN_MEMORY) {
+            balances.putAll(inMemoryLedgerEngine.balancesOf(walletId));
+            return balances;
+        }
+        shardedBalanceEngine.shardTotals(walletId)
+                .forEach((currency, amount) -> balances.merge(currency, amount, BigDecimal::add));
+        return balances;
+    }
+
+    private void updateBalancesWithLock(List<BalanceChange> changes, String reference) {
+        List<BalanceKey> keys = changes.stream().map(BalanceChange::key).distinct().sorted().toList();
+
+        log.info("Toplu kilit isteniyor: {}", keys);
+        Map<BalanceKey, WalletBalance> balances = new HashMap<>();
+        for (WalletBalance balance : balanceRepository.lockAllForUpdate(keys)) {
+            balances.put(new BalanceKey(balance.getWallet().getId(), balance.getCurrency()), balance);
+        }
+        log.info("Toplu kilit alındı: {} satır", balances.size());
+
+        for (BalanceChange change : changes) {
+            BalanceKey key = change.key();
+            WalletBalance balance = balances.computeIfAbsent(key, this::newBalanceRow);
+
+            Money newBalanceAmount = Money.of(balance.getBalance(), key.currency()).plus(change.delta());
+            if (change.delta().isNegative() && newBalanceAmount.isNegative()) {
+                log.warn("Yetersiz Bakiye: Cüzdan {}, İstenen Çıkış: {}, Mevcut Bakiye: {}", key.walletId(), change.delta().negate(), balance.getBalance());
+                throw new InsufficientFundsException(
+                        String.format("Yetersiz Bakiye: %s ID'li cüzdanın %s para biriminde yeterli bakiyesi yok.", key.walletId(), key.currency())
+                );
+            }
+            balance.setBalance(newBalanceAmount.toBigDecimal());
+            ledgerAuditLog.record(key.walletId(), change.delta(), newBalanceAmount, reference);
+        }
+
+        // Kilitli satırlar zaten yönetilen nesnelerdir; save yalnızca yeni oluşturulan satırlar için insert üretir.
+        balanceRepository.saveAll(balances.values());
+        log.info("Toplu bakiye güncellemesi tamamlandı: {}", keys);
+    }
 
-        return savedBalance;
+    private WalletBalance newBalanceRow(BalanceKey key) {
+        // Bu para biriminde henüz bakiye satırı yoksa, sıfır bakiye ile yeni bir tane oluştur.
+        Wallet wallet = walletRepository.findById(key.walletId())
+                .orElseThrow(() -> new EntityNotFoundException("Cüzdan bulunamadı: " + key.walletId()));
+        log.info("Yeni bakiye satırı oluşturuluyor: Cüzdan {} - {}", key.walletId(), key.currency());
+        WalletBalance newBalance = new WalletBalance();
+        newBalance.setWallet(wallet);
+        newBalance.setCurrency(key.currency());
+        newBalance.setBalance(BigDecimal.ZERO);
+        return newBalance;
     }
 }
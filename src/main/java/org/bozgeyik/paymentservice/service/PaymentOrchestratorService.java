@@ -9,17 +9,41 @@ import org.bozgeyik.paymentservice.dto.*;
 import org.bozgeyik.paymentservice.event.TransactionCompletedEvent;
 import org.bozgeyik.paymentservice.exception.IdempotencyException;
 import org.bozgeyik.paymentservice.exception.InsufficientFundsException;
+import org.bozgeyik.paymentservice.idempotency.IdempotencyService;
 import org.bozgeyik.paymentservice.model.*;
+import org.bozgeyik.paymentservice.repository.OffsetPageRequest;
 import org.bozgeyik.paymentservice.repository.TransactionRepository;
+import org.bozgeyik.paymentservice.repository.WalletPostingRepository;
 import org.bozgeyik.paymentservice.repository.WalletRepository;
+import org.bozgeyik.paymentservice.service.archive.TransactionArchive;
+import org.bozgeyik.paymentservice.service.fx.CrossRate;
+import org.bozgeyik.paymentservice.service.fx.FxQuoteService;
+import org.bozgeyik.paymentservice.service.ledger.BalanceChange;
+import org.bozgeyik.paymentservice.service.posting.WalletPostings;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -31,46 +55,104 @@ public class PaymentOrchestratorService {
     private final WalletService walletService;
     private final LedgerService ledgerService;
     private final FXService fxService;
+    private final FxQuoteService fxQuoteService;
     private final NotificationClient notificationClient;
     private final ApplicationEventPublisher eventPublisher;
     private final MockSwiftService mockSwiftService;
+    private final IdempotencyService idempotencyService;
+    private final WalletPostings walletPostings;
+    private final WalletPostingRepository walletPostingRepository;
+    private final TransactionArchive transactionArchive;
+
+    // İşlem geçmişi wallet_postings üzerinden okunur (tablo /actuator/postings ile doldurulduktan sonra açılmalı)
+    @Value("${payment.postings.read-enabled:false}")
+    private boolean readFromPostings;
     // Komisyon oranı (%5) - Sabit olarak tanımlayalım
-    private static final BigDecimal SWIFT_FEE_RATE = new BigDecimal("0.05");
+    public static final BigDecimal SWIFT_FEE_RATE = new BigDecimal("0.05");
 
     @Transactional
     public Transaction depositOnRamp(DepositRequest request) {
         checkIdempotency(request.getIdempotencyKey());
 
-        Wallet wallet = null;
+        WalletRef wallet = null;
         try {
-            // Düzeltme: E-posta ve para birimine göre cüzdanı bul.
-            wallet = walletService.getWalletByUserEmailAndCurrency(request.getCustomerId(), request.getCurrency());
+            // E-posta ve para birimine göre cüzdanı (önbellekten) çöz; bakiyeler yüklenmez.
+            wallet = walletService.resolveWallet(request.getCustomerId(), request.getCurrency());
 
-            ledgerService.updateBalance(wallet.getId(), request.getCurrency(), request.getAmount());
+            ledgerService.updateBalance(wallet.walletId(), Money.of(request.getAmount(), request.getCurrency()), request.getIdempotencyKey());
 
             return handleSuccessfulDeposit(request, wallet);
 
         } catch (Exception e) {
+            rethrowIfDuplicate(e);
             log.error("Deposit hatası (Rollback tetiklendi): {}", e.getMessage(), e);
             handleFailedTransaction(request, wallet, e);
             return null; 
         }
     }
 
+    /**
+     * Aynı cüzdana ve para birimine yapılan birden fazla para yatırma isteğini tek bir transaction içinde işler.
+     * Bakiyeye yalnızca toplam tutar tek seferde uygulanır; her istek için ayrı bir {@link Transaction} kaydı atılır.
+     * Anlık bildirimler commit'ten sonra gönderilir. Herhangi bir adım hata verirse tüm grup geri alınır;
+     * çağıran taraf ({@link DepositPipeline}) istekleri tek tek yeniden işler.
+     *
+     * @param walletId  Para yatırılacak cüzdanın ID'si.
+     * @param currency  Para birimi.
+     * @param requests  Birbirinden farklı anahtarlı istekler; anahtarlar bu transaction adına sahiplenilir.
+     * @return İsteklerle aynı sırada oluşturulan işlem kayıtları.
+     */
+    @Transactional
+    public List<Transaction> applyDepositBatch(Long walletId, String currency, List<DepositRequest> requests) {
+        List<Money> amounts = new ArrayList<>(requests.size());
+        List<String> keys = new ArrayList<>(requests.size());
+        for (DepositRequest request : requests) {
+            checkIdempotency(request.getIdempotencyKey());
+            amounts.add(Money.of(request.getAmount(), currency));
+            keys.add(request.getIdempotencyKey());
+        }
+
+        // Bakiye, cüzdan yüklenmeden önce güncellenir; aksi halde oturumdaki bakiye nesnesi kilitten önceki değeri taşır.
+        // Bakiyeye toplam tek seferde uygulanır; denetim günlüğüne her istek kendi anahtarıyla ayrı yazılır.
+        ledgerService.updateBalanceBatch(walletId, amounts, keys);
+        Wallet wallet = walletService.getWalletById(walletId);
+
+        List<Transaction> transactions = new ArrayList<>(requests.size());
+        for (DepositRequest request : requests) {
+            Transaction transaction = createTransactionEntry(request.getIdempotencyKey(), null, walletId, request.getAmount(), request.getCurrency(), request.getAmount(), request.getCurrency(), BigDecimal.ONE, request.getDescription(), TransactionType.DEPOSIT, TransactionStatus.COMPLETED);
+            ledgerService.recordTransaction(transaction, null);
+            eventPublisher.publishEvent(new TransactionCompletedEvent(this, transaction));
+            transactions.add(transaction);
+        }
+
+        String customerId = wallet.getUser().getCustomerId();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                for (DepositRequest request : requests) {
+                    sendNotification(customerId, Money.of(request.getAmount(), currency).toDisplayString() + " cüzdanınıza yüklendi.", "DEPOSIT_COMPLETED");
+                }
+            }
+        });
+        log.info("Toplu para yatırma: Cüzdan {} - {} istek ({})", walletId, requests.size(), currency);
+        return transactions;
+    }
+
     @Transactional
     public Transaction withdrawOffRamp(WithdrawRequest request) {
         checkIdempotency(request.getIdempotencyKey());
 
-        Wallet wallet = null;
+        WalletRef wallet = null;
         try {
-            // Düzeltme: E-posta ve para birimine göre cüzdanı bul.
-            wallet = walletService.getWalletByUserEmailAndCurrency(request.getCustomerId(), request.getCurrency());
+            // E-posta ve para birimine göre cüzdanı (önbellekten) çöz; bakiyeler yüklenmez.
+            wallet = walletService.resolveWallet(request.getCustomerId(), request.getCurrency());
 
-            ledgerService.updateBalance(wallet.getId(), request.getCurrency(), request.getAmount().negate());
+            ledgerService.updateBalance(wallet.walletId(), Money.of(request.getAmount(), request.getCurrency()).negate(), request.getIdempotencyKey());
 
             return handleSuccessfulWithdrawal(request, wallet);
 
         } catch (Exception e) {
+            rethrowIfDuplicate(e);
             log.error("Withdraw hatası (Rollback tetiklendi): {}", e.getMessage(), e);
             handleFailedTransaction(request, wallet, e);
             return null;
@@ -83,32 +165,39 @@ public class PaymentOrchestratorService {
 
         String fromCurrency = request.getCurrency();
         String toCurrency = request.getTargetCurrency();
-        BigDecimal fromAmount = request.getAmount();
-        BigDecimal convertedAmount;
-        BigDecimal rate = BigDecimal.ONE;
+        Money fromAmount = Money.of(request.getAmount(), fromCurrency);
+        Money converted;
+        CrossRate rate = CrossRate.SAME_CURRENCY;
 
         if (!fromCurrency.equals(toCurrency)) {
-            log.info("FX Transferi: {} {} -> {}", fromAmount, fromCurrency, toCurrency);
-            rate = fxService.getRate(fromCurrency, toCurrency);
-            convertedAmount = fxService.convert(fromAmount, fromCurrency, toCurrency);
+            log.info("FX Transferi: {} -> {}", fromAmount, toCurrency);
+            // Teklif verilmişse kilitli kuru kullanılır, kur tablosuna bakılmaz.
+            rate = request.getQuoteId() != null
+                    ? fxQuoteService.redeem(request.getQuoteId(), request.getFromCustomerId(), fromCurrency, toCurrency)
+                    : fxService.resolve(fromCurrency, toCurrency);
+            converted = fxService.convert(fromAmount, rate.rate(), toCurrency);
         } else {
-            convertedAmount = fromAmount;
+            converted = fromAmount;
         }
+        BigDecimal convertedAmount = converted.toBigDecimal();
 
-        Wallet fromWallet = null;
-        Wallet toWallet = null;
+        WalletRef fromWallet = null;
+        WalletRef toWallet = null;
         try {
-            // Düzeltme: E-posta ve para birimine göre cüzdanları bul.
-            fromWallet = walletService.getWalletByUserEmailAndCurrency(request.getFromCustomerId(), fromCurrency);
-            toWallet = walletService.getWalletByUserEmailAndCurrency(request.getToCustomerId(), toCurrency);
+            // E-posta ve para birimine göre cüzdanları (önbellekten) çöz; bakiyeler yüklenmez.
+            fromWallet = walletService.resolveWallet(request.getFromCustomerId(), fromCurrency);
+            toWallet = walletService.resolveWallet(request.getToCustomerId(), toCurrency);
 
-            ledgerService.updateBalance(fromWallet.getId(), fromCurrency, fromAmount.negate());
-
-            ledgerService.updateBalance(toWallet.getId(), toCurrency, convertedAmount);
+            // İki bakiye, deadlock oluşmaması için global sırayla ve tek sorguda kilitlenir.
+            ledgerService.updateBalances(List.of(
+                    BalanceChange.of(fromWallet.walletId(), fromAmount.negate()),
+                    BalanceChange.of(toWallet.walletId(), converted)
+            ), request.getIdempotencyKey());
 
             return handleSuccessfulTransfer(request, fromWallet, toWallet, convertedAmount, rate);
 
         } catch (Exception e) {
+            rethrowIfDuplicate(e);
             log.error("Transfer hatası (Rollback tetiklendi): {}", e.getMessage(), e);
             handleFailedTransaction(request, fromWallet, toWallet, e, convertedAmount, rate);
             return null;
@@ -119,42 +208,111 @@ public class PaymentOrchestratorService {
     public Transaction executeFx(FxRequest request) {
         checkIdempotency(request.getIdempotencyKey());
 
-        BigDecimal rate = fxService.getRate(request.getFromCurrency(), request.getToCurrency());
-        BigDecimal convertedAmount = fxService.convert(request.getAmount(), request.getFromCurrency(), request.getToCurrency());
+        Money amount = Money.of(request.getAmount(), request.getFromCurrency());
+        CrossRate rate = request.getQuoteId() != null
+                ? fxQuoteService.redeem(request.getQuoteId(), request.getCustomerId(), request.getFromCurrency(), request.getToCurrency())
+                : fxService.resolve(request.getFromCurrency(), request.getToCurrency());
+        Money converted = fxService.convert(amount, rate.rate(), request.getToCurrency());
+        BigDecimal convertedAmount = converted.toBigDecimal();
 
-        Wallet wallet = null;
+        WalletRef wallet = null;
         try {
-            // Düzeltme: E-posta ve para birimine göre cüzdanı bul.
-            wallet = walletService.getWalletByUserEmailAndCurrency(request.getCustomerId(), request.getFromCurrency());
-
-            ledgerService.updateBalance(wallet.getId(), request.getFromCurrency(), request.getAmount().negate());
+            // E-posta ve para birimine göre cüzdanı (önbellekten) çöz; bakiyeler yüklenmez.
+            wallet = walletService.resolveWallet(request.getCustomerId(), request.getFromCurrency());
 
-            ledgerService.updateBalance(wallet.getId(), request.getToCurrency(), convertedAmount);
+            ledgerService.updateBalances(List.of(
+                    BalanceChange.of(wallet.walletId(), amount.negate()),
+                    BalanceChange.of(wallet.walletId(), converted)
+            ), request.getIdempotencyKey());
 
             return handleSuccessfulFx(request, wallet, convertedAmount, rate);
 
         } catch (Exception e) {
+            rethrowIfDuplicate(e);
             log.error("FX Trade hatası (Rollback tetiklendi): {}", e.getMessage(), e);
             handleFailedTransaction(request, wallet, e, convertedAmount, rate);
             return null;
         }
     }
 
+    @Transactional(readOnly = true)
     public Page<Transaction> getTransactionsForUser(String customerId, Pageable pageable) {
         List<Long> userWalletIds = walletRepository.findAllWalletIdsByCustomerId(customerId);
         if (userWalletIds.isEmpty()) {
             return Page.empty(pageable);
         }
-        return transactionRepository.findByFromWalletIdInOrToWalletIdIn(userWalletIds, userWalletIds, pageable);
+        // Arşivlenmiş aylar, sıcak tablodan okunan sayfayla birleştirilir.
+        return transactionArchive.mergePage(userWalletIds, pageable, page -> findHotTransactions(userWalletIds, page));
     }
 
-    private void checkIdempotency(String key) {
-        if (transactionRepository.existsByIdempotencyKey(key)) {
-            throw new IdempotencyException("Bu işlem daha önce gerçekleştirildi: " + key);
+    private Page<Transaction> findHotTransactions(List<Long> userWalletIds, Pageable pageable) {
+        Sort postingSort = readFromPostings ? toPostingSort(pageable.getSort()) : null;
+        if (postingSort == null) {
+            return transactionRepository.findByFromWalletIdInOrToWalletIdIn(userWalletIds, userWalletIds, pageable);
+        }
+        // Sayfa, cüzdan tarafları dizininden ID olarak okunur; işlemler birincil anahtarla yüklenip aynı sıraya dizilir.
+        Page<Long> ids = walletPostingRepository.findTransactionIdsByWalletIds(userWalletIds,
+                new OffsetPageRequest(pageable.getOffset(), pageable.getPageSize(), postingSort));
+        Map<Long, Transaction> byId = transactionRepository.findAllById(ids.getContent()).stream()
+                .collect(Collectors.toMap(Transaction::getId, Function.identity()));
+        List<Transaction> content = ids.getContent().stream().map(byId::get).toList();
+        return new PageImpl<>(content, pageable, ids.getTotalElements());
+    }
+
+    // İşlem sıralamasını cüzdan tarafı alanlarına çevirir; dizinde olmayan bir alana göre sıralama istenirse null.
+    // Aynı tarihli işlemlerin sayfalar arasında kaymaması için sona işlem ID'si eklenir.
+    private static Sort toPostingSort(Sort sort) {
+        List<Sort.Order> orders = new ArrayList<>();
+        boolean hasId = false;
+        for (Sort.Order order : sort) {
+            switch (order.getProperty()) {
+                case "transactionDate" -> orders.add(order);
+                case "id" -> {
+                    orders.add(order.withProperty("transactionId"));
+                    hasId = true;
+                }
+                default -> {
+                    return null;
+                }
+            }
+        }
+        if (!hasId) {
+            orders.add(Sort.Order.by("transactionId").with(orders.isEmpty() ? Sort.Direction.ASC : orders.get(0).getDirection()));
         }
+        return Sort.by(orders);
+    }
+
+    /**
+     * Kullanıcının işlemlerini yeniden eskiye, imleçle sayfalar. Sayım sorgusu yapılmaz; bir sonraki sayfanın olup
+     * olmadığı bir satır fazla okunarak anlaşılır. Sıcak tablo tükenince arşivden devam edilir.
+     *
+     * @param cursor Önceki sayfanın son işlemi; ilk sayfa için {@code null}.
+     * @param size   Sayfa boyutu.
+     */
+    @Transactional(readOnly = true)
+    public Slice<Transaction> getTransactionSliceForUser(String customerId, TransactionCursor cursor, int size) {
+        List<Long> userWalletIds = walletRepository.findAllWalletIdsByCustomerId(customerId);
+        LocalDateTime beforeDate = cursor != null ? cursor.transactionDate() : null;
+        Long beforeId = cursor != null ? cursor.id() : null;
+        List<Transaction> rows = transactionRepository.findLatestForWallets(userWalletIds, beforeDate, beforeId, size + 1);
+        if (rows.size() <= size && transactionArchive.hasSegments()) {
+            // Arşivdeki tüm işlemler sıcak tablodakilerden eskidir; imleç arşive olduğu gibi uygulanır.
+            rows = new ArrayList<>(rows);
+            rows.addAll(transactionArchive.findBefore(userWalletIds, beforeDate, beforeId, size + 1 - rows.size()));
+        }
+        boolean hasNext = rows.size() > size;
+        return new SliceImpl<>(hasNext ? rows.subList(0, size) : rows, PageRequest.of(0, size), hasNext);
+    }
+
+    private void checkIdempotency(String key) {
+        idempotencyService.claim(key);
     }
 
     private Transaction createTransactionEntry(String key, Long fromId, Long toId, BigDecimal originAmount, String originCurrency, BigDecimal convertedAmount, String targetCurrency, BigDecimal rate, String desc, TransactionType type, TransactionStatus status) {
+        return createTransactionEntry(key, fromId, toId, originAmount, originCurrency, convertedAmount, targetCurrency, new CrossRate(rate, null), desc, type, status);
+    }
+
+    private Transaction createTransactionEntry(String key, Long fromId, Long toId, BigDecimal originAmount, String originCurrency, BigDecimal convertedAmount, String targetCurrency, CrossRate rate, String desc, TransactionType type, TransactionStatus status) {
         Transaction tx = new Transaction();
         tx.setIdempotencyKey(key);
         tx.setFromWalletId(fromId);
@@ -163,11 +321,29 @@ public class PaymentOrchestratorService {
         tx.setOriginalCurrency(originCurrency);
         tx.setConvertedAmount(convertedAmount);
         tx.setTargetCurrency(targetCurrency);
-        tx.setExchangeRateUsed(rate);
+        tx.setExchangeRateUsed(rate.rate());
+        tx.setExchangeRatePath(rate.path());
         tx.setDescription(desc != null ? desc : type.name());
         tx.setTransactionType(type);
         tx.setStatus(status);
-        return transactionRepository.save(tx);
+        try {
+            Transaction saved = transactionRepository.save(tx);
+            idempotencyService.recordKey(saved);
+            walletPostings.record(saved);
+            if (status == TransactionStatus.COMPLETED) {
+                // BAŞARISIZ kayıtlar transaction ile birlikte geri alınır.
+                idempotencyService.recordResult(saved);
+            }
+            return saved;
+        } catch (DataIntegrityViolationException e) {
+            // İşlem kaydındaki tek benzersiz alan idempotency anahtarıdır (saklama süresi geçmiş bir anahtarın tekrarı;
+            // bölümlenmiş tabloda tekrar recordKey'de yakalanır).
+            if (e.getCause() instanceof ConstraintViolationException violation
+                    && violation.getKind() == ConstraintViolationException.ConstraintKind.UNIQUE) {
+                throw new IdempotencyException("Bu işlem daha önce gerçekleştirildi: " + key);
+            }
+            throw e;
+        }
     }
 
     private void sendNotification(String customerId, String message, String notificationType) {
@@ -178,6 +354,13 @@ public class PaymentOrchestratorService {
         }
     }
 
+    // Tekrarlanan anahtar için BAŞARISIZ kaydı da aynı anahtarla yazılamaz; hata olduğu gibi iletilir.
+    private void rethrowIfDuplicate(Exception e) {
+        if (e instanceof IdempotencyException duplicate) {
+            throw duplicate;
+        }
+    }
+
     private void rethrowSpecificExceptions(Exception e, String defaultMessage) {
         if (e instanceof InsufficientFundsException || e instanceof EntityNotFoundException || e instanceof IdempotencyException) {
             throw (RuntimeException) e;
@@ -185,53 +368,57 @@ public class PaymentOrchestratorService {
         throw new RuntimeException(defaultMessage, e);
     }
 
-    private Transaction handleSuccessfulDeposit(DepositRequest request, Wallet wallet) {
-        Transaction transaction = createTransactionEntry(request.getIdempotencyKey(), null, wallet.getId(), request.getAmount(), request.getCurrency(), request.getAmount(), request.getCurrency(), BigDecimal.ONE, request.getDescription(), TransactionType.DEPOSIT, TransactionStatus.COMPLETED);
-        sendNotification(wallet.getUser().getCustomerId(), String.format("%.2f %s cüzdanınıza yüklendi.", request.getAmount(), request.getCurrency()), "DEPOSIT_COMPLETED");
+    private Transaction handleSuccessfulDeposit(DepositRequest request, WalletRef wallet) {
+        Transaction transaction = createTransactionEntry(request.getIdempotencyKey(), null, wallet.walletId(), request.getAmount(), request.getCurrency(), request.getAmount(), request.getCurrency(), BigDecimal.ONE, request.getDescription(), TransactionType.DEPOSIT, TransactionStatus.COMPLETED);
+        ledgerService.recordTransaction(transaction, null);
+        sendNotification(wallet.customerId(), Money.of(request.getAmount(), request.getCurrency()).toDisplayString() + " cüzdanınıza yüklendi.", "DEPOSIT_COMPLETED");
         eventPublisher.publishEvent(new TransactionCompletedEvent(this, transaction));
         return transaction;
     }
 
-    private Transaction handleSuccessfulWithdrawal(WithdrawRequest request, Wallet wallet) {
-        Transaction transaction = createTransactionEntry(request.getIdempotencyKey(), wallet.getId(), null, request.getAmount(), request.getCurrency(), request.getAmount(), request.getCurrency(), BigDecimal.ONE, request.getDescription(), TransactionType.WITHDRAWAL, TransactionStatus.COMPLETED);
-        sendNotification(wallet.getUser().getCustomerId(), String.format("%.2f %s cüzdanınızdan çekildi.", request.getAmount(), request.getCurrency()), "WITHDRAWAL_COMPLETED");
+    private Transaction handleSuccessfulWithdrawal(WithdrawRequest request, WalletRef wallet) {
+        Transaction transaction = createTransactionEntry(request.getIdempotencyKey(), wallet.walletId(), null, request.getAmount(), request.getCurrency(), request.getAmount(), request.getCurrency(), BigDecimal.ONE, request.getDescription(), TransactionType.WITHDRAWAL, TransactionStatus.COMPLETED);
+        ledgerService.recordTransaction(transaction, null);
+        sendNotification(wallet.customerId(), Money.of(request.getAmount(), request.getCurrency()).toDisplayString() + " cüzdanınızdan çekildi.", "WITHDRAWAL_COMPLETED");
         eventPublisher.publishEvent(new TransactionCompletedEvent(this, transaction));
         return transaction;
     }
 
-    private Transaction handleSuccessfulTransfer(TransferRequest request, Wallet fromWallet, Wallet toWallet, BigDecimal convertedAmount, BigDecimal rate) {
-        Transaction transaction = createTransactionEntry(request.getIdempotencyKey(), fromWallet.getId(), toWallet.getId(), request.getAmount(), request.getCurrency(), convertedAmount, request.getTargetCurrency(), rate, request.getDescription(), TransactionType.TRANSFER, TransactionStatus.COMPLETED);
-        sendNotification(fromWallet.getUser().getCustomerId(), String.format("%.2f %s gönderdiniz.", request.getAmount(), request.getCurrency()), "TRANSFER_SENT");
-        sendNotification(toWallet.getUser().getCustomerId(), String.format("%.2f %s aldınız.", convertedAmount, request.getTargetCurrency()), "TRANSFER_RECEIVED");
+    private Transaction handleSuccessfulTransfer(TransferRequest request, WalletRef fromWallet, WalletRef toWallet, BigDecimal convertedAmount, CrossRate rate) {
+        Transaction transaction = createTransactionEntry(request.getIdempotencyKey(), fromWallet.walletId(), toWallet.walletId(), request.getAmount(), request.getCurrency(), convertedAmount, request.getTargetCurrency(), rate, request.getDescription(), TransactionType.TRANSFER, TransactionStatus.COMPLETED);
+        ledgerService.recordTransaction(transaction, null);
+        sendNotification(fromWallet.customerId(), Money.of(request.getAmount(), request.getCurrency()).toDisplayString() + " gönderdiniz.", "TRANSFER_SENT");
+        sendNotification(toWallet.customerId(), Money.of(convertedAmount, request.getTargetCurrency()).toDisplayString() + " aldınız.", "TRANSFER_RECEIVED");
         eventPublisher.publishEvent(new TransactionCompletedEvent(this, transaction));
         return transaction;
     }
 
-    private Transaction handleSuccessfulFx(FxRequest request, Wallet wallet, BigDecimal convertedAmount, BigDecimal rate) {
-        Transaction transaction = createTransactionEntry(request.getIdempotencyKey(), wallet.getId(), wallet.getId(), request.getAmount(), request.getFromCurrency(), convertedAmount, request.getToCurrency(), rate, "Döviz Alım/Satım", TransactionType.FX_TRADE, TransactionStatus.COMPLETED);
-        sendNotification(wallet.getUser().getCustomerId(), String.format("%.2f %s sattınız, %.2f %s aldınız.", request.getAmount(), request.getFromCurrency(), convertedAmount, request.getToCurrency()), "FX_TRADE_COMPLETED");
+    private Transaction handleSuccessfulFx(FxRequest request, WalletRef wallet, BigDecimal convertedAmount, CrossRate rate) {
+        Transaction transaction = createTransactionEntry(request.getIdempotencyKey(), wallet.walletId(), wallet.walletId(), request.getAmount(), request.getFromCurrency(), convertedAmount, request.getToCurrency(), rate, "Döviz Alım/Satım", TransactionType.FX_TRADE, TransactionStatus.COMPLETED);
+        ledgerService.recordTransaction(transaction, null);
+        sendNotification(wallet.customerId(), Money.of(request.getAmount(), request.getFromCurrency()).toDisplayString() + " sattınız, " + Money.of(convertedAmount, request.getToCurrency()).toDisplayString() + " aldınız.", "FX_TRADE_COMPLETED");
         eventPublisher.publishEvent(new TransactionCompletedEvent(this, transaction));
         return transaction;
     }
 
-    private void handleFailedTransaction(DepositRequest request, Wallet wallet, Exception e) {
-        createTransactionEntry(request.getIdempotencyKey(), null, wallet != null ? wallet.getId() : null, request.getAmount(), request.getCurrency(), request.getAmount(), request.getCurrency(), BigDecimal.ONE, "BAŞARISIZ: " + e.getMessage(), TransactionType.DEPOSIT, TransactionStatus.FAILED);
+    private void handleFailedTransaction(DepositRequest request, WalletRef wallet, Exception e) {
+        createTransactionEntry(request.getIdempotencyKey(), null, wallet != null ? wallet.walletId() : null, request.getAmount(), request.getCurrency(), request.getAmount(), request.getCurrency(), BigDecimal.ONE, "BAŞARISIZ: " + e.getMessage(), TransactionType.DEPOSIT, TransactionStatus.FAILED);
         rethrowSpecificExceptions(e, "Deposit işlemi sırasında hata oluştu.");
     }
 
-    private void handleFailedTransaction(WithdrawRequest request, Wallet wallet, Exception e) {
+    private void handleFailedTransaction(WithdrawRequest request, WalletRef wallet, Exception e) {
         String reason = (e instanceof InsufficientFundsException) ? "Yetersiz Bakiye" : e.getMessage();
-        createTransactionEntry(request.getIdempotencyKey(), wallet != null ? wallet.getId() : null, null, request.getAmount(), request.getCurrency(), request.getAmount(), request.getCurrency(), BigDecimal.ONE, "BAŞARISIZ: " + reason, TransactionType.WITHDRAWAL, TransactionStatus.FAILED);
+        createTransactionEntry(request.getIdempotencyKey(), wallet != null ? wallet.walletId() : null, null, request.getAmount(), request.getCurrency(), request.getAmount(), request.getCurrency(), BigDecimal.ONE, "BAŞARISIZ: " + reason, TransactionType.WITHDRAWAL, TransactionStatus.FAILED);
         rethrowSpecificExceptions(e, "Withdraw işlemi sırasında hata oluştu.");
     }
 
-    private void handleFailedTransaction(TransferRequest request, Wallet fromWallet, Wallet toWallet, Exception e, BigDecimal convertedAmount, BigDecimal rate) {
-        createTransactionEntry(request.getIdempotencyKey(), fromWallet != null ? fromWallet.getId() : null, toWallet != null ? toWallet.getId() : null, request.getAmount(), request.getCurrency(), convertedAmount, request.getTargetCurrency(), rate, "BAŞARISIZ: " + e.getMessage(), TransactionType.TRANSFER, TransactionStatus.FAILED);
+    private void handleFailedTransaction(TransferRequest request, WalletRef fromWallet, WalletRef toWallet, Exception e, BigDecimal convertedAmount, CrossRate rate) {
+        createTransactionEntry(request.getIdempotencyKey(), fromWallet != null ? fromWallet.walletId() : null, toWallet != null ? toWallet.walletId() : null, request.getAmount(), request.getCurrency(), convertedAmount, request.getTargetCurrency(), rate, "BAŞARISIZ: " + e.getMessage(), TransactionType.TRANSFER, TransactionStatus.FAILED);
         rethrowSpecificExceptions(e, "Transfer sırasında beklenmeyen hata");
     }
 
-    private void handleFailedTransaction(FxRequest request, Wallet wallet, Exception e, BigDecimal convertedAmount, BigDecimal rate) {
-        createTransactionEntry(request.getIdempotencyKey(), wallet != null ? wallet.getId() : null, wallet != null ? wallet.getId() : null, request.getAmount(), request.getFromCurrency(), convertedAmount, request.getToCurrency(), rate, "BAŞARISIZ: " + e.getMessage(), TransactionType.FX_TRADE, TransactionStatus.FAILED);
+    private void handleFailedTransaction(FxRequest request, WalletRef wallet, Exception e, BigDecimal convertedAmount, CrossRate rate) {
+        createTransactionEntry(request.getIdempotencyKey(), wallet != null ? wallet.walletId() : null, wallet != null ? wallet.walletId() : null, request.getAmount(), request.getFromCurrency(), convertedAmount, request.getToCurrency(), rate, "BAŞARISIZ: " + e.getMessage(), TransactionType.FX_TRADE, TransactionStatus.FAILED);
         rethrowSpecificExceptions(e, "FX işlemi sırasında beklenmeyen hata");
     }
 
@@ -240,21 +427,22 @@ public class PaymentOrchestratorService {
         checkIdempotency(request.getIdempotencyKey());
 
         // 1. Cüzdanı ve Bakiyeyi Kontrol Et
-        Wallet fromWallet = walletService.getWalletByUserEmailAndCurrency(
+        WalletRef fromWallet = walletService.resolveWallet(
                 request.getFromCustomerId(),
                 request.getCurrency()
         );
 
-        // 2. Komisyon Hesabı (Tutar * 0.05)
-        BigDecimal fee = request.getAmount().multiply(SWIFT_FEE_RATE);
-        BigDecimal totalDeduction = request.getAmount().add(fee);
+        // 2. Komisyon Hesabı (Tutar * 0.05, para biriminin ölçeğine yuvarlanır)
+        Money amount = Money.of(request.getAmount(), request.getCurrency());
+        Money fee = amount.multiply(SWIFT_FEE_RATE, RoundingMode.HALF_EVEN);
+        Money totalDeduction = amount.plus(fee);
 
-        log.info("Dış Transfer: Tutar={}, Komisyon={}, Toplam Düşülecek={}", request.getAmount(), fee, totalDeduction);
+        log.info("Dış Transfer: Tutar={}, Komisyon={}, Toplam Düşülecek={}", amount, fee, totalDeduction);
 
         try {
             // 3. Parayı (Tutar + Komisyon) Müşteriden Düş
             // LedgerService, bakiye yetersizse hata fırlatacak ve işlem duracaktır.
-            ledgerService.updateBalance(fromWallet.getId(), request.getCurrency(), totalDeduction.negate());
+            ledgerService.updateBalance(fromWallet.walletId(), totalDeduction.negate(), request.getIdempotencyKey());
 
             // 4. SWIFT Servisini Çağır (Bu işlem 2-4 saniye sürebilir)
             boolean isSuccess = mockSwiftService.processTransfer(
@@ -273,6 +461,7 @@ public class PaymentOrchestratorService {
             return handleSuccessfulExternalTransfer(request, fromWallet, fee);
 
         } catch (Exception e) {
+            rethrowIfDuplicate(e);
             log.error("Dış transfer hatası: {}", e.getMessage());
 
             // Hata mesajını güvenli boyuta getir (Maksimum 250 karakter alalım ki ön ek ile taşmasın)
@@ -284,7 +473,7 @@ public class PaymentOrchestratorService {
             // Veritabanına "BAŞARISIZ" kaydı at
             createTransactionEntry(
                     request.getIdempotencyKey(),
-                    fromWallet.getId(),
+                    fromWallet.walletId(),
                     null,
                     request.getAmount(),
                     request.getCurrency(),
@@ -300,12 +489,12 @@ public class PaymentOrchestratorService {
     }
 
     // Yardımcı Metot: Başarılı dış transferi kaydet ve bildirim gönder
-    private Transaction handleSuccessfulExternalTransfer(ExternalTransferRequest request, Wallet wallet, BigDecimal fee) {
-        String description = String.format("SWIFT Transferi (Komisyon: %s %s)", fee, request.getCurrency());
+    private Transaction handleSuccessfulExternalTransfer(ExternalTransferRequest request, WalletRef wallet, Money fee) {
+        String description = "SWIFT Transferi (Komisyon: " + fee + ")";
 
         Transaction transaction = createTransactionEntry(
                 request.getIdempotencyKey(),
-                wallet.getId(),
+                wallet.walletId(),
                 null, // Alıcı cüzdan ID yok (Dışarı gitti)
                 request.getAmount(),
                 request.getCurrency(),
@@ -316,11 +505,13 @@ public class PaymentOrchestratorService {
                 TransactionType.EXTERNAL_TRANSFER,
                 TransactionStatus.COMPLETED
         );
+        transaction.setFeeAmount(fee.toBigDecimal());
+        ledgerService.recordTransaction(transaction, fee.toBigDecimal());
 
         sendNotification(
-                wallet.getUser().getCustomerId(),
-                String.format("SWIFT işleminiz onaylandı. Gönderilen: %s %s, Kesilen Komisyon: %s %s",
-                        request.getAmount(), request.getCurrency(), fee, request.getCurrency()),
+                wallet.customerId(),
+                "SWIFT işleminiz onaylandı. Gönderilen: " + request.getAmount() + " " + request.getCurrency()
+                        + ", Kesilen Komisyon: " + fee,
                 "SWIFT_SENT"
         );
 
@@ -20,6 +20,7 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final WalletService walletService;
 
     /**
      * UserService yapıcısı (constructor).
@@ -27,10 +28,12 @@ public class UserService {
      *
      * @param userRepository Kullanıcı veritabanı işlemleri için repository.
      * @param passwordEncoder Şifreleri güvenli bir şekilde hash'lemek için kullanılır.
+     * @param walletService   E-posta değiştiğinde önbellekteki cüzdan çözümlemelerini geçersiz kılmak için kullanılır.
      */
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, WalletService walletService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.walletService = walletService;
     }
 
     /**
@@ -100,7 +103,8 @@ public class UserService {
         User existingUser = getUserById(userId);
 
         // Eğer istekte yeni bir e-posta adresi varsa ve bu adres mevcut e-postadan farklıysa...
-        if (updateRequest.getEmail() != null && !updateRequest.getEmail().equals(existingUser.getEmail())) {
+        boolean emailChanged = updateRequest.getEmail() != null && !updateRequest.getEmail().equals(existingUser.getEmail());
+        if (emailChanged) {
             // Yeni e-posta adresinin başka bir kullanıcı tarafından kullanılıp kullanılmadığını kontrol et.
             userRepository.findByEmail(updateRequest.getEmail()).ifPresent(user -> {
                 // Eğer e-postayı kullanan kullanıcı, güncellediğimiz kullanıcı değilse, hata fırlat.
@@ -117,8 +121,14 @@ public class UserService {
             existingUser.setName(updateRequest.getName());
         }
 
-        // Güncellenmiş kullanıcı nesnesini veritabanına kaydet ve döndür.
-        return userRepository.save(existingUser);
+        // Güncellenmiş kullanıcı nesnesini veritabanına kaydet.
+        User saved = userRepository.save(existingUser);
+
+        // Eski e-posta ile önbelleğe alınmış cüzdan çözümlemeleri artık geçersiz.
+        if (emailChanged) {
+            walletService.invalidateUserWallets(userId);
+        }
+        return saved;
     }
 
     /**
@@ -135,5 +145,6 @@ public class UserService {
         // bu ilişkileri de yönetmek gerekebilir (örneğin, silinmelerini engellemek veya kaskad silme uygulamak).
         // Bu örnekte, doğrudan silme işlemi yapılıyor.
         userRepository.delete(userToDelete);
+        walletService.invalidateUserWallets(userId);
     }
 }
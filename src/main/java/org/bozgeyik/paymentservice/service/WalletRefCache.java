@@ -0,0 +1,96 @@
+package org.bozgeyik.paymentservice.service;
+
+import org.bozgeyik.paymentservice.model.WalletRef;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * (e-posta, para birimi) çiftinden {@link WalletRef}'e süreli ve sınırlı önbellek.
+ * <p>
+ * Geçersiz kılma bir nesil sayacını artırır; veritabanından okumaya başlamadan önce alınan nesil değişmişse okunan
+ * değer önbelleğe yazılmaz. Böylece geçersiz kılmadan önce başlayıp sonra biten bir okuma eski değeri geri getiremez.
+ * Kapasite aşıldığında en eski kayıtlar (ekleme sırasına göre) çıkarılır. Bulunamayan çiftler önbelleğe alınmaz.
+ */
+final class WalletRefCache {
+
+    private record Key(String email, String currency) {
+    }
+
+    private record Entry(WalletRef ref, long expiresAtNanos) {
+    }
+
+    private final int capacity;
+    private final long ttlNanos;
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Key> order = new ConcurrentLinkedQueue<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    WalletRefCache(int capacity, long ttlNanos) {
+        this.capacity = capacity;
+        this.ttlNanos = ttlNanos;
+    }
+
+    /**
+     * Süresi dolmamış kaydı döner, yoksa {@code null}.
+     */
+    WalletRef get(String email, String currency) {
+        Key key = new Key(email, currency);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.expiresAtNanos() >= 0) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.ref();
+    }
+
+    /**
+     * Veritabanından okumaya başlamadan önce alınmalı ve {@link #put}'a verilmelidir.
+     */
+    long generation() {
+        return generation.get();
+    }
+
+    void put(String email, String currency, WalletRef ref, long readGeneration) {
+        if (capacity <= 0) {
+            return;
+        }
+        Key key = new Key(email, currency);
+        Entry previous = entries.put(key, new Entry(ref, System.nanoTime() + ttlNanos));
+        // Okuma sırasında bir geçersiz kılma olduysa yazılan kayıt geri alınır (o arada yazılmış daha yenisi de gider).
+        if (generation.get() != readGeneration) {
+            entries.remove(key);
+            return;
+        }
+        if (previous != null) {
+            return;
+        }
+        order.add(key);
+        while (entries.size() > capacity) {
+            Key eldest = order.poll();
+            if (eldest == null) {
+                break;
+            }
+            entries.remove(eldest);
+        }
+    }
+
+    void invalidateUser(Long userId) {
+        invalidate(ref -> ref.userId().equals(userId));
+    }
+
+    void invalidateWallet(Long walletId) {
+        invalidate(ref -> ref.walletId().equals(walletId));
+    }
+
+    // Nesil, kayıtlar silinmeden önce artırılır; silmeyle eş zamanlı biten okumalar da yazılmaz.
+    private void invalidate(Predicate<WalletRef> matches) {
+        generation.incrementAndGet();
+        entries.values().removeIf(entry -> matches.test(entry.ref()));
+    }
+}
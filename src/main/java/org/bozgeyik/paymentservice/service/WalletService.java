@@ -1,28 +1,58 @@
 package org.bozgeyik.paymentservice.service;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.persistence.EntityNotFoundException;
 import org.bozgeyik.paymentservice.dto.CreateWalletRequest;
+import org.bozgeyik.paymentservice.dto.WalletBalanceDto;
+import org.bozgeyik.paymentservice.dto.WalletBalanceResponse;
 import org.bozgeyik.paymentservice.model.AccountStatus;
 import org.bozgeyik.paymentservice.model.User;
 import org.bozgeyik.paymentservice.model.Wallet;
 import org.bozgeyik.paymentservice.model.WalletBalance;
+import org.bozgeyik.paymentservice.model.WalletBalanceRow;
+import org.bozgeyik.paymentservice.model.WalletRef;
 import org.bozgeyik.paymentservice.repository.UserRepository;
 import org.bozgeyik.paymentservice.repository.WalletRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class WalletService {
 
     private final WalletRepository walletRepository;
     private final UserRepository userRepository;
+    private final LedgerService ledgerService;
 
-    public WalletService(WalletRepository walletRepository, UserRepository userRepository) {
+    private WalletRefCache walletRefs;
+
+    @Value("${payment.wallet-refs.cache-size:100000}")
+    private int walletRefCacheSize;
+
+    // Diğer instance'lardaki değişiklikler bu instance'ın önbelleğini geçersiz kılmaz; en fazla bu süre görülmez.
+    @Value("${payment.wallet-refs.ttl:60s}")
+    private Duration walletRefTtl;
+
+    public WalletService(WalletRepository walletRepository, UserRepository userRepository, LedgerService ledgerService) {
         this.walletRepository = walletRepository;
         this.userRepository = userRepository;
+        this.ledgerService = ledgerService;
+    }
+
+    @PostConstruct
+    void initWalletRefs() {
+        walletRefs = new WalletRefCache(walletRefCacheSize, walletRefTtl.toNanos());
     }
 
     @Transactional
@@ -44,10 +74,13 @@ public class WalletService {
             initialBalance.setWallet(wallet);
             initialBalance.setCurrency(request.getDefaultCurrency());
             initialBalance.setBalance(request.getInitialBalance());
+            initialBalance.setOpeningBalance(request.getInitialBalance());
             wallet.getBalances().add(initialBalance);
         }
 
-        return walletRepository.save(wallet);
+        Wallet saved = walletRepository.save(wallet);
+        invalidateUserWallets(user.getId());
+        return saved;
     }
 
     public Wallet getWalletById(Long walletId) {
@@ -61,17 +94,101 @@ public class WalletService {
                         "Kullanıcı için cüzdan bulunamadı: " + email + ", Para Birimi: " + currency));
     }
 
+    /**
+     * (e-posta, para birimi) çiftinin cüzdanını bakiyeleri ve kullanıcıyı yüklemeden, önbellekten çözer.
+     * Önbellek cüzdan oluşturma, kapatma ve kullanıcı güncellemelerinde commit sonrası geçersiz kılınır.
+     *
+     * @throws EntityNotFoundException Eğer çift için cüzdan bulunamazsa.
+     */
+    public WalletRef resolveWallet(String email, String currency) {
+        WalletRef ref = walletRefs.get(email, currency);
+        if (ref != null) {
+            return ref;
+        }
+        long generation = walletRefs.generation();
+        ref = walletRepository.findRefByUserEmailAndCurrency(email, currency)
+                .orElseThrow(() -> new EntityNotFoundException(
+                        "Kullanıcı için cüzdan bulunamadı: " + email + ", Para Birimi: " + currency));
+        walletRefs.put(email, currency, ref, generation);
+        return ref;
+    }
+
+    /**
+     * Kullanıcının önbellekteki tüm cüzdan çözümlemelerini (varsa commit sonrası) geçersiz kılar.
+     */
+    public void invalidateUserWallets(Long userId) {
+        afterCommit(() -> walletRefs.invalidateUser(userId));
+    }
+
+    /**
+     * Cüzdanın durumu değiştiğinde çağrılmalıdır; önbellekteki çözümlemeleri (varsa commit sonrası) geçersiz kılar.
+     */
+    public void invalidateWallet(Long walletId) {
+        afterCommit(() -> walletRefs.invalidateWallet(walletId));
+    }
+
     // YENİ EKLENEN: Kullanıcının tüm cüzdanlarını getir
     public List<Wallet> getWalletsByUserEmail(String email) {
         return walletRepository.findAllByUserEmail(email);
     }
 
+    /**
+     * {@code GET /wallets/{walletId}} yanıtını entity yüklemeden, tek sorguda okunan satırlardan oluşturur.
+     *
+     * @throws EntityNotFoundException Eğer cüzdan bulunamazsa.
+     */
+    @Transactional(readOnly = true)
+    public WalletBalanceResponse getWalletView(Long walletId) {
+        List<WalletBalanceResponse> views = toViews(walletRepository.findBalanceRowsById(walletId));
+        if (views.isEmpty()) {
+            throw new EntityNotFoundException("Cüzdan bulunamadı: ID " + walletId);
+        }
+        return views.get(0);
+    }
+
+    /**
+     * Kullanıcının tüm cüzdanlarının yanıtlarını entity yüklemeden, tek sorguda okunan satırlardan oluşturur.
+     */
+    @Transactional(readOnly = true)
+    public List<WalletBalanceResponse> getWalletViewsByUserEmail(String email) {
+        return toViews(walletRepository.findBalanceRowsByUserEmail(email));
+    }
+
+    // Satırlar cüzdan ID'sine göre sıralı gelir; her cüzdanın satırları ardışıktır.
+    private List<WalletBalanceResponse> toViews(List<WalletBalanceRow> rows) {
+        List<WalletBalanceResponse> views = new ArrayList<>();
+        int start = 0;
+        while (start < rows.size()) {
+            WalletBalanceRow first = rows.get(start);
+            Map<String, BigDecimal> stored = new HashMap<>();
+            int end = start;
+            for (; end < rows.size() && rows.get(end).walletId().equals(first.walletId()); end++) {
+                WalletBalanceRow row = rows.get(end);
+                if (row.currency() != null) {
+                    stored.put(row.currency(), row.balance());
+                }
+            }
+            Set<WalletBalanceDto> balances = new HashSet<>();
+            ledgerService.getBalances(first.walletId(), stored)
+                    .forEach((currency, balance) -> balances.add(new WalletBalanceDto(currency, balance)));
+            views.add(new WalletBalanceResponse(first.walletId(), first.userId().toString(), first.ownerName(),
+                    first.status(), balances));
+            start = end;
+        }
+        return views;
+    }
+
+    // Sıcak cüzdanlarda parçalı bakiyeler de dahil edilerek hesaplanan güncel bakiyeler
+    public Map<String, BigDecimal> getBalances(Wallet wallet) {
+        return ledgerService.getBalances(wallet);
+    }
+
     @Transactional
     public void closeWallet(Long walletId) {
         Wallet wallet = getWalletById(walletId);
 
-        boolean hasBalance = wallet.getBalances().stream()
-                .anyMatch(b -> b.getBalance().compareTo(BigDecimal.ZERO) > 0);
+        boolean hasBalance = getBalances(wallet).values().stream()
+                .anyMatch(b -> b.compareTo(BigDecimal.ZERO) > 0);
 
         if (hasBalance) {
             throw new IllegalStateException("Cüzdan kapatılamaz. Cüzdanda hala bakiye bulunmaktadır.");
@@ -79,5 +196,20 @@ public class WalletService {
 
         wallet.setStatus(AccountStatus.CLOSED);
         walletRepository.save(wallet);
+        invalidateWallet(walletId);
+    }
+
+    // Commit'ten önce geçersiz kılmak yetmez: eski değeri okuyan eş zamanlı bir istek onu yeniden önbelleğe yazabilir.
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,187 @@
+package org.bozgeyik.paymentservice.service.archive;
+
+import org.bozgeyik.paymentservice.model.Transaction;
+import org.bozgeyik.paymentservice.model.TransactionStatus;
+import org.bozgeyik.paymentservice.model.TransactionType;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static org.bozgeyik.paymentservice.service.archive.ArchiveSegmentFormat.*;
+
+/**
+ * Bir arşiv bloğu. Satır seçmek için gereken sütunlar (ID, tarih, cüzdanlar) açılışta çözülür; diğer sütunlar
+ * ancak bir satır {@link #transaction(int)} ile istendiğinde açılır. Böylece hiç eşleşmesi olmayan bloklarda
+ * yalnızca dört sütun açılır.
+ */
+final class ArchiveBlock {
+
+    private final int rows;
+    private final ByteBuffer data;
+    private final int[] columnPositions = new int[COLUMNS.length];
+    private final long[] ids;
+    private final long[] micros;
+    private final long[] fromWallets;
+    private final long[] toWallets;
+    private Object[][] values;
+
+    ArchiveBlock(int rows, ByteBuffer data) throws IOException {
+        this.rows = rows;
+        this.data = data;
+        int position = 0;
+        for (int i = 0; i < COLUMNS.length; i++) {
+            columnPositions[i] = position;
+            position += 8 + data.getInt(position + 4);
+        }
+        ids = decodeLongs(ID);
+        micros = decodeLongs(TRANSACTION_DATE);
+        fromWallets = decodeLongs(FROM_WALLET);
+        toWallets = decodeLongs(TO_WALLET);
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    long id(int row) {
+        return ids[row];
+    }
+
+    long micros(int row) {
+        return micros[row];
+    }
+
+    /**
+     * Satırın gönderen veya alıcı cüzdanı verilen (sıralı) cüzdanlardan biri mi?
+     */
+    boolean touches(int row, long[] sortedWallets) {
+        return contains(sortedWallets, fromWallets[row]) || contains(sortedWallets, toWallets[row]);
+    }
+
+    Transaction transaction(int row) throws IOException {
+        if (values == null) {
+            values = new Object[COLUMNS.length][];
+            for (int i = 0; i < COLUMNS.length; i++) {
+                Kind kind = KINDS[i];
+                if (kind == Kind.DECIMAL || kind == Kind.TEXT) {
+                    values[i] = decodeObjects(i);
+                }
+            }
+        }
+        Transaction tx = new Transaction();
+        tx.setId(ids[row]);
+        tx.setIdempotencyKey((String) values[IDEMPOTENCY_KEY][row]);
+        tx.setFromWalletId(fromWallets[row] != 0 ? fromWallets[row] - 1 : null);
+        tx.setToWalletId(toWallets[row] != 0 ? toWallets[row] - 1 : null);
+        tx.setOriginalAmount((BigDecimal) values[ORIGINAL_AMOUNT][row]);
+        tx.setOriginalCurrency((String) values[ORIGINAL_CURRENCY][row]);
+        tx.setConvertedAmount((BigDecimal) values[CONVERTED_AMOUNT][row]);
+        tx.setTargetCurrency((String) values[TARGET_CURRENCY][row]);
+        tx.setExchangeRateUsed((BigDecimal) values[EXCHANGE_RATE][row]);
+        tx.setExchangeRatePath((String) values[EXCHANGE_RATE_PATH][row]);
+        tx.setFeeAmount((BigDecimal) values[FEE_AMOUNT][row]);
+        tx.setDescription((String) values[DESCRIPTION][row]);
+        String type = (String) values[TRANSACTION_TYPE][row];
+        tx.setTransactionType(type != null ? TransactionType.valueOf(type) : null);
+        String status = (String) values[STATUS][row];
+        tx.setStatus(status != null ? TransactionStatus.valueOf(status) : null);
+        tx.setTransactionDate(fromMicros(micros[row]));
+        return tx;
+    }
+
+    // Cüzdan sütunları dosyadaki gibi (ID + 1, 0 null) tutulur; karşılaştırmada da aynı kaydırma kullanılır.
+    private static boolean contains(long[] sortedWallets, long encoded) {
+        if (encoded == 0) {
+            return false;
+        }
+        long walletId = encoded - 1;
+        for (long candidate : sortedWallets) {
+            if (candidate == walletId) {
+                return true;
+            }
+            if (candidate > walletId) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private long[] decodeLongs(int column) throws IOException {
+        ByteBuffer in = inflate(column);
+        long[] result = new long[rows];
+        Kind kind = KINDS[column];
+        long previous = 0;
+        for (int row = 0; row < rows; row++) {
+            long value = readVarLong(in);
+            if (kind == Kind.WALLET) {
+                result[row] = value;
+            } else {
+                previous += unzigzag(value);
+                result[row] = previous;
+            }
+        }
+        return result;
+    }
+
+    private Object[] decodeObjects(int column) throws IOException {
+        ByteBuffer in = inflate(column);
+        Object[] result = new Object[rows];
+        for (int row = 0; row < rows; row++) {
+            result[row] = KINDS[column] == Kind.DECIMAL ? readDecimal(in) : readText(in);
+        }
+        return result;
+    }
+
+    private ByteBuffer inflate(int column) throws IOException {
+        int position = columnPositions[column];
+        int rawLength = data.getInt(position);
+        int length = data.getInt(position + 4);
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data.array(), data.arrayOffset() + position + 8, length);
+            int read = 0;
+            while (read < rawLength) {
+                int n = inflater.inflate(raw, read, rawLength - read);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IOException("Arşiv bloğu bozuk: sütun " + COLUMNS[column]);
+                }
+                read += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Arşiv bloğu bozuk: sütun " + COLUMNS[column], e);
+        } finally {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(raw);
+    }
+
+    private static BigDecimal readDecimal(ByteBuffer in) {
+        byte marker = in.get();
+        if (marker == 0) {
+            return null;
+        }
+        int scale = (int) unzigzag(readVarLong(in));
+        if (marker == 1) {
+            return BigDecimal.valueOf(unzigzag(readVarLong(in)), scale);
+        }
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.get(bytes);
+        return new BigDecimal(new BigInteger(bytes), scale);
+    }
+
+    private static String readText(ByteBuffer in) {
+        int length = (int) readVarLong(in);
+        if (length == 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.position(), length - 1, StandardCharsets.UTF_8);
+        in.position(in.position() + length - 1);
+        return value;
+    }
+}
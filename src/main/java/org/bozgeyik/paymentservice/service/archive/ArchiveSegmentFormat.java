@@ -0,0 +1,124 @@
+package org.bozgeyik.paymentservice.service.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Arşiv segment dosyalarının ikili düzeni. Tüm sayılar big-endian'dır.
+ * <pre>
+ *   başlık       MAGIC (int), VERSION (int)
+ *   bloklar      her blok için, {@link #COLUMNS} sırasıyla her sütun:
+ *                  ham uzunluk (int), sıkıştırılmış uzunluk (int), deflate ile sıkıştırılmış sütun verisi
+ *   cüzdan dizini cüzdan sayısı (int); cüzdan ID'sine göre sıralı (cüzdan ID (long), ilk referans (int)) girdileri ve
+ *                 son girdiden sonra toplam referans sayısı (int); ardından referanslar: blok numaraları (int)
+ *   blok dizini  blok sayısı (int); her blok için {@link #BLOCK_ENTRY_BYTES} baytlık girdi:
+ *                  konum (long), uzunluk (int), satır (int), en küçük/büyük tarih (long, epoch µs), en küçük/büyük ID (long)
+ *   son ek       blok dizini konumu (long), cüzdan dizini konumu (long), satır sayısı (long), MAGIC (int)
+ * </pre>
+ * Satırlar (tarih, ID) sırasıyla yazılır ve bloklara bölünür. Sütun kodlamaları:
+ * <ul>
+ *     <li>{@link Kind#ID}, {@link Kind#TIMESTAMP}: bir önceki satırdan farkın zigzag varint'i</li>
+ *     <li>{@link Kind#WALLET}: ID + 1 varint olarak; 0 null</li>
+ *     <li>{@link Kind#DECIMAL}: 0 null; 1, ardından ölçek ve ölçeksiz değerin zigzag varint'i; 2, ardından ölçek ve
+ *     ölçeksiz değerin ikiye tümleyen baytları (long'a sığmayan değerler)</li>
+ *     <li>{@link Kind#TEXT}: UTF-8 uzunluk + 1 varint olarak, ardından baytlar; 0 null</li>
+ * </ul>
+ */
+final class ArchiveSegmentFormat {
+
+    static final int MAGIC = 0x50545841; // "PTXA"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 8;
+    static final int FOOTER_BYTES = 28;
+    static final int BLOCK_ENTRY_BYTES = 48;
+    static final int WALLET_ENTRY_BYTES = 12;
+
+    // Cüzdan dizini oluşturulurken (cüzdan, blok) çiftleri tek bir long'a paketlenir.
+    static final int BLOCK_BITS = 21;
+    static final int MAX_BLOCKS = 1 << BLOCK_BITS;
+
+    enum Kind { ID, WALLET, DECIMAL, TEXT, TIMESTAMP }
+
+    static final String[] COLUMNS = {
+            "id", "idempotency_key", "from_wallet_id", "to_wallet_id", "original_amount", "original_currency",
+            "converted_amount", "target_currency", "exchange_rate_used", "exchange_rate_path", "fee_amount",
+            "description", "transaction_type", "status", "transaction_date"
+    };
+
+    static final Kind[] KINDS = {
+            Kind.ID, Kind.TEXT, Kind.WALLET, Kind.WALLET, Kind.DECIMAL, Kind.TEXT,
+            Kind.DECIMAL, Kind.TEXT, Kind.DECIMAL, Kind.TEXT, Kind.DECIMAL,
+            Kind.TEXT, Kind.TEXT, Kind.TEXT, Kind.TIMESTAMP
+    };
+
+    static final String SELECT_COLUMNS = String.join(", ", COLUMNS);
+
+    static final int ID = 0;
+    static final int IDEMPOTENCY_KEY = 1;
+    static final int FROM_WALLET = 2;
+    static final int TO_WALLET = 3;
+    static final int ORIGINAL_AMOUNT = 4;
+    static final int ORIGINAL_CURRENCY = 5;
+    static final int CONVERTED_AMOUNT = 6;
+    static final int TARGET_CURRENCY = 7;
+    static final int EXCHANGE_RATE = 8;
+    static final int EXCHANGE_RATE_PATH = 9;
+    static final int FEE_AMOUNT = 10;
+    static final int DESCRIPTION = 11;
+    static final int TRANSACTION_TYPE = 12;
+    static final int STATUS = 13;
+    static final int TRANSACTION_DATE = 14;
+
+    private ArchiveSegmentFormat() {
+    }
+
+    static long toMicros(LocalDateTime value) {
+        return value.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + value.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    static long packWalletBlock(long walletId, int block) {
+        return (walletId << BLOCK_BITS) | block;
+    }
+
+    static long walletOf(long packed) {
+        return packed >>> BLOCK_BITS;
+    }
+
+    static int blockOf(long packed) {
+        return (int) (packed & (MAX_BLOCKS - 1));
+    }
+
+    static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,153 @@
+package org.bozgeyik.paymentservice.service.archive;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.bozgeyik.paymentservice.service.archive.ArchiveSegmentFormat.*;
+
+/**
+ * Bir arşiv segment dosyasını ({@link ArchiveSegmentFormat}) okur. Thread-safe'dir.
+ * <p>
+ * Açılışta yalnızca son ek, blok dizini (blok başına 48 bayt) ve cüzdan dizini belleğe alınır; bloklar istendiğinde
+ * konumlu okumayla diskten okunur. Bir cüzdanın satırlarının bulunduğu bloklar cüzdan dizininde ikili aramayla
+ * bulunur; diğer bloklara dokunulmaz.
+ */
+final class ArchiveSegmentReader implements Closeable {
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long rowCount;
+    private final int blockCount;
+    private final long[] blockOffsets;
+    private final int[] blockLengths;
+    private final int[] blockRows;
+    private final long[] blockMinMicros;
+    private final long[] blockMaxMicros;
+    private final long[] walletIds;
+    private final int[] walletRefStarts;
+    private final int[] walletRefs;
+
+    private ArchiveSegmentReader(Path path, FileChannel channel) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        long size = channel.size();
+        if (size < HEADER_BYTES + FOOTER_BYTES) {
+            throw new IOException("Geçersiz veya tamamlanmamış arşiv segmenti: " + path);
+        }
+        ByteBuffer header = read(0, HEADER_BYTES);
+        ByteBuffer footer = read(size - FOOTER_BYTES, FOOTER_BYTES);
+        if (header.getInt() != MAGIC || footer.getInt(FOOTER_BYTES - 4) != MAGIC) {
+            throw new IOException("Geçersiz veya tamamlanmamış arşiv segmenti: " + path);
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("Desteklenmeyen arşiv segmenti sürümü " + version + ": " + path);
+        }
+        long blockIndexOffset = footer.getLong();
+        long walletIndexOffset = footer.getLong();
+        rowCount = footer.getLong();
+
+        ByteBuffer blockIndex = read(blockIndexOffset, (int) (size - FOOTER_BYTES - blockIndexOffset));
+        blockCount = blockIndex.getInt();
+        blockOffsets = new long[blockCount];
+        blockLengths = new int[blockCount];
+        blockRows = new int[blockCount];
+        blockMinMicros = new long[blockCount];
+        blockMaxMicros = new long[blockCount];
+        for (int block = 0; block < blockCount; block++) {
+            blockOffsets[block] = blockIndex.getLong();
+            blockLengths[block] = blockIndex.getInt();
+            blockRows[block] = blockIndex.getInt();
+            blockMinMicros[block] = blockIndex.getLong();
+            blockMaxMicros[block] = blockIndex.getLong();
+            blockIndex.getLong(); // en küçük ID
+            blockIndex.getLong(); // en büyük ID
+        }
+
+        ByteBuffer walletIndex = read(walletIndexOffset, (int) (blockIndexOffset - walletIndexOffset));
+        int walletCount = walletIndex.getInt();
+        walletIds = new long[walletCount];
+        walletRefStarts = new int[walletCount + 1];
+        for (int i = 0; i < walletCount; i++) {
+            walletIds[i] = walletIndex.getLong();
+            walletRefStarts[i] = walletIndex.getInt();
+        }
+        walletRefStarts[walletCount] = walletIndex.getInt();
+        walletRefs = new int[walletRefStarts[walletCount]];
+        walletIndex.asIntBuffer().get(walletRefs);
+    }
+
+    static ArchiveSegmentReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new ArchiveSegmentReader(path, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    Path path() {
+        return path;
+    }
+
+    long rowCount() {
+        return rowCount;
+    }
+
+    int blockCount() {
+        return blockCount;
+    }
+
+    long blockMinMicros(int block) {
+        return blockMinMicros[block];
+    }
+
+    long blockMaxMicros(int block) {
+        return blockMaxMicros[block];
+    }
+
+    /**
+     * Verilen cüzdanlardan en az birine ait satır içeren blokların numaralarını artan sırayla döner.
+     */
+    int[] blocksOf(long[] wallets) {
+        int[] blocks = new int[0];
+        for (long walletId : wallets) {
+            int i = Arrays.binarySearch(walletIds, walletId);
+            if (i < 0) {
+                continue;
+            }
+            int count = blocks.length;
+            int from = walletRefStarts[i];
+            int to = walletRefStarts[i + 1];
+            blocks = Arrays.copyOf(blocks, count + to - from);
+            System.arraycopy(walletRefs, from, blocks, count, to - from);
+        }
+        return wallets.length > 1 ? Arrays.stream(blocks).sorted().distinct().toArray() : blocks;
+    }
+
+    ArchiveBlock readBlock(int block) throws IOException {
+        return new ArchiveBlock(blockRows[block], read(blockOffsets[block], blockLengths[block]));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Arşiv segmenti beklenenden kısa: " + path);
+            }
+        }
+        return buffer.flip();
+    }
+}
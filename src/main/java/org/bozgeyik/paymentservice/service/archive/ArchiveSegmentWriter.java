@@ -0,0 +1,286 @@
+package org.bozgeyik.paymentservice.service.archive;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+import static org.bozgeyik.paymentservice.service.archive.ArchiveSegmentFormat.*;
+
+/**
+ * İşlem satırlarını bir arşiv segment dosyasına ({@link ArchiveSegmentFormat}) yazar.
+ * <p>
+ * Satırlar {@link ArchiveSegmentFormat#SELECT_COLUMNS} ile seçilmiş, (tarih, ID) sırasıyla okunan bir sonuç
+ * kümesinden eklenir ve {@code blockRows}'luk bloklar halinde, her sütun ayrı sıkıştırılarak yazılır. Bellekte
+ * yalnızca o anki bloğun sütunları ve cüzdan dizini için (cüzdan, blok) çiftleri tutulur. Dosya {@link #finish()}
+ * ile dizinler yazılıp diske zorlanarak tamamlanır; tamamlanmamış bir dosya okunamaz (son ek eksik).
+ */
+final class ArchiveSegmentWriter implements Closeable {
+
+    private final FileOutputStream file;
+    private final DataOutputStream out;
+    private final int blockRows;
+    private final ByteArrayOutputStream[] columns = new ByteArrayOutputStream[COLUMNS.length];
+    private final long[] previous = new long[COLUMNS.length];
+    private final Deflater deflater = new Deflater();
+    private byte[] deflated = new byte[64 * 1024];
+
+    private long position;
+    private long rowCount;
+    private long minId = Long.MAX_VALUE;
+    private long maxId = Long.MIN_VALUE;
+
+    private int rowsInBlock;
+    private long blockMinMicros;
+    private long blockMaxMicros;
+    private long blockMinId;
+    private long blockMaxId;
+
+    private int blockCount;
+    private long[] blockEntries = new long[6 * 64];
+
+    private long[] walletBlocks = new long[4096];
+    private int walletBlockCount;
+    private int blockPairsStart;
+
+    ArchiveSegmentWriter(Path path, int blockRows) throws IOException {
+        this.blockRows = blockRows;
+        this.file = new FileOutputStream(path.toFile());
+        this.out = new DataOutputStream(new BufferedOutputStream(file, 64 * 1024));
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new ByteArrayOutputStream(blockRows * 4);
+        }
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        position = HEADER_BYTES;
+    }
+
+    /**
+     * Sonuç kümesinin o anki satırını ekler. Satırlar bir öncekinden (tarih, ID) olarak küçük olmamalıdır.
+     */
+    void append(ResultSet rs) throws SQLException, IOException {
+        long id = rs.getLong(ID + 1);
+        Timestamp date = rs.getTimestamp(TRANSACTION_DATE + 1);
+        long micros = toMicros(date.toLocalDateTime());
+        for (int i = 0; i < COLUMNS.length; i++) {
+            ByteArrayOutputStream column = columns[i];
+            int index = i + 1;
+            switch (KINDS[i]) {
+                case ID -> {
+                    writeVarLong(column, zigzag(id - previous[i]));
+                    previous[i] = id;
+                }
+                case TIMESTAMP -> {
+                    writeVarLong(column, zigzag(micros - previous[i]));
+                    previous[i] = micros;
+                }
+                case WALLET -> {
+                    long walletId = rs.getLong(index);
+                    if (rs.wasNull()) {
+                        column.write(0);
+                    } else {
+                        writeVarLong(column, walletId + 1);
+                        addWalletBlock(walletId);
+                    }
+                }
+                case DECIMAL -> writeDecimal(column, rs.getBigDecimal(index));
+                case TEXT -> writeText(column, rs.getString(index));
+            }
+        }
+
+        if (rowsInBlock == 0) {
+            blockMinMicros = micros;
+            blockMinId = id;
+            blockMaxId = id;
+        }
+        blockMaxMicros = micros;
+        blockMinId = Math.min(blockMinId, id);
+        blockMaxId = Math.max(blockMaxId, id);
+        minId = Math.min(minId, id);
+        maxId = Math.max(maxId, id);
+        rowCount++;
+        if (++rowsInBlock == blockRows) {
+            flushBlock();
+        }
+    }
+
+    long rowCount() {
+        return rowCount;
+    }
+
+    /** Yazılan en küçük işlem ID'si; satır yoksa {@code null}. */
+    Long minId() {
+        return rowCount > 0 ? minId : null;
+    }
+
+    /** Yazılan en büyük işlem ID'si; satır yoksa {@code null}. */
+    Long maxId() {
+        return rowCount > 0 ? maxId : null;
+    }
+
+    /**
+     * Kalan bloğu, cüzdan ve blok dizinlerini ve son eki yazar, dosyayı diske zorlar ve kapatır.
+     *
+     * @return Dosya boyutu.
+     */
+    long finish() throws IOException {
+        flushBlock();
+
+        long walletIndexOffset = position;
+        Arrays.sort(walletBlocks, 0, walletBlockCount);
+        int walletCount = 0;
+        for (int i = 0; i < walletBlockCount; i++) {
+            if (i == 0 || walletOf(walletBlocks[i]) != walletOf(walletBlocks[i - 1])) {
+                walletCount++;
+            }
+        }
+        out.writeInt(walletCount);
+        for (int i = 0; i < walletBlockCount; i++) {
+            if (i == 0 || walletOf(walletBlocks[i]) != walletOf(walletBlocks[i - 1])) {
+                out.writeLong(walletOf(walletBlocks[i]));
+                out.writeInt(i);
+            }
+        }
+        out.writeInt(walletBlockCount);
+        for (int i = 0; i < walletBlockCount; i++) {
+            out.writeInt(blockOf(walletBlocks[i]));
+        }
+        position += 4 + (long) walletCount * WALLET_ENTRY_BYTES + 4 + 4L * walletBlockCount;
+
+        long blockIndexOffset = position;
+        out.writeInt(blockCount);
+        for (int block = 0; block < blockCount; block++) {
+            int base = block * 6;
+            out.writeLong(blockEntries[base]);
+            long lengthAndRows = blockEntries[base + 1];
+            out.writeInt((int) (lengthAndRows >>> 32));
+            out.writeInt((int) lengthAndRows);
+            for (int i = 2; i < 6; i++) {
+                out.writeLong(blockEntries[base + i]);
+            }
+        }
+        position += 4 + (long) blockCount * BLOCK_ENTRY_BYTES;
+
+        out.writeLong(blockIndexOffset);
+        out.writeLong(walletIndexOffset);
+        out.writeLong(rowCount);
+        out.writeInt(MAGIC);
+        position += FOOTER_BYTES;
+        out.flush();
+        file.getChannel().force(true);
+        close();
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        out.close();
+    }
+
+    private void flushBlock() throws IOException {
+        if (rowsInBlock == 0) {
+            return;
+        }
+        if (blockCount == MAX_BLOCKS) {
+            throw new IOException("Segment blok sınırı aşıldı: " + MAX_BLOCKS);
+        }
+        long offset = position;
+        for (int i = 0; i < columns.length; i++) {
+            byte[] raw = columns[i].toByteArray();
+            int length = deflate(raw);
+            out.writeInt(raw.length);
+            out.writeInt(length);
+            out.write(deflated, 0, length);
+            position += 8 + length;
+            columns[i].reset();
+            previous[i] = 0;
+        }
+
+        if ((blockCount + 1) * 6 > blockEntries.length) {
+            blockEntries = Arrays.copyOf(blockEntries, blockEntries.length * 2);
+        }
+        int base = blockCount * 6;
+        blockEntries[base] = offset;
+        blockEntries[base + 1] = ((position - offset) << 32) | rowsInBlock;
+        blockEntries[base + 2] = blockMinMicros;
+        blockEntries[base + 3] = blockMaxMicros;
+        blockEntries[base + 4] = blockMinId;
+        blockEntries[base + 5] = blockMaxId;
+
+        // Bloğun (cüzdan, blok) çiftleri tekilleştirilir; dizinde bir cüzdan bir blok için bir kez yer alır.
+        Arrays.sort(walletBlocks, blockPairsStart, walletBlockCount);
+        int unique = blockPairsStart;
+        for (int i = blockPairsStart; i < walletBlockCount; i++) {
+            if (unique == blockPairsStart || walletBlocks[unique - 1] != walletBlocks[i]) {
+                walletBlocks[unique++] = walletBlocks[i];
+            }
+        }
+        walletBlockCount = unique;
+        blockPairsStart = unique;
+
+        blockCount++;
+        rowsInBlock = 0;
+    }
+
+    private int deflate(byte[] raw) {
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == deflated.length) {
+                deflated = Arrays.copyOf(deflated, deflated.length * 2);
+            }
+            length += deflater.deflate(deflated, length, deflated.length - length);
+        }
+        return length;
+    }
+
+    private void addWalletBlock(long walletId) {
+        if (walletBlockCount == walletBlocks.length) {
+            walletBlocks = Arrays.copyOf(walletBlocks, walletBlocks.length * 2);
+        }
+        walletBlocks[walletBlockCount++] = packWalletBlock(walletId, blockCount);
+    }
+
+    private static void writeDecimal(ByteArrayOutputStream column, BigDecimal value) {
+        if (value == null) {
+            column.write(0);
+            return;
+        }
+        BigInteger unscaled = value.unscaledValue();
+        if (unscaled.bitLength() < 64) {
+            column.write(1);
+            writeVarLong(column, zigzag(value.scale()));
+            writeVarLong(column, zigzag(unscaled.longValue()));
+        } else {
+            byte[] bytes = unscaled.toByteArray();
+            column.write(2);
+            writeVarLong(column, zigzag(value.scale()));
+            writeVarLong(column, bytes.length);
+            column.write(bytes, 0, bytes.length);
+        }
+    }
+
+    private static void writeText(ByteArrayOutputStream column, String value) {
+        if (value == null) {
+            column.write(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(column, bytes.length + 1L);
+        column.write(bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,325 @@
+package org.bozgeyik.paymentservice.service.archive;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bozgeyik.paymentservice.model.Transaction;
+import org.bozgeyik.paymentservice.model.TransactionArchiveSegment;
+import org.bozgeyik.paymentservice.repository.OffsetPageRequest;
+import org.bozgeyik.paymentservice.repository.TransactionArchiveSegmentRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.bozgeyik.paymentservice.service.archive.ArchiveSegmentFormat.toMicros;
+
+/**
+ * Arşive taşınmış işlemlerin okuma tarafı: işlem geçmişi ve dışa aktarım sorguları, sıcak tablodan gelen satırları
+ * buradaki segmentlerle birleştirir.
+ * <p>
+ * Segmentler aylıktır ve arşivlenen aylar her zaman sıcak tablodaki en eski aydan öncedir; bu yüzden birleştirme
+ * sıralama yönüne göre önce bir tarafı, sonra diğerini okumaktan ibarettir. Segment listesi veritabanından
+ * ({@code transaction_archive_segments}) {@code refresh-ms} aralıklarla ve bu instance'ta bir ay arşivlendiğinde
+ * hemen yenilenir. Dosyalar {@code payment.archive.dir} altında aranır; birden fazla instance varsa bu dizin
+ * paylaşılan bir birimde olmalıdır.
+ * <p>
+ * Bir ayın segmenti kaydedildikten sonra sıcak satırları silinene (bölümü düşürülene) kadar geçen kısa sürede o ayın
+ * satırları iki kez görülebilir.
+ */
+@Service
+@Slf4j
+public class TransactionArchive {
+
+    /**
+     * Arşivden dışa aktarılan satırların tüketicisi.
+     */
+    @FunctionalInterface
+    public interface RowConsumer {
+        void accept(Transaction transaction) throws IOException;
+    }
+
+    private interface RowVisitor {
+        /**
+         * @return Taramaya devam edilecekse {@code true}.
+         */
+        boolean visit(ArchiveBlock block, int row) throws IOException;
+    }
+
+    private record Segment(TransactionArchiveSegment info, ArchiveSegmentReader reader) {
+    }
+
+    private final TransactionArchiveSegmentRepository segmentRepository;
+    private volatile List<Segment> segments = List.of();
+
+    @Value("${payment.archive.dir:./data/transaction-archive}")
+    private Path directory;
+
+    public TransactionArchive(TransactionArchiveSegmentRepository segmentRepository) {
+        this.segmentRepository = segmentRepository;
+    }
+
+    @PostConstruct
+    void start() {
+        refresh();
+    }
+
+    @PreDestroy
+    synchronized void stop() {
+        for (Segment segment : segments) {
+            closeQuietly(segment.reader());
+        }
+        segments = List.of();
+    }
+
+    /**
+     * Segment listesini veritabanından yeniler; yeni segmentlerin dosyaları açılır, silinenler kapatılır.
+     */
+    @Scheduled(fixedDelayString = "${payment.archive.refresh-ms:60000}", initialDelayString = "${payment.archive.refresh-ms:60000}")
+    public synchronized void refresh() {
+        List<TransactionArchiveSegment> rows;
+        try {
+            rows = segmentRepository.findAllByOrderByMonthAsc();
+        } catch (DataAccessException e) {
+            log.warn("Arşiv segmentleri okunamadı: {}", e.getMessage());
+            return;
+        }
+        Map<String, Segment> open = new HashMap<>();
+        for (Segment segment : segments) {
+            open.put(segment.info().getFileName(), segment);
+        }
+        List<Segment> refreshed = new ArrayList<>(rows.size());
+        for (TransactionArchiveSegment row : rows) {
+            Segment existing = open.remove(row.getFileName());
+            if (existing != null) {
+                refreshed.add(new Segment(row, existing.reader()));
+                continue;
+            }
+            try {
+                refreshed.add(new Segment(row, ArchiveSegmentReader.open(directory.resolve(row.getFileName()))));
+            } catch (IOException e) {
+                // Ayın satırları okunamaz; sorgular bu ay olmadan yanıtlanır.
+                log.error("Arşiv segmenti açılamadı: {} - {}", row.getFileName(), e.getMessage());
+            }
+        }
+        segments = List.copyOf(refreshed);
+        open.values().forEach(segment -> closeQuietly(segment.reader()));
+    }
+
+    public boolean hasSegments() {
+        return !segments.isEmpty();
+    }
+
+    /**
+     * Verilen cüzdanlara dokunan arşivlenmiş işlem sayısı.
+     */
+    public long count(Collection<Long> walletIds) {
+        long[] count = {0};
+        scanUnchecked(walletIds, Long.MIN_VALUE, Long.MAX_VALUE, false, (block, row) -> {
+            count[0]++;
+            return true;
+        });
+        return count[0];
+    }
+
+    /**
+     * Verilen cüzdanlara dokunan arşivlenmiş işlemleri (tarih, ID) sırasıyla, {@code offset} kadarını atlayarak döner.
+     */
+    public List<Transaction> find(Collection<Long> walletIds, boolean descending, long offset, int limit) {
+        List<Transaction> result = new ArrayList<>(Math.min(limit, 1024));
+        if (limit <= 0) {
+            return result;
+        }
+        long[] skip = {offset};
+        scanUnchecked(walletIds, Long.MIN_VALUE, Long.MAX_VALUE, descending, (block, row) -> {
+            if (skip[0] > 0) {
+                skip[0]--;
+                return true;
+            }
+            result.add(block.transaction(row));
+            return result.size() < limit;
+        });
+        return result;
+    }
+
+    /**
+     * Verilen (tarih, ID) konumundan önceki arşivlenmiş işlemleri yeniden eskiye döner.
+     *
+     * @param beforeDate {@code null} ise en yeniden başlanır.
+     */
+    public List<Transaction> findBefore(Collection<Long> walletIds, LocalDateTime beforeDate, Long beforeId, int limit) {
+        List<Transaction> result = new ArrayList<>(Math.min(limit, 1024));
+        if (limit <= 0) {
+            return result;
+        }
+        long beforeMicros = beforeDate != null ? toMicros(beforeDate) : Long.MAX_VALUE;
+        long beforeIdValue = beforeId != null ? beforeId : Long.MAX_VALUE;
+        // Üst sınır, aynı tarihli satırlar da taransın diye tarihten bir mikrosaniye sonrasıdır.
+        long toMicros = beforeMicros == Long.MAX_VALUE ? Long.MAX_VALUE : beforeMicros + 1;
+        scanUnchecked(walletIds, Long.MIN_VALUE, toMicros, true, (block, row) -> {
+            if (block.micros(row) == beforeMicros && block.id(row) >= beforeIdValue) {
+                return true;
+            }
+            result.add(block.transaction(row));
+            return result.size() < limit;
+        });
+        return result;
+    }
+
+    /**
+     * Verilen cüzdanlara dokunan ve tarih aralığındaki arşivlenmiş işlemleri (tarih, ID) sırasıyla tüketiciye verir.
+     * Bellekte aynı anda yalnızca bir blok tutulur.
+     *
+     * @param from Alt sınır (dahil); {@code null} ise sınır yok.
+     * @param to   Üst sınır (hariç); {@code null} ise sınır yok.
+     */
+    public void forEach(Collection<Long> walletIds, LocalDateTime from, LocalDateTime to, RowConsumer consumer)
+            throws IOException {
+        scan(walletIds, from != null ? toMicros(from) : Long.MIN_VALUE, to != null ? toMicros(to) : Long.MAX_VALUE, false,
+                (block, row) -> {
+                    consumer.accept(block.transaction(row));
+                    return true;
+                });
+    }
+
+    /**
+     * Tarih aralığındaki tüm arşivlenmiş işlemleri (cüzdan ayrımı olmadan) segment ve blok sırasıyla tüketiciye verir.
+     *
+     * @param from Alt sınır (dahil).
+     * @param to   Üst sınır (hariç).
+     */
+    public void forEachBetween(LocalDateTime from, LocalDateTime to, RowConsumer consumer) throws IOException {
+        scan(null, toMicros(from), toMicros(to), false, (block, row) -> {
+            consumer.accept(block.transaction(row));
+            return true;
+        });
+    }
+
+    /**
+     * Segmenti okunabilen arşivlenmiş aylar, eskiden yeniye.
+     */
+    public List<YearMonth> months() {
+        return segments.stream().map(segment -> YearMonth.from(segment.info().getMonth())).toList();
+    }
+
+    /**
+     * Sıcak tablodan okunan sayfayı arşivle birleştirir. Sıralama tarih ve/veya ID üzerinde, tek yönde olmalıdır
+     * (sırasız istek artan tarih sayılır); aksi halde yalnızca sıcak tablo okunur.
+     *
+     * @param hotQuery Sıcak tablodan verilen konum ve boyutta sayfa okuyan sorgu.
+     */
+    public Page<Transaction> mergePage(Collection<Long> walletIds, Pageable pageable,
+                                       Function<Pageable, Page<Transaction>> hotQuery) {
+        Sort.Direction direction = pageable.isPaged() ? directionOf(pageable.getSort()) : null;
+        if (direction == null || !hasSegments()) {
+            return hotQuery.apply(pageable);
+        }
+        long offset = pageable.getOffset();
+        int size = pageable.getPageSize();
+        long archived = count(walletIds);
+
+        if (direction == Sort.Direction.DESC) {
+            // Önce sıcak satırlar, ardından arşiv
+            Page<Transaction> hot = hotQuery.apply(pageable);
+            List<Transaction> content = new ArrayList<>(hot.getContent());
+            if (content.size() < size) {
+                long archiveOffset = Math.max(0, offset - hot.getTotalElements());
+                content.addAll(find(walletIds, true, archiveOffset, size - content.size()));
+            }
+            return new PageImpl<>(content, pageable, hot.getTotalElements() + archived);
+        }
+
+        // Önce arşiv, ardından sıcak satırlar; sayfa arşivle dolsa da toplam için sıcak sayım gerekir.
+        List<Transaction> content = new ArrayList<>(size);
+        if (offset < archived) {
+            content.addAll(find(walletIds, false, offset, size));
+        }
+        Page<Transaction> hot = hotQuery.apply(new OffsetPageRequest(Math.max(0, offset - archived),
+                Math.max(1, size - content.size()), pageable.getSort()));
+        if (content.size() < size) {
+            content.addAll(hot.getContent());
+        }
+        return new PageImpl<>(content, pageable, archived + hot.getTotalElements());
+    }
+
+    // Arşivin sırası (tarih, ID) olduğu için yalnızca bu alanlarla, tek yönde sıralama birleştirilebilir.
+    private static Sort.Direction directionOf(Sort sort) {
+        Sort.Direction direction = null;
+        for (Sort.Order order : sort) {
+            if (!"transactionDate".equals(order.getProperty()) && !"id".equals(order.getProperty())) {
+                return null;
+            }
+            if (direction != null && direction != order.getDirection()) {
+                return null;
+            }
+            direction = order.getDirection();
+        }
+        return direction != null ? direction : Sort.Direction.ASC;
+    }
+
+    private void scanUnchecked(Collection<Long> walletIds, long fromMicros, long toMicros, boolean descending,
+                               RowVisitor visitor) {
+        try {
+            scan(walletIds, fromMicros, toMicros, descending, visitor);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Arşiv segmenti okunamadı", e);
+        }
+    }
+
+    // Segmentler ay sırasıyla, segment içindeki bloklar ve satırlar (tarih, ID) sırasıyla gezilir.
+    // Cüzdan dizininde olmayan ve tarih aralığı dışında kalan bloklar diskten okunmaz. walletIds null ise tüm satırlar.
+    private void scan(Collection<Long> walletIds, long fromMicros, long toMicros, boolean descending,
+                      RowVisitor visitor) throws IOException {
+        List<Segment> current = segments;
+        if (current.isEmpty() || (walletIds != null && walletIds.isEmpty())) {
+            return;
+        }
+        long[] wallets = walletIds != null ? walletIds.stream().mapToLong(Long::longValue).sorted().distinct().toArray() : null;
+        for (int s = 0; s < current.size(); s++) {
+            ArchiveSegmentReader reader = current.get(descending ? current.size() - 1 - s : s).reader();
+            int[] blocks = wallets != null ? reader.blocksOf(wallets) : IntStream.range(0, reader.blockCount()).toArray();
+            for (int b = 0; b < blocks.length; b++) {
+                int block = blocks[descending ? blocks.length - 1 - b : b];
+                if (reader.blockMaxMicros(block) < fromMicros || reader.blockMinMicros(block) >= toMicros) {
+                    continue;
+                }
+                ArchiveBlock data = reader.readBlock(block);
+                for (int r = 0; r < data.rows(); r++) {
+                    int row = descending ? data.rows() - 1 - r : r;
+                    long micros = data.micros(row);
+                    if (micros < fromMicros || micros >= toMicros || (wallets != null && !data.touches(row, wallets))) {
+                        continue;
+                    }
+                    if (!visitor.visit(data, row)) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void closeQuietly(ArchiveSegmentReader reader) {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            log.debug("Arşiv segmenti kapatılamadı: {}", reader.path(), e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.bozgeyik.paymentservice.service.archive;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code /actuator/archive}: GET bölümleri, arşiv segmentlerini ve son çalıştırmayı döner, POST arka planda arşivlemeyi
+ * başlatır (gövde: {@code {"partition": true}} önce işlem tablosunu aylık bölümlere dönüştürür; yalnızca MySQL).
+ */
+@Component
+@Endpoint(id = "archive")
+@RequiredArgsConstructor
+public class TransactionArchiveEndpoint {
+
+    private final TransactionArchiver archiver;
+
+    @ReadOperation
+    public TransactionArchiver.Status status() {
+        return archiver.status();
+    }
+
+    @WriteOperation
+    public Map<String, Object> start(@Nullable Boolean partition) {
+        boolean started = archiver.startAsync(Boolean.TRUE.equals(partition));
+        return Map.of("started", started,
+                "message", started ? "Arşivleme başlatıldı." : "Arşivleme kapalı veya zaten çalışıyor.");
+    }
+}
@@ -0,0 +1,377 @@
+package org.bozgeyik.paymentservice.service.archive;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bozgeyik.paymentservice.model.TransactionArchiveSegment;
+import org.bozgeyik.paymentservice.repository.TransactionArchiveSegmentRepository;
+import org.bozgeyik.paymentservice.service.ClusterLock;
+import org.bozgeyik.paymentservice.service.reconciliation.ArchivedMovements;
+import org.bozgeyik.paymentservice.service.reconciliation.ReconciliationService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@code hot-months}'tan eski ayların işlemlerini sıcak tablodan arşiv segment dosyalarına taşır ve işlem tablosunun
+ * aylık bölümlerini yönetir ({@link TransactionPartitions}).
+ * <p>
+ * Aylar en eskisinden başlayarak sırayla arşivlenir; her ay için:
+ * <ol>
+ *     <li>Ayın satırları (tarih, ID) sırasıyla okunup instance'a özgü adlı geçici bir dosyaya yazılır, dosya diske
+ *     zorlanıp son adına taşınır ve dizin kaydı da diske zorlanır. Satırların bakiye hareketleri aynı geçişte toplanır.</li>
+ *     <li>Segment kaydı ve hareket toplamları ({@link ReconciliationService#recordArchivedMovements}) tek
+ *     transaction'da yazılır; okuma tarafı ({@link TransactionArchive}) ayı bundan sonra arşivden okur.</li>
+ *     <li>Ayın sıcak satırları kaldırılır: tablo bölümlenmişse bölüm düşürülür, değilse satırlar ve
+ *     {@code wallet_postings} kayıtları ID aralığıyla, gruplar halinde silinir.</li>
+ * </ol>
+ * Son adım yarıda kalırsa bir sonraki çalıştırma tamamlar. Mutabakatın son kontrol noktasından sonraki bir işlemi
+ * içeren ay arşivlenmez (artımlı mutabakat toplamları arşivlenen işlemleri zaten içermelidir).
+ * <p>
+ * Arşiv dizini ve segment kayıtları instance'lar arasında paylaşıldığından bir çalıştırma {@link ClusterLock} ile tektir;
+ * kilidi alamayan instance çalıştırmayı atlar. Sıradaki ay kilit alındıktan sonra segment kayıtlarından belirlenir.
+ */
+@Service
+@Slf4j
+public class TransactionArchiver {
+
+    private static final String MONTH_SQL = "SELECT " + ArchiveSegmentFormat.SELECT_COLUMNS +
+            " FROM transactions WHERE transaction_date >= ? AND transaction_date < ? ORDER BY transaction_date, id";
+    private static final String DELETE_TRANSACTIONS_SQL = "DELETE FROM transactions " +
+            "WHERE id >= ? AND id <= ? AND transaction_date >= ? AND transaction_date < ? LIMIT ?";
+    private static final String DELETE_POSTINGS_SQL = "DELETE FROM wallet_postings " +
+            "WHERE transaction_id >= ? AND transaction_id <= ? AND transaction_date >= ? AND transaction_date < ? LIMIT ?";
+
+    /**
+     * Çalışan veya son biten arşivleme çalıştırmasının durumu.
+     *
+     * @param message Arşivlemenin neden durduğu (ör. mutabakat bekleniyor).
+     * @param error   Çalıştırma hatayla bittiyse hata mesajı.
+     */
+    public record Run(boolean running, LocalDateTime startedAt, LocalDateTime finishedAt, int archivedMonths,
+                      long archivedRows, String message, String error) {
+    }
+
+    /**
+     * {@code /actuator/archive} özeti.
+     */
+    public record Status(boolean enabled, int hotMonths, boolean partitioning,
+                         List<TransactionPartitions.Partition> partitions, List<TransactionArchiveSegment> segments,
+                         Run lastRun) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionPartitions partitions;
+    private final TransactionArchive archive;
+    private final TransactionArchiveSegmentRepository segmentRepository;
+    private final ReconciliationService reconciliationService;
+    private final ClusterLock clusterLock;
+    private final TransactionTemplate writeTemplate;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile Run lastRun;
+
+    private ExecutorService runner;
+
+    @Value("${payment.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${payment.archive.dir:./data/transaction-archive}")
+    private Path directory;
+
+    @Value("${payment.archive.hot-months:6}")
+    private int hotMonths;
+
+    @Value("${payment.archive.partitioning:false}")
+    private boolean partitioning;
+
+    @Value("${payment.archive.partitions-ahead:3}")
+    private int partitionsAhead;
+
+    @Value("${payment.archive.block-rows:4096}")
+    private int blockRows;
+
+    @Value("${payment.archive.delete-batch-size:5000}")
+    private int deleteBatchSize;
+
+    public TransactionArchiver(JdbcTemplate jdbcTemplate,
+                               TransactionPartitions partitions,
+                               TransactionArchive archive,
+                               TransactionArchiveSegmentRepository segmentRepository,
+                               ReconciliationService reconciliationService,
+                               ClusterLock clusterLock,
+                               PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.partitions = partitions;
+        this.archive = archive;
+        this.segmentRepository = segmentRepository;
+        this.reconciliationService = reconciliationService;
+        this.clusterLock = clusterLock;
+        this.writeTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    void start() {
+        runner = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("transaction-archiver").factory());
+    }
+
+    @PreDestroy
+    void stop() {
+        runner.shutdownNow();
+    }
+
+    public Status status() {
+        return new Status(enabled, hotMonths, partitioning, partitions.list(), segmentRepository.findAllByOrderByMonthAsc(),
+                lastRun);
+    }
+
+    /**
+     * Her gece (varsayılan 04:00) bölümleri ve arşivi günceller.
+     */
+    @Scheduled(cron = "${payment.archive.cron:0 0 4 * * *}")
+    public void scheduledRun() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            run(false);
+        } catch (RuntimeException e) {
+            log.error("Zamanlanmış arşivleme başarısız: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Arşivlemeyi arka planda başlatır.
+     *
+     * @param convert {@code true} ise önce işlem tablosu aylık bölümlere dönüştürülür.
+     * @return Arşivleme kapalıysa veya başka bir çalıştırma sürüyorsa {@code false}.
+     */
+    public boolean startAsync(boolean convert) {
+        if (!enabled || running.get()) {
+            return false;
+        }
+        runner.execute(() -> {
+            try {
+                run(convert);
+            } catch (RuntimeException e) {
+                log.error("Arşivleme başarısız: {}", e.getMessage(), e);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Arşivlemeyi çalıştırır ve bitene kadar bekler.
+     *
+     * @throws IllegalStateException Eğer başka bir çalıştırma sürüyorsa.
+     */
+    public Run run(boolean convert) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Arşivleme zaten çalışıyor.");
+        }
+        LocalDateTime startedAt = LocalDateTime.now();
+        Optional<ClusterLock.Held> lock;
+        try {
+            lock = clusterLock.tryAcquire("archive");
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        if (lock.isEmpty()) {
+            running.set(false);
+            log.info("Arşivleme atlandı: başka bir instance'ta çalışıyor.");
+            return new Run(false, startedAt, LocalDateTime.now(), 0, 0, "Arşivleme başka bir instance'ta çalışıyor.", null);
+        }
+        lastRun = new Run(true, startedAt, null, 0, 0, null, null);
+        int months = 0;
+        long rows = 0;
+        String message = null;
+        try (ClusterLock.Held held = lock.get()) {
+            if (convert) {
+                if (!partitioning) {
+                    throw new IllegalStateException("Dönüşümden önce payment.archive.partitioning açılmalıdır; "
+                            + "aksi halde yeni idempotency anahtarları benzersiz tutulamaz.");
+                }
+                partitions.convert(partitionsAhead);
+            }
+            if (partitioning) {
+                partitions.ensureAhead(partitionsAhead);
+            }
+            for (TransactionArchiveSegment segment : segmentRepository.findAllByOrderByMonthAsc()) {
+                if (!segment.isPurged()) {
+                    purge(segment);
+                }
+            }
+
+            YearMonth cutoff = YearMonth.now().minusMonths(hotMonths);
+            long checkpoint = reconciliationService.checkpointTransactionId();
+            for (YearMonth month = nextMonth(); month != null && month.isBefore(cutoff); month = month.plusMonths(1)) {
+                TransactionArchiveSegment segment = archiveMonth(month, checkpoint);
+                if (segment == null) {
+                    message = month + " mutabakatın kontrol noktasından (" + checkpoint + ") sonraki işlemleri içeriyor.";
+                    log.info("Arşivleme durdu: {}", message);
+                    break;
+                }
+                months++;
+                rows += segment.getRowCount();
+                lastRun = new Run(true, startedAt, null, months, rows, null, null);
+            }
+            lastRun = new Run(false, startedAt, LocalDateTime.now(), months, rows, message, null);
+            log.info("Arşivleme tamamlandı: {} ay, {} işlem", months, rows);
+            return lastRun;
+        } catch (RuntimeException e) {
+            lastRun = new Run(false, startedAt, LocalDateTime.now(), months, rows, message, String.valueOf(e.getMessage()));
+            throw e;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Son arşivlenen aydan sonraki ay; arşiv boşsa en eski işlemin ayı, tablo da boşsa null.
+    private YearMonth nextMonth() {
+        return segmentRepository.findFirstByOrderByMonthDesc()
+                .map(segment -> YearMonth.from(segment.getMonth()).plusMonths(1))
+                .orElseGet(() -> {
+                    LocalDateTime oldest = jdbcTemplate.queryForObject("SELECT MIN(transaction_date) FROM transactions",
+                            LocalDateTime.class);
+                    return oldest != null ? YearMonth.from(oldest) : null;
+                });
+    }
+
+    // Ayı arşivler; ay kontrol noktasından sonraki bir işlemi içeriyorsa dosya atılır ve null döner.
+    private TransactionArchiveSegment archiveMonth(YearMonth month, long checkpoint) {
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        String fileName = "transactions-" + month + ".seg";
+        Path file = directory.resolve(fileName);
+        Path temporary = directory.resolve(fileName + "." + UUID.randomUUID() + ".tmp");
+        long started = System.nanoTime();
+
+        TransactionArchiveSegment segment = new TransactionArchiveSegment();
+        ArchivedMovements movements = new ArchivedMovements();
+        try {
+            Files.createDirectories(directory);
+            try (ArchiveSegmentWriter writer = new ArchiveSegmentWriter(temporary, blockRows)) {
+                streamMonth(from, to, rs -> {
+                    try {
+                        writer.append(rs);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    movements.add(rs);
+                });
+                if (writer.maxId() != null && writer.maxId() > checkpoint) {
+                    writer.close();
+                    Files.deleteIfExists(temporary);
+                    return null;
+                }
+                segment.setFileBytes(writer.finish());
+                segment.setRowCount(writer.rowCount());
+                segment.setMinTransactionId(writer.minId());
+                segment.setMaxTransactionId(writer.maxId());
+            }
+            // Kilit altında aynı ayın kayıtlı bir segmenti yoktur; hedefte dosya varsa yarıda kalmış bir çalıştırmadan
+            // kalmıştır ve hiçbir okuyucu onu kullanmaz.
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            // Yeni adın dizin kaydı, segment kaydı commit edilmeden önce diske zorlanır.
+            try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+                dir.force(true);
+            }
+        } catch (IOException e) {
+            deleteQuietly(temporary);
+            throw new UncheckedIOException("Arşiv segmenti yazılamadı: " + fileName, e);
+        } catch (UncheckedIOException e) {
+            deleteQuietly(temporary);
+            throw new UncheckedIOException("Arşiv segmenti yazılamadı: " + fileName, e.getCause());
+        } catch (RuntimeException e) {
+            deleteQuietly(temporary);
+            throw e;
+        }
+
+        segment.setMonth(month.atDay(1));
+        segment.setFileName(fileName);
+        segment.setArchivedAt(LocalDateTime.now());
+        writeTemplate.executeWithoutResult(status -> {
+            segmentRepository.save(segment);
+            reconciliationService.recordArchivedMovements(movements);
+        });
+        archive.refresh();
+        log.info("{} arşivlendi: {} işlem, {} bayt, {} ms", month, segment.getRowCount(), segment.getFileBytes(),
+                (System.nanoTime() - started) / 1_000_000);
+
+        purge(segment);
+        return segment;
+    }
+
+    // Geçici dosya adları instance'a özgü olduğundan yarıda kalanlar birikmesin diye silinir.
+    private static void deleteQuietly(Path temporary) {
+        try {
+            Files.deleteIfExists(temporary);
+        } catch (IOException e) {
+            log.warn("Geçici arşiv dosyası silinemedi: {} - {}", temporary, e.getMessage());
+        }
+    }
+
+    private void streamMonth(LocalDateTime from, LocalDateTime to, RowCallbackHandler handler) {
+        jdbcTemplate.query((PreparedStatementCreator) connection -> {
+            PreparedStatement statement = connection.prepareStatement(MONTH_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            // MySQL'de satırlar tek tek akıtılır (bkz. TransactionExportService)
+            boolean mySql = "MySQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+            statement.setFetchSize(mySql ? Integer.MIN_VALUE : 1000);
+            statement.setTimestamp(1, Timestamp.valueOf(from));
+            statement.setTimestamp(2, Timestamp.valueOf(to));
+            return statement;
+        }, handler);
+    }
+
+    // Arşivlenmiş ayın sıcak satırlarını kaldırır; tekrar çalıştırılabilir.
+    private void purge(TransactionArchiveSegment segment) {
+        YearMonth month = YearMonth.from(segment.getMonth());
+        boolean dropped = partitioning && partitions.drop(month);
+        if (segment.getRowCount() > 0) {
+            long deleted = dropped ? segment.getRowCount() : deleteInBatches(DELETE_TRANSACTIONS_SQL, segment);
+            deleteInBatches(DELETE_POSTINGS_SQL, segment);
+            log.info("{} sıcak tablodan kaldırıldı ({}: {} işlem)", month, dropped ? "bölüm düşürüldü" : "silindi", deleted);
+        }
+        segment.setPurged(true);
+        segmentRepository.save(segment);
+    }
+
+    private long deleteInBatches(String sql, TransactionArchiveSegment segment) {
+        YearMonth month = YearMonth.from(segment.getMonth());
+        Timestamp from = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        Timestamp to = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay());
+        long total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(sql, segment.getMinTransactionId(), segment.getMaxTransactionId(), from, to,
+                    deleteBatchSize);
+            total += deleted;
+        } while (deleted == deleteBatchSize);
+        return total;
+    }
+}
@@ -0,0 +1,176 @@
+package org.bozgeyik.paymentservice.service.archive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * {@code transactions} tablosunun işlem tarihine göre aylık aralık bölümlemesi (yalnızca MySQL).
+ * <p>
+ * Her ayın bölümü {@code pYYYYMM} adını taşır ve bir sonraki ayın başından küçük tarihleri içerir; sonda
+ * {@code MAXVALUE} sınırlı bir {@code pmax} bölümü bulunur. Gelecek ayların bölümleri, boş olan {@code pmax}
+ * bölündürülerek önceden açılır ({@code REORGANIZE PARTITION}, veri taşımaz). Arşivlenen ayın bölümü
+ * {@code DROP PARTITION} ile satır satır silmeden, anında atılır.
+ * <p>
+ * MySQL'de bölümlenmiş bir tablodaki her benzersiz anahtar bölümleme sütununu içermek zorundadır. Bu yüzden
+ * dönüşümde birincil anahtar {@code (id, transaction_date)} olur ve {@code idempotency_key} üzerindeki benzersiz
+ * indeks benzersiz olmayan bir indeksle değiştirilir. Benzersizliği bundan sonra bölümlenmemiş {@code idempotency_keys}
+ * tablosu taşır: dönüşüm, indeksi düşürmeden önce mevcut anahtarları bu tabloya kopyalar; yeni işlemlerin anahtarlarını
+ * {@code payment.archive.partitioning} açık instance'lar ekler (bkz. {@code IdempotencyService#recordKey}).
+ */
+@Component
+@Slf4j
+public class TransactionPartitions {
+
+    static final String MAX_PARTITION = "pmax";
+
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private static final String PARTITIONS_SQL = "SELECT PARTITION_NAME, TABLE_ROWS FROM information_schema.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'transactions' AND PARTITION_NAME IS NOT NULL " +
+            "ORDER BY PARTITION_ORDINAL_POSITION";
+    private static final String COPY_KEYS_SQL = "INSERT IGNORE INTO idempotency_keys (idempotency_key, transaction_id) " +
+            "SELECT idempotency_key, id FROM transactions";
+    private static final String UNIQUE_KEY_SQL = "SELECT DISTINCT INDEX_NAME FROM information_schema.STATISTICS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'transactions' AND COLUMN_NAME = 'idempotency_key' " +
+            "AND NON_UNIQUE = 0";
+
+    /**
+     * @param month {@code pmax} için {@code null}.
+     * @param rows  İstatistiklere göre yaklaşık satır sayısı.
+     */
+    public record Partition(String name, YearMonth month, long rows) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TransactionPartitions(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean isSupported() {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                "MySQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName())));
+    }
+
+    /**
+     * Tablonun bölümleri; tablo bölümlenmemişse (veya veritabanı MySQL değilse) boş liste.
+     */
+    public List<Partition> list() {
+        if (!isSupported()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(PARTITIONS_SQL, (rs, i) -> {
+            String name = rs.getString("PARTITION_NAME");
+            return new Partition(name, monthOf(name), rs.getLong("TABLE_ROWS"));
+        });
+    }
+
+    public boolean isPartitioned() {
+        return !list().isEmpty();
+    }
+
+    /**
+     * Tabloyu aylık bölümlere dönüştürür: en eski işlemin ayından itibaren her aya ve {@code aheadMonths} gelecek aya
+     * birer bölüm açılır. Tablo yeniden oluşturulduğu için büyük tablolarda uzun sürer ve yazmaları bekletir;
+     * bakım penceresinde çalıştırılmalıdır. Tüm instance'lar önceden {@code payment.archive.partitioning} açık
+     * çalışıyor olmalıdır; aksi halde dönüşümden sonra yazılan anahtarlar {@code idempotency_keys}'e eklenmez.
+     *
+     * @throws IllegalStateException Eğer veritabanı MySQL değilse veya tablo zaten bölümlenmişse.
+     */
+    public void convert(int aheadMonths) {
+        if (!isSupported()) {
+            throw new IllegalStateException("İşlem tablosu bölümlemesi yalnızca MySQL'de desteklenir.");
+        }
+        if (isPartitioned()) {
+            throw new IllegalStateException("İşlem tablosu zaten bölümlenmiş.");
+        }
+        LocalDateTime oldest = jdbcTemplate.queryForObject("SELECT MIN(transaction_date) FROM transactions", LocalDateTime.class);
+        YearMonth first = oldest != null ? YearMonth.from(oldest) : YearMonth.now();
+        YearMonth last = YearMonth.now().plusMonths(aheadMonths);
+
+        StringBuilder keys = new StringBuilder("ALTER TABLE transactions ");
+        for (String uniqueKey : jdbcTemplate.queryForList(UNIQUE_KEY_SQL, String.class)) {
+            keys.append("DROP INDEX `").append(uniqueKey).append("`, ");
+        }
+        keys.append("ADD INDEX idx_transactions_idempotency_key (idempotency_key), ")
+                .append("DROP PRIMARY KEY, ADD PRIMARY KEY (id, transaction_date)");
+
+        List<String> definitions = new ArrayList<>();
+        for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+            definitions.add(definition(month));
+        }
+        definitions.add("PARTITION " + MAX_PARTITION + " VALUES LESS THAN (MAXVALUE)");
+
+        log.info("İşlem tablosu bölümleniyor: {} - {} ({} bölüm)", first, last, definitions.size());
+        int copied = jdbcTemplate.update(COPY_KEYS_SQL);
+        log.info("{} idempotency anahtarı idempotency_keys tablosuna kopyalandı", copied);
+        jdbcTemplate.execute(keys.toString());
+        jdbcTemplate.execute("ALTER TABLE transactions PARTITION BY RANGE COLUMNS (transaction_date) ("
+                + String.join(", ", definitions) + ")");
+    }
+
+    /**
+     * İçinde bulunulan aydan sonraki {@code aheadMonths} ayın bölümlerinin var olmasını sağlar.
+     *
+     * @return Açılan bölüm sayısı.
+     */
+    public int ensureAhead(int aheadMonths) {
+        List<Partition> partitions = list();
+        if (partitions.isEmpty()) {
+            return 0;
+        }
+        YearMonth last = partitions.stream().map(Partition::month).filter(Objects::nonNull)
+                .max(YearMonth::compareTo).orElse(YearMonth.now().minusMonths(1));
+        YearMonth target = YearMonth.now().plusMonths(aheadMonths);
+        List<String> definitions = new ArrayList<>();
+        for (YearMonth month = last.plusMonths(1); !month.isAfter(target); month = month.plusMonths(1)) {
+            definitions.add(definition(month));
+        }
+        if (definitions.isEmpty()) {
+            return 0;
+        }
+        definitions.add("PARTITION " + MAX_PARTITION + " VALUES LESS THAN (MAXVALUE)");
+        jdbcTemplate.execute("ALTER TABLE transactions REORGANIZE PARTITION " + MAX_PARTITION + " INTO ("
+                + String.join(", ", definitions) + ")");
+        log.info("İşlem tablosuna {} yeni aylık bölüm eklendi ({} dahil)", definitions.size() - 1, target);
+        return definitions.size() - 1;
+    }
+
+    /**
+     * Ayın bölümünü düşürür.
+     *
+     * @return Bölüm yoksa {@code false}.
+     */
+    public boolean drop(YearMonth month) {
+        String name = nameOf(month);
+        if (list().stream().noneMatch(partition -> partition.name().equals(name))) {
+            return false;
+        }
+        jdbcTemplate.execute("ALTER TABLE transactions DROP PARTITION " + name);
+        return true;
+    }
+
+    static String nameOf(YearMonth month) {
+        return NAME_FORMAT.format(month);
+    }
+
+    private static YearMonth monthOf(String name) {
+        if (MAX_PARTITION.equals(name)) {
+            return null;
+        }
+        return YearMonth.parse(name.substring(1), DateTimeFormatter.ofPattern("yyyyMM"));
+    }
+
+    private static String definition(YearMonth month) {
+        return "PARTITION " + nameOf(month) + " VALUES LESS THAN ('" + month.plusMonths(1).atDay(1) + " 00:00:00')";
+    }
+}
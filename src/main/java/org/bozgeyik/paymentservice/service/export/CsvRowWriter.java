@@ -0,0 +1,69 @@
+package org.bozgeyik.paymentservice.service.export;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+
+final class CsvRowWriter extends ExportRowWriter {
+
+    private final Writer out;
+
+    CsvRowWriter(Writer out) throws IOException {
+        this.out = out;
+        for (int i = 0; i < COLUMNS.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(COLUMNS.get(i).column());
+        }
+        out.write("\r\n");
+    }
+
+    @Override
+    void startRow() {
+    }
+
+    @Override
+    void writeValue(int index, Column column, Object value) throws IOException {
+        if (index > 0) {
+            out.write(',');
+        }
+        if (value == null) {
+            return;
+        }
+        switch (column.type()) {
+            case LONG, TIMESTAMP -> out.write(value.toString());
+            case DECIMAL -> out.write(((BigDecimal) value).toPlainString());
+            case TEXT -> writeText((String) value);
+        }
+    }
+
+    @Override
+    void endRow() throws IOException {
+        out.write("\r\n");
+    }
+
+    // Ayırıcı, tırnak veya satır sonu içeren değerler tırnaklanır. Tablo programlarında formül olarak
+    // çalıştırılmasınlar diye =, +, -, @ ile başlayan metinlerin önüne ' eklenir (açıklama kullanıcıdan gelir).
+    private void writeText(String value) throws IOException {
+        if (value.isEmpty()) {
+            return;
+        }
+        char first = value.charAt(0);
+        if (first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r') {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    @Override
+    void finish() throws IOException {
+        out.flush();
+    }
+}
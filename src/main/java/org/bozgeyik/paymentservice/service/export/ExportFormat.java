@@ -0,0 +1,35 @@
+package org.bozgeyik.paymentservice.service.export;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * İşlem dışa aktarımının çıktı biçimi.
+ */
+public enum ExportFormat {
+
+    // Satır başına bir JSON nesnesi; alan adları /payments/transactions yanıtıyla aynı
+    NDJSON("application/x-ndjson", "ndjson"),
+    // Başlık satırlı, RFC 4180 tırnaklamalı CSV; sütun adları tablo sütunlarıyla aynı
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    ExportRowWriter open(Writer out) throws IOException {
+        return this == NDJSON ? new NdjsonRowWriter(out) : new CsvRowWriter(out);
+    }
+}
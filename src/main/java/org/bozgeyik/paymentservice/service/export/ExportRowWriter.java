@@ -0,0 +1,95 @@
+package org.bozgeyik.paymentservice.service.export;
+
+import org.bozgeyik.paymentservice.model.Transaction;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Sonuç kümesinin o anki satırını (veya arşivden okunan bir işlemi) doğrudan çıktıya yazar; satırlar entity'ye
+ * dönüştürülmez. Sütunlar {@link #SELECT_COLUMNS} ile, aynı sırayla seçilmiş olmalıdır (değerler sıra numarasıyla
+ * okunur).
+ */
+abstract sealed class ExportRowWriter permits NdjsonRowWriter, CsvRowWriter {
+
+    enum Type { LONG, TEXT, DECIMAL, TIMESTAMP }
+
+    /**
+     * @param column Tablo sütunu (CSV başlığı).
+     * @param field  {@code Transaction} alanı (JSON anahtarı).
+     * @param value  Alanın {@code Transaction}'dan okunuşu; tipi {@code type}'a karşılık gelir.
+     */
+    record Column(String column, String field, Type type, Function<Transaction, Object> value) {
+    }
+
+    static final List<Column> COLUMNS = List.of(
+            new Column("id", "id", Type.LONG, Transaction::getId),
+            new Column("idempotency_key", "idempotencyKey", Type.TEXT, Transaction::getIdempotencyKey),
+            new Column("from_wallet_id", "fromWalletId", Type.LONG, Transaction::getFromWalletId),
+            new Column("to_wallet_id", "toWalletId", Type.LONG, Transaction::getToWalletId),
+            new Column("original_amount", "originalAmount", Type.DECIMAL, Transaction::getOriginalAmount),
+            new Column("original_currency", "originalCurrency", Type.TEXT, Transaction::getOriginalCurrency),
+            new Column("converted_amount", "convertedAmount", Type.DECIMAL, Transaction::getConvertedAmount),
+            new Column("target_currency", "targetCurrency", Type.TEXT, Transaction::getTargetCurrency),
+            new Column("exchange_rate_used", "exchangeRateUsed", Type.DECIMAL, Transaction::getExchangeRateUsed),
+            new Column("exchange_rate_path", "exchangeRatePath", Type.TEXT, Transaction::getExchangeRatePath),
+            new Column("fee_amount", "feeAmount", Type.DECIMAL, Transaction::getFeeAmount),
+            new Column("description", "description", Type.TEXT, Transaction::getDescription),
+            new Column("transaction_type", "transactionType", Type.TEXT,
+                    tx -> tx.getTransactionType() != null ? tx.getTransactionType().name() : null),
+            new Column("status", "status", Type.TEXT, tx -> tx.getStatus() != null ? tx.getStatus().name() : null),
+            new Column("transaction_date", "transactionDate", Type.TIMESTAMP, Transaction::getTransactionDate)
+    );
+
+    static final String SELECT_COLUMNS = String.join(", ", COLUMNS.stream().map(Column::column).toList());
+
+    final void writeRow(ResultSet rs) throws SQLException, IOException {
+        startRow();
+        for (int i = 0; i < COLUMNS.size(); i++) {
+            Column column = COLUMNS.get(i);
+            int index = i + 1;
+            Object value = switch (column.type()) {
+                case LONG -> {
+                    long number = rs.getLong(index);
+                    yield rs.wasNull() ? null : number;
+                }
+                case DECIMAL -> rs.getBigDecimal(index);
+                case TIMESTAMP -> {
+                    Timestamp timestamp = rs.getTimestamp(index);
+                    yield timestamp != null ? timestamp.toLocalDateTime() : null;
+                }
+                case TEXT -> rs.getString(index);
+            };
+            writeValue(i, column, value);
+        }
+        endRow();
+    }
+
+    final void writeRow(Transaction transaction) throws IOException {
+        startRow();
+        for (int i = 0; i < COLUMNS.size(); i++) {
+            Column column = COLUMNS.get(i);
+            writeValue(i, column, column.value().apply(transaction));
+        }
+        endRow();
+    }
+
+    abstract void startRow() throws IOException;
+
+    /**
+     * @param value {@link Type#LONG} için {@code Long}, {@link Type#DECIMAL} için {@code BigDecimal},
+     *              {@link Type#TIMESTAMP} için {@code LocalDateTime}, {@link Type#TEXT} için {@code String}; ya da null.
+     */
+    abstract void writeValue(int index, Column column, Object value) throws IOException;
+
+    abstract void endRow() throws IOException;
+
+    /**
+     * Tamponda kalanları alttaki akışa yazar; alttaki akışı kapatmaz.
+     */
+    abstract void finish() throws IOException;
+}
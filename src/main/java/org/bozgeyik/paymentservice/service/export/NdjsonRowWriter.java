@@ -0,0 +1,55 @@
+package org.bozgeyik.paymentservice.service.export;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+
+final class NdjsonRowWriter extends ExportRowWriter {
+
+    private static final JsonFactory JSON = JsonFactory.builder()
+            .enable(StreamWriteFeature.WRITE_BIGDECIMAL_AS_PLAIN)
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .build();
+
+    private final JsonGenerator generator;
+
+    NdjsonRowWriter(Writer out) throws IOException {
+        generator = JSON.createGenerator(out);
+        // Kök değerler arasına boşluk değil satır sonu yazılır (her nesneden sonra elle)
+        generator.setRootValueSeparator(null);
+    }
+
+    @Override
+    void startRow() throws IOException {
+        generator.writeStartObject();
+    }
+
+    @Override
+    void writeValue(int index, Column column, Object value) throws IOException {
+        generator.writeFieldName(column.field());
+        if (value == null) {
+            generator.writeNull();
+            return;
+        }
+        switch (column.type()) {
+            case LONG -> generator.writeNumber((Long) value);
+            case DECIMAL -> generator.writeNumber((BigDecimal) value);
+            case TIMESTAMP, TEXT -> generator.writeString(value.toString());
+        }
+    }
+
+    @Override
+    void endRow() throws IOException {
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    @Override
+    void finish() throws IOException {
+        generator.flush();
+    }
+}
@@ -0,0 +1,145 @@
+package org.bozgeyik.paymentservice.service.export;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bozgeyik.paymentservice.repository.WalletRepository;
+import org.bozgeyik.paymentservice.service.archive.TransactionArchive;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Bir kullanıcının işlemlerini, veritabanından okundukça çıktıya yazarak dışa aktarır.
+ * <p>
+ * Sorgu ileri yönlü, salt okunur bir sonuç kümesiyle çalışır. MySQL'de fetch size {@link Integer#MIN_VALUE}
+ * verilerek sürücünün satırları tek tek akıtması sağlanır (aksi halde Connector/J tüm sonucu belleğe alır);
+ * diğer sürücülerde {@code payment.export.fetch-size} kullanılır. Satırlar entity'ye veya listeye dönüştürülmeden
+ * doğrudan yazıldığından bellek kullanımı satır sayısından bağımsızdır. İstemci bağlantıyı koparırsa sorgu iptal
+ * edilir; akış halindeki bir sonuç kümesinin kapatılması kalan satırların okunmasını beklemez.
+ * <p>
+ * Arşive taşınmış aylar sıcak tablodan önce geldiği için önce arşivdeki satırlar ({@link TransactionArchive}, blok
+ * blok), ardından sıcak tablodaki satırlar yazılır; sıralama bozulmaz.
+ */
+@Service
+@Slf4j
+public class TransactionExportService {
+
+    private static final int WRITE_BUFFER_CHARS = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final WalletRepository walletRepository;
+    private final TransactionArchive transactionArchive;
+
+    @Value("${payment.export.fetch-size:1000}")
+    private int fetchSize;
+
+    public TransactionExportService(JdbcTemplate jdbcTemplate, WalletRepository walletRepository,
+                                    TransactionArchive transactionArchive) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.walletRepository = walletRepository;
+        this.transactionArchive = transactionArchive;
+    }
+
+    /**
+     * Kullanıcının cüzdanlarına dokunan işlemleri, tarih ve ID sırasıyla yazar. Çıktı akışı kapatılmaz.
+     *
+     * @param from İşlem tarihi alt sınırı (dahil); {@code null} ise sınır yok.
+     * @param to   İşlem tarihi üst sınırı (hariç); {@code null} ise sınır yok.
+     * @return Yazılan işlem sayısı.
+     * @throws IOException İstemciye yazılamazsa (bağlantı koptuysa).
+     */
+    @Transactional(readOnly = true)
+    public long export(String customerId, LocalDateTime from, LocalDateTime to, ExportFormat format, OutputStream out)
+            throws IOException {
+        List<Long> walletIds = walletRepository.findAllWalletIdsByCustomerId(customerId);
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_CHARS);
+        ExportRowWriter rowWriter = format.open(writer);
+        long rows = 0;
+        if (!walletIds.isEmpty()) {
+            long started = System.nanoTime();
+            long[] archived = {0};
+            transactionArchive.forEach(walletIds, from, to, transaction -> {
+                rowWriter.writeRow(transaction);
+                archived[0]++;
+            });
+            rows = archived[0];
+            try {
+                rows += streamRows(walletIds, from, to, rowWriter);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            log.info("İşlem dışa aktarımı: {} - {} satır ({}), {} ms", customerId, rows, format,
+                    (System.nanoTime() - started) / 1_000_000);
+        }
+        rowWriter.finish();
+        return rows;
+    }
+
+    private long streamRows(List<Long> walletIds, LocalDateTime from, LocalDateTime to, ExportRowWriter rowWriter) {
+        String walletParams = String.join(", ", Collections.nCopies(walletIds.size(), "?"));
+        StringBuilder sql = new StringBuilder("SELECT ").append(ExportRowWriter.SELECT_COLUMNS)
+                .append(" FROM transactions WHERE (from_wallet_id IN (").append(walletParams)
+                .append(") OR to_wallet_id IN (").append(walletParams).append("))");
+        List<Object> params = new ArrayList<>(walletIds);
+        params.addAll(walletIds);
+        if (from != null) {
+            sql.append(" AND transaction_date >= ?");
+            params.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND transaction_date < ?");
+            params.add(Timestamp.valueOf(to));
+        }
+        sql.append(" ORDER BY transaction_date, id");
+
+        Long written = jdbcTemplate.execute((PreparedStatementCreator) connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(isMySql(connection) ? Integer.MIN_VALUE : fetchSize);
+            return statement;
+        }, (PreparedStatementCallback<Long>) statement -> {
+            for (int i = 0; i < params.size(); i++) {
+                statement.setObject(i + 1, params.get(i));
+            }
+            long count = 0;
+            ResultSet rs = statement.executeQuery();
+            try {
+                while (rs.next()) {
+                    rowWriter.writeRow(rs);
+                    count++;
+                }
+            } catch (IOException e) {
+                // Kalan satırlar sunucudan okunmasın diye sonuç kümesi kapatılmadan önce sorgu iptal edilir.
+                statement.cancel();
+                JdbcUtils.closeResultSet(rs);
+                throw new UncheckedIOException(e);
+            }
+            rs.close();
+            return count;
+        });
+        return written != null ? written : 0;
+    }
+
+    private static boolean isMySql(Connection connection) throws SQLException {
+        return "MySQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+    }
+}
@@ -0,0 +1,25 @@
+package org.bozgeyik.paymentservice.service.fx;
+
+import java.math.BigDecimal;
+
+/**
+ * Bir para biriminden diğerine uygulanacak kur ve kurun nasıl elde edildiği.
+ * <p>
+ * {@code path}, denetim kaydı için kurun türetildiği bacakları tutar: {@code A>B} A→B kurunun doğrudan,
+ * {@code A~B} B→A kurunun tersinin (1 / B→A) kullanıldığını gösterir. Örneğin {@code TRY>USD~EUR},
+ * TRY→USD kuru ile EUR→USD kurunun tersinin çarpımıdır. Aynı para birimi için yol yoktur.
+ *
+ * @param rate Kaynak para biriminden hedefe kur.
+ * @param path Türetme yolu veya aynı para birimi için {@code null}.
+ */
+public record CrossRate(BigDecimal rate, String path) {
+
+    public static final CrossRate SAME_CURRENCY = new CrossRate(BigDecimal.ONE, null);
+
+    /**
+     * Kur tek bir {@code exchange_rates} satırından doğrudan mı alındı?
+     */
+    public boolean isDirect() {
+        return path != null && path.length() == 7 && path.charAt(3) == '>';
+    }
+}
@@ -0,0 +1,116 @@
+package org.bozgeyik.paymentservice.service.fx;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Doğrudan kurlardan oluşan para birimi grafiğinde, her (kaynak, hedef) çifti için kullanılacak kur yolunu seçer.
+ * <p>
+ * A→B kuru tanımlıysa A'dan B'ye doğrudan, yalnızca B→A tanımlıysa ters kurla (1 / B→A) bir kenar vardır. Yolun
+ * maliyeti kur değerlerinden bağımsızdır; böylece yalnızca bir kurun değeri değiştiğinde yollar aynı kalır:
+ * <ul>
+ *     <li>doğrudan kenar {@value #DIRECT_COST}, ters kenar {@value #INVERSE_COST},</li>
+ *     <li>pivot olmayan bir ara para biriminden geçmek ek {@value #NON_PIVOT_COST}.</li>
+ * </ul>
+ * En ucuz yol, en fazla {@code maxHops} kenarla, kaynak başına adım sınırlı Bellman-Ford ile bulunur (O(h·n²)).
+ * Eşit maliyetli yollardan yoğun ID sırasında önce bulunan seçilir.
+ */
+final class CrossRateGraph {
+
+    static final int DIRECT_COST = 2;
+    static final int INVERSE_COST = 3;
+    static final int NON_PIVOT_COST = 1;
+
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private CrossRateGraph() {
+    }
+
+    /**
+     * @param direct   n x n doğrudan kur matrisi ([from * n + to], null: kur yok).
+     * @param n        Para birimi sayısı.
+     * @param pivot    Pivot para birimleri (yoğun ID ile).
+     * @param maxHops  Bir yoldaki en fazla kenar sayısı.
+     * @return [from * n + to] için kaynaktan hedefe düğüm dizisi; ulaşılamayan veya aynı para birimi için null.
+     */
+    static int[][] paths(BigDecimal[] direct, int n, boolean[] pivot, int maxHops) {
+        int[][] paths = new int[n * n][];
+        int[] cost = new int[n];
+        int[] next = new int[n];
+        // prev[k][v]: en fazla k kenarlı en ucuz yolda v'den önceki düğüm.
+        int[][] prev = new int[maxHops + 1][n];
+        for (int source = 0; source < n; source++) {
+            Arrays.fill(cost, UNREACHABLE);
+            Arrays.fill(prev[0], -1);
+            cost[source] = 0;
+            for (int hop = 1; hop <= maxHops; hop++) {
+                System.arraycopy(cost, 0, next, 0, n);
+                System.arraycopy(prev[hop - 1], 0, prev[hop], 0, n);
+                boolean changed = false;
+                for (int u = 0; u < n; u++) {
+                    if (cost[u] == UNREACHABLE) {
+                        continue;
+                    }
+                    int base = cost[u] + (u != source && !pivot[u] ? NON_PIVOT_COST : 0);
+                    for (int v = 0; v < n; v++) {
+                        int edge = edgeCost(direct, n, u, v);
+                        if (v == source || edge == UNREACHABLE) {
+                            continue;
+                        }
+                        if (base + edge < next[v]) {
+                            next[v] = base + edge;
+                            prev[hop][v] = u;
+                            changed = true;
+                        }
+                    }
+                }
+                System.arraycopy(next, 0, cost, 0, n);
+                if (!changed) {
+                    // Sonraki adımlar da değişmez; kalan katmanlar aynı önceki düğümleri taşır.
+                    for (int rest = hop + 1; rest <= maxHops; rest++) {
+                        System.arraycopy(prev[hop], 0, prev[rest], 0, n);
+                    }
+                    break;
+                }
+            }
+            for (int target = 0; target < n; target++) {
+                if (target != source && cost[target] != UNREACHABLE) {
+                    paths[source * n + target] = trace(prev, maxHops, source, target);
+                }
+            }
+        }
+        return paths;
+    }
+
+    private static int edgeCost(BigDecimal[] direct, int n, int u, int v) {
+        if (u == v) {
+            return UNREACHABLE;
+        }
+        if (usable(direct[u * n + v])) {
+            return DIRECT_COST;
+        }
+        return usable(direct[v * n + u]) ? INVERSE_COST : UNREACHABLE;
+    }
+
+    static boolean usable(BigDecimal rate) {
+        return rate != null && rate.signum() > 0;
+    }
+
+    // k. katmandaki önceki düğüm, en fazla k - 1 kenarlı yolun sonudur; bu yüzden her adımda bir katman geri gidilir.
+    private static int[] trace(int[][] prev, int maxHops, int source, int target) {
+        int[] reversed = new int[maxHops + 1];
+        int length = 0;
+        int node = target;
+        int layer = maxHops;
+        while (node != source) {
+            reversed[length++] = node;
+            node = prev[layer--][node];
+        }
+        reversed[length++] = source;
+        int[] path = new int[length];
+        for (int i = 0; i < length; i++) {
+            path[i] = reversed[length - 1 - i];
+        }
+        return path;
+    }
+}
@@ -0,0 +1,39 @@
+package org.bozgeyik.paymentservice.service.fx;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.bozgeyik.paymentservice.event.ExchangeRatesChangedEvent;
+import org.bozgeyik.paymentservice.event.ExchangeRatesChangedEvent.Change;
+import org.bozgeyik.paymentservice.model.ExchangeRate;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * {@link ExchangeRate} yazımlarında {@link ExchangeRatesChangedEvent} fırlatan JPA entity listener'ı.
+ * <p>
+ * Hibernate tarafından Spring bean container'ı üzerinden oluşturulur (bağımlılıkları constructor'dan enjekte edilir).
+ * Başka instance'ların veya doğrudan SQL ile yapılan değişiklikler, kur tablosunun periyodik yenilemesiyle alınır.
+ */
+public class ExchangeRateChangeListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ExchangeRateChangeListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    void onInsert(ExchangeRate rate) {
+        eventPublisher.publishEvent(new ExchangeRatesChangedEvent(this, rate, Change.INSERTED));
+    }
+
+    @PostUpdate
+    void onUpdate(ExchangeRate rate) {
+        eventPublisher.publishEvent(new ExchangeRatesChangedEvent(this, rate, Change.UPDATED));
+    }
+
+    @PostRemove
+    void onDelete(ExchangeRate rate) {
+        eventPublisher.publishEvent(new ExchangeRatesChangedEvent(this, rate, Change.DELETED));
+    }
+}
@@ -0,0 +1,76 @@
+package org.bozgeyik.paymentservice.service.fx;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Süresi dolan anahtarları, her kaydı taramadan bulan tek seviyeli zamanlayıcı çarkı (hashed timer wheel).
+ * <p>
+ * Zaman {@code tickNanos} uzunluğunda adımlara bölünür; her kayıt, son kullanma adımının düştüğü yuvaya eklenir.
+ * {@link #advance} her adımda yalnızca o adımın yuvasını dolaşır. Çarkın bir turu ({@code slots * tickNanos}) en uzun
+ * süreden uzunsa her kayda tam bir kez bakılır; daha uzun süreli kayıtlar yuvada kalıp sonraki turlarda düşer.
+ * <p>
+ * Kayıt eklemek thread-safe'tir; {@link #advance} tek bir thread'den çağrılmalıdır. Çark yalnızca belleği boşaltmak
+ * içindir: işlenmiş bir adıma denk gelen kayıt bir sonraki tura kalabileceği için süre kontrolü ayrıca yapılmalıdır.
+ */
+final class ExpiryWheel<K> {
+
+    private record Entry<K>(K key, long deadlineTick) {
+    }
+
+    private final ConcurrentLinkedQueue<Entry<K>>[] slots;
+    private final int mask;
+    private final long tickNanos;
+    private final long startNanos;
+
+    // İşlenmiş son adım.
+    private volatile long currentTick;
+
+    @SuppressWarnings("unchecked")
+    ExpiryWheel(int slotCount, long tickNanos, long startNanos) {
+        int size = Integer.highestOneBit(Math.max(2, slotCount - 1)) << 1;
+        this.slots = new ConcurrentLinkedQueue[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.mask = size - 1;
+        this.tickNanos = tickNanos;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * Anahtarı, verilen zamanda ({@link System#nanoTime()} cinsinden) süresi dolacak şekilde ekler.
+     */
+    void schedule(K key, long deadlineNanos) {
+        long tick = Math.max(ceilTick(deadlineNanos), currentTick + 1);
+        slots[(int) (tick & mask)].add(new Entry<>(key, tick));
+    }
+
+    /**
+     * Çarkı verilen zamana kadar ilerletir ve süresi dolan anahtarları tüketiciye verir.
+     *
+     * @return Süresi dolan anahtar sayısı.
+     */
+    int advance(long nowNanos, Consumer<K> expired) {
+        long target = Math.floorDiv(nowNanos - startNanos, tickNanos);
+        int count = 0;
+        for (long tick = currentTick + 1; tick <= target; tick++) {
+            Iterator<Entry<K>> iterator = slots[(int) (tick & mask)].iterator();
+            while (iterator.hasNext()) {
+                Entry<K> entry = iterator.next();
+                if (entry.deadlineTick() <= tick) {
+                    iterator.remove();
+                    expired.accept(entry.key());
+                    count++;
+                }
+            }
+            currentTick = tick;
+        }
+        return count;
+    }
+
+    private long ceilTick(long nanos) {
+        return -Math.floorDiv(startNanos - nanos, tickNanos);
+    }
+}
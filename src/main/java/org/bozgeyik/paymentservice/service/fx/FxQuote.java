@@ -0,0 +1,19 @@
+package org.bozgeyik.paymentservice.service.fx;
+
+import java.time.Instant;
+
+/**
+ * Bir müşteriye, bir para birimi çifti için süreli olarak kilitlenmiş kur.
+ *
+ * @param quoteId    Teklifin tahmin edilemez kimliği.
+ * @param customerId Teklifin verildiği müşteri (e-posta); teklif yalnızca bu müşterinin işlemlerinde kullanılabilir.
+ * @param rate       Kilitlenen kur ve türetme yolu.
+ * @param expiresAt  Son kullanma zamanı.
+ */
+public record FxQuote(String quoteId, String customerId, String fromCurrency, String toCurrency,
+                      CrossRate rate, Instant expiresAt) {
+
+    public boolean isExpired(Instant now) {
+        return !now.isBefore(expiresAt);
+    }
+}
@@ -0,0 +1,194 @@
+package org.bozgeyik.paymentservice.service.fx;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bozgeyik.paymentservice.exception.FxQuoteException;
+import org.bozgeyik.paymentservice.service.FXService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Müşterilere {@code validity} süresince kilitli kur teklifleri veren ve ödeme sırasında bu kurları kullandıran servis.
+ * <p>
+ * Teklifler bu instance'ın belleğinde tutulur ve aynı süreyle Redis'e yazılır; başka bir instance'ın verdiği teklif
+ * ilk kullanımda Redis'ten okunup belleğe alınır. Redis'e erişilemezse teklifler yalnızca veren instance'ta geçerlidir.
+ * <p>
+ * Süresi dolan teklifler bellekten bir zamanlayıcı çarkıyla ({@link ExpiryWheel}) atılır; tekliflerin tamamı hiçbir
+ * zaman taranmaz. Bir teklif süresi içinde, yalnızca verildiği müşteri ve para birimi çifti için, birden fazla
+ * işlemde kullanılabilir.
+ * <p>
+ * Metrikler: {@code fx.quotes.active} (bellekteki teklif sayısı) ve {@code fx.quotes.issued/redeemed/rejected/expired}.
+ */
+@Service
+@Slf4j
+public class FxQuoteService {
+
+    private static final char SEPARATOR = '|';
+
+    private final FXService fxService;
+    private final ObjectProvider<StringRedisTemplate> redisTemplateProvider;
+    private final ConcurrentHashMap<String, FxQuote> quotes = new ConcurrentHashMap<>();
+
+    private final Counter issued;
+    private final Counter redeemed;
+    private final Counter rejected;
+    private final Counter expired;
+
+    private StringRedisTemplate redisTemplate;
+    private ExpiryWheel<String> wheel;
+    private ScheduledExecutorService ticker;
+
+    @Value("${payment.fx.quotes.validity:30s}")
+    private Duration validity;
+
+    @Value("${payment.fx.quotes.redis-enabled:true}")
+    private boolean redisEnabled;
+
+    @Value("${payment.fx.quotes.key-prefix:payment:fx:quote:}")
+    private String keyPrefix;
+
+    @Value("${payment.fx.quotes.tick-ms:100}")
+    private long tickMillis;
+
+    @Value("${payment.fx.quotes.wheel-slots:1024}")
+    private int wheelSlots;
+
+    public FxQuoteService(FXService fxService,
+                          ObjectProvider<StringRedisTemplate> redisTemplateProvider,
+                          MeterRegistry meterRegistry) {
+        this.fxService = fxService;
+        this.redisTemplateProvider = redisTemplateProvider;
+        this.issued = meterRegistry.counter("fx.quotes.issued");
+        this.redeemed = meterRegistry.counter("fx.quotes.redeemed");
+        this.rejected = meterRegistry.counter("fx.quotes.rejected");
+        this.expired = meterRegistry.counter("fx.quotes.expired");
+        Gauge.builder("fx.quotes.active", quotes, ConcurrentHashMap::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        redisTemplate = redisEnabled ? redisTemplateProvider.getIfAvailable() : null;
+        wheel = new ExpiryWheel<>(wheelSlots, TimeUnit.MILLISECONDS.toNanos(tickMillis), System.nanoTime());
+        ticker = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("fx-quote-expiry").daemon().factory());
+        ticker.scheduleWithFixedDelay(this::evictExpired, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        log.info("Kur teklifleri: {} geçerli, paylaşılan depo {}", validity, redisTemplate != null ? "Redis" : "yok");
+    }
+
+    @PreDestroy
+    void stop() {
+        ticker.shutdownNow();
+    }
+
+    /**
+     * Müşteriye, güncel kur tablosundaki kuru {@code validity} süresince kilitleyen bir teklif verir.
+     *
+     * @throws jakarta.persistence.EntityNotFoundException Eğer para birimleri arasında kur bulunamazsa.
+     */
+    public FxQuote issue(String customerId, String fromCurrency, String toCurrency) {
+        CrossRate rate = fxService.resolve(fromCurrency, toCurrency);
+        FxQuote quote = new FxQuote(UUID.randomUUID().toString(), customerId,
+                fromCurrency.toUpperCase(), toCurrency.toUpperCase(), rate, Instant.now().plus(validity));
+        remember(quote, validity);
+        if (redisTemplate != null) {
+            try {
+                redisTemplate.opsForValue().set(keyPrefix + quote.quoteId(), encode(quote), validity);
+            } catch (DataAccessException e) {
+                log.warn("Kur teklifi Redis'e yazılamadı, yalnızca bu instance'ta geçerli: {}", e.getMessage());
+            }
+        }
+        issued.increment();
+        return quote;
+    }
+
+    /**
+     * Teklifin kilitli kurunu döner; kur tablosuna bakılmaz.
+     *
+     * @throws FxQuoteException Eğer teklif bulunamazsa, süresi dolmuşsa veya müşteri ya da para birimleri teklife uymuyorsa.
+     */
+    public CrossRate redeem(String quoteId, String customerId, String fromCurrency, String toCurrency) {
+        FxQuote quote = quotes.get(quoteId);
+        if (quote == null) {
+            quote = loadShared(quoteId);
+        }
+        if (quote == null || quote.isExpired(Instant.now())) {
+            rejected.increment();
+            throw new FxQuoteException("Kur teklifi bulunamadı veya süresi doldu: " + quoteId);
+        }
+        if (!quote.customerId().equalsIgnoreCase(customerId)
+                || !quote.fromCurrency().equalsIgnoreCase(fromCurrency)
+                || !quote.toCurrency().equalsIgnoreCase(toCurrency)) {
+            rejected.increment();
+            throw new FxQuoteException("Kur teklifi bu işleme ait değil: " + quoteId);
+        }
+        redeemed.increment();
+        return quote.rate();
+    }
+
+    private void remember(FxQuote quote, Duration remaining) {
+        quotes.put(quote.quoteId(), quote);
+        wheel.schedule(quote.quoteId(), System.nanoTime() + remaining.toNanos());
+    }
+
+    private FxQuote loadShared(String quoteId) {
+        if (redisTemplate == null) {
+            return null;
+        }
+        String value;
+        try {
+            value = redisTemplate.opsForValue().get(keyPrefix + quoteId);
+        } catch (DataAccessException e) {
+            log.warn("Kur teklifi Redis'ten okunamadı: {}", e.getMessage());
+            return null;
+        }
+        if (value == null) {
+            return null;
+        }
+        FxQuote quote = decode(quoteId, value);
+        Duration remaining = Duration.between(Instant.now(), quote.expiresAt());
+        if (!remaining.isNegative()) {
+            remember(quote, remaining);
+        }
+        return quote;
+    }
+
+    private void evictExpired() {
+        try {
+            int count = wheel.advance(System.nanoTime(), quotes::remove);
+            if (count > 0) {
+                expired.increment(count);
+            }
+        } catch (RuntimeException e) {
+            log.error("Süresi dolan kur teklifleri atılamadı", e);
+        }
+    }
+
+    // "USD|TRY|32.50000000|USD>TRY|<son kullanma ms>|<müşteri>"; müşteri sonda olduğu için ayırıcı içerebilir.
+    private static String encode(FxQuote quote) {
+        CrossRate rate = quote.rate();
+        return quote.fromCurrency() + SEPARATOR + quote.toCurrency() + SEPARATOR + rate.rate().toPlainString() + SEPARATOR
+                + (rate.path() != null ? rate.path() : "") + SEPARATOR + quote.expiresAt().toEpochMilli()
+                + SEPARATOR + quote.customerId();
+    }
+
+    private static FxQuote decode(String quoteId, String value) {
+        String[] parts = value.split("\\" + SEPARATOR, 6);
+        CrossRate rate = new CrossRate(new BigDecimal(parts[2]), parts[3].isEmpty() ? null : parts[3]);
+        return new FxQuote(quoteId, parts[5], parts[0], parts[1], rate, Instant.ofEpochMilli(Long.parseLong(parts[4])));
+    }
+}
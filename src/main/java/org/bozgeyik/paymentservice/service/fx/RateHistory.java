@@ -0,0 +1,284 @@
+package org.bozgeyik.paymentservice.service.fx;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.bozgeyik.paymentservice.event.ExchangeRatesChangedEvent;
+import org.bozgeyik.paymentservice.model.ExchangeRate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Döviz kurlarının geçmişi: {@code exchange_rate_history} tablosu ve her para birimi çifti için bellekteki sütunlu
+ * kopyası ({@link RateSeries}).
+ * <p>
+ * "Bir andaki kur" sorguları ({@link #rateAt}, {@link #unitsAt}) yalnızca bellekten, ikili arama ile yanıtlanır;
+ * ekstre üretimi ve mutabakat gibi işlem başına kur gereken işler veritabanına gitmez.
+ * <ul>
+ *     <li>Açılışta tablo (çift, zaman) sırasıyla, parça parça okunur; geriye dönük eklenmiş kayıtlar da sıraya girer.</li>
+ *     <li>Bu instance'ta değişen kurlar commit sonrası tabloya eklenir. Tabloya eklenen yeni kayıtlar (diğer
+ *     instance'lar, toplu yükleme) {@code refresh-ms} aralıklarla ID sırasıyla okunur; son
+ *     {@code refresh-overlap-ids} kadar ID, geç commit edilen kayıtlar kaçmasın diye yeniden okunur.</li>
+ *     <li>Bellekteki dizi yalnızca eklenir: çiftin son noktasından eski bir kayıt bir sonraki açılışa kadar bellekte
+ *     görünmez ({@code fx.history.out-of-order} sayacı).</li>
+ * </ul>
+ * Toplu yükleme ({@link #ingest}) {@code zaman,kaynak,hedef,kur} satırlarını akış halinde okuyup gruplar halinde
+ * tabloya yazar. Zamanlar, işlem tarihleri gibi sunucunun saat diliminde yerel zamandır.
+ */
+@Component
+@Slf4j
+public class RateHistory {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO exchange_rate_history (from_currency, to_currency, rate, effective_at) VALUES (?, ?, ?, ?)";
+    private static final String LOAD_SQL =
+            "SELECT id, from_currency, to_currency, rate, effective_at FROM exchange_rate_history"
+                    + " WHERE (from_currency, to_currency, effective_at, id) > (?, ?, ?, ?) AND id <= ?"
+                    + " ORDER BY from_currency, to_currency, effective_at, id LIMIT ?";
+    private static final String REFRESH_SQL =
+            "SELECT id, from_currency, to_currency, rate, effective_at FROM exchange_rate_history"
+                    + " WHERE id > ? ORDER BY id LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConcurrentHashMap<Integer, RateSeries> series = new ConcurrentHashMap<>();
+
+    private final Counter appended;
+    private final Counter outOfOrder;
+
+    private volatile long lastSeenId;
+
+    @Value("${payment.fx.history.batch-size:10000}")
+    private int batchSize;
+
+    @Value("${payment.fx.history.refresh-overlap-ids:1000}")
+    private long refreshOverlapIds;
+
+    /**
+     * Tek bir çekilen satır.
+     */
+    private record Row(long id, String from, String to, BigDecimal rate, LocalDateTime effectiveAt) {
+    }
+
+    /**
+     * Toplu yükleme sonucu.
+     *
+     * @param lines    Okunan satır sayısı (boş satırlar ve başlık hariç).
+     * @param inserted Tabloya yazılan kayıt sayısı.
+     * @param rejected Çözümlenemeyen satır sayısı.
+     */
+    public record IngestResult(long lines, long inserted, long rejected) {
+    }
+
+    public RateHistory(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.appended = meterRegistry.counter("fx.history.appended");
+        this.outOfOrder = meterRegistry.counter("fx.history.out-of-order");
+        Gauge.builder("fx.history.points", series, s -> s.values().stream().mapToLong(RateSeries::size).sum())
+                .register(meterRegistry);
+        Gauge.builder("fx.history.memory", series, s -> s.values().stream().mapToLong(RateSeries::memoryBytes).sum())
+                .baseUnit("bytes").register(meterRegistry);
+    }
+
+    @PostConstruct
+    synchronized void load() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM exchange_rate_history", Long.class);
+        if (maxId == null) {
+            return;
+        }
+        Row last = new Row(0, "", "", null, LocalDateTime.of(1970, 1, 1, 0, 0));
+        long count = 0;
+        while (true) {
+            List<Row> rows = jdbcTemplate.query(LOAD_SQL, (rs, rowNum) -> row(rs),
+                    last.from(), last.to(), Timestamp.valueOf(last.effectiveAt()), last.id(), maxId, batchSize);
+            rows.forEach(this::append);
+            count += rows.size();
+            if (rows.size() < batchSize) {
+                break;
+            }
+            last = rows.get(rows.size() - 1);
+        }
+        lastSeenId = maxId;
+        log.info("Kur geçmişi yüklendi: {} çift, {} kayıt", series.size(), count);
+    }
+
+    /**
+     * Tabloya sonradan eklenen kayıtları belleğe alır.
+     */
+    @Scheduled(fixedDelayString = "${payment.fx.history.refresh-ms:5000}", initialDelayString = "${payment.fx.history.refresh-ms:5000}")
+    public synchronized void refresh() {
+        long after = Math.max(0, lastSeenId - refreshOverlapIds);
+        while (true) {
+            List<Row> rows = jdbcTemplate.query(REFRESH_SQL, (rs, rowNum) -> row(rs), after, batchSize);
+            for (Row row : rows) {
+                append(row);
+                after = row.id();
+            }
+            lastSeenId = Math.max(lastSeenId, after);
+            if (rows.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Verilen anda geçerli olan kuru (o andan önceki son kaydı) döner.
+     *
+     * @return Kur veya çiftin o andan önce kaydı yoksa {@code null}.
+     */
+    public BigDecimal rateAt(String from, String to, LocalDateTime at) {
+        long units = unitsAt(from, to, at);
+        return units == RateSeries.MISSING ? null : BigDecimal.valueOf(units, RateTable.RATE_SCALE);
+    }
+
+    /**
+     * {@link #rateAt}'in nesne oluşturmayan hali.
+     *
+     * @return {@link RateTable#RATE_SCALE} basamaklı ölçeksiz kur veya kayıt yoksa {@link Long#MIN_VALUE}.
+     */
+    public long unitsAt(String from, String to, LocalDateTime at) {
+        RateSeries pair = series.get(pairKey(from, to));
+        return pair == null ? RateSeries.MISSING : pair.unitsAt(millis(at));
+    }
+
+    /**
+     * {@code zaman,kaynak,hedef,kur} satırlarını okuyup {@code batch-size}'lık gruplar halinde tabloya yazar ve
+     * belleği günceller. Zaman ISO-8601 yerel zaman ({@code 2024-05-01T10:15:30}) veya an ({@code ...Z}) olabilir;
+     * {@code #} ile başlayan ve zamanı çözümlenemeyen ilk satır (başlık) atlanır.
+     */
+    public IngestResult ingest(BufferedReader reader) throws IOException {
+        long lines = 0;
+        long inserted = 0;
+        long rejected = 0;
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        String line;
+        boolean first = true;
+        while ((line = reader.readLine()) != null) {
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            Object[] args = parse(line);
+            if (args == null) {
+                if (!first) {
+                    lines++;
+                    rejected++;
+                }
+                first = false;
+                continue;
+            }
+            first = false;
+            lines++;
+            batch.add(args);
+            if (batch.size() == batchSize) {
+                inserted += write(batch);
+            }
+        }
+        inserted += write(batch);
+        refresh();
+        log.info("Kur geçmişi yüklendi: {} satır, {} kayıt, {} hatalı satır", lines, inserted, rejected);
+        return new IngestResult(lines, inserted, rejected);
+    }
+
+    // Kur değişikliği commit edildikten sonra ayrı bir işlemde kaydedilir; kayıt yazılamazsa kur yine de değişmiş olur.
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onRateChanged(ExchangeRatesChangedEvent event) {
+        if (event.getChange() == ExchangeRatesChangedEvent.Change.DELETED) {
+            return;
+        }
+        ExchangeRate rate = event.getRate();
+        LocalDateTime effectiveAt = rate.getLastUpdated() != null ? rate.getLastUpdated() : LocalDateTime.now();
+        jdbcTemplate.update(INSERT_SQL, rate.getFromCurrency().toUpperCase(), rate.getToCurrency().toUpperCase(),
+                rate.getRate(), Timestamp.valueOf(effectiveAt));
+        refresh();
+    }
+
+    private int write(List<Object[]> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        int count = jdbcTemplate.batchUpdate(INSERT_SQL, batch).length;
+        batch.clear();
+        return count;
+    }
+
+    private void append(Row row) {
+        int key = pairKey(row.from(), row.to());
+        if (key < 0) {
+            return;
+        }
+        long units;
+        try {
+            units = row.rate().setScale(RateTable.RATE_SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            return;
+        }
+        if (series.computeIfAbsent(key, k -> new RateSeries()).append(millis(row.effectiveAt()), units)) {
+            appended.increment();
+        } else {
+            outOfOrder.increment();
+        }
+    }
+
+    private static Object[] parse(String line) {
+        String[] parts = line.split(",");
+        if (parts.length != 4) {
+            return null;
+        }
+        try {
+            String time = parts[0].strip();
+            LocalDateTime effectiveAt = time.endsWith("Z") || time.contains("+")
+                    ? LocalDateTime.ofInstant(Instant.parse(time), ZoneId.systemDefault())
+                    : LocalDateTime.parse(time);
+            String from = parts[1].strip().toUpperCase();
+            String to = parts[2].strip().toUpperCase();
+            BigDecimal rate = new BigDecimal(parts[3].strip());
+            if (pairKey(from, to) < 0 || rate.signum() <= 0) {
+                return null;
+            }
+            return new Object[]{from, to, rate, Timestamp.valueOf(effectiveAt)};
+        } catch (DateTimeParseException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Row row(ResultSet rs) throws SQLException {
+        return new Row(rs.getLong("id"), rs.getString("from_currency"), rs.getString("to_currency"),
+                rs.getBigDecimal("rate"), rs.getTimestamp("effective_at").toLocalDateTime());
+    }
+
+    private static int pairKey(String from, String to) {
+        int fromCode = RateTable.codeIndex(from);
+        int toCode = RateTable.codeIndex(to);
+        return fromCode < 0 || toCode < 0 ? -1 : fromCode * RateTable.CODE_SPACE + toCode;
+    }
+
+    // Yerel zaman, sıralamayı bozmayan sabit bir ofsetle milisaniyeye çevrilir.
+    private static long millis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
@@ -0,0 +1,57 @@
+package org.bozgeyik.paymentservice.service.fx;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@code /actuator/fxhistory}: GET {@code ?from=USD&to=TRY&at=2024-05-01T10:15:30} o anda geçerli kuru döner
+ * ({@code at} verilmezse şimdi), POST {@code {"file": "kurlar.csv"}} {@code ingest-dir} altındaki dosyayı yükler.
+ */
+@Component
+@Endpoint(id = "fxhistory")
+@RequiredArgsConstructor
+public class RateHistoryEndpoint {
+
+    private final RateHistory rateHistory;
+
+    @Value("${payment.fx.history.ingest-dir:./fx-history}")
+    private Path ingestDir;
+
+    @ReadOperation
+    public Map<String, Object> rateAt(String from, String to, @Nullable String at) {
+        LocalDateTime time = at != null ? LocalDateTime.parse(at) : LocalDateTime.now();
+        BigDecimal rate = rateHistory.rateAt(from, to, time);
+        Map<String, Object> result = new HashMap<>();
+        result.put("from", from.toUpperCase());
+        result.put("to", to.toUpperCase());
+        result.put("at", time);
+        result.put("rate", rate);
+        return result;
+    }
+
+    @WriteOperation
+    public Object ingest(String file) throws IOException {
+        Path base = ingestDir.toAbsolutePath().normalize();
+        Path source = base.resolve(file).normalize();
+        if (!source.startsWith(base) || !Files.isRegularFile(source)) {
+            return Map.of("message", "Dosya bulunamadı: " + file);
+        }
+        try (BufferedReader reader = Files.newBufferedReader(source)) {
+            return rateHistory.ingest(reader);
+        }
+    }
+}
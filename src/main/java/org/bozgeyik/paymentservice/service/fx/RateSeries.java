@@ -0,0 +1,177 @@
+package org.bozgeyik.paymentservice.service.fx;
+
+import java.util.Arrays;
+
+/**
+ * Tek bir para birimi çiftinin kur geçmişi; zamana göre sıralı, yalnızca eklenen, sütunlu ve sıkıştırılmış dizi.
+ * <p>
+ * Noktalar {@value #BLOCK_SIZE}'lik bloklarda tutulur. Bir blokta ilk noktanın zamanı ve kuru ayrı dizilerde,
+ * sonraki noktalar bir önceki noktadan farkları (zaman: değişken uzunluklu, kur: zigzag + değişken uzunluklu)
+ * olarak tek bir {@code byte[]} içinde saklanır; tipik bir kur akışında nokta başına 16 yerine 3-6 bayt harcanır.
+ * Son blok dolana kadar sıkıştırılmadan tutulur.
+ * <p>
+ * "O anki kur" sorgusu ({@link #unitsAt}) blok başlangıç zamanlarında ikili arama yapıp tek bir bloğu çözer; nesne
+ * oluşturmaz ve kilit almaz. Zamanlar milisaniye, kurlar {@link RateTable#RATE_SCALE} basamaklı ölçeksiz değerdir.
+ * <p>
+ * Tek yazıcı varsayılır ({@link #append} dışarıdan senkronize edilmelidir); okuyucular eş zamanlı çalışabilir.
+ */
+final class RateSeries {
+
+    static final int BLOCK_SIZE = 128;
+    static final long MISSING = Long.MIN_VALUE;
+
+    // Doldurulmakta olan son blok. Yazıcı önce değeri yazar, sonra sayacı artırır.
+    private static final class Tail {
+        final long[] times = new long[BLOCK_SIZE];
+        final long[] units = new long[BLOCK_SIZE];
+        volatile int count;
+    }
+
+    // Okuyucuların gördüğü durum. Blok dizilerine yalnızca blockCount'tan sonrasına yazılır.
+    private record State(long[] blockTimes, long[] blockUnits, byte[][] payloads, int blockCount, Tail tail) {
+    }
+
+    private volatile State state = new State(new long[4], new long[4], new byte[4][], 0, new Tail());
+    private long lastTime = Long.MIN_VALUE;
+    private long lastUnits;
+    private long bytes;
+
+    /**
+     * Noktayı ekler.
+     *
+     * @return Nokta eklendiyse {@code true}; zamanı son noktadan eskiyse veya son noktanın aynısıysa {@code false}.
+     */
+    boolean append(long time, long units) {
+        if (time < lastTime || (time == lastTime && units == lastUnits)) {
+            return false;
+        }
+        State current = state;
+        Tail tail = current.tail();
+        int count = tail.count;
+        tail.times[count] = time;
+        tail.units[count] = units;
+        tail.count = count + 1;
+        lastTime = time;
+        lastUnits = units;
+        if (count + 1 == BLOCK_SIZE) {
+            seal(current);
+        }
+        return true;
+    }
+
+    /**
+     * Verilen zamanda (dahil) geçerli olan, yani zamanı {@code time}'dan büyük olmayan son noktanın kurunu döner.
+     *
+     * @return Ölçeksiz kur veya o zamandan önce nokta yoksa {@link #MISSING}.
+     */
+    long unitsAt(long time) {
+        State current = state;
+        Tail tail = current.tail();
+        int tailCount = tail.count;
+        if (tailCount > 0 && tail.times[0] <= time) {
+            int index = lastAtOrBefore(tail.times, tailCount, time);
+            return tail.units[index];
+        }
+        int block = lastAtOrBefore(current.blockTimes(), current.blockCount(), time);
+        if (block < 0) {
+            return MISSING;
+        }
+        return decodeAt(current.blockTimes()[block], current.blockUnits()[block], current.payloads()[block], time);
+    }
+
+    int size() {
+        State current = state;
+        return current.blockCount() * BLOCK_SIZE + current.tail().count;
+    }
+
+    /**
+     * Noktaların bellekte kapladığı yaklaşık bayt (sıkıştırılmış bloklar ve açık blok).
+     */
+    long memoryBytes() {
+        return bytes + 2L * BLOCK_SIZE * Long.BYTES + 16L * state.blockTimes().length;
+    }
+
+    private void seal(State current) {
+        Tail tail = current.tail();
+        byte[] payload = encode(tail.times, tail.units);
+        long[] blockTimes = current.blockTimes();
+        long[] blockUnits = current.blockUnits();
+        byte[][] payloads = current.payloads();
+        int index = current.blockCount();
+        if (index == blockTimes.length) {
+            blockTimes = Arrays.copyOf(blockTimes, index * 2);
+            blockUnits = Arrays.copyOf(blockUnits, index * 2);
+            payloads = Arrays.copyOf(payloads, index * 2);
+        }
+        blockTimes[index] = tail.times[0];
+        blockUnits[index] = tail.units[0];
+        payloads[index] = payload;
+        bytes += payload.length;
+        // Eski durumu okuyanlar eski açık bloğu görmeye devam eder; yeni blok yeni dizilerle başlar.
+        state = new State(blockTimes, blockUnits, payloads, index + 1, new Tail());
+    }
+
+    private static byte[] encode(long[] times, long[] units) {
+        byte[] buffer = new byte[(BLOCK_SIZE - 1) * 20];
+        int position = 0;
+        for (int i = 1; i < BLOCK_SIZE; i++) {
+            position = writeVarLong(buffer, position, times[i] - times[i - 1]);
+            long delta = units[i] - units[i - 1];
+            position = writeVarLong(buffer, position, (delta << 1) ^ (delta >> 63));
+        }
+        return Arrays.copyOf(buffer, position);
+    }
+
+    private static long decodeAt(long firstTime, long firstUnits, byte[] payload, long time) {
+        long currentTime = firstTime;
+        long currentUnits = firstUnits;
+        int position = 0;
+        while (position < payload.length) {
+            long timeDelta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = payload[position++];
+                timeDelta |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            if (currentTime + timeDelta > time) {
+                break;
+            }
+            long zigzag = 0;
+            shift = 0;
+            do {
+                b = payload[position++];
+                zigzag |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            currentTime += timeDelta;
+            currentUnits += (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+        return currentUnits;
+    }
+
+    private static int writeVarLong(byte[] buffer, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    // Değeri time'dan büyük olmayan son indeks; yoksa -1.
+    private static int lastAtOrBefore(long[] values, int count, long time) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] <= time) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+}
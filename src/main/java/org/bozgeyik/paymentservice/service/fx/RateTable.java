@@ -0,0 +1,309 @@
+package org.bozgeyik.paymentservice.service.fx;
+
+import org.bozgeyik.paymentservice.model.ExchangeRate;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * {@code exchange_rates} tablosundan türetilen, değişmez, bellek içi kur matrisi.
+ * <p>
+ * Her para birimine yükleme sırasında yoğun bir ID (0..n-1) verilir ve kurlar n x n boyutunda düz dizilerde tutulur.
+ * Para birimi kodundan ID'ye geçiş de bir dizi okumasıdır: 3 harfli kod {@code [A-Z]^3} uzayında bir indekse çevrilir.
+ * Bu sayede bir kur okuması kilit, hash veya nesne oluşturmadan dizi erişimleriyle yapılır.
+ * <p>
+ * Tabloda doğrudan satırı olmayan çiftlerin kurları da önceden hesaplanır: ters kurlar ve pivot para birimleri
+ * üzerinden çapraz kurlar ({@link CrossRateGraph}). Türetilen kurlar {@value #RATE_SCALE} ondalık basamağa yuvarlanır
+ * ve her kur, denetim için türetme yoluyla ({@link CrossRate#path()}) birlikte tutulur.
+ * <p>
+ * Tablo oluşturulduktan sonra değişmez; kurlar değiştiğinde yeni bir tablo oluşturulup {@link #version()} bir artırılır
+ * ve eskisinin yerine atomik olarak konur. Bir ödemede kullanılan kur tek bir tablodan okunur.
+ */
+public final class RateTable {
+
+    /**
+     * {@code exchange_rates.rate} ve {@code transactions.exchange_rate_used} sütunlarının ölçeği.
+     */
+    public static final int RATE_SCALE = 8;
+
+    private static final int LETTERS = 26;
+    static final int CODE_SPACE = LETTERS * LETTERS * LETTERS;
+
+    private final long version;
+    private final Instant loadedAt;
+    private final String[] currencies;
+    // Kod indeksi -> yoğun ID + 1 (0: bilinmeyen para birimi).
+    private final short[] denseIds;
+    // [from * n + to]; tablodaki satırlar, null: satır yok.
+    private final BigDecimal[] direct;
+    // [from * n + to]; uygulanacak kur, null: kur türetilemiyor.
+    private final CrossRate[] rates;
+    // [from * n + to]; kurun türetildiği düğümler. Yalnızca bir kurun değeri değiştiğinde yollar aynı kalır.
+    private final int[][] paths;
+
+    private RateTable(long version, Instant loadedAt, String[] currencies, short[] denseIds,
+                      BigDecimal[] direct, CrossRate[] rates, int[][] paths) {
+        this.version = version;
+        this.loadedAt = loadedAt;
+        this.currencies = currencies;
+        this.denseIds = denseIds;
+        this.direct = direct;
+        this.rates = rates;
+        this.paths = paths;
+    }
+
+    /**
+     * Hiç kur içermeyen tablo.
+     */
+    public static RateTable empty() {
+        return new RateTable(0, Instant.EPOCH, new String[0], new short[CODE_SPACE],
+                new BigDecimal[0], new CrossRate[0], new int[0][]);
+    }
+
+    /**
+     * Verilen kur satırlarından yeni bir tablo oluşturur. Kodu {@code [A-Z]{3}} olmayan satırlar atlanır.
+     *
+     * @param version Tablonun sürüm numarası.
+     * @param rows    {@code exchange_rates} satırları.
+     * @param pivots  Çapraz kurlarda ara para birimi olarak tercih edilecek para birimleri (örn: USD, EUR).
+     * @param maxHops Bir çapraz kurda kullanılabilecek en fazla satır sayısı.
+     */
+    public static RateTable of(long version, Collection<ExchangeRate> rows, Set<String> pivots, int maxHops) {
+        short[] denseIds = new short[CODE_SPACE];
+        String[] currencies = new String[Math.min(CODE_SPACE, rows.size() * 2)];
+        int n = 0;
+        for (ExchangeRate row : rows) {
+            int from = codeIndex(row.getFromCurrency());
+            int to = codeIndex(row.getToCurrency());
+            if (from < 0 || to < 0) {
+                continue;
+            }
+            for (int code : new int[]{from, to}) {
+                if (denseIds[code] == 0) {
+                    currencies[n] = decode(code);
+                    denseIds[code] = (short) ++n;
+                }
+            }
+        }
+        currencies = Arrays.copyOf(currencies, n);
+
+        BigDecimal[] direct = new BigDecimal[n * n];
+        for (ExchangeRate row : rows) {
+            int from = codeIndex(row.getFromCurrency());
+            int to = codeIndex(row.getToCurrency());
+            if (from >= 0 && to >= 0 && from != to && row.getRate() != null) {
+                direct[(denseIds[from] - 1) * n + denseIds[to] - 1] = row.getRate();
+            }
+        }
+
+        boolean[] pivot = new boolean[n];
+        for (String currency : pivots) {
+            int code = codeIndex(currency);
+            if (code >= 0 && denseIds[code] != 0) {
+                pivot[denseIds[code] - 1] = true;
+            }
+        }
+        int[][] paths = CrossRateGraph.paths(direct, n, pivot, Math.max(1, maxHops));
+        CrossRate[] rates = new CrossRate[n * n];
+        for (int cell = 0; cell < rates.length; cell++) {
+            rates[cell] = derive(currencies, direct, paths[cell]);
+        }
+        return new RateTable(version, Instant.now(), currencies, denseIds, direct, rates, paths);
+    }
+
+    /**
+     * Yalnızca bir satırın kuru değiştiğinde, yolları yeniden aramadan o satırı kullanan kurları güncelleyen yeni
+     * tablo döner.
+     *
+     * @return Yeni tablo veya çift tabloda doğrudan satır olarak yoksa (grafik değişiyorsa) {@code null}; bu durumda
+     * tablo baştan oluşturulmalıdır.
+     */
+    public RateTable withRate(long version, String from, String to, BigDecimal rate) {
+        int f = idOf(from);
+        int t = idOf(to);
+        int n = currencies.length;
+        if (f < 0 || t < 0 || f == t || !CrossRateGraph.usable(direct[f * n + t]) || !CrossRateGraph.usable(rate)) {
+            return null;
+        }
+        BigDecimal[] nextDirect = direct.clone();
+        nextDirect[f * n + t] = rate;
+        CrossRate[] nextRates = rates.clone();
+        for (int cell = 0; cell < paths.length; cell++) {
+            if (uses(paths[cell], f, t)) {
+                nextRates[cell] = derive(currencies, nextDirect, paths[cell]);
+            }
+        }
+        return new RateTable(version, Instant.now(), currencies, denseIds, nextDirect, nextRates, paths);
+    }
+
+    /**
+     * Para biriminin bu tablodaki yoğun ID'sini döner.
+     *
+     * @return Yoğun ID veya tabloda olmayan para birimi için -1.
+     */
+    public int idOf(String currency) {
+        int code = codeIndex(currency);
+        return code < 0 ? -1 : denseIds[code] - 1;
+    }
+
+    /**
+     * İki yoğun ID arasındaki kuru türetme yoluyla birlikte döner.
+     *
+     * @return Kur veya türetilemiyorsa {@code null}.
+     */
+    public CrossRate crossRate(int from, int to) {
+        if (from == to) {
+            return CrossRate.SAME_CURRENCY;
+        }
+        return rates[from * currencies.length + to];
+    }
+
+    /**
+     * İki para birimi arasındaki kuru türetme yoluyla birlikte döner (büyük/küçük harf duyarsız).
+     *
+     * @return Kur veya para birimlerinden biri tabloda yoksa ya da kur türetilemiyorsa {@code null}.
+     */
+    public CrossRate crossRate(String from, String to) {
+        int fromId = idOf(from);
+        int toId = idOf(to);
+        if (fromId < 0 || toId < 0) {
+            return null;
+        }
+        return crossRate(fromId, toId);
+    }
+
+    /**
+     * İki para birimi arasındaki kuru döner (büyük/küçük harf duyarsız). Aynı para birimi için kur 1'dir.
+     *
+     * @return Kur veya türetilemiyorsa {@code null}.
+     */
+    public BigDecimal rate(String from, String to) {
+        CrossRate crossRate = crossRate(from, to);
+        return crossRate != null ? crossRate.rate() : null;
+    }
+
+    /**
+     * Doğrudan kurları bu tablodakilerle birebir aynı mı (sürüm ve yükleme zamanı hariç)?
+     */
+    public boolean sameRatesAs(RateTable other) {
+        if (currencies.length != other.currencies.length) {
+            return false;
+        }
+        int n = currencies.length;
+        for (int from = 0; from < n; from++) {
+            int otherFrom = other.idOf(currencies[from]);
+            if (otherFrom < 0) {
+                return false;
+            }
+            for (int to = 0; to < n; to++) {
+                BigDecimal mine = direct[from * n + to];
+                BigDecimal theirs = other.direct[otherFrom * n + other.idOf(currencies[to])];
+                if (mine == null ? theirs != null : theirs == null || mine.compareTo(theirs) != 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public Instant loadedAt() {
+        return loadedAt;
+    }
+
+    /**
+     * Tablodaki para birimi sayısı.
+     */
+    public int size() {
+        return currencies.length;
+    }
+
+    /**
+     * Yoğun ID'si verilen para biriminin kodu.
+     */
+    public String currency(int id) {
+        return currencies[id];
+    }
+
+    /**
+     * Tablodaki doğrudan kur (satır) sayısı.
+     */
+    public int directCount() {
+        return (int) Arrays.stream(direct).filter(Objects::nonNull).count();
+    }
+
+    /**
+     * Satırı olmadığı halde ters veya çapraz kurla türetilen kur sayısı.
+     */
+    public int derivedCount() {
+        return (int) Arrays.stream(rates).filter(r -> r != null && !r.isDirect()).count();
+    }
+
+    private static CrossRate derive(String[] currencies, BigDecimal[] direct, int[] path) {
+        if (path == null) {
+            return null;
+        }
+        int n = currencies.length;
+        if (path.length == 2 && CrossRateGraph.usable(direct[path[0] * n + path[1]])) {
+            return new CrossRate(direct[path[0] * n + path[1]], currencies[path[0]] + ">" + currencies[path[1]]);
+        }
+        BigDecimal rate = BigDecimal.ONE;
+        StringBuilder legs = new StringBuilder(currencies[path[0]]);
+        for (int i = 0; i + 1 < path.length; i++) {
+            BigDecimal forward = direct[path[i] * n + path[i + 1]];
+            if (CrossRateGraph.usable(forward)) {
+                rate = rate.multiply(forward, MathContext.DECIMAL128);
+                legs.append('>');
+            } else {
+                rate = rate.divide(direct[path[i + 1] * n + path[i]], MathContext.DECIMAL128);
+                legs.append('~');
+            }
+            legs.append(currencies[path[i + 1]]);
+        }
+        rate = rate.setScale(RATE_SCALE, RoundingMode.HALF_EVEN);
+        // Ölçeğe yuvarlandığında sıfırlanan kur uygulanamaz.
+        return rate.signum() > 0 ? new CrossRate(rate, legs.toString()) : null;
+    }
+
+    private static boolean uses(int[] path, int from, int to) {
+        if (path == null) {
+            return false;
+        }
+        for (int i = 0; i + 1 < path.length; i++) {
+            if ((path[i] == from && path[i + 1] == to) || (path[i] == to && path[i + 1] == from)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // "USD" -> [A-Z]^3 uzayında indeks; geçersiz kodlar için -1.
+    static int codeIndex(String currency) {
+        if (currency == null || currency.length() != 3) {
+            return -1;
+        }
+        int index = 0;
+        for (int i = 0; i < 3; i++) {
+            int letter = (currency.charAt(i) | 0x20) - 'a';
+            if (letter < 0 || letter >= LETTERS) {
+                return -1;
+            }
+            index = index * LETTERS + letter;
+        }
+        return index;
+    }
+
+    private static String decode(int code) {
+        return new String(new char[]{
+                (char) ('A' + code / (LETTERS * LETTERS)), (char) ('A' + code / LETTERS % LETTERS), (char) ('A' + code % LETTERS)});
+    }
+}
@@ -0,0 +1,23 @@
+package org.bozgeyik.paymentservice.service.ledger;
+
+import org.bozgeyik.paymentservice.model.BalanceKey;
+import org.bozgeyik.paymentservice.model.Money;
+
+import java.math.BigDecimal;
+
+/**
+ * Tek bir bakiye satırına uygulanacak değişiklik.
+ *
+ * @param key   Değişecek bakiye (cüzdan, para birimi).
+ * @param delta Pozitif değer para girişi, negatif değer para çıkışı anlamına gelir.
+ */
+public record BalanceChange(BalanceKey key, Money delta) {
+
+    public static BalanceChange of(Long walletId, Money delta) {
+        return new BalanceChange(new BalanceKey(walletId, delta.currency()), delta);
+    }
+
+    public static BalanceChange of(Long walletId, String currency, BigDecimal delta) {
+        return of(walletId, Money.of(delta, currency));
+    }
+}
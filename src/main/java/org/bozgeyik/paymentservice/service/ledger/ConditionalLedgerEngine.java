@@ -0,0 +1,59 @@
+package org.bozgeyik.paymentservice.service.ledger;
+
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bozgeyik.paymentservice.exception.InsufficientFundsException;
+import org.bozgeyik.paymentservice.repository.WalletBalanceRepository;
+import org.bozgeyik.paymentservice.repository.WalletRepository;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+/**
+ * Bakiye değişikliğini tek bir koşullu UPDATE ifadesi ile uygulayan muhasebe motoru.
+ * Klasik yoldaki "cüzdanı oku, satırı FOR UPDATE ile kilitle, save et" adımları yerine
+ * tek bir round trip yapılır; satır kilidi yalnızca UPDATE ifadesi ile alınır.
+ * Ek sorgular sadece yavaş yolda (satır yok veya bakiye yetersiz) çalışır.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ConditionalLedgerEngine {
+
+    private final WalletRepository walletRepository;
+    private final WalletBalanceRepository balanceRepository;
+
+    /**
+     * Bakiye değişikliğini uygular. Çağıranın transaction'ına katılır.
+     *
+     * @param walletId    Bakiyesi güncellenecek cüzdanın ID'si.
+     * @param currency    Güncellenecek bakiyenin para birimi.
+     * @param amountDelta Bakiyedeki değişiklik miktarı.
+     * @throws InsufficientFundsException Eğer para çıkışı için yeterli bakiye yoksa.
+     * @throws EntityNotFoundException    Eğer cüzdan bulunamazsa.
+     */
+    public void apply(Long walletId, String currency, BigDecimal amountDelta) {
+        // Hızlı yol: satır varsa ve bakiye yeterliyse tek ifade ile iş biter.
+        if (balanceRepository.applyDeltaIfSufficient(walletId, currency, amountDelta) == 1) {
+            log.debug("Koşullu güncelleme uygulandı: Cüzdan {} - {} {}", walletId, amountDelta, currency);
+            return;
+        }
+
+        // Yavaş yol: güncellemenin neden gerçekleşmediğini ayırt et.
+        if (!walletRepository.existsById(walletId)) {
+            throw new EntityNotFoundException("Cüzdan bulunamadı: " + walletId);
+        }
+
+        if (amountDelta.compareTo(BigDecimal.ZERO) < 0) {
+            log.warn("Yetersiz Bakiye: Cüzdan {}, İstenen Çıkış: {} {}", walletId, amountDelta.abs(), currency);
+            throw new InsufficientFundsException(
+                    String.format("Yetersiz Bakiye: %s ID'li cüzdanın %s para biriminde yeterli bakiyesi yok.", walletId, currency)
+            );
+        }
+
+        // Bu para biriminde henüz bakiye satırı yok. Eş zamanlı oluşturmalara karşı upsert kullanılır.
+        log.info("Yeni bakiye satırı oluşturuluyor: Cüzdan {} - {}", walletId, currency);
+        balanceRepository.upsertCredit(walletId, currency, amountDelta);
+    }
+}
@@ -0,0 +1,564 @@
+package org.bozgeyik.paymentservice.service.ledger;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.bozgeyik.paymentservice.exception.InsufficientFundsException;
+import org.bozgeyik.paymentservice.model.BalanceKey;
+import org.bozgeyik.paymentservice.model.BalanceState;
+import org.bozgeyik.paymentservice.model.LedgerCheckpoint;
+import org.bozgeyik.paymentservice.repository.LedgerCheckpointRepository;
+import org.bozgeyik.paymentservice.repository.TransactionRepository;
+import org.bozgeyik.paymentservice.repository.WalletBalanceRepository;
+import org.bozgeyik.paymentservice.repository.WalletRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@link LedgerMode#IN_MEMORY} modunda bakiyeleri bellekte tutan, tek yazıcılı muhasebe motoru.
+ * <ul>
+ *     <li>Cüzdanlar ID'lerine göre bölümlere (partition) ayrılır. Her bölümün bakiyeleri yalnızca o bölümün
+ *     yazıcı thread'i tarafından değiştirilir; bakiye üzerinde kilit yoktur.</li>
+ *     <li>Komutlar bölümün sınırlı kuyruğunda sıraya girer. Yazıcı kuyruktaki komutları grup halinde alır,
+ *     bakiye kontrolünü yapar, kabul edilenleri {@link WriteAheadLog}'a ekler ve tek bir fsync ile kalıcı hale
+ *     getirir. Çağıran ancak bundan sonra yanıt alır.</li>
+ *     <li>MySQL ({@code wallet_balances}) arka planda, günlükteki kayıtların net toplamlarıyla güncellenir. Son işlenen
+ *     sıra numarası aynı transaction'da {@code ledger_checkpoints} tablosuna yazılır.</li>
+ *     <li>Açılışta her bölümün günlüğündeki checkpoint sonrası kayıtlar veritabanına işlenir; bellek, ilk erişimde
+ *     veritabanından yüklenir.</li>
+ * </ul>
+ * Komutlar çağıranın veritabanı transaction'ından önce günlüğe yazılır; sonuçları ise o transaction'a bağlıdır:
+ * <ul>
+ *     <li>Her kayıt, komuta yol açan işlemin idempotency anahtarını taşır. Bir transferin farklı bölümlere düşen iki
+ *     bacağı aynı anahtarı taşır ve birlikte kesinleşir veya atılır.</li>
+ *     <li>Kayıtlar veritabanına sıra numarası sırasıyla ve yalnızca çağıranın transaction'ı bittikten sonra işlenir:
+ *     commit edilenler uygulanır, geri alınanlar atlanır. Transaction'ı süren bir kayıt, bölümün sonraki kayıtlarının
+ *     veritabanına işlenmesini de bekletir.</li>
+ *     <li>Açılışta checkpoint sonrası kayıtlardan yalnızca anahtarı commit edilmiş bir işlem kaydına ({@code transactions})
+ *     ait olanlar uygulanır; diğerleri (çökme anında süren veya geri alınmış transaction'lar) atılır. Anahtarsız
+ *     kayıtlar doğrulanamaz ve olduğu gibi uygulanır.</li>
+ *     <li>Para çıkışları bakiye kontrolünden geçip hemen düşülür, transaction geri alınırsa iade edilir. Para girişleri
+ *     ise commit'e kadar bakiye kontrolüne ve {@link #balancesOf}'a yansımaz; commit edilmemiş bir giriş harcanamaz.</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class InMemoryLedgerEngine {
+
+    private final WalletRepository walletRepository;
+    private final WalletBalanceRepository balanceRepository;
+    private final LedgerCheckpointRepository checkpointRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private Partition[] partitions;
+    private ScheduledExecutorService applier;
+
+    @Value("${payment.ledger.mode:PESSIMISTIC}")
+    private LedgerMode ledgerMode;
+
+    @Value("${payment.ledger.in-memory.partitions:4}")
+    private int partitionCount;
+
+    @Value("${payment.ledger.in-memory.wal-dir:./data/ledger-wal}")
+    private Path walDirectory;
+
+    @Value("${payment.ledger.in-memory.wal-segment-bytes:67108864}")
+    private long walSegmentBytes;
+
+    @Value("${payment.ledger.in-memory.queue-capacity:65536}")
+    private int queueCapacity;
+
+    @Value("${payment.ledger.in-memory.max-group-size:1024}")
+    private int maxGroupSize;
+
+    @Value("${payment.ledger.in-memory.command-timeout-ms:5000}")
+    private long commandTimeoutMillis;
+
+    @Value("${payment.ledger.in-memory.apply-interval-ms:100}")
+    private long applyIntervalMillis;
+
+    public InMemoryLedgerEngine(WalletRepository walletRepository,
+                                WalletBalanceRepository balanceRepository,
+                                LedgerCheckpointRepository checkpointRepository,
+                                TransactionRepository transactionRepository,
+                                TransactionTemplate transactionTemplate) {
+        this.walletRepository = walletRepository;
+        this.balanceRepository = balanceRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionRepository = transactionRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        if (ledgerMode != LedgerMode.IN_MEMORY) {
+            return;
+        }
+        partitions = new Partition[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new Partition(i);
+            partitions[i].recover();
+        }
+        for (Partition partition : partitions) {
+            partition.writer.start();
+        }
+        applier = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("ledger-applier").factory());
+        applier.scheduleWithFixedDelay(this::applyAll, applyIntervalMillis, applyIntervalMillis, TimeUnit.MILLISECONDS);
+        log.info("Bellek içi muhasebe motoru başlatıldı: {} bölüm, WAL dizini {}", partitionCount, walDirectory.toAbsolutePath());
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (partitions == null) {
+            return;
+        }
+        for (Partition partition : partitions) {
+            partition.running = false;
+        }
+        for (Partition partition : partitions) {
+            partition.writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        applier.shutdown();
+        applier.awaitTermination(10, TimeUnit.SECONDS);
+        applyAll();
+        for (Partition partition : partitions) {
+            try {
+                partition.wal.close();
+            } catch (IOException e) {
+                log.error("WAL kapatılamadı: bölüm {}", partition.number, e);
+            }
+        }
+    }
+
+    /**
+     * Bakiye değişikliğini uygular ve günlüğe kalıcı olarak yazılana kadar bekler. Çağıran bir transaction içindeyse
+     * değişikliğin sonucu o transaction'a bağlıdır: para girişi commit'ten sonra görünür, geri alınırsa değişiklik
+     * atılır. Transaction yoksa değişiklik hemen kesinleşir. Komut {@code command-timeout-ms} içinde onaylanmazsa
+     * henüz kuyruktaysa iptal edilir; yazıcı onu çoktan almışsa aynı anahtarla ters kaydı gönderilir. Böylece çağırana
+     * hata dönen bir komut, transaction commit edilse bile bakiyede kalmaz.
+     *
+     * @param reference Değişikliğe yol açan işlemin idempotency anahtarı; açılışta kaydın kesinleşip kesinleşmediği
+     *                  bununla anlaşılır.
+     * @throws InsufficientFundsException Eğer para çıkışı için yeterli bakiye yoksa.
+     * @throws EntityNotFoundException    Eğer cüzdan bulunamazsa.
+     */
+    public void apply(Long walletId, String currency, BigDecimal amountDelta, String reference) {
+        BalanceKey key = new BalanceKey(walletId, currency);
+        Partition partition = partitionOf(walletId);
+        boolean transactional = TransactionSynchronizationManager.isSynchronizationActive();
+        Leg leg = new Leg(reference, transactional ? Leg.PENDING : Leg.COMMITTED);
+        Command command = new Command(key, amountDelta, false, leg);
+        CompletableFuture<Void> applied = partition.submit(command);
+
+        if (transactional) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    partition.resolve(leg, status == STATUS_COMMITTED);
+                }
+            });
+        }
+        try {
+            await(applied);
+        } catch (CommandTimeoutException e) {
+            if (partition.cancel(command)) {
+                log.warn("Zaman aşımına uğrayan komut kuyruktan çıkarıldı: Cüzdan {} - {} {}", walletId, amountDelta, currency);
+            } else {
+                // Komut daha sonra uygulanırsa, telafisi de o zaman gönderilir.
+                applied.thenRun(() -> compensate(partition, key, amountDelta, leg));
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Cüzdanın bellekteki güncel bakiyelerini (para birimi → bakiye) döner. Bellekte olmayan bakiyeler için
+     * veritabanındaki değer günceldir. Değerler commit edilmemiş transaction'ların para çıkışlarını içerir, para
+     * girişlerini içermez.
+     */
+    public Map<String, BigDecimal> balancesOf(Long walletId) {
+        Map<String, BigDecimal> balances = partitionOf(walletId).published.get(walletId);
+        return balances != null ? Map.copyOf(balances) : Map.of();
+    }
+
+    private void compensate(Partition partition, BalanceKey key, BigDecimal amountDelta, Leg leg) {
+        log.info("Zaman aşımına uğrayan komut için ters kayıt: Cüzdan {} - {} {}", key.walletId(), amountDelta.negate(), key.currency());
+        partition.submit(new Command(key, amountDelta.negate(), true, leg))
+                .exceptionally(e -> {
+                    log.error("Ters kayıt uygulanamadı: Cüzdan {} - {} {}", key.walletId(), amountDelta.negate(), key.currency(), e);
+                    return null;
+                });
+    }
+
+    private Partition partitionOf(Long walletId) {
+        if (partitions == null) {
+            throw new IllegalStateException("Bellek içi muhasebe motoru etkin değil.");
+        }
+        return partitions[Math.floorMod(Long.hashCode(walletId), partitions.length)];
+    }
+
+    private void await(CompletableFuture<Void> future) {
+        try {
+            future.get(commandTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Muhasebe komutu uygulanamadı.", e.getCause());
+        } catch (TimeoutException e) {
+            throw new CommandTimeoutException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Muhasebe komutu beklenirken kesildi.", e);
+        }
+    }
+
+    private void applyAll() {
+        for (Partition partition : partitions) {
+            try {
+                partition.applyToDatabase();
+            } catch (RuntimeException e) {
+                log.warn("WAL kayıtları veritabanına işlenemedi, tekrar denenecek: bölüm {} - {}", partition.number, e.getMessage());
+            }
+        }
+    }
+
+    private static final int RECOVERY_BATCH_SIZE = 500;
+
+    private static final class CommandTimeoutException extends IllegalStateException {
+        private CommandTimeoutException(TimeoutException cause) {
+            super("Muhasebe komutu zaman aşımına uğradı.", cause);
+        }
+    }
+
+    // Bölüm kuyruğundaki işler: bakiye komutları ve transaction sonuçları.
+    private sealed interface Task permits Command, Resolution {
+    }
+
+    private record Command(BalanceKey key, BigDecimal delta, boolean compensation, Leg leg, CompletableFuture<Void> result) implements Task {
+        Command(BalanceKey key, BigDecimal delta, boolean compensation, Leg leg) {
+            this(key, delta.setScale(WriteAheadLog.SCALE, RoundingMode.HALF_EVEN), compensation, leg, new CompletableFuture<>());
+        }
+    }
+
+    /**
+     * Tek bir {@link #apply} çağrısının (bir bacağın) kayıtları ve çağıranın transaction'ının sonucu. Sonuç yalnızca
+     * bölümün yazıcı thread'inde belirlenir; uygulayıcı yalnızca okur.
+     */
+    private static final class Leg {
+
+        private static final int PENDING = 0;
+        private static final int COMMITTED = 1;
+        private static final int ROLLED_BACK = 2;
+
+        private final String reference;
+        private volatile int state;
+        // Transaction sürerken uygulanan kayıtlar; sonuç belli olunca bakiyeye yansıtılır. Yalnızca yazıcı thread'inde.
+        private final List<WriteAheadLog.Record> pendingRecords = new ArrayList<>();
+
+        // Açılışta geri oynatılan kayıtların sonucu veritabanından belirlenir.
+        static final Leg REPLAYED = new Leg(null, COMMITTED);
+        static final Leg DISCARDED = new Leg(null, ROLLED_BACK);
+
+        Leg(String reference, int state) {
+            this.reference = reference;
+            this.state = state;
+        }
+
+        boolean resolved() {
+            return state != PENDING;
+        }
+
+        boolean committed() {
+            return state == COMMITTED;
+        }
+
+        boolean rolledBack() {
+            return state == ROLLED_BACK;
+        }
+    }
+
+    // Sonucu bekleyen bir transaction sonucu; yazıcı thread'inde işlenir.
+    private record Resolution(Leg leg, boolean committed) implements Task {
+    }
+
+    // Kalıcı olmuş bir kayıt ve ait olduğu bacak.
+    private record Entry(WriteAheadLog.Record record, Leg leg) {
+    }
+
+    private final class Partition {
+
+        private final int number;
+        private final WriteAheadLog wal;
+        private final ArrayBlockingQueue<Task> tasks = new ArrayBlockingQueue<>(queueCapacity);
+        // Kuyruk doluyken gelen transaction sonuçları; kaybolmamaları gerekir, yazıcı her turda önce bunları alır.
+        private final ConcurrentLinkedQueue<Resolution> overflow = new ConcurrentLinkedQueue<>();
+        // Yalnızca yazıcı thread'i tarafından okunur ve değiştirilir. Commit edilmemiş girişleri içermez.
+        private final Map<BalanceKey, BigDecimal> balances = new HashMap<>();
+        // fsync'ten sonra okuyuculara yayınlanan değerler (cüzdan ID → para birimi → bakiye).
+        private final Map<Long, Map<String, BigDecimal>> published = new ConcurrentHashMap<>();
+        // Kalıcı olmuş ama henüz veritabanına işlenmemiş kayıtlar (sıra numarasına göre).
+        private final ConcurrentLinkedQueue<Entry> unapplied = new ConcurrentLinkedQueue<>();
+        // Veritabanına işlenemeyip tekrar denenecek kayıtlar. Yalnızca uygulayıcı thread'inde kullanılır.
+        private final List<Entry> retry = new ArrayList<>();
+        private final Thread writer;
+
+        private long nextSequence;
+        private volatile boolean running = true;
+        private volatile IOException failure;
+
+        Partition(int number) {
+            this.number = number;
+            this.wal = new WriteAheadLog(walDirectory, number, walSegmentBytes);
+            this.writer = Thread.ofPlatform().name("ledger-writer-" + number).unstarted(this::runWriter);
+        }
+
+        // Checkpoint sonrası kayıtlardan commit edilmiş işlemlere ait olanları veritabanına işler; bellek bundan sonra
+        // veritabanından yüklenebilir.
+        void recover() throws IOException {
+            long checkpoint = checkpointRepository.findById(number).map(LedgerCheckpoint::getLastSequence).orElse(0L);
+            List<WriteAheadLog.Record> replayed = new ArrayList<>();
+            long last = wal.open(checkpoint, replayed::add);
+            if (!replayed.isEmpty()) {
+                Set<String> committed = committedReferences(replayed);
+                int discarded = 0;
+                for (WriteAheadLog.Record record : replayed) {
+                    boolean keep = record.reference() == null || committed.contains(record.reference());
+                    // Atılan kayıtlar da checkpoint'in ilerlemesi için sıraya girer.
+                    unapplied.add(new Entry(record, keep ? Leg.REPLAYED : Leg.DISCARDED));
+                    if (!keep) {
+                        discarded++;
+                    }
+                }
+                log.info("WAL geri oynatılıyor: bölüm {}, checkpoint {} sonrası {} kayıt ({} tanesi commit edilmemiş işlemlere ait, atlanıyor)",
+                        number, checkpoint, replayed.size(), discarded);
+            }
+            applyToDatabase();
+            nextSequence = Math.max(last, checkpoint) + 1;
+        }
+
+        private Set<String> committedReferences(List<WriteAheadLog.Record> records) {
+            List<String> references = new ArrayList<>(new LinkedHashSet<>(records.stream()
+                    .map(WriteAheadLog.Record::reference).filter(reference -> reference != null).toList()));
+            Set<String> committed = new HashSet<>();
+            for (int from = 0; from < references.size(); from += RECOVERY_BATCH_SIZE) {
+                committed.addAll(transactionRepository.findExistingIdempotencyKeys(
+                        references.subList(from, Math.min(from + RECOVERY_BATCH_SIZE, references.size()))));
+            }
+            return committed;
+        }
+
+        CompletableFuture<Void> submit(Command command) {
+            if (failure != null || !running) {
+                command.result().completeExceptionally(new IllegalStateException("Muhasebe bölümü çalışmıyor: " + number, failure));
+            } else if (!tasks.offer(command)) {
+                command.result().completeExceptionally(new IllegalStateException("Muhasebe kuyruğu dolu: bölüm " + number));
+            }
+            return command.result();
+        }
+
+        // Çağıranın transaction'ının sonucunu yazıcıya iletir. Bacağın komutu bu noktada ya işlenmiş ya da iptal
+        // edilmiştir; sonuç her zaman komuttan sonra işlenir.
+        void resolve(Leg leg, boolean committed) {
+            Resolution resolution = new Resolution(leg, committed);
+            if (!tasks.offer(resolution)) {
+                overflow.add(resolution);
+            }
+        }
+
+        // Komut henüz yazıcı tarafından alınmadıysa kuyruktan çıkarır; çıkarılan komut hiç uygulanmaz.
+        boolean cancel(Command command) {
+            if (!tasks.remove(command)) {
+                return false;
+            }
+            command.result().completeExceptionally(new IllegalStateException("Muhasebe komutu iptal edildi."));
+            return true;
+        }
+
+        private void runWriter() {
+            List<Task> group = new ArrayList<>(maxGroupSize);
+            while (running || !tasks.isEmpty() || !overflow.isEmpty()) {
+                try {
+                    Task first = tasks.poll(50, TimeUnit.MILLISECONDS);
+                    group.clear();
+                    Resolution resolution;
+                    while ((resolution = overflow.poll()) != null) {
+                        group.add(resolution);
+                    }
+                    if (first != null) {
+                        group.add(first);
+                        tasks.drainTo(group, maxGroupSize - 1);
+                    }
+                    if (!group.isEmpty()) {
+                        process(group);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (IOException e) {
+                    log.error("WAL yazılamadı, bölüm {} durduruluyor.", number, e);
+                    failure = e;
+                    running = false;
+                    group.forEach(t -> fail(t, e));
+                    tasks.forEach(t -> fail(t, e));
+                    return;
+                }
+            }
+        }
+
+        private void fail(Task task, IOException e) {
+            if (task instanceof Command command) {
+                command.result().completeExceptionally(new IllegalStateException("WAL yazılamadı.", e));
+            }
+        }
+
+        private void process(List<Task> group) throws IOException {
+            List<Command> accepted = new ArrayList<>(group.size());
+            List<Entry> entries = new ArrayList<>(group.size());
+            Set<BalanceKey> touched = new LinkedHashSet<>();
+            for (Task task : group) {
+                if (task instanceof Resolution resolution) {
+                    settle(resolution, touched);
+                    continue;
+                }
+                Command command = (Command) task;
+                Leg leg = command.leg();
+                if (leg.rolledBack()) {
+                    // Transaction zaten geri alındı (ör. zaman aşımı telafisi); kaydın etkisi olmazdı.
+                    command.result().complete(null);
+                    continue;
+                }
+                BalanceKey key = command.key();
+                BigDecimal current;
+                try {
+                    current = balances.containsKey(key) ? balances.get(key) : load(key);
+                } catch (RuntimeException e) {
+                    command.result().completeExceptionally(e);
+                    continue;
+                }
+                // Commit edilmemiş giriş bakiyeye commit'te eklenir; o zamana kadar harcanamaz.
+                boolean held = command.delta().signum() > 0 && !leg.committed();
+                BigDecimal next = held ? current : current.add(command.delta());
+                if (!command.compensation() && command.delta().signum() < 0 && next.signum() < 0) {
+                    log.warn("Yetersiz Bakiye: Cüzdan {}, İstenen Çıkış: {}, Mevcut Bakiye: {}", key.walletId(), command.delta().abs(), current);
+                    command.result().completeExceptionally(new InsufficientFundsException(
+                            String.format("Yetersiz Bakiye: %s ID'li cüzdanın %s para biriminde yeterli bakiyesi yok.", key.walletId(), key.currency())
+                    ));
+                    continue;
+                }
+                WriteAheadLog.Record record = new WriteAheadLog.Record(
+                        nextSequence++, key.walletId(), key.currency(), command.delta(), leg.reference);
+                wal.append(record);
+                balances.put(key, next);
+                if (!leg.resolved()) {
+                    leg.pendingRecords.add(record);
+                }
+                entries.add(new Entry(record, leg));
+                accepted.add(command);
+                touched.add(key);
+            }
+
+            // Grup için tek fsync; kabul edilen komutlar ancak bundan sonra onaylanır.
+            if (!entries.isEmpty()) {
+                wal.sync();
+            }
+            for (BalanceKey key : touched) {
+                published.computeIfAbsent(key.walletId(), id -> new ConcurrentHashMap<>()).put(key.currency(), balances.get(key));
+            }
+            unapplied.addAll(entries);
+            accepted.forEach(c -> c.result().complete(null));
+        }
+
+        // Commit'te bekletilen girişler bakiyeye eklenir; geri almada düşülen çıkışlar iade edilir.
+        private void settle(Resolution resolution, Set<BalanceKey> touched) {
+            Leg leg = resolution.leg();
+            if (leg.resolved()) {
+                return;
+            }
+            leg.state = resolution.committed() ? Leg.COMMITTED : Leg.ROLLED_BACK;
+            for (WriteAheadLog.Record record : leg.pendingRecords) {
+                int sign = record.delta().signum();
+                if (resolution.committed() ? sign > 0 : sign < 0) {
+                    BalanceKey key = new BalanceKey(record.walletId(), record.currency());
+                    balances.merge(key, resolution.committed() ? record.delta() : record.delta().negate(), BigDecimal::add);
+                    touched.add(key);
+                }
+            }
+            leg.pendingRecords.clear();
+        }
+
+        private BigDecimal load(BalanceKey key) {
+            Optional<BigDecimal> stored = balanceRepository.findState(key.walletId(), key.currency()).map(BalanceState::balance);
+            if (stored.isEmpty() && !walletRepository.existsById(key.walletId())) {
+                throw new EntityNotFoundException("Cüzdan bulunamadı: " + key.walletId());
+            }
+            return stored.orElse(BigDecimal.ZERO);
+        }
+
+        // Yalnızca uygulayıcı thread'inden (veya açılış/kapanışta) çağrılır.
+        void applyToDatabase() {
+            // Sonucu belli olmayan ilk kayıtta durulur; checkpoint ondan sonraya geçmez.
+            Entry entry;
+            while ((entry = unapplied.peek()) != null && entry.leg().resolved()) {
+                retry.add(unapplied.poll());
+            }
+            if (retry.isEmpty()) {
+                return;
+            }
+
+            // Aynı bakiyenin commit edilmiş kayıtları net toplam olarak, satırlar global sırayla güncellenir.
+            Map<BalanceKey, BigDecimal> netDeltas = new TreeMap<>();
+            for (Entry e : retry) {
+                if (e.leg().committed()) {
+                    WriteAheadLog.Record r = e.record();
+                    netDeltas.merge(new BalanceKey(r.walletId(), r.currency()), r.delta(), BigDecimal::add);
+                }
+            }
+            long lastSequence = retry.get(retry.size() - 1).record().sequence();
+            transactionTemplate.executeWithoutResult(status -> {
+                netDeltas.forEach((key, delta) -> {
+                    if (delta.signum() != 0) {
+                        // Bellekteki bakiye kontrolü geçildiği için net toplam yeni bir satırı negatif açamaz.
+                        balanceRepository.upsertCredit(key.walletId(), key.currency(), delta);
+                    }
+                });
+                checkpointRepository.saveCheckpoint(number, lastSequence);
+            });
+            retry.clear();
+            try {
+                wal.deleteSegmentsUpTo(lastSequence);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
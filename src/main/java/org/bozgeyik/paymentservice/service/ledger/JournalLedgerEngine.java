@@ -0,0 +1,105 @@
+package org.bozgeyik.paymentservice.service.ledger;
+
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bozgeyik.paymentservice.exception.InsufficientFundsException;
+import org.bozgeyik.paymentservice.model.BalanceKey;
+import org.bozgeyik.paymentservice.repository.WalletBalanceRepository;
+import org.bozgeyik.paymentservice.repository.WalletRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link LedgerMode#JOURNAL} modunda bakiye değişikliklerini doğrulayan motor. Bakiyenin kendisi
+ * {@link LedgerJournal} satırlarından hesaplanır; {@code wallet_balances} satırı yalnızca açılış bakiyesini
+ * tutar ve para çıkışlarında kilit (mutex) olarak kullanılır.
+ * <ul>
+ *     <li>Para girişi hiçbir satırı kilitlemez; yevmiye satırları işlem kaydedilirken eklenir.</li>
+ *     <li>Para çıkışı cüzdanın {@code wallet_balances} satırını kilitler ve yevmiyeden hesaplanan bakiyeyi kilitli
+ *     okumalarla ({@link LedgerJournal#lockedBalanceOf}) kontrol eder. Böylece aynı bakiyeden eş zamanlı iki çıkış,
+ *     transaction'ın kilitten önce aldığı okuma görüntüsünden bağımsız olarak toplamda bakiyeyi aşamaz.</li>
+ * </ul>
+ * Aynı transaction içinde henüz yevmiyeye yazılmamış değişiklikler, transaction'a bağlı bir haritada tutulur.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class JournalLedgerEngine {
+
+    private final WalletRepository walletRepository;
+    private final WalletBalanceRepository balanceRepository;
+    private final LedgerJournal journal;
+
+    /**
+     * Bakiye değişikliğini doğrular ve transaction'ın bekleyen değişikliklerine ekler. Çağıranın transaction'ına katılır.
+     *
+     * @throws InsufficientFundsException Eğer para çıkışı için yeterli bakiye yoksa.
+     * @throws EntityNotFoundException    Eğer cüzdan bulunamazsa.
+     */
+    public void apply(Long walletId, String currency, BigDecimal amountDelta) {
+        BalanceKey key = new BalanceKey(walletId, currency);
+        Map<BalanceKey, BigDecimal> pending = pendingDeltas();
+
+        if (amountDelta.compareTo(BigDecimal.ZERO) >= 0) {
+            ensureMainRow(walletId, currency);
+            pending.merge(key, amountDelta, BigDecimal::add);
+            return;
+        }
+
+        // Ana satır kilidi, aynı bakiyeden yapılan çıkışları sıraya sokar; kilitli okuma açılış bakiyesini de döner.
+        BigDecimal opening = balanceRepository.lockBalanceAmount(walletId, currency).orElse(null);
+        if (opening == null) {
+            if (!walletRepository.existsById(walletId)) {
+                throw new EntityNotFoundException("Cüzdan bulunamadı: " + walletId);
+            }
+            throw insufficientFunds(walletId, currency);
+        }
+        BigDecimal available = journal.lockedBalanceOf(walletId, currency, opening)
+                .add(pending.getOrDefault(key, BigDecimal.ZERO));
+        if (available.add(amountDelta).compareTo(BigDecimal.ZERO) < 0) {
+            log.warn("Yetersiz Bakiye: Cüzdan {}, İstenen Çıkış: {}, Mevcut Bakiye: {}", walletId, amountDelta.abs(), available);
+            throw insufficientFunds(walletId, currency);
+        }
+        pending.merge(key, amountDelta, BigDecimal::add);
+    }
+
+    private void ensureMainRow(Long walletId, String currency) {
+        if (balanceRepository.existsByWallet_IdAndCurrency(walletId, currency)) {
+            return;
+        }
+        if (!walletRepository.existsById(walletId)) {
+            throw new EntityNotFoundException("Cüzdan bulunamadı: " + walletId);
+        }
+        // Cüzdan aramaları ve çıkış kilidi bu satıra dayandığı için sıfır açılış bakiyesiyle oluşturulur.
+        log.info("Yeni bakiye satırı oluşturuluyor: Cüzdan {} - {}", walletId, currency);
+        balanceRepository.upsertCredit(walletId, currency, BigDecimal.ZERO);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<BalanceKey, BigDecimal> pendingDeltas() {
+        Map<BalanceKey, BigDecimal> pending = (Map<BalanceKey, BigDecimal>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(JournalLedgerEngine.this);
+                }
+            });
+        }
+        return pending;
+    }
+
+    private InsufficientFundsException insufficientFunds(Long walletId, String currency) {
+        return new InsufficientFundsException(
+                String.format("Yetersiz Bakiye: %s ID'li cüzdanın %s para biriminde yeterli bakiyesi yok.", walletId, currency)
+        );
+    }
+}
@@ -0,0 +1,250 @@
+package org.bozgeyik.paymentservice.service.ledger;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bozgeyik.paymentservice.model.BalanceKey;
+import org.bozgeyik.paymentservice.model.BalanceSnapshot;
+import org.bozgeyik.paymentservice.model.BalanceState;
+import org.bozgeyik.paymentservice.model.EntryDirection;
+import org.bozgeyik.paymentservice.model.LedgerAccountType;
+import org.bozgeyik.paymentservice.model.Transaction;
+import org.bozgeyik.paymentservice.model.TransactionStatus;
+import org.bozgeyik.paymentservice.repository.BalanceSnapshotRepository;
+import org.bozgeyik.paymentservice.repository.LedgerEntryRepository;
+import org.bozgeyik.paymentservice.repository.WalletBalanceRepository;
+import org.bozgeyik.paymentservice.service.CommitWatermark;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Çift taraflı, yalnızca eklenen muhasebe yevmiyesi ({@code ledger_entries}) ve bakiye snapshot'ları.
+ * <p>
+ * Tamamlanan her işlem için para hareketleri borç/alacak satır çiftlerine dönüştürülür ve tek bir
+ * JDBC batch ile yazılır. Bir cüzdan bakiyesi, en son snapshot'a (yoksa {@code wallet_balances} satırındaki
+ * açılış bakiyesine) snapshot'tan sonraki satırların net toplamı eklenerek bulunur; böylece okumalar tüm geçmişi
+ * değil, yalnızca son snapshot'tan sonraki satırları tarar. Snapshot'lar periyodik olarak alınır.
+ * <p>
+ * Yalnızca {@link LedgerMode#JOURNAL} modunda etkindir; diğer modlarda tüm metotlar etkisizdir.
+ */
+@Component
+@Slf4j
+public class LedgerJournal {
+
+    private static final String INSERT_ENTRY_SQL =
+            "INSERT INTO ledger_entries (transaction_id, account_type, wallet_id, currency, direction, amount, created_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String LOCK_SNAPSHOT_SQL = "SELECT balance, last_entry_id FROM balance_snapshots " +
+            "WHERE wallet_id = ? AND currency = ? ORDER BY id DESC LIMIT 1 FOR UPDATE";
+    // Toplam uygulamada alınır: gruplu sorgularda kilitli okuma her veritabanında desteklenmez.
+    private static final String LOCK_ENTRIES_SQL = "SELECT direction, amount FROM ledger_entries " +
+            "WHERE account_type = 'WALLET' AND wallet_id = ? AND currency = ? AND id > ? FOR UPDATE";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LedgerEntryRepository entryRepository;
+    private final BalanceSnapshotRepository snapshotRepository;
+    private final WalletBalanceRepository balanceRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CommitWatermark commitWatermark;
+
+    // Son snapshot turunun kapsadığı en büyük satır ID'si (ilk turda veritabanından okunur)
+    private volatile Long snapshotWatermark;
+
+    @Value("${payment.ledger.mode:PESSIMISTIC}")
+    private LedgerMode ledgerMode;
+
+    public LedgerJournal(JdbcTemplate jdbcTemplate,
+                         LedgerEntryRepository entryRepository,
+                         BalanceSnapshotRepository snapshotRepository,
+                         WalletBalanceRepository balanceRepository,
+                         TransactionTemplate transactionTemplate,
+                         CommitWatermark commitWatermark) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entryRepository = entryRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.balanceRepository = balanceRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.commitWatermark = commitWatermark;
+    }
+
+    public boolean isEnabled() {
+        return ledgerMode == LedgerMode.JOURNAL;
+    }
+
+    /**
+     * Tamamlanmış bir işlemin para hareketlerini yevmiyeye yazar. Çağıranın transaction'ına katılır;
+     * işlem geri alınırsa satırlar da geri alınır.
+     *
+     * @param transaction Kaydedilmiş (ID'si atanmış) işlem.
+     * @param fee         İşlemden kesilen komisyon (yoksa {@code null}).
+     */
+    public void record(Transaction transaction, BigDecimal fee) {
+        if (!isEnabled() || transaction.getStatus() != TransactionStatus.COMPLETED) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (Posting posting : postingsOf(transaction, fee)) {
+            rows.add(new Object[]{transaction.getId(), posting.debit().type().name(), posting.debit().walletId(),
+                    posting.currency(), EntryDirection.DEBIT.name(), posting.amount(), now});
+            rows.add(new Object[]{transaction.getId(), posting.credit().type().name(), posting.credit().walletId(),
+                    posting.currency(), EntryDirection.CREDIT.name(), posting.amount(), now});
+        }
+        jdbcTemplate.batchUpdate(INSERT_ENTRY_SQL, rows);
+        log.debug("Yevmiyeye {} satır yazıldı: İşlem {}", rows.size(), transaction.getId());
+    }
+
+    /**
+     * Bir cüzdanın belirli para birimindeki güncel bakiyesini hesaplar:
+     * son snapshot + snapshot'tan sonraki satırların net toplamı.
+     */
+    public BigDecimal balanceOf(Long walletId, String currency) {
+        return balanceAt(new BalanceKey(walletId, currency), Long.MAX_VALUE);
+    }
+
+    /**
+     * {@link #balanceOf} ile aynı hesabı kilitli okumalarla yapar; para çıkışının bakiye kontrolü içindir.
+     * <p>
+     * REPEATABLE READ altında düz okumalar transaction'ın ilk okumasındaki görüntüden gelir; bu görüntü cüzdan satırı
+     * kilitlenmeden önce alınmışsa (ör. cüzdan araması, idempotency kontrolü), kilidi beklerken commit edilen bir
+     * çıkış hesaba girmez ve aynı bakiye iki kez harcanabilir. Kilitli okumalar ise her zaman son commit edilmiş
+     * satırları okur. Yeni yevmiye satırları bu transaction bitene kadar cüzdanın satır aralığına eklenemez
+     * (boşluk kilidi); para girişleri bu süre boyunca bekler.
+     *
+     * @param openingBalance Cüzdan satırının kilitli okumayla alınmış açılış bakiyesi.
+     */
+    public BigDecimal lockedBalanceOf(Long walletId, String currency, BigDecimal openingBalance) {
+        BigDecimal[] base = {openingBalance};
+        long[] afterId = {0L};
+        jdbcTemplate.query(LOCK_SNAPSHOT_SQL, (RowCallbackHandler) rs -> {
+            base[0] = rs.getBigDecimal("balance");
+            afterId[0] = rs.getLong("last_entry_id");
+        }, walletId, currency);
+        BigDecimal[] total = {base[0]};
+        jdbcTemplate.query(LOCK_ENTRIES_SQL, (RowCallbackHandler) rs -> {
+            BigDecimal amount = rs.getBigDecimal("amount");
+            total[0] = EntryDirection.CREDIT.name().equals(rs.getString("direction"))
+                    ? total[0].add(amount) : total[0].subtract(amount);
+        }, walletId, currency, afterId[0]);
+        return total[0];
+    }
+
+    /**
+     * Hareket görmüş bakiyelerin snapshot'larını alır. Henüz commit edilmemiş bir işlemin satırı, kendisinden
+     * büyük ID'li satırlar commit edildikten sonra görünür hale gelebilir; snapshot'a alınan satırın sonradan
+     * araya giren bir satırı kaçırmaması için üst sınır {@link CommitWatermark} ile belirlenir: sınıra kadarki
+     * satırların hepsi commit edilmiş (veya geri alınmış) olur.
+     */
+    @Scheduled(fixedDelayString = "${payment.ledger.journal.snapshot-interval-ms:60000}")
+    public void takeSnapshots() {
+        // Mod kapalıyken bağlantı havuzundan bağlantı alınmaz.
+        if (!isEnabled()) {
+            return;
+        }
+        if (snapshotWatermark == null) {
+            snapshotWatermark = snapshotRepository.findMaxLastEntryId();
+        }
+        long upToId = commitWatermark.settle("ledger_entries", snapshotWatermark);
+        if (upToId <= snapshotWatermark) {
+            return;
+        }
+        // Okumalar filigran belirlendikten sonra açılan transaction'da yapılır; sınıra kadarki satırların hepsi görünür.
+        transactionTemplate.executeWithoutResult(status -> snapshotMovedBalances(upToId));
+    }
+
+    private void snapshotMovedBalances(long upToId) {
+        List<BalanceKey> keys = entryRepository.findWalletKeysBetween(snapshotWatermark, upToId);
+        for (BalanceKey key : keys) {
+            BalanceSnapshot snapshot = new BalanceSnapshot();
+            snapshot.setWalletId(key.walletId());
+            snapshot.setCurrency(key.currency());
+            snapshot.setBalance(balanceAt(key, upToId));
+            snapshot.setLastEntryId(upToId);
+            snapshotRepository.save(snapshot);
+        }
+        snapshotWatermark = upToId;
+        log.info("Bakiye snapshot'ları alındı: {} bakiye, son satır {}", keys.size(), upToId);
+    }
+
+    private BigDecimal balanceAt(BalanceKey key, long upToId) {
+        BigDecimal base;
+        long afterId;
+        BalanceSnapshot snapshot = snapshotRepository
+                .findFirstByWalletIdAndCurrencyOrderByIdDesc(key.walletId(), key.currency())
+                .orElse(null);
+        if (snapshot != null) {
+            base = snapshot.getBalance();
+            afterId = snapshot.getLastEntryId();
+        } else {
+            // İlk snapshot'a kadar açılış bakiyesi wallet_balances satırındaki değerdir (bu modda değişmez).
+            base = balanceRepository.findState(key.walletId(), key.currency())
+                    .map(BalanceState::balance)
+                    .orElse(BigDecimal.ZERO);
+            afterId = 0L;
+        }
+        return base.add(entryRepository.sumWalletEntries(key.walletId(), key.currency(), afterId, upToId));
+    }
+
+    // İşlem türüne göre para hareketleri. Her hareket bir borç ve bir alacak satırı üretir.
+    private List<Posting> postingsOf(Transaction tx, BigDecimal fee) {
+        String origin = tx.getOriginalCurrency();
+        String target = tx.getTargetCurrency();
+        List<Posting> postings = new ArrayList<>();
+        switch (tx.getTransactionType()) {
+            case DEPOSIT -> postings.add(new Posting(Account.clearing(), Account.wallet(tx.getToWalletId()),
+                    origin, tx.getOriginalAmount()));
+            case WITHDRAWAL -> postings.add(new Posting(Account.wallet(tx.getFromWalletId()), Account.clearing(),
+                    origin, tx.getOriginalAmount()));
+            case EXTERNAL_TRANSFER -> {
+                postings.add(new Posting(Account.wallet(tx.getFromWalletId()), Account.clearing(),
+                        origin, tx.getOriginalAmount()));
+                if (fee != null && fee.signum() > 0) {
+                    postings.add(new Posting(Account.wallet(tx.getFromWalletId()), Account.feeIncome(), origin, fee));
+                }
+            }
+            case TRANSFER, FX_TRADE -> {
+                if (Objects.equals(origin, target)) {
+                    postings.add(new Posting(Account.wallet(tx.getFromWalletId()), Account.wallet(tx.getToWalletId()),
+                            origin, tx.getOriginalAmount()));
+                } else {
+                    // Farklı para birimleri arasında her para birimi kendi içinde dengelenir (FX pozisyonu üzerinden).
+                    postings.add(new Posting(Account.wallet(tx.getFromWalletId()), Account.fxPosition(),
+                            origin, tx.getOriginalAmount()));
+                    postings.add(new Posting(Account.fxPosition(), Account.wallet(tx.getToWalletId()),
+                            target, tx.getConvertedAmount()));
+                }
+            }
+        }
+        return postings;
+    }
+
+    private record Account(LedgerAccountType type, Long walletId) {
+        static Account wallet(Long walletId) {
+            return new Account(LedgerAccountType.WALLET, walletId);
+        }
+
+        static Account clearing() {
+            return new Account(LedgerAccountType.EXTERNAL_CLEARING, null);
+        }
+
+        static Account fxPosition() {
+            return new Account(LedgerAccountType.FX_POSITION, null);
+        }
+
+        static Account feeIncome() {
+            return new Account(LedgerAccountType.FEE_INCOME, null);
+        }
+    }
+
+    private record Posting(Account debit, Account credit, String currency, BigDecimal amount) {
+    }
+}
@@ -0,0 +1,13 @@
+package org.bozgeyik.paymentservice.service.ledger;
+
+/**
+ * {@code LedgerService}'in bakiye güncellemelerini hangi motorla uygulayacağını belirler.
+ * Seçim {@code payment.ledger.mode} ayarı ile yapılır.
+ */
+public enum LedgerMode {
+    PESSIMISTIC, // SELECT ... FOR UPDATE + Hibernate save (varsayılan)
+    CONDITIONAL, // Tek bir koşullu UPDATE ifadesi, ilk kez görülen para birimi için upsert
+    OPTIMISTIC,  // Kilitsiz okuma + versiyon kontrollü yazma, çekişmede kötümser kilitlemeye geri dönüş
+    JOURNAL,     // Yalnızca eklenen çift taraflı yevmiye + periyodik snapshot; bakiye satırı güncellenmez
+    IN_MEMORY    // Bellekte tek yazıcılı bölümler + önyazım günlüğü (WAL); MySQL arka planda güncellenir
+}
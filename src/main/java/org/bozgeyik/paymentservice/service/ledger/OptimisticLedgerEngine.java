@@ -0,0 +1,109 @@
+package org.bozgeyik.paymentservice.service.ledger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.bozgeyik.paymentservice.model.BalanceState;
+import org.bozgeyik.paymentservice.repository.WalletBalanceRepository;
+import org.bozgeyik.paymentservice.repository.WalletRepository;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+/**
+ * Bakiye satırını kilitlemeden okuyup, {@code @Version} kolonu ile karşılaştırmalı (compare-and-set)
+ * yazan muhasebe motoru.
+ * <p>
+ * Çakışma, Hibernate'in {@code OptimisticLockException}'ı yerine native UPDATE'in sıfır satır döndürmesi ile
+ * algılanır; böylece oturum (session) bozulmaz ve çağıran taraf aynı transaction içinde kötümser kilitlemeye
+ * geri dönebilir. Çakışmada aynı transaction içinde beklenip yeniden denenmez: bekleme, daha önce güncellenen
+ * satırların kilitlerini ve bağlantıyı tutar; REPEATABLE READ altında da yeniden okuma aynı anlık görüntüyü
+ * döndürür. Okuma transaction'ın anlık görüntüsünden eski bir değer getirirse bu da versiyon çakışması olarak
+ * görünür; yanlış bir yazma yapılmaz, yalnızca kilitli yola geçilir. Bu yüzden motor özel bir izolasyon
+ * seviyesi gerektirmez.
+ * <p>
+ * Çakışma olursa veya cüzdan {@link WalletContentionTracker}'a göre sıcaksa, çağıran taraf kötümser
+ * kilitlemeye geri döner.
+ */
+@Component
+@Slf4j
+public class OptimisticLedgerEngine {
+
+    private final WalletRepository walletRepository;
+    private final WalletBalanceRepository balanceRepository;
+    private final WalletContentionTracker contentionTracker;
+    private final Counter conflictCounter;
+    private final Counter fallbackCounter;
+
+    public OptimisticLedgerEngine(WalletRepository walletRepository,
+                                  WalletBalanceRepository balanceRepository,
+                                  WalletContentionTracker contentionTracker,
+                                  MeterRegistry meterRegistry) {
+        this.walletRepository = walletRepository;
+        this.balanceRepository = balanceRepository;
+        this.contentionTracker = contentionTracker;
+        this.conflictCounter = meterRegistry.counter("ledger.optimistic.conflicts");
+        this.fallbackCounter = meterRegistry.counter("ledger.optimistic.fallbacks");
+    }
+
+    /**
+     * Bakiye değişikliğini iyimser olarak uygulamayı dener. Çağıranın transaction'ına katılır.
+     *
+     * @param walletId    Bakiyesi güncellenecek cüzdanın ID'si.
+     * @param currency    Güncellenecek bakiyenin para birimi.
+     * @param amountDelta Bakiyedeki değişiklik miktarı.
+     * @return Değişiklik uygulandıysa {@code true}; kötümser kilitlemeye geri dönülmesi gerekiyorsa {@code false}.
+     * @throws EntityNotFoundException Eğer para girişi yapılacak cüzdan bulunamazsa.
+     */
+    public boolean tryApply(Long walletId, String currency, BigDecimal amountDelta) {
+        if (contentionTracker.isHot(walletId)) {
+            log.debug("Cüzdan {} çekişmeli, doğrudan kötümser kilitleme kullanılacak.", walletId);
+            fallbackCounter.increment();
+            return false;
+        }
+
+        // Okuma transaction'ın anlık görüntüsünden gelebilir; bakiyeyi yetersiz gösteren bir okuma kesin değildir.
+        // Para çıkışlarında yetersiz bakiye kararı her zaman kilitli yolda verilir.
+        boolean debit = amountDelta.compareTo(BigDecimal.ZERO) < 0;
+        Optional<BalanceState> state = balanceRepository.findState(walletId, currency);
+        if (state.isEmpty()) {
+            if (debit) {
+                fallbackCounter.increment();
+                return false;
+            }
+            applyCreditToMissingRow(walletId, currency, amountDelta);
+            return true;
+        }
+
+        BalanceState current = state.get();
+        BigDecimal newBalanceAmount = current.balance().add(amountDelta);
+        if (debit && newBalanceAmount.compareTo(BigDecimal.ZERO) < 0) {
+            log.debug("Okunan bakiye yetersiz görünüyor, kilitli yolda kontrol edilecek: Cüzdan {} - {}", walletId, currency);
+            fallbackCounter.increment();
+            return false;
+        }
+
+        if (current.version() != null
+                && balanceRepository.compareAndSetBalance(current.id(), current.version(), newBalanceAmount) == 1) {
+            contentionTracker.recordSuccess(walletId);
+            return true;
+        }
+
+        contentionTracker.recordConflict(walletId);
+        conflictCounter.increment();
+        fallbackCounter.increment();
+        log.info("Versiyon çakışması: Cüzdan {} - {}, kötümser kilitlemeye geçiliyor", walletId, currency);
+        return false;
+    }
+
+    private void applyCreditToMissingRow(Long walletId, String currency, BigDecimal amountDelta) {
+        if (!walletRepository.existsById(walletId)) {
+            throw new EntityNotFoundException("Cüzdan bulunamadı: " + walletId);
+        }
+        // Satır bu arada oluşturulmuşsa upsert tutarı mevcut bakiyeye ekler.
+        log.info("Yeni bakiye satırı oluşturuluyor: Cüzdan {} - {}", walletId, currency);
+        balanceRepository.upsertCredit(walletId, currency, amountDelta);
+    }
+}
@@ -0,0 +1,160 @@
+package org.bozgeyik.paymentservice.service.ledger;
+
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.bozgeyik.paymentservice.exception.InsufficientFundsException;
+import org.bozgeyik.paymentservice.model.BalanceKey;
+import org.bozgeyik.paymentservice.model.CurrencyAmount;
+import org.bozgeyik.paymentservice.repository.WalletBalanceRepository;
+import org.bozgeyik.paymentservice.repository.WalletBalanceShardRepository;
+import org.bozgeyik.paymentservice.repository.WalletBalanceShardRepository.ShardAmount;
+import org.bozgeyik.paymentservice.repository.WalletRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Sıcak cüzdanların bakiyelerini birden fazla satıra (parça) bölerek yöneten muhasebe motoru.
+ * <ul>
+ *     <li>Para girişi rastgele seçilen tek bir parçaya yazılır; girişler birbirini beklemez.</li>
+ *     <li>Para çıkışı önce ana satırdan, sonra yeterli bakiyesi olan bir parçadan düşülmeye çalışılır.
+ *     Hiçbiri tek başına yetmiyorsa ana satır ve tüm parçalar sırayla kilitlenir, parçaların bakiyesi
+ *     ana satıra taşınır ve çıkış oradan yapılır.</li>
+ *     <li>Okumalarda ana satır ile parçaların toplamı kullanılır.</li>
+ * </ul>
+ * Hangi cüzdanların sıcak olduğu {@code payment.ledger.hot-wallets.wallet-ids} ile belirlenir.
+ */
+@Component
+@Slf4j
+public class ShardedBalanceEngine {
+
+    private final WalletRepository walletRepository;
+    private final WalletBalanceRepository balanceRepository;
+    private final WalletBalanceShardRepository shardRepository;
+
+    // Ana bakiye satırının var olduğu doğrulanmış anahtarlar (cüzdan aramaları bu satıra dayanır).
+    private final Set<BalanceKey> knownMainRows = ConcurrentHashMap.newKeySet();
+
+    @Value("${payment.ledger.hot-wallets.wallet-ids:}")
+    private Set<Long> hotWalletIds;
+
+    @Value("${payment.ledger.hot-wallets.shard-count:8}")
+    private int shardCount;
+
+    public ShardedBalanceEngine(WalletRepository walletRepository,
+                                WalletBalanceRepository balanceRepository,
+                                WalletBalanceShardRepository shardRepository) {
+        this.walletRepository = walletRepository;
+        this.balanceRepository = balanceRepository;
+        this.shardRepository = shardRepository;
+    }
+
+    public boolean isSharded(Long walletId) {
+        return hotWalletIds.contains(walletId);
+    }
+
+    /**
+     * Bakiye değişikliğini parçalı bakiyeye uygular. Çağıranın transaction'ına katılır.
+     *
+     * @throws InsufficientFundsException Eğer ana satır ve parçaların toplamı çıkış için yetmiyorsa.
+     * @throws EntityNotFoundException    Eğer cüzdan bulunamazsa.
+     */
+    public void apply(Long walletId, String currency, BigDecimal amountDelta) {
+        if (amountDelta.compareTo(BigDecimal.ZERO) >= 0) {
+            credit(walletId, currency, amountDelta);
+        } else {
+            debit(walletId, currency, amountDelta.negate());
+        }
+    }
+
+    /**
+     * Cüzdanın parçalarındaki bakiyelerin para birimi bazında toplamlarını döner.
+     * Sıcak olmayan cüzdanlar için sorgu atılmaz.
+     */
+    public Map<String, BigDecimal> shardTotals(Long walletId) {
+        if (!isSharded(walletId)) {
+            return Map.of();
+        }
+        return shardRepository.sumByCurrency(walletId).stream()
+                .collect(Collectors.toMap(CurrencyAmount::currency, CurrencyAmount::amount));
+    }
+
+    private void credit(Long walletId, String currency, BigDecimal amount) {
+        ensureMainRow(walletId, currency);
+        int shardNo = ThreadLocalRandom.current().nextInt(shardCount);
+        shardRepository.credit(walletId, currency, shardNo, amount);
+        log.debug("Parçaya para girişi: Cüzdan {} - {} {} (parça {})", walletId, amount, currency, shardNo);
+    }
+
+    private void debit(Long walletId, String currency, BigDecimal amount) {
+        // 1. Ana satırda yeterli bakiye varsa tek ifade ile düş.
+        if (balanceRepository.applyDeltaIfSufficient(walletId, currency, amount.negate()) == 1) {
+            return;
+        }
+
+        // 2. Rastgele bir parçadan başlayarak, tek başına yeterli olan ilk parçadan düş.
+        int start = ThreadLocalRandom.current().nextInt(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            int shardNo = (start + i) % shardCount;
+            if (shardRepository.debitIfSufficient(walletId, currency, shardNo, amount) == 1) {
+                log.debug("Parçadan para çıkışı: Cüzdan {} - {} {} (parça {})", walletId, amount, currency, shardNo);
+                return;
+            }
+        }
+
+        // 3. Hiçbir satır tek başına yetmiyor: önce ana satırı, sonra parçaları sırayla kilitleyip birleştir.
+        log.info("Parçalar birleştiriliyor: Cüzdan {} - {}", walletId, currency);
+        BigDecimal mainBalance = balanceRepository.lockBalanceAmount(walletId, currency).orElse(null);
+        if (mainBalance == null && !walletRepository.existsById(walletId)) {
+            throw new EntityNotFoundException("Cüzdan bulunamadı: " + walletId);
+        }
+        List<ShardAmount> shards = shardRepository.lockShards(walletId, currency);
+
+        BigDecimal total = mainBalance != null ? mainBalance : BigDecimal.ZERO;
+        for (ShardAmount shard : shards) {
+            total = total.add(shard.getBalance());
+        }
+
+        BigDecimal newBalanceAmount = total.subtract(amount);
+        if (newBalanceAmount.compareTo(BigDecimal.ZERO) < 0) {
+            log.warn("Yetersiz Bakiye: Cüzdan {}, İstenen Çıkış: {}, Mevcut Bakiye: {}", walletId, amount, total);
+            throw new InsufficientFundsException(
+                    String.format("Yetersiz Bakiye: %s ID'li cüzdanın %s para biriminde yeterli bakiyesi yok.", walletId, currency)
+            );
+        }
+
+        // Yalnızca kilitlediğimiz parçalar sıfırlanır; bu arada oluşturulan yeni parçalar etkilenmez.
+        if (!shards.isEmpty()) {
+            shardRepository.clearShards(walletId, currency, shards.stream().map(ShardAmount::getShardNo).toList());
+        }
+        if (mainBalance != null) {
+            balanceRepository.setBalance(walletId, currency, newBalanceAmount);
+        } else {
+            balanceRepository.upsertCredit(walletId, currency, newBalanceAmount);
+        }
+    }
+
+    private void ensureMainRow(Long walletId, String currency) {
+        BalanceKey key = new BalanceKey(walletId, currency);
+        if (knownMainRows.contains(key)) {
+            return;
+        }
+        if (balanceRepository.existsByWallet_IdAndCurrency(walletId, currency)) {
+            knownMainRows.add(key);
+            return;
+        }
+        if (!walletRepository.existsById(walletId)) {
+            throw new EntityNotFoundException("Cüzdan bulunamadı: " + walletId);
+        }
+        // Cüzdan aramaları (e-posta, para birimi) ana satıra dayandığı için sıfır bakiyeli satır açılır.
+        // Transaction geri alınabileceği için satır bir sonraki girişte tekrar doğrulanır.
+        balanceRepository.upsertCredit(walletId, currency, BigDecimal.ZERO);
+    }
+}
@@ -0,0 +1,77 @@
+package org.bozgeyik.paymentservice.service.ledger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * İyimser kilitleme modunda cüzdan bazında yazma çakışmalarını sayar.
+ * Bir zaman penceresi içinde çakışma oranı eşiği aşan cüzdanlar "sıcak" kabul edilir ve
+ * pencere bitene kadar bu cüzdanlar için doğrudan kötümser kilitleme kullanılır.
+ */
+@Component
+public class WalletContentionTracker {
+
+    // İzlenen cüzdan sayısı bu değeri aşarsa süresi dolmuş pencereler temizlenir.
+    private static final int MAX_TRACKED_WALLETS = 100_000;
+
+    private final Map<Long, Window> windows = new ConcurrentHashMap<>();
+
+    @Value("${payment.ledger.optimistic.hot-conflict-ratio:0.2}")
+    private double hotConflictRatio;
+
+    @Value("${payment.ledger.optimistic.hot-min-samples:20}")
+    private int hotMinSamples;
+
+    @Value("${payment.ledger.optimistic.stats-window-seconds:60}")
+    private long windowSeconds;
+
+    /**
+     * Cüzdanın şu anda iyimser yazma için fazla çekişmeli olup olmadığını döner.
+     */
+    public boolean isHot(Long walletId) {
+        Window window = windows.get(walletId);
+        if (window == null || window.isExpired(System.currentTimeMillis(), windowSeconds * 1000)) {
+            return false;
+        }
+        int attempts = window.attempts.get();
+        return attempts >= hotMinSamples && window.conflicts.get() >= attempts * hotConflictRatio;
+    }
+
+    public void recordSuccess(Long walletId) {
+        currentWindow(walletId).attempts.incrementAndGet();
+    }
+
+    public void recordConflict(Long walletId) {
+        Window window = currentWindow(walletId);
+        window.attempts.incrementAndGet();
+        window.conflicts.incrementAndGet();
+    }
+
+    private Window currentWindow(Long walletId) {
+        long now = System.currentTimeMillis();
+        long windowMillis = windowSeconds * 1000;
+        if (windows.size() > MAX_TRACKED_WALLETS) {
+            windows.values().removeIf(w -> w.isExpired(now, windowMillis));
+        }
+        return windows.compute(walletId, (id, existing) ->
+                existing == null || existing.isExpired(now, windowMillis) ? new Window(now) : existing);
+    }
+
+    private static final class Window {
+        private final long startedAt;
+        private final AtomicInteger attempts = new AtomicInteger();
+        private final AtomicInteger conflicts = new AtomicInteger();
+
+        private Window(long startedAt) {
+            this.startedAt = startedAt;
+        }
+
+        private boolean isExpired(long now, long windowMillis) {
+            return now - startedAt >= windowMillis;
+        }
+    }
+}
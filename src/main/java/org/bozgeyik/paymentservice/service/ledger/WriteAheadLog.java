@@ -0,0 +1,215 @@
+package org.bozgeyik.paymentservice.service.ledger;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Bir bölümün (partition) bakiye komutlarını yalnızca ekleyerek yazan, segmentlere bölünmüş önyazım günlüğü (WAL).
+ * <p>
+ * Her kayıt sıra numarası, cüzdan ID'si, para birimi, 4 ondalık basamaklı tutar, komuta yol açan işlemin idempotency
+ * anahtarı (uzunluğuyla birlikte, UTF-8) ve CRC32'den oluşur. {@link #sync()} çağrılana kadar kayıtlar kalıcı sayılmaz. Açılışta CRC'si tutmayan veya yarım kalmış son kayıt
+ * (yazma sırasında çökme) atılır ve dosya o noktadan kesilir.
+ * Segment dosyaları {@code wal-<bölüm>-<ilk sıra no>.log} adıyla tutulur; veritabanına işlenmiş segmentler silinir.
+ * Anahtarsız (sabit uzunluklu) eski biçimdeki kayıtlar okunamaz; sürüm yükseltmeden önce motor düzgün kapatılmalı ve
+ * tüm kayıtlar veritabanına işlenmiş olmalıdır.
+ * <p>
+ * Sınıf, bölümün yazıcı thread'i ve veritabanı uygulayıcısı tarafından birlikte kullanıldığı için senkronizedir.
+ */
+@Slf4j
+public class WriteAheadLog implements AutoCloseable {
+
+    public static final int SCALE = 4;
+    // Anahtar hariç kayıt uzunluğu: sıra no, cüzdan ID'si, para birimi, tutar, anahtar uzunluğu ve CRC32.
+    static final int FIXED_SIZE = 8 + 8 + 3 + 8 + 2 + 4;
+    static final int MAX_REFERENCE_BYTES = 1024;
+
+    private final Path directory;
+    private final int partition;
+    private final long segmentBytes;
+    private final ByteBuffer buffer = ByteBuffer.allocate(FIXED_SIZE + MAX_REFERENCE_BYTES);
+
+    private FileChannel active;
+    private long lastSequence;
+
+    /**
+     * @param reference Komuta yol açan işlemin idempotency anahtarı; bilinmiyorsa {@code null}.
+     */
+    public record Record(long sequence, long walletId, String currency, BigDecimal delta, String reference) {
+    }
+
+    public WriteAheadLog(Path directory, int partition, long segmentBytes) {
+        this.directory = directory;
+        this.partition = partition;
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * Mevcut segmentleri okuyup, verilen sıra numarasından sonraki geçerli kayıtları sırayla tüketiciye verir
+     * ve günlüğü yeni kayıtlar için hazırlar.
+     *
+     * @param afterSequence Bu sıra numarasına kadarki (dahil) kayıtlar atlanır.
+     * @param consumer      Geri oynatılacak kayıtların tüketicisi.
+     * @return Günlükteki en büyük geçerli sıra numarası (kayıt yoksa 0).
+     */
+    public synchronized long open(long afterSequence, Consumer<Record> consumer) throws IOException {
+        Files.createDirectories(directory);
+        List<Path> segments = segments();
+        for (int i = 0; i < segments.size(); i++) {
+            boolean last = i == segments.size() - 1;
+            replaySegment(segments.get(i), afterSequence, consumer, last);
+        }
+        if (segments.isEmpty()) {
+            roll(Math.max(lastSequence, afterSequence) + 1);
+        } else {
+            Path tail = segments.get(segments.size() - 1);
+            active = FileChannel.open(tail, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return lastSequence;
+    }
+
+    /**
+     * Kaydı günlüğe ekler. Kayıt, {@link #sync()} çağrılana kadar kalıcı değildir.
+     */
+    public synchronized void append(Record record) throws IOException {
+        if (active.size() >= segmentBytes) {
+            active.force(false);
+            active.close();
+            roll(record.sequence());
+        }
+        byte[] reference = record.reference() != null ? record.reference().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        if (reference.length > MAX_REFERENCE_BYTES) {
+            throw new IllegalArgumentException("Idempotency anahtarı WAL kaydı için çok uzun: " + reference.length + " bayt");
+        }
+        buffer.clear();
+        buffer.putLong(record.sequence());
+        buffer.putLong(record.walletId());
+        buffer.put(record.currency().getBytes(StandardCharsets.US_ASCII), 0, 3);
+        buffer.putLong(record.delta().setScale(SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact());
+        buffer.putShort((short) reference.length);
+        buffer.put(reference);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            active.write(buffer);
+        }
+        lastSequence = record.sequence();
+    }
+
+    /**
+     * Eklenen kayıtları diske zorlar (fsync). Dönüşünden sonra kayıtlar çökmeye karşı kalıcıdır.
+     */
+    public synchronized void sync() throws IOException {
+        active.force(false);
+    }
+
+    /**
+     * Tüm kayıtları verilen sıra numarasına kadar (dahil) olan ve etkin olmayan segmentleri siler.
+     */
+    public synchronized void deleteSegmentsUpTo(long sequence) throws IOException {
+        List<Path> segments = segments();
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            // Bir segmentin son kaydı, bir sonraki segmentin ilk sıra numarasından bir öncekidir. Etkin segment hep sondadır.
+            if (firstSequenceOf(segments.get(i + 1)) - 1 <= sequence) {
+                Files.deleteIfExists(segments.get(i));
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (active != null && active.isOpen()) {
+            active.force(false);
+            active.close();
+        }
+    }
+
+    private void replaySegment(Path segment, long afterSequence, Consumer<Record> consumer, boolean last) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer record = ByteBuffer.allocate(FIXED_SIZE + MAX_REFERENCE_BYTES);
+            long position = 0;
+            long size = channel.size();
+            while (position + FIXED_SIZE <= size) {
+                record.clear();
+                record.limit(FIXED_SIZE - 4);
+                channel.read(record, position);
+                int referenceLength = record.getShort(FIXED_SIZE - 6) & 0xFFFF;
+                int recordSize = FIXED_SIZE + referenceLength;
+                // Bozuk bir uzunluk alanı da yarım kayıt gibi ele alınır; CRC'ye kadar okunamaz.
+                if (referenceLength > MAX_REFERENCE_BYTES || position + recordSize > size) {
+                    break;
+                }
+                record.limit(recordSize);
+                channel.read(record, position + FIXED_SIZE - 4);
+                CRC32 crc = new CRC32();
+                crc.update(record.array(), 0, recordSize - 4);
+                if ((int) crc.getValue() != record.getInt(recordSize - 4)) {
+                    break;
+                }
+                record.flip();
+                long sequence = record.getLong();
+                long walletId = record.getLong();
+                byte[] currency = new byte[3];
+                record.get(currency);
+                BigDecimal delta = BigDecimal.valueOf(record.getLong(), SCALE);
+                record.getShort();
+                String reference = referenceLength > 0
+                        ? new String(record.array(), FIXED_SIZE - 4, referenceLength, StandardCharsets.UTF_8) : null;
+                if (sequence > afterSequence) {
+                    consumer.accept(new Record(sequence, walletId, new String(currency, StandardCharsets.US_ASCII), delta, reference));
+                }
+                lastSequence = Math.max(lastSequence, sequence);
+                position += recordSize;
+            }
+            if (position < size) {
+                if (!last) {
+                    throw new IOException("WAL segmenti bozuk: " + segment + " (konum " + position + ")");
+                }
+                // Çökme sırasında yarım kalan son kayıt; hiç onaylanmadığı için güvenle atılır.
+                log.warn("WAL sonundaki yarım kayıt atılıyor: {} ({} bayt)", segment, size - position);
+                channel.truncate(position);
+                channel.force(false);
+            }
+        }
+    }
+
+    private void roll(long firstSequence) throws IOException {
+        Path segment = directory.resolve(String.format("wal-%d-%020d.log", partition, firstSequence));
+        active = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        // Dosyanın dizin kaydı da diske zorlanır; aksi halde çökmeden sonra segment, fsync edilmiş kayıtlarıyla
+        // birlikte kaybolabilir.
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        String prefix = "wal-" + partition + "-";
+        try (Stream<Path> files = Files.list(directory)) {
+            return new ArrayList<>(files
+                    .filter(p -> p.getFileName().toString().startsWith(prefix) && p.getFileName().toString().endsWith(".log"))
+                    .sorted()
+                    .toList());
+        }
+    }
+
+    private long firstSequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(name.lastIndexOf('-') + 1, name.length() - ".log".length()));
+    }
+}
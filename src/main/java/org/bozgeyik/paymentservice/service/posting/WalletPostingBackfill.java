@@ -0,0 +1,149 @@
+package org.bozgeyik.paymentservice.service.posting;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@code wallet_postings} tablosunu, tablo eklenmeden önce yazılmış işlemler için doldurur.
+ * <p>
+ * İşlemler ID sırasıyla, {@code batch-size}'lık gruplar halinde okunur (her grup bir önceki grubun son ID'sinden
+ * devam eder); her grubun satırları kendi transaction'ında yazılır. Canlı yazılar iş sürerken de satır ürettiği için
+ * ekleme {@code INSERT IGNORE} ile yapılır: zaten yazılmış taraflar benzersiz anahtarla atlanır. Bu yüzden iş
+ * herhangi bir ID'den (veya baştan) yeniden çalıştırılabilir. Sona ulaşıldığında tüm işlemlerin tarafları yazılmış
+ * olur; ardından {@code payment.postings.read-enabled} açılabilir.
+ */
+@Service
+@Slf4j
+public class WalletPostingBackfill {
+
+    private static final String BATCH_SQL = "SELECT id, from_wallet_id, to_wallet_id, original_amount, original_currency, " +
+            "converted_amount, target_currency, transaction_date FROM transactions WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String INSERT_IGNORE_SQL = "INSERT IGNORE INTO wallet_postings " + WalletPostings.COLUMNS;
+
+    /**
+     * Çalışan veya son biten doldurma işinin durumu.
+     *
+     * @param lastTransactionId İşlenen son işlem ID'si; iş buradan yeniden başlatılabilir.
+     * @param error             İş hatayla bittiyse hata mesajı.
+     */
+    public record Progress(boolean running, long fromTransactionId, long lastTransactionId, long transactions,
+                           long postings, LocalDateTime startedAt, LocalDateTime finishedAt, String error) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile Progress progress;
+
+    private ExecutorService runner;
+
+    @Value("${payment.postings.backfill-batch-size:5000}")
+    private int batchSize;
+
+    public WalletPostingBackfill(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    void start() {
+        runner = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("posting-backfill").factory());
+    }
+
+    @PreDestroy
+    void stop() {
+        runner.shutdownNow();
+    }
+
+    public Progress progress() {
+        return progress;
+    }
+
+    /**
+     * Doldurmayı arka planda başlatır.
+     *
+     * @param fromTransactionId Bu ID'den sonraki işlemler işlenir ({@code 0}: baştan).
+     * @return Başka bir çalıştırma sürüyorsa {@code false}.
+     */
+    public boolean startAsync(long fromTransactionId) {
+        if (running.get()) {
+            return false;
+        }
+        runner.execute(() -> {
+            try {
+                backfill(fromTransactionId);
+            } catch (RuntimeException e) {
+                log.error("wallet_postings doldurma başarısız: {}", e.getMessage(), e);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Doldurmayı çalıştırır ve bitene kadar bekler.
+     *
+     * @throws IllegalStateException Eğer başka bir çalıştırma sürüyorsa.
+     */
+    public Progress backfill(long fromTransactionId) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("wallet_postings doldurma zaten çalışıyor.");
+        }
+        LocalDateTime startedAt = LocalDateTime.now();
+        long lastId = fromTransactionId;
+        long transactions = 0;
+        long postings = 0;
+        progress = new Progress(true, fromTransactionId, lastId, 0, 0, startedAt, null, null);
+        log.info("wallet_postings doldurma başladı: işlem {} sonrası", fromTransactionId);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                long after = lastId;
+                List<Object[]> rows = new ArrayList<>(batchSize * 2);
+                long[] batch = {after, 0};
+                jdbcTemplate.query(BATCH_SQL, (RowCallbackHandler) rs -> {
+                    batch[0] = rs.getLong("id");
+                    batch[1]++;
+                    rows.addAll(WalletPostings.rowsOf(batch[0], rs.getTimestamp("transaction_date").toLocalDateTime(),
+                            WalletPostings.sidesOf(nullableLong(rs.getLong("from_wallet_id"), rs.wasNull()),
+                                    nullableLong(rs.getLong("to_wallet_id"), rs.wasNull()),
+                                    rs.getBigDecimal("original_amount"), rs.getString("original_currency"),
+                                    rs.getBigDecimal("converted_amount"), rs.getString("target_currency"))));
+                }, after, batchSize);
+                if (batch[1] == 0) {
+                    break;
+                }
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_IGNORE_SQL, rows));
+                lastId = batch[0];
+                transactions += batch[1];
+                postings += rows.size();
+                progress = new Progress(true, fromTransactionId, lastId, transactions, postings, startedAt, null, null);
+            }
+            progress = new Progress(false, fromTransactionId, lastId, transactions, postings, startedAt, LocalDateTime.now(), null);
+            log.info("wallet_postings doldurma tamamlandı: {} işlem, {} satır (son işlem {})", transactions, postings, lastId);
+            return progress;
+        } catch (RuntimeException e) {
+            progress = new Progress(false, fromTransactionId, lastId, transactions, postings, startedAt, LocalDateTime.now(),
+                    String.valueOf(e.getMessage()));
+            throw e;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private static Long nullableLong(long value, boolean wasNull) {
+        return wasNull ? null : value;
+    }
+}
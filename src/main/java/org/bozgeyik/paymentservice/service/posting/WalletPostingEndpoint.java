@@ -0,0 +1,33 @@
+package org.bozgeyik.paymentservice.service.posting;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code /actuator/postings}: GET doldurma işinin durumunu döner, POST arka planda doldurmayı başlatır
+ * (gövde: {@code {"fromTransactionId": 123}} yarıda kalan bir işe o ID'den devam eder).
+ */
+@Component
+@Endpoint(id = "postings")
+@RequiredArgsConstructor
+public class WalletPostingEndpoint {
+
+    private final WalletPostingBackfill backfill;
+
+    @ReadOperation
+    public WalletPostingBackfill.Progress progress() {
+        return backfill.progress();
+    }
+
+    @WriteOperation
+    public Map<String, Object> start(@Nullable Long fromTransactionId) {
+        boolean started = backfill.startAsync(fromTransactionId != null ? fromTransactionId : 0L);
+        return Map.of("started", started, "message", started ? "Doldurma başlatıldı." : "Doldurma zaten çalışıyor.");
+    }
+}
@@ -0,0 +1,79 @@
+package org.bozgeyik.paymentservice.service.posting;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bozgeyik.paymentservice.model.EntryDirection;
+import org.bozgeyik.paymentservice.model.Transaction;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * İşlemlerin cüzdan taraflarını ({@code wallet_postings}) yazar. Satırlar tek bir JDBC batch ile, çağıranın
+ * transaction'ında yazılır; işlem geri alınırsa satırlar da geri alınır.
+ */
+@Component
+@Slf4j
+public class WalletPostings {
+
+    static final String COLUMNS = "(wallet_id, transaction_id, transaction_date, direction, amount, currency) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_SQL = "INSERT INTO wallet_postings " + COLUMNS;
+
+    /**
+     * İşlemin bir cüzdan tarafı.
+     *
+     * @param amount İşaretli tutar (gönderende negatif); hesaplanmamışsa {@code null}.
+     */
+    record Side(Long walletId, EntryDirection direction, BigDecimal amount, String currency) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public WalletPostings(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Kaydedilmiş (ID'si ve tarihi atanmış) bir işlemin cüzdan taraflarını yazar.
+     */
+    public void record(Transaction transaction) {
+        List<Side> sides = sidesOf(transaction.getFromWalletId(), transaction.getToWalletId(),
+                transaction.getOriginalAmount(), transaction.getOriginalCurrency(),
+                transaction.getConvertedAmount(), transaction.getTargetCurrency());
+        if (sides.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rowsOf(transaction.getId(), transaction.getTransactionDate(), sides));
+        log.debug("İşlem {} için {} cüzdan satırı yazıldı", transaction.getId(), sides.size());
+    }
+
+    /**
+     * Gönderen cüzdan kaynak para biriminde −{@code originalAmount}, alıcı cüzdan hedef para biriminde
+     * +{@code convertedAmount} alır. Cüzdanı olmayan taraf (para yatırmada gönderen, dış transferde alıcı) yazılmaz.
+     */
+    static List<Side> sidesOf(Long fromWalletId, Long toWalletId, BigDecimal originalAmount, String originalCurrency,
+                              BigDecimal convertedAmount, String targetCurrency) {
+        List<Side> sides = new ArrayList<>(2);
+        if (fromWalletId != null) {
+            sides.add(new Side(fromWalletId, EntryDirection.DEBIT,
+                    originalAmount != null ? originalAmount.negate() : null, originalCurrency));
+        }
+        if (toWalletId != null) {
+            sides.add(new Side(toWalletId, EntryDirection.CREDIT, convertedAmount, targetCurrency));
+        }
+        return sides;
+    }
+
+    static List<Object[]> rowsOf(Long transactionId, LocalDateTime transactionDate, List<Side> sides) {
+        Timestamp date = Timestamp.valueOf(transactionDate);
+        List<Object[]> rows = new ArrayList<>(sides.size());
+        for (Side side : sides) {
+            rows.add(new Object[]{side.walletId(), transactionId, date, side.direction().name(), side.amount(), side.currency()});
+        }
+        return rows;
+    }
+}
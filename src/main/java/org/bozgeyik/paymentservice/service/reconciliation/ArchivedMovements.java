@@ -0,0 +1,30 @@
+package org.bozgeyik.paymentservice.service.reconciliation;
+
+import org.bozgeyik.paymentservice.model.TransactionStatus;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Arşive taşınan işlemlerin bakiyelere net hareketini, satırlar arşivlenirken toplar. Toplamlar
+ * {@link ReconciliationService#recordArchivedMovements} ile kaydedilir; tam mutabakat taraması artık sıcak tabloda
+ * olmayan bu işlemleri böylece hesaba katar. Thread-safe değildir.
+ */
+public final class ArchivedMovements {
+
+    private final BalanceTotals totals = new BalanceTotals();
+
+    /**
+     * Sonuç kümesindeki mevcut işlem satırını ekler; satır {@link MovementScanTask#MOVEMENT_COLUMNS} sütunlarını ve
+     * {@code status}'u içermelidir. Tamamlanmamış işlemler atlanır.
+     */
+    public void add(ResultSet rs) throws SQLException {
+        if (TransactionStatus.COMPLETED.name().equals(rs.getString("status"))) {
+            MovementScanTask.accumulate(rs, totals);
+        }
+    }
+
+    BalanceTotals totals() {
+        return totals;
+    }
+}
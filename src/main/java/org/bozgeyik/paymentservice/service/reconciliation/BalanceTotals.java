@@ -0,0 +1,134 @@
+package org.bozgeyik.paymentservice.service.reconciliation;
+
+/**
+ * (cüzdan, para birimi) → tutar eşlemesi; anahtar ve değerler ilkel {@code long} dizilerinde, açık adreslemeyle tutulur.
+ * Satır başına nesne oluşturmadığı için on milyonlarca işlemin toplanmasında bellek kullanımı yalnızca farklı
+ * bakiye sayısıyla orantılıdır.
+ * <p>
+ * Anahtar, cüzdan ID'si (en fazla 2^42) ve 3 karakterlik ASCII para birimi kodunun tek bir {@code long}'a
+ * paketlenmesidir. Tutarlar 4 ondalık basamaklı birim cinsindendir. Thread-safe değildir; her fork/join görevi
+ * kendi örneğini doldurur ve sonuçlar birleştirilir.
+ */
+final class BalanceTotals {
+
+    private static final int CURRENCY_BITS = 21;
+    private static final long MAX_WALLET_ID = (1L << (63 - CURRENCY_BITS)) - 1;
+
+    /**
+     * Anahtar/değer çiftlerinin tüketicisi.
+     */
+    interface EntryConsumer {
+        void accept(long key, long units);
+    }
+
+    // 0, boş yuva anlamına gelir; cüzdan ID'leri 1'den başladığı için geçerli bir anahtar 0 olamaz.
+    private long[] keys;
+    private long[] values;
+    private int size;
+
+    BalanceTotals() {
+        this(1024);
+    }
+
+    BalanceTotals(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new long[capacity];
+    }
+
+    static long key(long walletId, String currency) {
+        if (walletId <= 0 || walletId > MAX_WALLET_ID || currency.length() != 3) {
+            throw new IllegalArgumentException("Desteklenmeyen bakiye anahtarı: " + walletId + " " + currency);
+        }
+        long packed = walletId << CURRENCY_BITS;
+        for (int i = 0; i < 3; i++) {
+            char c = currency.charAt(i);
+            if (c > 0x7F) {
+                throw new IllegalArgumentException("Desteklenmeyen para birimi: " + currency);
+            }
+            packed |= (long) c << (7 * (2 - i));
+        }
+        return packed;
+    }
+
+    static long walletIdOf(long key) {
+        return key >>> CURRENCY_BITS;
+    }
+
+    static String currencyOf(long key) {
+        return new String(new char[]{
+                (char) ((key >>> 14) & 0x7F), (char) ((key >>> 7) & 0x7F), (char) (key & 0x7F)});
+    }
+
+    void add(long key, long units) {
+        int slot = slotOf(key);
+        if (keys[slot] == key) {
+            values[slot] = Math.addExact(values[slot], units);
+            return;
+        }
+        keys[slot] = key;
+        values[slot] = units;
+        if (++size * 4 >= keys.length * 3) {
+            grow();
+        }
+    }
+
+    long get(long key) {
+        int slot = slotOf(key);
+        return keys[slot] == key ? values[slot] : 0L;
+    }
+
+    boolean containsKey(long key) {
+        return keys[slotOf(key)] == key;
+    }
+
+    void addAll(BalanceTotals other) {
+        other.forEach(this::add);
+    }
+
+    void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Anahtarın bulunduğu veya yerleşeceği yuva (doğrusal yoklama).
+    private int slotOf(long key) {
+        int mask = keys.length - 1;
+        int slot = (int) mix(key) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[oldKeys.length << 1];
+        values = new long[oldKeys.length << 1];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static long mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    @Override
+    public String toString() {
+        return "BalanceTotals[size=" + size + ", capacity=" + keys.length + "]";
+    }
+}
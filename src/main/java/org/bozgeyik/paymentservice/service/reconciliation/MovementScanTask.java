@@ -0,0 +1,108 @@
+package org.bozgeyik.paymentservice.service.reconciliation;
+
+import org.bozgeyik.paymentservice.model.CurrencyRegistry;
+import org.bozgeyik.paymentservice.model.TransactionType;
+import org.bozgeyik.paymentservice.service.PaymentOrchestratorService;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@code (fromId, toId]} aralığındaki tamamlanmış işlemlerin bakiyelere net etkisini toplayan fork/join görevi.
+ * Aralık {@code chunkSize} ID'den küçük olana kadar ikiye bölünür; her parça tek bir sorguyla okunur.
+ * Böylece bellekte aynı anda yalnızca paralellik kadar parçanın satırları bulunur.
+ * <p>
+ * Hareket kuralları ({@link #accumulate}):
+ * <ul>
+ *     <li>Gönderen cüzdan: kaynak para biriminde −{@code original_amount}. Dış transferlerde komisyon da düşülür.</li>
+ *     <li>Alıcı cüzdan: hedef para biriminde +{@code converted_amount}.</li>
+ * </ul>
+ */
+class MovementScanTask extends RecursiveTask<BalanceTotals> {
+
+    static final String MOVEMENT_COLUMNS = "SELECT from_wallet_id, to_wallet_id, original_amount, original_currency, " +
+            "converted_amount, target_currency, transaction_type, fee_amount FROM transactions ";
+
+    private static final String CHUNK_SQL = MOVEMENT_COLUMNS + "WHERE id > ? AND id <= ? AND status = 'COMPLETED'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long fromId;
+    private final long toId;
+    private final long chunkSize;
+    private final LongAdder scanned;
+
+    MovementScanTask(JdbcTemplate jdbcTemplate, long fromId, long toId, long chunkSize, LongAdder scanned) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fromId = fromId;
+        this.toId = toId;
+        this.chunkSize = chunkSize;
+        this.scanned = scanned;
+    }
+
+    @Override
+    protected BalanceTotals compute() {
+        if (toId - fromId <= chunkSize) {
+            return scanChunk();
+        }
+        long middle = fromId + (toId - fromId) / 2;
+        MovementScanTask left = new MovementScanTask(jdbcTemplate, fromId, middle, chunkSize, scanned);
+        MovementScanTask right = new MovementScanTask(jdbcTemplate, middle, toId, chunkSize, scanned);
+        left.fork();
+        BalanceTotals rightTotals = right.compute();
+        BalanceTotals leftTotals = left.join();
+        // Küçük olan büyüğe eklenir; birleşik sonuç yeniden boyutlanmayı en aza indirir.
+        if (leftTotals.size() >= rightTotals.size()) {
+            leftTotals.addAll(rightTotals);
+            return leftTotals;
+        }
+        rightTotals.addAll(leftTotals);
+        return rightTotals;
+    }
+
+    private BalanceTotals scanChunk() {
+        BalanceTotals totals = new BalanceTotals();
+        jdbcTemplate.query(CHUNK_SQL, (RowCallbackHandler) rs -> {
+            accumulate(rs, totals);
+            scanned.increment();
+        }, fromId, toId);
+        return totals;
+    }
+
+    /**
+     * Sonuç kümesindeki mevcut işlem satırının ({@link #MOVEMENT_COLUMNS}) hareketlerini toplamlara ekler.
+     */
+    static void accumulate(ResultSet rs, BalanceTotals totals) throws SQLException {
+        long fromWalletId = rs.getLong("from_wallet_id");
+        if (!rs.wasNull()) {
+            BigDecimal amount = rs.getBigDecimal("original_amount");
+            long units = toUnits(amount);
+            if (TransactionType.EXTERNAL_TRANSFER.name().equals(rs.getString("transaction_type"))) {
+                BigDecimal fee = rs.getBigDecimal("fee_amount");
+                // Komisyon sütunundan önceki kayıtlarda komisyon, aynı kuralla yeniden hesaplanır.
+                units = Math.addExact(units, toUnits(fee != null ? fee : legacyFee(amount)));
+            }
+            totals.add(BalanceTotals.key(fromWalletId, rs.getString("original_currency")), -units);
+        }
+        long toWalletId = rs.getLong("to_wallet_id");
+        if (!rs.wasNull()) {
+            totals.add(BalanceTotals.key(toWalletId, rs.getString("target_currency")), toUnits(rs.getBigDecimal("converted_amount")));
+        }
+    }
+
+    static long toUnits(BigDecimal amount) {
+        if (amount == null) {
+            return 0L;
+        }
+        return amount.setScale(CurrencyRegistry.LEDGER_SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    private static BigDecimal legacyFee(BigDecimal amount) {
+        return amount == null ? null : amount.multiply(PaymentOrchestratorService.SWIFT_FEE_RATE);
+    }
+}
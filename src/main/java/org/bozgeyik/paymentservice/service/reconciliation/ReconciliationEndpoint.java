@@ -0,0 +1,33 @@
+package org.bozgeyik.paymentservice.service.reconciliation;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code /actuator/reconciliation}: GET son çalıştırmanın raporunu döner, POST arka planda yeni bir çalıştırma başlatır
+ * (gövde: {@code {"full": true}} tüm işlemleri baştan tarar).
+ */
+@Component
+@Endpoint(id = "reconciliation")
+@RequiredArgsConstructor
+public class ReconciliationEndpoint {
+
+    private final ReconciliationService reconciliationService;
+
+    @ReadOperation
+    public ReconciliationReport lastReport() {
+        return reconciliationService.lastReport().orElse(null);
+    }
+
+    @WriteOperation
+    public Map<String, Object> start(@Nullable Boolean full) {
+        boolean started = reconciliationService.startAsync(Boolean.TRUE.equals(full));
+        return Map.of("started", started, "message", started ? "Mutabakat başlatıldı." : "Mutabakat zaten çalışıyor.");
+    }
+}
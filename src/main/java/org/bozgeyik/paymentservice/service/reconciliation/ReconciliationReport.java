@@ -0,0 +1,31 @@
+package org.bozgeyik.paymentservice.service.reconciliation;
+
+import org.bozgeyik.paymentservice.model.ReconciliationMismatch;
+import org.bozgeyik.paymentservice.model.ReconciliationRun;
+import org.bozgeyik.paymentservice.model.ReconciliationStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Bir mutabakat çalıştırmasının özeti ve uyuşmazlıklardan bir örnek (en fazla 100).
+ */
+public record ReconciliationReport(Long runId,
+                                   boolean fullScan,
+                                   ReconciliationStatus status,
+                                   Long fromTransactionId,
+                                   Long toTransactionId,
+                                   Long scannedTransactions,
+                                   Long checkedBalances,
+                                   Long mismatchCount,
+                                   LocalDateTime startedAt,
+                                   LocalDateTime finishedAt,
+                                   String error,
+                                   List<ReconciliationMismatch> mismatches) {
+
+    static ReconciliationReport of(ReconciliationRun run, List<ReconciliationMismatch> mismatches) {
+        return new ReconciliationReport(run.getId(), run.isFullScan(), run.getStatus(), run.getFromTransactionId(),
+                run.getToTransactionId(), run.getScannedTransactions(), run.getCheckedBalances(), run.getMismatchCount(),
+                run.getStartedAt(), run.getFinishedAt(), run.getError(), mismatches);
+    }
+}
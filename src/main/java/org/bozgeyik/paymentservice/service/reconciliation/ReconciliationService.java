@@ -0,0 +1,396 @@
+package org.bozgeyik.paymentservice.service.reconciliation;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bozgeyik.paymentservice.model.CurrencyRegistry;
+import org.bozgeyik.paymentservice.model.ReconciliationMismatch;
+import org.bozgeyik.paymentservice.model.ReconciliationRun;
+import org.bozgeyik.paymentservice.model.ReconciliationStatus;
+import org.bozgeyik.paymentservice.repository.ReconciliationMismatchRepository;
+import org.bozgeyik.paymentservice.repository.ReconciliationRunRepository;
+import org.bozgeyik.paymentservice.service.ClusterLock;
+import org.bozgeyik.paymentservice.service.CommitWatermark;
+import org.bozgeyik.paymentservice.service.ledger.InMemoryLedgerEngine;
+import org.bozgeyik.paymentservice.service.ledger.LedgerMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.bozgeyik.paymentservice.service.reconciliation.MovementScanTask.toUnits;
+
+/**
+ * {@code wallet_balances} ile tamamlanmış işlemlerin ({@code transactions}) tutarlılığını denetleyen mutabakat motoru.
+ * <p>
+ * Bir bakiyenin beklenen değeri, açılış bakiyesi ile o bakiyeyi etkileyen tamamlanmış işlemlerin net hareketinin
+ * toplamıdır. Gerçek değer bakiye satırı, sıcak cüzdan parçaları ve ({@link LedgerMode#JOURNAL} modunda)
+ * yevmiye satırlarından oluşur. Bir çalıştırma şu adımlardan oluşur:
+ * <ol>
+ *     <li>İşlemler ID aralıklarına bölünerek fork/join ile paralel taranır ({@link MovementScanTask}); net hareketler
+ *     ilkel anahtarlı eşlemelerde ({@link BalanceTotals}) toplanır.</li>
+ *     <li>Artımlı çalıştırmalarda yalnızca son kontrol noktasından sonraki işlemler taranır ve
+ *     {@code reconciliation_totals}'taki önceki toplamlara eklenir.</li>
+ *     <li>Bakiyeler tek geçişte okunup karşılaştırılır. Uyuşmayan her bakiye, o sırada işlenmekte olan işlemlerden
+ *     kaynaklanan geçici farkları elemek için tek bir tutarlı okuma (REPEATABLE READ) içinde yeniden kontrol edilir.</li>
+ *     <li>Uyuşmazlıklar {@code reconciliation_mismatches}'e, yeni toplamlar ve kontrol noktası tek transaction'da yazılır.</li>
+ * </ol>
+ * Yeni kontrol noktası {@link CommitWatermark} ile belirlenir: ona kadarki tüm işlemler commit edilmiş veya geri
+ * alınmıştır, bu yüzden sonradan commit edilen bir işlem iki kontrol noktası arasında kaybolmaz. Toplamlar ve kontrol
+ * noktası paylaşıldığından bir çalıştırma {@link ClusterLock} ile tüm instance'lar arasında tektir; kilidi alamayan
+ * instance çalıştırmayı atlar. Arşive taşınan işlemler sıcak tabloda olmadığından tam taramalar,
+ * arşivleme sırasında kaydedilen hareketlerden ({@code reconciliation_archived_totals}) başlar. {@link LedgerMode#IN_MEMORY} modunda yeniden kontrol bellekteki bakiyeyi kullanır.
+ */
+@Service
+@Slf4j
+public class ReconciliationService {
+
+    private static final String TOTALS_SQL = "SELECT wallet_id, currency, net_amount FROM reconciliation_totals";
+    private static final String ARCHIVED_TOTALS_SQL = "SELECT wallet_id, currency, net_amount FROM reconciliation_archived_totals";
+    private static final String BALANCES_SQL = "SELECT wallet_id, currency, balance, opening_balance FROM wallet_balances";
+    private static final String SHARDS_SQL =
+            "SELECT wallet_id, currency, SUM(balance) AS balance FROM wallet_balance_shards GROUP BY wallet_id, currency";
+    private static final String JOURNAL_SQL = "SELECT wallet_id, currency, " +
+            "SUM(CASE WHEN direction = 'CREDIT' THEN amount ELSE -amount END) AS balance " +
+            "FROM ledger_entries WHERE account_type = 'WALLET' GROUP BY wallet_id, currency";
+    private static final String UPSERT_TOTAL_SQL = "INSERT INTO reconciliation_totals (wallet_id, currency, net_amount) " +
+            "VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE net_amount = net_amount + VALUES(net_amount)";
+    private static final String UPSERT_ARCHIVED_TOTAL_SQL = "INSERT INTO reconciliation_archived_totals " +
+            "(wallet_id, currency, net_amount) VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE net_amount = net_amount + VALUES(net_amount)";
+    private static final String INSERT_MISMATCH_SQL = "INSERT INTO reconciliation_mismatches " +
+            "(run_id, wallet_id, currency, expected_balance, actual_balance, difference) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String KEY_BALANCE_SQL =
+            "SELECT balance, opening_balance FROM wallet_balances WHERE wallet_id = ? AND currency = ?";
+    private static final String KEY_SHARDS_SQL =
+            "SELECT COALESCE(SUM(balance), 0) FROM wallet_balance_shards WHERE wallet_id = ? AND currency = ?";
+    private static final String KEY_JOURNAL_SQL = "SELECT COALESCE(SUM(CASE WHEN direction = 'CREDIT' THEN amount ELSE -amount END), 0) " +
+            "FROM ledger_entries WHERE account_type = 'WALLET' AND wallet_id = ? AND currency = ?";
+    private static final String KEY_TAIL_SQL = MovementScanTask.MOVEMENT_COLUMNS +
+            "WHERE id > ? AND status = 'COMPLETED' AND (from_wallet_id = ? OR to_wallet_id = ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReconciliationRunRepository runRepository;
+    private final ReconciliationMismatchRepository mismatchRepository;
+    private final InMemoryLedgerEngine inMemoryLedgerEngine;
+    private final CommitWatermark commitWatermark;
+    private final ClusterLock clusterLock;
+    private final TransactionTemplate writeTemplate;
+    private final TransactionTemplate snapshotTemplate;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private ForkJoinPool scanPool;
+    private ExecutorService runner;
+
+    @Value("${payment.ledger.mode:PESSIMISTIC}")
+    private LedgerMode ledgerMode;
+
+    @Value("${payment.reconciliation.parallelism:4}")
+    private int parallelism;
+
+    @Value("${payment.reconciliation.chunk-size:50000}")
+    private long chunkSize;
+
+    @Value("${payment.reconciliation.max-reported-mismatches:10000}")
+    private int maxReportedMismatches;
+
+    @Value("${payment.reconciliation.scheduled:true}")
+    private boolean scheduled;
+
+    public ReconciliationService(JdbcTemplate jdbcTemplate,
+                                 ReconciliationRunRepository runRepository,
+                                 ReconciliationMismatchRepository mismatchRepository,
+                                 InMemoryLedgerEngine inMemoryLedgerEngine,
+                                 CommitWatermark commitWatermark,
+                                 ClusterLock clusterLock,
+                                 PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.runRepository = runRepository;
+        this.mismatchRepository = mismatchRepository;
+        this.inMemoryLedgerEngine = inMemoryLedgerEngine;
+        this.commitWatermark = commitWatermark;
+        this.clusterLock = clusterLock;
+        this.writeTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTemplate.setReadOnly(true);
+    }
+
+    @PostConstruct
+    void start() {
+        // Paralellik, taramanın aynı anda kullandığı veritabanı bağlantısı sayısını da sınırlar.
+        scanPool = new ForkJoinPool(parallelism);
+        runner = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("reconciliation").factory());
+    }
+
+    @PreDestroy
+    void stop() {
+        runner.shutdownNow();
+        scanPool.shutdownNow();
+    }
+
+    /**
+     * Her gece (varsayılan 03:30) artımlı mutabakat çalıştırır.
+     */
+    @Scheduled(cron = "${payment.reconciliation.cron:0 30 3 * * *}")
+    public void scheduledRun() {
+        if (!scheduled) {
+            return;
+        }
+        try {
+            if (tryReconcile(false).isEmpty()) {
+                log.info("Zamanlanmış mutabakat atlandı: başka bir instance'ta çalışıyor.");
+            }
+        } catch (RuntimeException e) {
+            log.error("Zamanlanmış mutabakat başarısız: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Mutabakatı arka planda başlatır.
+     *
+     * @return Başka bir çalıştırma sürüyorsa {@code false}.
+     */
+    public boolean startAsync(boolean fullScan) {
+        if (running.get()) {
+            return false;
+        }
+        runner.execute(() -> {
+            try {
+                if (tryReconcile(fullScan).isEmpty()) {
+                    log.info("Mutabakat başlatılmadı: başka bir instance'ta çalışıyor.");
+                }
+            } catch (RuntimeException e) {
+                log.error("Mutabakat başarısız: {}", e.getMessage(), e);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Son çalıştırmanın (sürüyor olabilir) özetini döner.
+     */
+    public Optional<ReconciliationReport> lastReport() {
+        return runRepository.findFirstByOrderByIdDesc()
+                .map(run -> ReconciliationReport.of(run, mismatchRepository.findTop100ByRunIdOrderByIdAsc(run.getId())));
+    }
+
+    /**
+     * Mutabakatı çalıştırır ve bitene kadar bekler.
+     *
+     * @param fullScan {@code true} ise kontrol noktası yok sayılır ve tüm işlemler baştan taranır.
+     * @throws IllegalStateException Eğer bu veya başka bir instance'ta bir çalıştırma sürüyorsa.
+     */
+    public ReconciliationReport reconcile(boolean fullScan) {
+        return tryReconcile(fullScan)
+                .orElseThrow(() -> new IllegalStateException("Mutabakat başka bir instance'ta çalışıyor."));
+    }
+
+    // Küme kilidi başka bir instance'taysa boş döner.
+    private Optional<ReconciliationReport> tryReconcile(boolean fullScan) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Mutabakat zaten çalışıyor.");
+        }
+        try {
+            Optional<ClusterLock.Held> lock = clusterLock.tryAcquire("reconciliation");
+            if (lock.isEmpty()) {
+                return Optional.empty();
+            }
+            try (ClusterLock.Held held = lock.get()) {
+                return Optional.of(doReconcile(fullScan));
+            }
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private ReconciliationReport doReconcile(boolean fullScanRequested) {
+        ReconciliationRun checkpoint = fullScanRequested ? null
+                : runRepository.findFirstByStatusOrderByIdDesc(ReconciliationStatus.COMPLETED).orElse(null);
+        boolean fullScan = checkpoint == null;
+        long fromId = fullScan ? 0L : checkpoint.getToTransactionId();
+        long toId = commitWatermark.settle("transactions", fromId);
+
+        ReconciliationRun run = new ReconciliationRun();
+        run.setFullScan(fullScan);
+        run.setStatus(ReconciliationStatus.RUNNING);
+        run.setFromTransactionId(fromId);
+        run.setToTransactionId(toId);
+        run.setStartedAt(LocalDateTime.now());
+        run = runRepository.save(run);
+        log.info("Mutabakat başladı: #{} ({}, işlemler {} - {})", run.getId(), fullScan ? "tam" : "artımlı", fromId, toId);
+
+        try {
+            LongAdder scanned = new LongAdder();
+            BalanceTotals delta = toId > fromId
+                    ? scanPool.invoke(new MovementScanTask(jdbcTemplate, fromId, toId, chunkSize, scanned))
+                    : new BalanceTotals();
+
+            BalanceTotals expected = fullScan ? loadTotals(ARCHIVED_TOTALS_SQL) : loadTotals(TOTALS_SQL);
+            expected.addAll(delta);
+            BalanceTotals actual = loadActualMovements(expected.size());
+
+            List<Long> candidates = new ArrayList<>();
+            actual.forEach((key, units) -> {
+                if (units != expected.get(key)) {
+                    candidates.add(key);
+                }
+            });
+            expected.forEach((key, units) -> {
+                if (units != 0 && !actual.containsKey(key)) {
+                    candidates.add(key);
+                }
+            });
+            long checked = actual.size() + candidates.stream().filter(key -> !actual.containsKey(key)).count();
+
+            List<ReconciliationMismatch> mismatches = new ArrayList<>();
+            long mismatchCount = 0;
+            for (long key : candidates) {
+                ReconciliationMismatch mismatch = recheck(key, expected.get(key), toId);
+                if (mismatch != null) {
+                    mismatchCount++;
+                    if (mismatches.size() < maxReportedMismatches) {
+                        mismatches.add(mismatch);
+                    }
+                }
+            }
+
+            ReconciliationRun completed = run;
+            long mismatchTotal = mismatchCount;
+            writeTemplate.executeWithoutResult(status -> {
+                if (fullScan) {
+                    jdbcTemplate.update("DELETE FROM reconciliation_totals");
+                }
+                saveTotals(UPSERT_TOTAL_SQL, fullScan ? expected : delta);
+                saveMismatches(completed.getId(), mismatches);
+                completed.setStatus(ReconciliationStatus.COMPLETED);
+                completed.setScannedTransactions(scanned.sum());
+                completed.setCheckedBalances(checked);
+                completed.setMismatchCount(mismatchTotal);
+                completed.setFinishedAt(LocalDateTime.now());
+                runRepository.save(completed);
+            });
+            log.info("Mutabakat tamamlandı: #{} - {} işlem, {} bakiye, {} uyuşmazlık", run.getId(), scanned.sum(), checked, mismatchCount);
+            return ReconciliationReport.of(completed, mismatches.subList(0, Math.min(100, mismatches.size())));
+        } catch (RuntimeException e) {
+            run.setStatus(ReconciliationStatus.FAILED);
+            run.setFinishedAt(LocalDateTime.now());
+            String error = String.valueOf(e.getMessage());
+            run.setError(error.length() > 1000 ? error.substring(0, 1000) : error);
+            runRepository.save(run);
+            throw e;
+        }
+    }
+
+    /**
+     * Arşive taşınan işlemlerin hareketlerini kaydeder. Çağıranın transaction'ında, arşiv segmentinin kaydıyla
+     * birlikte çalıştırılmalıdır. İşlemler son kontrol noktasına dahil olmalıdır (artımlı toplamlar onları zaten içerir).
+     */
+    public void recordArchivedMovements(ArchivedMovements movements) {
+        saveTotals(UPSERT_ARCHIVED_TOTAL_SQL, movements.totals());
+    }
+
+    /**
+     * Son tamamlanmış mutabakatın kontrol noktası (bu ID'ye kadarki işlemler toplamlara dahildir); yoksa 0.
+     */
+    public long checkpointTransactionId() {
+        return runRepository.findFirstByStatusOrderByIdDesc(ReconciliationStatus.COMPLETED)
+                .map(ReconciliationRun::getToTransactionId)
+                .orElse(0L);
+    }
+
+    private BalanceTotals loadTotals(String sql) {
+        BalanceTotals totals = new BalanceTotals();
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> totals.add(
+                BalanceTotals.key(rs.getLong("wallet_id"), rs.getString("currency")), toUnits(rs.getBigDecimal("net_amount"))));
+        return totals;
+    }
+
+    // Gerçek bakiyelerin açılış bakiyesinden farkı; beklenen net hareketle doğrudan karşılaştırılabilir.
+    private BalanceTotals loadActualMovements(int expectedSize) {
+        BalanceTotals actual = new BalanceTotals(expectedSize);
+        jdbcTemplate.query(BALANCES_SQL, (RowCallbackHandler) rs -> actual.add(
+                BalanceTotals.key(rs.getLong("wallet_id"), rs.getString("currency")),
+                toUnits(rs.getBigDecimal("balance")) - toUnits(rs.getBigDecimal("opening_balance"))));
+        RowCallbackHandler addBalance = rs -> actual.add(
+                BalanceTotals.key(rs.getLong("wallet_id"), rs.getString("currency")), toUnits(rs.getBigDecimal("balance")));
+        jdbcTemplate.query(SHARDS_SQL, addBalance);
+        if (ledgerMode == LedgerMode.JOURNAL) {
+            jdbcTemplate.query(JOURNAL_SQL, addBalance);
+        }
+        return actual;
+    }
+
+    // Tek bir bakiyeyi, kontrol noktasından sonraki işlemlerle birlikte tutarlı bir okumada yeniden hesaplar.
+    private ReconciliationMismatch recheck(long key, long expectedUntilCheckpoint, long toId) {
+        long walletId = BalanceTotals.walletIdOf(key);
+        String currency = BalanceTotals.currencyOf(key);
+        return snapshotTemplate.execute(status -> {
+            long[] row = {0L, 0L};
+            jdbcTemplate.query(KEY_BALANCE_SQL, (RowCallbackHandler) rs -> {
+                row[0] = toUnits(rs.getBigDecimal("balance"));
+                row[1] = toUnits(rs.getBigDecimal("opening_balance"));
+            }, walletId, currency);
+            long balance = row[0];
+            if (ledgerMode == LedgerMode.IN_MEMORY) {
+                BigDecimal inMemory = inMemoryLedgerEngine.balancesOf(walletId).get(currency);
+                if (inMemory != null) {
+                    balance = toUnits(inMemory);
+                }
+            }
+            balance += toUnits(jdbcTemplate.queryForObject(KEY_SHARDS_SQL, BigDecimal.class, walletId, currency));
+            if (ledgerMode == LedgerMode.JOURNAL) {
+                balance += toUnits(jdbcTemplate.queryForObject(KEY_JOURNAL_SQL, BigDecimal.class, walletId, currency));
+            }
+
+            BalanceTotals tail = new BalanceTotals(16);
+            jdbcTemplate.query(KEY_TAIL_SQL, (RowCallbackHandler) rs -> MovementScanTask.accumulate(rs, tail), toId, walletId, walletId);
+
+            long expectedBalance = row[1] + expectedUntilCheckpoint + tail.get(key);
+            if (balance == expectedBalance) {
+                return null;
+            }
+            ReconciliationMismatch mismatch = new ReconciliationMismatch();
+            mismatch.setWalletId(walletId);
+            mismatch.setCurrency(currency);
+            mismatch.setExpectedBalance(BigDecimal.valueOf(expectedBalance, CurrencyRegistry.LEDGER_SCALE));
+            mismatch.setActualBalance(BigDecimal.valueOf(balance, CurrencyRegistry.LEDGER_SCALE));
+            mismatch.setDifference(BigDecimal.valueOf(balance - expectedBalance, CurrencyRegistry.LEDGER_SCALE));
+            log.warn("Mutabakat uyuşmazlığı: Cüzdan {} - {} beklenen {}, gerçek {}", walletId, currency,
+                    mismatch.getExpectedBalance(), mismatch.getActualBalance());
+            return mismatch;
+        });
+    }
+
+    private void saveTotals(String upsertSql, BalanceTotals delta) {
+        List<Object[]> rows = new ArrayList<>(delta.size());
+        delta.forEach((key, units) -> rows.add(new Object[]{BalanceTotals.walletIdOf(key), BalanceTotals.currencyOf(key),
+                BigDecimal.valueOf(units, CurrencyRegistry.LEDGER_SCALE)}));
+        jdbcTemplate.batchUpdate(upsertSql, rows);
+    }
+
+    private void saveMismatches(Long runId, List<ReconciliationMismatch> mismatches) {
+        List<Object[]> rows = new ArrayList<>(mismatches.size());
+        for (ReconciliationMismatch mismatch : mismatches) {
+            mismatch.setRunId(runId);
+            rows.add(new Object[]{runId, mismatch.getWalletId(), mismatch.getCurrency(),
+                    mismatch.getExpectedBalance(), mismatch.getActualBalance(), mismatch.getDifference()});
+        }
+        jdbcTemplate.batchUpdate(INSERT_MISMATCH_SQL, rows);
+    }
+}
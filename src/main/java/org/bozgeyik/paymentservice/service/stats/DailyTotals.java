@@ -0,0 +1,115 @@
+package org.bozgeyik.paymentservice.service.stats;
+
+import org.bozgeyik.paymentservice.model.Transaction;
+import org.bozgeyik.paymentservice.model.TransactionStatus;
+import org.bozgeyik.paymentservice.model.TransactionType;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * (cüzdan, para birimi, gün, işlem türü) → hareket toplamları. Aynı anahtara düşen işlemler tek satırda birleşir;
+ * {@code wallet_daily_stats} tablosuna anahtar başına bir upsert yazılır. Thread-safe değildir.
+ * <p>
+ * Hareket kuralları mutabakatla aynıdır: gönderen cüzdan kaynak para biriminde {@code original_amount} kadar borç,
+ * alıcı cüzdan hedef para biriminde {@code converted_amount} kadar alacak yazar. Komisyon gönderen tarafta ayrıca
+ * toplanır. Döviz alım/satımında iki taraf da aynı cüzdanın farklı para birimlerine düşer.
+ */
+final class DailyTotals {
+
+    record Key(long walletId, String currency, LocalDate day, TransactionType type) {
+    }
+
+    static final class Totals {
+        long debitCount;
+        BigDecimal debitAmount = BigDecimal.ZERO;
+        long creditCount;
+        BigDecimal creditAmount = BigDecimal.ZERO;
+        BigDecimal feeAmount = BigDecimal.ZERO;
+
+        void addAll(Totals other) {
+            debitCount += other.debitCount;
+            debitAmount = debitAmount.add(other.debitAmount);
+            creditCount += other.creditCount;
+            creditAmount = creditAmount.add(other.creditAmount);
+            feeAmount = feeAmount.add(other.feeAmount);
+        }
+    }
+
+    private static final Comparator<Key> KEY_ORDER = Comparator.comparingLong(Key::walletId)
+            .thenComparing(Key::day).thenComparing(Key::currency).thenComparing(key -> key.type().name());
+
+    private final Map<Key, Totals> totals = new HashMap<>();
+
+    /**
+     * Tamamlanmış bir işlemin hareketlerini ekler; diğer durumlardaki işlemler atlanır.
+     */
+    void add(Transaction tx) {
+        if (tx.getStatus() != TransactionStatus.COMPLETED) {
+            return;
+        }
+        LocalDate day = tx.getTransactionDate().toLocalDate();
+        if (tx.getFromWalletId() != null) {
+            addDebit(tx.getFromWalletId(), tx.getOriginalCurrency(), day, tx.getTransactionType(), 1,
+                    tx.getOriginalAmount(), tx.getFeeAmount());
+        }
+        if (tx.getToWalletId() != null) {
+            addCredit(tx.getToWalletId(), tx.getTargetCurrency(), day, tx.getTransactionType(), 1, tx.getConvertedAmount());
+        }
+    }
+
+    void addDebit(long walletId, String currency, LocalDate day, TransactionType type, long count,
+                  BigDecimal amount, BigDecimal fee) {
+        Totals entry = totals.computeIfAbsent(new Key(walletId, currency, day, type), key -> new Totals());
+        entry.debitCount += count;
+        entry.debitAmount = entry.debitAmount.add(orZero(amount));
+        entry.feeAmount = entry.feeAmount.add(orZero(fee));
+    }
+
+    void addCredit(long walletId, String currency, LocalDate day, TransactionType type, long count, BigDecimal amount) {
+        Totals entry = totals.computeIfAbsent(new Key(walletId, currency, day, type), key -> new Totals());
+        entry.creditCount += count;
+        entry.creditAmount = entry.creditAmount.add(orZero(amount));
+    }
+
+    void addAll(DailyTotals other) {
+        other.totals.forEach((key, value) -> totals.computeIfAbsent(key, k -> new Totals()).addAll(value));
+    }
+
+    Totals get(Key key) {
+        return totals.get(key);
+    }
+
+    boolean isEmpty() {
+        return totals.isEmpty();
+    }
+
+    int size() {
+        return totals.size();
+    }
+
+    /**
+     * {@link WalletStatsWriter#UPSERT_SQL} parametreleri, anahtar başına bir satır. Satırlar benzersiz indeks
+     * sırasıyla dizilir; eş zamanlı iki batch aynı satırları aynı sırayla kilitler ve birbirini kilitlenmeye sokmaz.
+     */
+    List<Object[]> rows() {
+        List<Object[]> rows = new ArrayList<>(totals.size());
+        totals.entrySet().stream().sorted(Map.Entry.comparingByKey(KEY_ORDER)).forEach(entry -> {
+            Key key = entry.getKey();
+            Totals value = entry.getValue();
+            rows.add(new Object[]{key.walletId(), Date.valueOf(key.day()), key.currency(), key.type().name(),
+                    value.debitCount, value.debitAmount, value.creditCount, value.creditAmount, value.feeAmount});
+        });
+        return rows;
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
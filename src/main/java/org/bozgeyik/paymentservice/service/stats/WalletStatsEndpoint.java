@@ -0,0 +1,32 @@
+package org.bozgeyik.paymentservice.service.stats;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code /actuator/walletstats}: GET yeniden oluşturma işinin durumunu döner, POST günlük cüzdan istatistiklerini
+ * işlem geçmişinden (arşiv dahil) arka planda yeniden oluşturur.
+ */
+@Component
+@Endpoint(id = "walletstats")
+@RequiredArgsConstructor
+public class WalletStatsEndpoint {
+
+    private final WalletStatsRebuild rebuild;
+
+    @ReadOperation
+    public WalletStatsRebuild.Progress progress() {
+        return rebuild.progress();
+    }
+
+    @WriteOperation
+    public Map<String, Object> start() {
+        boolean started = rebuild.startAsync();
+        return Map.of("started", started, "message", started ? "Yeniden oluşturma başlatıldı." : "Yeniden oluşturma zaten çalışıyor.");
+    }
+}
@@ -0,0 +1,275 @@
+package org.bozgeyik.paymentservice.service.stats;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bozgeyik.paymentservice.model.TransactionType;
+import org.bozgeyik.paymentservice.repository.TransactionArchiveSegmentRepository;
+import org.bozgeyik.paymentservice.service.ClusterLock;
+import org.bozgeyik.paymentservice.service.CommitWatermark;
+import org.bozgeyik.paymentservice.service.archive.TransactionArchive;
+import org.bozgeyik.paymentservice.service.reconciliation.ReconciliationService;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@code wallet_daily_stats} tablosunu işlem geçmişinden yeniden oluşturur.
+ * <p>
+ * Tablo ay ay, en eski aydan içinde bulunulan aya kadar yeniden yazılır: ayın satırları silinir ve toplamları aynı
+ * transaction'da eklenir. Arşivlenmiş aylar segmentlerden, diğerleri sıcak tablodan (borç ve alacak tarafı için
+ * birer {@code GROUP BY} ile) okunur; bir ay okunurken arşivlenirse o ay segmentten yeniden okunur.
+ * <p>
+ * İş {@link ClusterLock} ile tüm instance'lar arasında tektir. Canlı yazmayla çakışmamak için önce paylaşılan
+ * {@code wallet_stats_rebuild} satırı işaretlenir: bundan sonra hiçbir instance'ın {@link WalletStatsWriter}'ı tabloya
+ * yazmaz, işlemleri bekletir. Ardından mutabakattaki gibi {@link CommitWatermark} ile kesinleşmiş son işlem ID'si
+ * belirlenir (tarama mutabakatın kontrol noktasından başlar) ve yalnızca bu ID'ye kadarki işlemler okunur. İşaretten
+ * önce yazılmış her işlem bu ID'nin altındadır. İş bitince satıra bu ID yazılır ve yazmalar yeniden başlar: her
+ * instance bekleyen işlemlerden yalnızca bu ID'den yenilerini yazar.
+ */
+@Service
+@Slf4j
+public class WalletStatsRebuild {
+
+    static final String LOCK_NAME = "walletstats";
+
+    private static final String OLDEST_TRANSACTION_SQL = "SELECT MIN(transaction_date) FROM transactions";
+    private static final String OLDEST_STAT_SQL = "SELECT MIN(stat_date) FROM wallet_daily_stats";
+    private static final String DEBIT_SQL = "SELECT from_wallet_id AS wallet_id, original_currency AS currency, " +
+            "CAST(transaction_date AS DATE) AS stat_date, transaction_type, COUNT(*) AS movements, " +
+            "SUM(original_amount) AS amount, SUM(fee_amount) AS fee FROM transactions " +
+            "WHERE transaction_date >= ? AND transaction_date < ? AND id <= ? AND status = 'COMPLETED' " +
+            "AND from_wallet_id IS NOT NULL " +
+            "GROUP BY from_wallet_id, original_currency, CAST(transaction_date AS DATE), transaction_type";
+    private static final String CREDIT_SQL = "SELECT to_wallet_id AS wallet_id, target_currency AS currency, " +
+            "CAST(transaction_date AS DATE) AS stat_date, transaction_type, COUNT(*) AS movements, " +
+            "SUM(converted_amount) AS amount FROM transactions " +
+            "WHERE transaction_date >= ? AND transaction_date < ? AND id <= ? AND status = 'COMPLETED' " +
+            "AND to_wallet_id IS NOT NULL " +
+            "GROUP BY to_wallet_id, target_currency, CAST(transaction_date AS DATE), transaction_type";
+    private static final String DELETE_SQL = "DELETE FROM wallet_daily_stats WHERE stat_date >= ? AND stat_date < ?";
+
+    /**
+     * Çalışan veya son biten yeniden oluşturma işinin durumu.
+     *
+     * @param month Yazılan son ay.
+     * @param rows  Yazılan istatistik satırı sayısı.
+     * @param error İş hatayla bittiyse hata mesajı.
+     */
+    public record Progress(boolean running, YearMonth month, int months, long rows, LocalDateTime startedAt,
+                           LocalDateTime finishedAt, String error) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final WalletStatsWriter writer;
+    private final TransactionArchive transactionArchive;
+    private final TransactionArchiveSegmentRepository segmentRepository;
+    private final CommitWatermark commitWatermark;
+    private final ReconciliationService reconciliationService;
+    private final ClusterLock clusterLock;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile Progress progress;
+
+    private ExecutorService runner;
+
+    public WalletStatsRebuild(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                              WalletStatsWriter writer, TransactionArchive transactionArchive,
+                              TransactionArchiveSegmentRepository segmentRepository,
+                              CommitWatermark commitWatermark, ReconciliationService reconciliationService,
+                              ClusterLock clusterLock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.writer = writer;
+        this.transactionArchive = transactionArchive;
+        this.segmentRepository = segmentRepository;
+        this.commitWatermark = commitWatermark;
+        this.reconciliationService = reconciliationService;
+        this.clusterLock = clusterLock;
+    }
+
+    @PostConstruct
+    void start() {
+        runner = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("wallet-stats-rebuild").factory());
+    }
+
+    @PreDestroy
+    void stop() {
+        runner.shutdownNow();
+    }
+
+    public Progress progress() {
+        return progress;
+    }
+
+    /**
+     * Yeniden oluşturmayı arka planda başlatır.
+     *
+     * @return Başka bir çalıştırma sürüyorsa {@code false}.
+     */
+    public boolean startAsync() {
+        if (running.get()) {
+            return false;
+        }
+        runner.execute(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.error("Cüzdan istatistikleri yeniden oluşturulamadı: {}", e.getMessage(), e);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Yeniden oluşturmayı çalıştırır ve bitene kadar bekler. Hatayla biterse tablo kısmen yeniden yazılmış olabilir;
+     * iş yeniden çalıştırılmalıdır.
+     *
+     * @throws IllegalStateException Eğer bu veya başka bir instance'ta bir çalıştırma sürüyorsa.
+     */
+    public Progress rebuild() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Cüzdan istatistikleri zaten yeniden oluşturuluyor.");
+        }
+        try {
+            ClusterLock.Held lock = clusterLock.tryAcquire(LOCK_NAME).orElseThrow(() ->
+                    new IllegalStateException("Cüzdan istatistikleri başka bir instance'ta yeniden oluşturuluyor."));
+            try (ClusterLock.Held held = lock) {
+                return doRebuild();
+            }
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private Progress doRebuild() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        YearMonth month = null;
+        int months = 0;
+        long rows = 0;
+        progress = new Progress(true, null, 0, 0, startedAt, null, null);
+        try {
+            writer.markRebuildStarted();
+            // Tablo değişmeden biterse bekleyen işlemlerin hepsi yazılır.
+            Long countedThroughId = null;
+            try {
+                // İşaretten sonra okunur: işaretten önce yazılmış işlemlerin hepsi bu ID'nin altındadır. Mutabakatın
+                // kontrol noktasına kadarki işlemler zaten kesinleşmiştir.
+                long safeId = commitWatermark.settle("transactions", reconciliationService.checkpointTransactionId());
+                YearMonth first = oldestMonth();
+                log.info("Cüzdan istatistikleri yeniden oluşturuluyor: {} sonrası (son işlem {})", first, safeId);
+                for (month = first; month != null && !month.isAfter(YearMonth.now()); month = month.plusMonths(1)) {
+                    rows += rebuildMonth(month, safeId);
+                    countedThroughId = safeId;
+                    months++;
+                    progress = new Progress(true, month, months, rows, startedAt, null, null);
+                }
+            } finally {
+                writer.markRebuildFinished(countedThroughId);
+            }
+            progress = new Progress(false, month != null ? month.minusMonths(1) : null, months, rows, startedAt,
+                    LocalDateTime.now(), null);
+            log.info("Cüzdan istatistikleri yeniden oluşturuldu: {} ay, {} satır", months, rows);
+            return progress;
+        } catch (RuntimeException e) {
+            progress = new Progress(false, month, months, rows, startedAt, LocalDateTime.now(), String.valueOf(e.getMessage()));
+            throw e;
+        }
+    }
+
+    private int rebuildMonth(YearMonth month, long safeId) {
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        DailyTotals totals = new DailyTotals();
+        if (isArchived(month)) {
+            readArchive(totals, from, to, safeId);
+        } else {
+            readHot(totals, from, to, safeId);
+            // Ay okunurken arşivlendiyse sıcak satırların bir kısmı silinmiş olabilir.
+            if (isArchived(month)) {
+                totals = new DailyTotals();
+                readArchive(totals, from, to, safeId);
+            }
+        }
+        List<Object[]> rows = totals.rows();
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update(DELETE_SQL, Date.valueOf(from.toLocalDate()), Date.valueOf(to.toLocalDate()));
+            jdbcTemplate.batchUpdate(WalletStatsWriter.UPSERT_SQL, rows);
+        });
+        return rows.size();
+    }
+
+    private void readHot(DailyTotals totals, LocalDateTime from, LocalDateTime to, long safeId) {
+        Timestamp fromTs = Timestamp.valueOf(from);
+        Timestamp toTs = Timestamp.valueOf(to);
+        jdbcTemplate.query(DEBIT_SQL, (RowCallbackHandler) rs -> totals.addDebit(rs.getLong("wallet_id"),
+                rs.getString("currency"), rs.getDate("stat_date").toLocalDate(), typeOf(rs), rs.getLong("movements"),
+                rs.getBigDecimal("amount"), rs.getBigDecimal("fee")), fromTs, toTs, safeId);
+        jdbcTemplate.query(CREDIT_SQL, (RowCallbackHandler) rs -> totals.addCredit(rs.getLong("wallet_id"),
+                rs.getString("currency"), rs.getDate("stat_date").toLocalDate(), typeOf(rs), rs.getLong("movements"),
+                rs.getBigDecimal("amount")), fromTs, toTs, safeId);
+    }
+
+    // Daha yeni işlemleri, bekleyen işlemleri arasında bulunduran instance yazar.
+    private void readArchive(DailyTotals totals, LocalDateTime from, LocalDateTime to, long safeId) {
+        try {
+            transactionArchive.forEachBetween(from, to, tx -> {
+                if (tx.getId() <= safeId) {
+                    totals.add(tx);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Arşiv segmenti okunamadı: " + YearMonth.from(from), e);
+        }
+    }
+
+    // Kayıtlı segmentler önce okunur; ardından yenilenen arşiv en az bunları açmış olmalıdır.
+    private boolean isArchived(YearMonth month) {
+        boolean registered = segmentRepository.findAllByOrderByMonthAsc().stream()
+                .anyMatch(segment -> YearMonth.from(segment.getMonth()).equals(month));
+        if (!registered) {
+            return false;
+        }
+        transactionArchive.refresh();
+        if (!transactionArchive.months().contains(month)) {
+            throw new IllegalStateException(month + " ayının arşiv segmenti okunamıyor.");
+        }
+        return true;
+    }
+
+    // Arşivin, sıcak tablonun ve istatistik tablosunun en eski ayı; hiçbirinde satır yoksa null.
+    private YearMonth oldestMonth() {
+        YearMonth oldest = segmentRepository.findAllByOrderByMonthAsc().stream().findFirst()
+                .map(segment -> YearMonth.from(segment.getMonth())).orElse(null);
+        LocalDateTime oldestTransaction = jdbcTemplate.queryForObject(OLDEST_TRANSACTION_SQL, LocalDateTime.class);
+        LocalDate oldestStat = jdbcTemplate.queryForObject(OLDEST_STAT_SQL, LocalDate.class);
+        for (YearMonth candidate : new YearMonth[]{
+                oldestTransaction != null ? YearMonth.from(oldestTransaction) : null,
+                oldestStat != null ? YearMonth.from(oldestStat) : null}) {
+            if (candidate != null && (oldest == null || candidate.isBefore(oldest))) {
+                oldest = candidate;
+            }
+        }
+        return oldest;
+    }
+
+    private static TransactionType typeOf(ResultSet rs) throws SQLException {
+        return TransactionType.valueOf(rs.getString("transaction_type"));
+    }
+}
@@ -0,0 +1,84 @@
+package org.bozgeyik.paymentservice.service.stats;
+
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.bozgeyik.paymentservice.dto.WalletStatsResponse;
+import org.bozgeyik.paymentservice.exception.InvalidStatsRangeException;
+import org.bozgeyik.paymentservice.model.TransactionType;
+import org.bozgeyik.paymentservice.model.WalletDailyStat;
+import org.bozgeyik.paymentservice.repository.WalletDailyStatRepository;
+import org.bozgeyik.paymentservice.repository.WalletRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Cüzdan istatistiklerini günlük özet tablosundan ({@code wallet_daily_stats}) okur; işlemler taranmaz. Bir yıllık
+ * aralık (para birimi, tür) başına en fazla 365 satırdır. Son {@code payment.stats.flush-ms} içinde tamamlanan
+ * işlemler henüz yansımamış olabilir.
+ */
+@Service
+@RequiredArgsConstructor
+public class WalletStatsService {
+
+    private static final Comparator<TotalKey> TOTAL_ORDER =
+            Comparator.comparing(TotalKey::currency).thenComparing(key -> key.type().name());
+
+    private record TotalKey(String currency, TransactionType type) {
+    }
+
+    private final WalletDailyStatRepository statRepository;
+    private final WalletRepository walletRepository;
+
+    @Value("${payment.stats.max-days:366}")
+    private int maxDays;
+
+    /**
+     * @param from İlk gün (dahil); {@code null} ise {@code to}'dan bir yıl öncesinin ertesi günü.
+     * @param to   Son gün (dahil); {@code null} ise bugün.
+     * @throws EntityNotFoundException    Eğer cüzdan yoksa.
+     * @throws InvalidStatsRangeException Eğer aralık ters ise veya {@code max-days}'ten uzunsa.
+     */
+    @Transactional(readOnly = true)
+    public WalletStatsResponse getStats(Long walletId, LocalDate from, LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusYears(1).plusDays(1);
+        if (start.isAfter(end)) {
+            throw new InvalidStatsRangeException("Başlangıç tarihi bitiş tarihinden sonra olamaz: " + start + " > " + end);
+        }
+        if (ChronoUnit.DAYS.between(start, end) + 1 > maxDays) {
+            throw new InvalidStatsRangeException("İstatistik aralığı en fazla " + maxDays + " gün olabilir.");
+        }
+        if (!walletRepository.existsById(walletId)) {
+            throw new EntityNotFoundException("Cüzdan bulunamadı: ID " + walletId);
+        }
+
+        List<WalletDailyStat> rows = statRepository.findByWalletIdAndStatDateBetweenOrderByStatDateAsc(walletId, start, end);
+        List<WalletStatsResponse.Day> days = new ArrayList<>(rows.size());
+        Map<TotalKey, WalletStatsResponse.Total> totals = new TreeMap<>(TOTAL_ORDER);
+        for (WalletDailyStat row : rows) {
+            days.add(new WalletStatsResponse.Day(row.getStatDate(), row.getCurrency(), row.getTransactionType(),
+                    row.getDebitCount(), row.getDebitAmount(), row.getCreditCount(), row.getCreditAmount(),
+                    row.getFeeAmount()));
+            totals.merge(new TotalKey(row.getCurrency(), row.getTransactionType()),
+                    new WalletStatsResponse.Total(row.getCurrency(), row.getTransactionType(), row.getDebitCount(),
+                            row.getDebitAmount(), row.getCreditCount(), row.getCreditAmount(), row.getFeeAmount()),
+                    WalletStatsService::sum);
+        }
+        return new WalletStatsResponse(walletId, start, end, List.copyOf(totals.values()), days);
+    }
+
+    private static WalletStatsResponse.Total sum(WalletStatsResponse.Total a, WalletStatsResponse.Total b) {
+        return new WalletStatsResponse.Total(a.currency(), a.type(), a.debitCount() + b.debitCount(),
+                a.debitAmount().add(b.debitAmount()), a.creditCount() + b.creditCount(),
+                a.creditAmount().add(b.creditAmount()), a.feeAmount().add(b.feeAmount()));
+    }
+}
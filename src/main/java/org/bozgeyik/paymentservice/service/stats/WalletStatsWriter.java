@@ -0,0 +1,244 @@
+package org.bozgeyik.paymentservice.service.stats;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bozgeyik.paymentservice.event.TransactionCompletedEvent;
+import org.bozgeyik.paymentservice.model.Transaction;
+import org.bozgeyik.paymentservice.model.TransactionStatus;
+import org.bozgeyik.paymentservice.service.ClusterLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tamamlanan işlemleri {@code wallet_daily_stats} tablosuna artımlı olarak yansıtır.
+ * <p>
+ * Her {@link TransactionCompletedEvent} commit'ten sonra bekleyen işlemlere eklenir. Bekleyen işlemler her
+ * {@code flush-ms} milisaniyede bir veya {@code max-pending-keys} farklı (cüzdan, para birimi, gün, tür) anahtarına
+ * ulaşıldığında tek bir JDBC batch'i ve tek transaction ile upsert edilir; aynı anahtara düşen işlemler tek satırda
+ * birleşir. Yazma hata verirse işlemler bir sonraki yazmaya eklenir.
+ * <p>
+ * İstatistikler en fazla {@code flush-ms} kadar geriden gelir. Instance yazmadan önce çökerse bekleyen işlemler
+ * kaybolur; tablo {@link WalletStatsRebuild} ile geçmişten yeniden oluşturulabilir. Yeniden oluşturmayla çakışmamak
+ * için her yazma, tüm instance'ların paylaştığı {@code wallet_stats_rebuild} satırını kilitleyerek okur:
+ * <ul>
+ *     <li>Yeniden oluşturma sürüyorsa hiçbir instance yazmaz; işlemler bekletilir.</li>
+ *     <li>Son yeniden oluşturmanın saydığı ({@code counted_through_id}'ye kadarki) işlemler atılır, yalnızca daha
+ *     yenileri yazılır.</li>
+ * </ul>
+ * Yeniden oluşturma bu satırı güncellerken süren yazmaların commit edilmesini bekler; bu yüzden satır güncellendikten
+ * sonra tabloya hiçbir instance yazmaz. Yeniden oluşturmayı çalıştıran instance çöktüyse ({@link ClusterLock} boşsa)
+ * satır bir sonraki yazmada serbest bırakılır.
+ */
+@Component
+@Slf4j
+public class WalletStatsWriter {
+
+    static final String UPSERT_SQL = "INSERT INTO wallet_daily_stats (wallet_id, stat_date, currency, transaction_type, " +
+            "debit_count, debit_amount, credit_count, credit_amount, fee_amount) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE debit_count = debit_count + VALUES(debit_count), " +
+            "debit_amount = debit_amount + VALUES(debit_amount), credit_count = credit_count + VALUES(credit_count), " +
+            "credit_amount = credit_amount + VALUES(credit_amount), fee_amount = fee_amount + VALUES(fee_amount)";
+    private static final String LOCK_STATE_SQL =
+            "SELECT running, counted_through_id FROM wallet_stats_rebuild WHERE id = 1 FOR UPDATE";
+    private static final String START_REBUILD_SQL =
+            "INSERT INTO wallet_stats_rebuild (id, running, counted_through_id, started_at) VALUES (1, TRUE, 0, ?) " +
+            "ON DUPLICATE KEY UPDATE running = TRUE, started_at = VALUES(started_at)";
+    private static final String FINISH_REBUILD_SQL =
+            "UPDATE wallet_stats_rebuild SET running = FALSE, counted_through_id = ? WHERE id = 1";
+    private static final String RELEASE_REBUILD_SQL = "UPDATE wallet_stats_rebuild SET running = FALSE WHERE id = 1";
+
+    private record RebuildState(boolean running, long countedThroughId) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ClusterLock clusterLock;
+
+    // pending ve pendingKeys yalnızca lock altında okunur/değiştirilir.
+    private final Object lock = new Object();
+    // Yazmaları sıraya koyar.
+    private final Object flushLock = new Object();
+    private List<Transaction> pending = new ArrayList<>();
+    // Bekleyen işlemlerin anahtar sayısı için
+    private DailyTotals pendingKeys = new DailyTotals();
+    // Yeniden oluşturma sürerken anahtar sınırı aşılsa da aralık beklenir.
+    private volatile boolean holding;
+
+    private ScheduledExecutorService ticker;
+
+    @Value("${payment.stats.flush-ms:1000}")
+    private long flushMillis;
+
+    @Value("${payment.stats.max-pending-keys:5000}")
+    private int maxPendingKeys;
+
+    public WalletStatsWriter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                             ClusterLock clusterLock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clusterLock = clusterLock;
+    }
+
+    @PostConstruct
+    void start() {
+        ticker = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("wallet-stats-writer").factory());
+        ticker.scheduleWithFixedDelay(this::flushQuietly, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        ticker.shutdown();
+        ticker.awaitTermination(5, TimeUnit.SECONDS);
+        // Bekleyen işlemler kapanmadan önce yazılır.
+        flushQuietly();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTransactionCompleted(TransactionCompletedEvent event) {
+        Transaction tx = event.getTransaction();
+        if (tx.getStatus() != TransactionStatus.COMPLETED || tx.getId() == null) {
+            return;
+        }
+        boolean full;
+        synchronized (lock) {
+            pending.add(tx);
+            pendingKeys.add(tx);
+            full = pendingKeys.size() >= maxPendingKeys;
+        }
+        if (full && !holding) {
+            ticker.execute(this::flushQuietly);
+        }
+    }
+
+    /**
+     * Bekleyen işlemleri yazar. Yeniden oluşturma sürüyorsa yazmaz, işlemleri bekletir.
+     *
+     * @return Yazılan satır (anahtar) sayısı.
+     */
+    public int flush() {
+        synchronized (flushLock) {
+            List<Transaction> batch;
+            DailyTotals batchKeys;
+            synchronized (lock) {
+                if (pending.isEmpty()) {
+                    return 0;
+                }
+                batch = pending;
+                batchKeys = pendingKeys;
+                pending = new ArrayList<>();
+                pendingKeys = new DailyTotals();
+            }
+            Integer written;
+            try {
+                written = transactionTemplate.execute(status -> writeUnlessRebuilding(batch));
+            } catch (RuntimeException e) {
+                requeue(batch, batchKeys);
+                throw e;
+            }
+            holding = written == null;
+            if (written == null) {
+                requeue(batch, batchKeys);
+                log.debug("Cüzdan istatistikleri yeniden oluşturuluyor, {} işlem bekletiliyor", batch.size());
+                return 0;
+            }
+            log.debug("Cüzdan istatistikleri yazıldı: {} satır", written);
+            return written;
+        }
+    }
+
+    // Yeniden oluşturma sürüyorsa null döner. Çağıranın transaction'ında çalışır; durum satırının kilidi commit'e
+    // kadar tutulur.
+    private Integer writeUnlessRebuilding(List<Transaction> batch) {
+        RebuildState state = lockState();
+        if (state.running() && !releaseAbandonedRebuild()) {
+            return null;
+        }
+        DailyTotals totals = new DailyTotals();
+        for (Transaction tx : batch) {
+            // Son yeniden oluşturma bu işlemleri zaten saydı.
+            if (tx.getId() > state.countedThroughId()) {
+                totals.add(tx);
+            }
+        }
+        if (!totals.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, totals.rows());
+        }
+        return totals.size();
+    }
+
+    private RebuildState lockState() {
+        List<RebuildState> states = jdbcTemplate.query(LOCK_STATE_SQL,
+                (rs, rowNum) -> new RebuildState(rs.getBoolean("running"), rs.getLong("counted_through_id")));
+        return states.isEmpty() ? new RebuildState(false, 0L) : states.get(0);
+    }
+
+    // Küme kilidi boşsa yeniden oluşturmayı çalıştıran instance yarıda çökmüştür.
+    private boolean releaseAbandonedRebuild() {
+        Optional<ClusterLock.Held> held = clusterLock.tryAcquire(WalletStatsRebuild.LOCK_NAME);
+        if (held.isEmpty()) {
+            return false;
+        }
+        held.get().close();
+        jdbcTemplate.update(RELEASE_REBUILD_SQL);
+        log.warn("Yarıda kalan istatistik yeniden oluşturması serbest bırakıldı; tablo yeniden oluşturulmalıdır.");
+        return true;
+    }
+
+    private void requeue(List<Transaction> batch, DailyTotals batchKeys) {
+        synchronized (lock) {
+            batch.addAll(pending);
+            batchKeys.addAll(pendingKeys);
+            pending = batch;
+            pendingKeys = batchKeys;
+        }
+    }
+
+    /**
+     * Yeniden oluşturma başlarken çağrılır: tüm instance'larda süren yazmaların commit edilmesini bekler ve bundan
+     * sonraki yazmaları durdurur.
+     */
+    void markRebuildStarted() {
+        transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.update(START_REBUILD_SQL, Timestamp.valueOf(LocalDateTime.now())));
+    }
+
+    /**
+     * Yeniden oluşturma bittiğinde çağrılır ve yazmaları yeniden başlatır.
+     *
+     * @param countedThroughId Yeniden oluşturmanın okuduğu son işlem ID'si; bu ID'ye kadarki bekleyen işlemler
+     *                         yazılmaz. Yeniden oluşturma tabloyu değiştirmeden bittiyse {@code null}.
+     */
+    void markRebuildFinished(Long countedThroughId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (countedThroughId != null) {
+                jdbcTemplate.update(FINISH_REBUILD_SQL, countedThroughId);
+            } else {
+                jdbcTemplate.update(RELEASE_REBUILD_SQL);
+            }
+        });
+        holding = false;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Cüzdan istatistikleri yazılamadı, sonraki denemede tekrar yazılacak: {}", e.getMessage());
+        }
+    }
+}
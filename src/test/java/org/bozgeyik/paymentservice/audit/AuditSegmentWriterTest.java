@@ -0,0 +1,56 @@
+package org.bozgeyik.paymentservice.audit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AuditSegmentWriterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void rollsSegmentsAndResumesAfterReopen() throws IOException {
+        // Segment başına 4 kayıt.
+        int segmentBytes = 4 * AuditRecordFormat.RECORD_SIZE;
+        try (AuditSegmentWriter writer = new AuditSegmentWriter(directory, segmentBytes)) {
+            for (int i = 1; i <= 6; i++) {
+                writer.append(1_000L * i, 10, "TRY", 1_000_000L * i, 1_000_000L * i, true, "key-" + i, true);
+            }
+        }
+        try (AuditSegmentWriter writer = new AuditSegmentWriter(directory, segmentBytes)) {
+            assertEquals(6, writer.lastSequence());
+            writer.append(7_000L, 11, "USD", -255_000L, 0L, false, null, false);
+        }
+
+        List<AuditRecord> records = new ArrayList<>();
+        AuditLogReader reader = new AuditLogReader(directory);
+        assertEquals(7, reader.poll(records::add));
+        assertEquals(2, AuditSegments.list(directory).size());
+
+        AuditRecord first = records.get(0);
+        assertEquals(1, first.sequence());
+        assertEquals(0, new BigDecimal("100").compareTo(first.delta()));
+        assertEquals("key-1", first.reference());
+
+        AuditRecord last = records.get(6);
+        assertEquals(7, last.sequence());
+        assertEquals("USD", last.currency());
+        assertEquals(0, new BigDecimal("-25.5").compareTo(last.delta()));
+        assertNull(last.resultingBalance());
+        assertNull(last.reference());
+        assertFalse(last.committed());
+
+        // İmleç kaldığı yerden devam eder.
+        assertEquals(0, reader.poll(records::add));
+    }
+}
@@ -0,0 +1,102 @@
+package org.bozgeyik.paymentservice.idempotency;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+/**
+ * Yeni bir idempotency anahtarının kontrol süresinin tablo büyüklüğüyle değişimi: benzersiz indekse sorgu ile
+ * Bloom filtresi karşılaştırması (H2, bellek içi). Varsayılan test çalıştırmasında atlanır:
+ * {@code mvn test -Dtest=IdempotencyKeyFilterBenchmark -Dbenchmark=true}
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class IdempotencyKeyFilterBenchmark {
+
+    private static final int[] TABLE_SIZES = {10_000, 100_000, 1_000_000};
+    private static final int PROBES = 20_000;
+
+    @Test
+    void newKeyCheckLatencyByTableSize() throws SQLException {
+        System.out.printf("%12s %16s %16s %12s%n", "satır", "veritabanı ns", "bloom ns", "bloom KB");
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:bloom-benchmark;MODE=MySQL", "sa", "")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE keys_table (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                        + "idempotency_key VARCHAR(100) NOT NULL UNIQUE)");
+            }
+            ScalableBloomFilter filter = new ScalableBloomFilter(100_000, 0.01);
+            int rows = 0;
+            for (int size : TABLE_SIZES) {
+                rows = fill(connection, filter, rows, size);
+                long databaseNanos = probeDatabase(connection);
+                long bloomNanos = probeBloom(filter);
+                System.out.printf("%12d %16d %16d %12d%n", size, databaseNanos, bloomNanos, filter.memoryBytes() / 1024);
+            }
+        }
+    }
+
+    private static int fill(Connection connection, ScalableBloomFilter filter, int from, int to) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO keys_table (idempotency_key) VALUES (?)")) {
+            for (int i = from; i < to; i++) {
+                String key = UUID.randomUUID().toString();
+                insert.setString(1, key);
+                insert.addBatch();
+                long hash1 = BloomFilter.hash1(key);
+                filter.put(hash1, BloomFilter.hash2(hash1));
+                if (i % 10_000 == 9_999) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        return to;
+    }
+
+    private static long probeDatabase(Connection connection) throws SQLException {
+        try (PreparedStatement exists = connection.prepareStatement("SELECT 1 FROM keys_table WHERE idempotency_key = ?")) {
+            for (int round = 0; round < 2; round++) {
+                long started = System.nanoTime();
+                for (int i = 0; i < PROBES; i++) {
+                    exists.setString(1, UUID.randomUUID().toString());
+                    try (ResultSet rs = exists.executeQuery()) {
+                        rs.next();
+                    }
+                }
+                if (round == 1) {
+                    return (System.nanoTime() - started) / PROBES;
+                }
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    private static long probeBloom(ScalableBloomFilter filter) {
+        String[] keys = new String[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            keys[i] = UUID.randomUUID().toString();
+        }
+        long hits = 0;
+        long elapsed = 0;
+        for (int round = 0; round < 2; round++) {
+            long started = System.nanoTime();
+            for (String key : keys) {
+                long hash1 = BloomFilter.hash1(key);
+                if (filter.mightContain(hash1, BloomFilter.hash2(hash1))) {
+                    hits++;
+                }
+            }
+            elapsed = System.nanoTime() - started;
+        }
+        // Sonucun kullanılması, döngünün JIT tarafından atılmasını önler.
+        if (hits < 0) {
+            throw new IllegalStateException();
+        }
+        return elapsed / PROBES;
+    }
+}
@@ -0,0 +1,64 @@
+package org.bozgeyik.paymentservice.idempotency;
+
+import org.bozgeyik.paymentservice.exception.IdempotencyException;
+import org.bozgeyik.paymentservice.model.Transaction;
+import org.bozgeyik.paymentservice.repository.TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+class IdempotencyServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:idempotency;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE idempotency_keys (idempotency_key VARCHAR(100) PRIMARY KEY, transaction_id BIGINT NOT NULL)");
+        @SuppressWarnings("unchecked")
+        ObjectProvider<StringRedisTemplate> redis = mock(ObjectProvider.class);
+        idempotencyService = new IdempotencyService(mock(TransactionRepository.class), jdbcTemplate,
+                mock(IdempotencyKeyFilter.class), redis);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE idempotency_keys");
+    }
+
+    @Test
+    void rejectsASecondTransactionWithTheSameKeyWhenPartitioned() {
+        ReflectionTestUtils.setField(idempotencyService, "partitionedTransactions", true);
+
+        idempotencyService.recordKey(transaction(1L, "k1"));
+
+        assertThrows(IdempotencyException.class, () -> idempotencyService.recordKey(transaction(2L, "k1")));
+        assertEquals(1L, jdbcTemplate.queryForObject(
+                "SELECT transaction_id FROM idempotency_keys WHERE idempotency_key = 'k1'", Long.class));
+    }
+
+    @Test
+    void leavesUniquenessToTheTransactionTableWhenNotPartitioned() {
+        idempotencyService.recordKey(transaction(1L, "k1"));
+        idempotencyService.recordKey(transaction(2L, "k1"));
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM idempotency_keys", Integer.class));
+    }
+
+    private static Transaction transaction(Long id, String key) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setIdempotencyKey(key);
+        return transaction;
+    }
+}
@@ -0,0 +1,42 @@
+package org.bozgeyik.paymentservice.idempotency;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class InMemoryIdempotencyStoreTest {
+
+    private final InMemoryIdempotencyStore store = new InMemoryIdempotencyStore();
+
+    @Test
+    void claimIsExclusiveUntilCompletedOrReleased() {
+        Duration ttl = Duration.ofMinutes(1);
+        assertEquals(ClaimResult.CLAIMED, store.claim("a", "owner-1", ttl));
+        assertEquals(ClaimResult.IN_PROGRESS, store.claim("a", "owner-2", ttl));
+
+        // Yalnızca sahibi bırakabilir.
+        store.release("a", "owner-2");
+        assertEquals(ClaimResult.IN_PROGRESS, store.claim("a", "owner-2", ttl));
+        store.release("a", "owner-1");
+        assertEquals(ClaimResult.CLAIMED, store.claim("a", "owner-2", ttl));
+
+        assertEquals(new KeyState(ClaimResult.IN_PROGRESS, null), store.lookup("a"));
+        store.complete("a", "result", Duration.ofDays(1));
+        assertEquals(ClaimResult.COMPLETED, store.claim("a", "owner-3", ttl));
+        assertEquals(new KeyState(ClaimResult.COMPLETED, "result"), store.lookup("a"));
+        store.release("a", "owner-2");
+        assertEquals(ClaimResult.COMPLETED, store.claim("a", "owner-3", ttl));
+    }
+
+    @Test
+    void expiredClaimCanBeTakenOver() {
+        assertEquals(ClaimResult.CLAIMED, store.claim("b", "owner-1", Duration.ZERO));
+        assertEquals(ClaimResult.CLAIMED, store.claim("b", "owner-2", Duration.ofMinutes(1)));
+        assertEquals(ClaimResult.IN_PROGRESS, store.claim("b", "owner-1", Duration.ofMinutes(1)));
+        store.release("b", "owner-2");
+        assertNull(store.lookup("b"));
+    }
+}
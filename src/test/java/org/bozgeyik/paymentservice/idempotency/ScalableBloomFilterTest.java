@@ -0,0 +1,39 @@
+package org.bozgeyik.paymentservice.idempotency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScalableBloomFilterTest {
+
+    @Test
+    void growsWithoutFalseNegativesAndKeepsTargetRate() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1_000, 0.01);
+        String[] keys = new String[50_000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = UUID.randomUUID().toString();
+            long hash1 = BloomFilter.hash1(keys[i]);
+            filter.put(hash1, BloomFilter.hash2(hash1));
+        }
+        assertTrue(filter.stageCount() > 1, "katman sayısı: " + filter.stageCount());
+
+        for (String key : keys) {
+            long hash1 = BloomFilter.hash1(key);
+            assertTrue(filter.mightContain(hash1, BloomFilter.hash2(hash1)), key);
+        }
+
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            long hash1 = BloomFilter.hash1(UUID.randomUUID().toString());
+            if (filter.mightContain(hash1, BloomFilter.hash2(hash1))) {
+                falsePositives++;
+            }
+        }
+        double observed = (double) falsePositives / probes;
+        assertTrue(observed < 0.015, "gözlenen oran: " + observed);
+        assertTrue(filter.expectedFpp() < 0.015, "tahmini oran: " + filter.expectedFpp());
+    }
+}
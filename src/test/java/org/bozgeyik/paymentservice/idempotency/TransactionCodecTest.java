@@ -0,0 +1,51 @@
+package org.bozgeyik.paymentservice.idempotency;
+
+import org.bozgeyik.paymentservice.model.Transaction;
+import org.bozgeyik.paymentservice.model.TransactionStatus;
+import org.bozgeyik.paymentservice.model.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransactionCodecTest {
+
+    @Test
+    void roundTripsAllFields() {
+        Transaction transaction = new Transaction();
+        transaction.setId(42L);
+        transaction.setIdempotencyKey("6f1c2d9e-0b8a-4f57-9d3e-2a41c7b5e813");
+        transaction.setFromWalletId(7L);
+        transaction.setToWalletId(9L);
+        transaction.setOriginalAmount(new BigDecimal("1250.5000"));
+        transaction.setOriginalCurrency("TRY");
+        transaction.setConvertedAmount(new BigDecimal("-37.5150"));
+        transaction.setTargetCurrency("USD");
+        transaction.setExchangeRateUsed(new BigDecimal("0.03000000"));
+        transaction.setExchangeRatePath("TRY>USD");
+        transaction.setFeeAmount(new BigDecimal("62.5250"));
+        transaction.setDescription("Döviz Alım/Satım");
+        transaction.setTransactionType(TransactionType.FX_TRADE);
+        transaction.setStatus(TransactionStatus.COMPLETED);
+        transaction.setTransactionDate(LocalDateTime.of(2024, 5, 17, 13, 45, 12, 123_456_789));
+
+        byte[] encoded = TransactionCodec.encode(transaction);
+        assertTrue(encoded.length < 100, "kodlanmış boyut: " + encoded.length);
+        assertEquals(transaction, TransactionCodec.decode(transaction.getIdempotencyKey(), encoded));
+    }
+
+    @Test
+    void roundTripsMissingOptionalFields() {
+        Transaction transaction = new Transaction();
+        transaction.setId(1L);
+        transaction.setIdempotencyKey("k");
+        transaction.setToWalletId(3L);
+        transaction.setTransactionType(TransactionType.DEPOSIT);
+        transaction.setStatus(TransactionStatus.COMPLETED);
+
+        assertEquals(transaction, TransactionCodec.decode("k", TransactionCodec.encode(transaction)));
+    }
+}
@@ -0,0 +1,92 @@
+package org.bozgeyik.paymentservice.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Rastgele üretilen tutar ve kurlarla {@link Money} sonuçlarının {@link BigDecimal} ile aynı olduğunu doğrular.
+ * Başarısız bir örnek, sabit tohum sayesinde tekrar üretilebilir.
+ */
+class MoneyTest {
+
+    private static final int SAMPLES = 20_000;
+    private static final Random RANDOM = new Random(20240601L);
+
+    @Test
+    void additionSubtractionAndOrderingMatchBigDecimal() {
+        for (int i = 0; i < SAMPLES; i++) {
+            BigDecimal a = randomAmount();
+            BigDecimal b = randomAmount();
+            Money x = Money.of(a, "TRY");
+            Money y = Money.of(b, "TRY");
+
+            assertEquals(0, a.add(b).compareTo(x.plus(y).toBigDecimal()), () -> a + " + " + b);
+            assertEquals(0, a.subtract(b).compareTo(x.minus(y).toBigDecimal()), () -> a + " - " + b);
+            assertEquals(Integer.signum(a.compareTo(b)), Integer.signum(x.compareTo(y)), () -> a + " <> " + b);
+            assertEquals(a.negate().signum(), x.negate().signum());
+        }
+    }
+
+    @Test
+    void conversionMatchesBigDecimalForEveryRoundingMode() {
+        RoundingMode[] modes = {RoundingMode.UP, RoundingMode.DOWN, RoundingMode.CEILING, RoundingMode.FLOOR,
+                RoundingMode.HALF_UP, RoundingMode.HALF_DOWN, RoundingMode.HALF_EVEN};
+        for (int i = 0; i < SAMPLES; i++) {
+            BigDecimal amount = randomAmount(100_000_000L);
+            BigDecimal rate = BigDecimal.valueOf(RANDOM.nextLong(1, 5_000_000_000L), RANDOM.nextInt(4, 11));
+            RoundingMode mode = modes[RANDOM.nextInt(modes.length)];
+
+            BigDecimal expected = amount.multiply(rate).setScale(4, mode);
+            Money actual = Money.of(amount, "USD").convert(rate, "TRY", mode);
+
+            assertEquals("TRY", actual.currency());
+            assertEquals(expected, actual.toBigDecimal(), () -> amount + " * " + rate + " (" + mode + ")");
+        }
+    }
+
+    @Test
+    void conversionFallsBackWhenProductOverflowsLong() {
+        BigDecimal amount = new BigDecimal("99999999999999.9999");
+        BigDecimal rate = new BigDecimal("35.12345678");
+
+        BigDecimal expected = amount.multiply(new BigDecimal("0.05")).setScale(4, RoundingMode.HALF_EVEN);
+        assertEquals(expected, Money.of(amount, "TRY").multiply(new BigDecimal("0.05"), RoundingMode.HALF_EVEN).toBigDecimal());
+        assertThrows(ArithmeticException.class, () -> Money.of(amount, "USD").convert(rate, "TRY", RoundingMode.HALF_EVEN));
+    }
+
+    @Test
+    void displayFormatMatchesStringFormat() {
+        for (int i = 0; i < SAMPLES; i++) {
+            BigDecimal amount = randomAmount().abs();
+            assertEquals(String.format(Locale.ROOT, "%.2f TRY", amount), Money.of(amount, "TRY").toDisplayString());
+        }
+        assertEquals("1235 JPY", Money.of(new BigDecimal("1234.5"), "JPY").toDisplayString());
+    }
+
+    @Test
+    void rejectsAmountsFinerThanTheCurrencyScale() {
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("0.00001"), "TRY"));
+        assertThrows(IllegalArgumentException.class, () -> Money.zero("TRY").plus(Money.zero("USD")));
+    }
+
+    // Küçük, orta ve büyük tutarlar (DTO sınırı: 14 tam basamak); 0-4 ondalık basamak.
+    private static BigDecimal randomAmount() {
+        return randomAmount(switch (RANDOM.nextInt(3)) {
+            case 0 -> 10_000L;
+            case 1 -> 100_000_000L;
+            default -> 100_000_000_000_000L;
+        });
+    }
+
+    private static BigDecimal randomAmount(long bound) {
+        int scale = RANDOM.nextInt(0, 5);
+        return BigDecimal.valueOf(RANDOM.nextLong(-bound, bound), 4).setScale(scale, RoundingMode.DOWN);
+    }
+}
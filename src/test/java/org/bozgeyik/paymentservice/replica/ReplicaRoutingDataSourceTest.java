@@ -0,0 +1,133 @@
+package org.bozgeyik.paymentservice.replica;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * İki bellek içi H2 veritabanı (birincil ve replika) ile yönlendirme. Replikasyon, birincildeki sayacı gecikmeli olarak
+ * replikaya kopyalayan bir enjektörle taklit edilir.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private JdbcTemplate primaryJdbc;
+    private JdbcTemplate replicaJdbc;
+    private HeartbeatCommitPositions positions;
+    private ScheduledExecutorService lagInjector;
+    private volatile long lagMillis;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        JdbcDataSource primary = database("primary");
+        JdbcDataSource replica = database("replica");
+        primaryJdbc = new JdbcTemplate(primary);
+        replicaJdbc = new JdbcTemplate(replica);
+        positions = new HeartbeatCommitPositions(primary, 5);
+        replicaJdbc.execute("CREATE TABLE replication_heartbeat (id INT PRIMARY KEY, position BIGINT NOT NULL)");
+        replicaJdbc.update("INSERT INTO replication_heartbeat VALUES (1, 0)");
+
+        // Birincildeki sayaç değerleri, okundukları andan lagMillis sonra replikaya yazılır.
+        ArrayDeque<long[]> inFlight = new ArrayDeque<>();
+        lagInjector = Executors.newSingleThreadScheduledExecutor();
+        lagInjector.scheduleAtFixedRate(() -> {
+            long now = System.nanoTime();
+            inFlight.add(new long[]{primaryJdbc.queryForObject("SELECT position FROM replication_heartbeat", Long.class), now});
+            while (!inFlight.isEmpty() && now - inFlight.peek()[1] >= TimeUnit.MILLISECONDS.toNanos(lagMillis)) {
+                replicaJdbc.update("UPDATE replication_heartbeat SET position = ? WHERE id = 1", inFlight.poll()[0]);
+            }
+        }, 0, 2, TimeUnit.MILLISECONDS);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        lagInjector.shutdownNow();
+        positions.close();
+        ConsistencyContext.exit();
+    }
+
+    @Test
+    void routesOnlyReadOnlyTransactionsInsideScopeToReplica() {
+        Routing routing = routing(Duration.ofMillis(100));
+
+        assertEquals("primary", routing.node(true));
+        ConsistencyContext.enter(null);
+        assertEquals("replica", routing.node(true));
+        assertEquals("primary", routing.node(false));
+    }
+
+    @Test
+    void waitsForReplicaToReachToken() throws Exception {
+        lagMillis = 50;
+        Routing routing = routing(Duration.ofSeconds(2));
+        String token = routing.dataSource().currentPosition();
+
+        ConsistencyContext.enter(token);
+        long start = System.nanoTime();
+        assertEquals("replica", routing.node(true));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(40));
+        assertTrue(replicaJdbc.queryForObject("SELECT position FROM replication_heartbeat", Long.class) >= Long.parseLong(token));
+        assertEquals(0, meterRegistry.counter("datasource.replica.fallbacks").count());
+    }
+
+    @Test
+    void fallsBackToPrimaryWhenReplicaLagsBeyondMaxWait() throws Exception {
+        lagMillis = 1_000;
+        Routing routing = routing(Duration.ofMillis(100));
+        Thread.sleep(50);
+
+        ConsistencyContext.enter(routing.dataSource().currentPosition());
+        assertEquals("primary", routing.node(true));
+        assertEquals(1, meterRegistry.counter("datasource.replica.fallbacks").count());
+
+        // Konum istemeyen okumalar gecikmeye rağmen replikaya gider.
+        ConsistencyContext.enter(null);
+        assertEquals("replica", routing.node(true));
+    }
+
+    private record Routing(ReplicaRoutingDataSource dataSource, TransactionTemplate readOnly,
+                           TransactionTemplate readWrite, JdbcTemplate jdbc) {
+
+        String node(boolean readOnlyTransaction) {
+            return (readOnlyTransaction ? readOnly : readWrite)
+                    .execute(status -> jdbc.queryForObject("SELECT name FROM node", String.class));
+        }
+    }
+
+    private Routing routing(Duration maxWait) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primaryJdbc.getDataSource(),
+                List.of(replicaJdbc.getDataSource()), positions, maxWait, Duration.ofMillis(5), meterRegistry);
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routing);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return new Routing(routing, readOnly, new TransactionTemplate(transactionManager), new JdbcTemplate(dataSource));
+    }
+
+    private static JdbcDataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        new JdbcTemplate(dataSource).execute("CREATE TABLE node (name VARCHAR(16))");
+        new JdbcTemplate(dataSource).update("INSERT INTO node VALUES (?)", name);
+        return dataSource;
+    }
+}
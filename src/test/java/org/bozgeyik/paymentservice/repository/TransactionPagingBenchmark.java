@@ -0,0 +1,153 @@
+package org.bozgeyik.paymentservice.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * İşlem listesinde sayfa derinliğine göre sayfa süresi: OFFSET + COUNT ile sayfalama ({@code /payments/transactions})
+ * ile imleçle sayfalama ({@code /payments/transactions/cursor}) karşılaştırması (H2, bellek içi, aynı indeksler).
+ * Varsayılan test çalıştırmasında atlanır:
+ * {@code mvn test -Dtest=TransactionPagingBenchmark -Dbenchmark=true}
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class TransactionPagingBenchmark {
+
+    private static final long[] WALLETS = {1, 2, 3};
+    private static final int USER_ROWS = 300_000;
+    private static final int OTHER_ROWS = 100_000;
+    private static final int PAGE_SIZE = 20;
+    private static final int[] PAGES = {1, 100, 1_000, 10_000};
+    private static final int REPEATS = 5;
+
+    private static final String WHERE = " WHERE from_wallet_id IN (1, 2, 3) OR to_wallet_id IN (1, 2, 3)";
+    private static final String OFFSET_SQL = "SELECT * FROM transactions" + WHERE
+            + " ORDER BY transaction_date DESC, id DESC LIMIT ? OFFSET ?";
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM transactions" + WHERE;
+
+    @Test
+    void pageLatencyByDepth() throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:paging-benchmark;MODE=MySQL", "sa", "")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE transactions (id BIGINT AUTO_INCREMENT PRIMARY KEY, from_wallet_id BIGINT, "
+                        + "to_wallet_id BIGINT, original_amount DECIMAL(19,4), description VARCHAR(1000), "
+                        + "transaction_date TIMESTAMP(6) NOT NULL)");
+                statement.execute("CREATE INDEX idx_transactions_from_wallet_date ON transactions (from_wallet_id, transaction_date, id)");
+                statement.execute("CREATE INDEX idx_transactions_to_wallet_date ON transactions (to_wallet_id, transaction_date, id)");
+            }
+            fill(connection);
+            String seekSql = seekSql();
+
+            System.out.printf("%8s %12s %14s %12s%n", "sayfa", "offset µs", "+ count µs", "imleç µs");
+            for (int page : PAGES) {
+                int offset = (page - 1) * PAGE_SIZE;
+                Object[] cursor = rowBefore(connection, offset);
+                long offsetMicros = time(() -> query(connection, OFFSET_SQL, PAGE_SIZE, offset));
+                long countMicros = time(() -> query(connection, COUNT_SQL));
+                long seekMicros = time(() -> seek(connection, seekSql, cursor));
+                System.out.printf("%8d %12d %14d %12d%n", page, offsetMicros, offsetMicros + countMicros, seekMicros);
+            }
+        }
+    }
+
+    private interface Probe {
+        void run() throws SQLException;
+    }
+
+    private static long time(Probe probe) throws SQLException {
+        probe.run();
+        long started = System.nanoTime();
+        for (int i = 0; i < REPEATS; i++) {
+            probe.run();
+        }
+        return (System.nanoTime() - started) / REPEATS / 1_000;
+    }
+
+    private static void fill(Connection connection) throws SQLException {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO transactions "
+                + "(from_wallet_id, to_wallet_id, original_amount, description, transaction_date) VALUES (?, ?, 10, 'x', ?)")) {
+            for (int i = 0; i < USER_ROWS + OTHER_ROWS; i++) {
+                boolean user = i % 4 != 3;
+                long wallet = user ? WALLETS[i % WALLETS.length] : 100 + i % 1_000;
+                insert.setLong(1, i % 2 == 0 ? wallet : 5_000 + i % 500);
+                insert.setLong(2, i % 2 == 0 ? 5_000 + i % 500 : wallet);
+                insert.setTimestamp(3, Timestamp.valueOf(start.plusSeconds(i)));
+                insert.addBatch();
+                if (i % 10_000 == 9_999) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+    }
+
+    // Uygulamadaki TransactionRepositoryCustomImpl sorgusunun aynısı (üç cüzdan, imleçli).
+    private static String seekSql() {
+        StringBuilder sql = new StringBuilder("SELECT * FROM (");
+        for (int i = 0; i < WALLETS.length * 2; i++) {
+            if (i > 0) {
+                sql.append(" UNION ");
+            }
+            sql.append("(SELECT * FROM transactions WHERE ").append(i % 2 == 0 ? "from_wallet_id" : "to_wallet_id")
+                    .append(" = ? AND (transaction_date < ? OR (transaction_date = ? AND id < ?))")
+                    .append(" ORDER BY transaction_date DESC, id DESC LIMIT ?)");
+        }
+        return sql.append(") t ORDER BY t.transaction_date DESC, t.id DESC LIMIT ?").toString();
+    }
+
+    // Sayfanın hemen önündeki satırın (tarih, id) ikilisi; ilk sayfa için listenin en yenisinden de yeni bir değer.
+    private static Object[] rowBefore(Connection connection, int offset) throws SQLException {
+        if (offset == 0) {
+            return new Object[]{Timestamp.valueOf(LocalDateTime.of(2100, 1, 1, 0, 0)), Long.MAX_VALUE};
+        }
+        try (PreparedStatement statement = connection.prepareStatement(OFFSET_SQL)) {
+            statement.setInt(1, 1);
+            statement.setInt(2, offset - 1);
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                return new Object[]{rs.getTimestamp("transaction_date"), rs.getLong("id")};
+            }
+        }
+    }
+
+    private static void seek(Connection connection, String sql, Object[] cursor) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            int position = 1;
+            for (int i = 0; i < WALLETS.length * 2; i++) {
+                statement.setLong(position++, WALLETS[i / 2]);
+                statement.setTimestamp(position++, (Timestamp) cursor[0]);
+                statement.setTimestamp(position++, (Timestamp) cursor[0]);
+                statement.setLong(position++, (Long) cursor[1]);
+                statement.setInt(position++, PAGE_SIZE + 1);
+            }
+            statement.setInt(position, PAGE_SIZE + 1);
+            drain(statement);
+        }
+    }
+
+    private static void query(Connection connection, String sql, int... parameters) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setInt(i + 1, parameters[i]);
+            }
+            drain(statement);
+        }
+    }
+
+    private static void drain(PreparedStatement statement) throws SQLException {
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                rs.getLong(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.bozgeyik.paymentservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ClusterLockTest {
+
+    @Test
+    void allowsOneHolderPerNameUntilReleased() {
+        ClusterLock lock = new ClusterLock(new DriverManagerDataSource("jdbc:h2:mem:clusterlock;MODE=MySQL", "sa", ""));
+
+        Optional<ClusterLock.Held> first = lock.tryAcquire("reconciliation");
+        assertTrue(first.isPresent());
+        assertTrue(lock.tryAcquire("reconciliation").isEmpty());
+        lock.tryAcquire("archive").orElseThrow().close();
+
+        first.get().close();
+        lock.tryAcquire("reconciliation").orElseThrow().close();
+    }
+
+    @Test
+    void skipsWhenAnotherInstanceHoldsTheMysqlLock() throws Exception {
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.getMetaData()).thenReturn(metaData);
+        when(metaData.getDatabaseProductName()).thenReturn("MySQL");
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getInt(1)).thenReturn(0);
+
+        ClusterLock lock = new ClusterLock(dataSource);
+
+        assertTrue(lock.tryAcquire("reconciliation").isEmpty());
+        verify(statement).setString(1, "payment.reconciliation");
+        verify(connection).close();
+        // Yerel kayıt da bırakılmıştır: diğer instance bitince tekrar denenebilir.
+        when(resultSet.getInt(1)).thenReturn(1);
+        assertTrue(lock.tryAcquire("reconciliation").isPresent());
+    }
+}
@@ -0,0 +1,51 @@
+package org.bozgeyik.paymentservice.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CommitWatermarkTest {
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private CommitWatermark watermark;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:watermark;MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE entries (id BIGINT AUTO_INCREMENT PRIMARY KEY, amount INT)");
+        watermark = new CommitWatermark(jdbcTemplate, new DataSourceTransactionManager(dataSource));
+        ReflectionTestUtils.setField(watermark, "lockBatchSize", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE entries");
+    }
+
+    @Test
+    void keepsTheWatermarkWithoutNewRows() {
+        assertEquals(0L, watermark.settle("entries", 0));
+        jdbcTemplate.update("INSERT INTO entries (amount) VALUES (1)");
+        assertEquals(1L, watermark.settle("entries", 0));
+        assertEquals(1L, watermark.settle("entries", 1));
+    }
+
+    @Test
+    void scansTheRangeInBatches() {
+        for (int i = 0; i < 5; i++) {
+            jdbcTemplate.update("INSERT INTO entries (amount) VALUES (?)", i);
+        }
+        jdbcTemplate.update("DELETE FROM entries WHERE id = 3");
+
+        // Parça boyutu 2: (1, 5] aralığı üç kilitli okumada taranır; aradaki boşluk (geri alınmış satır) sınırı etkilemez.
+        assertEquals(5L, watermark.settle("entries", 1));
+    }
+}
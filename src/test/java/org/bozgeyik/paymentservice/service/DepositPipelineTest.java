@@ -0,0 +1,178 @@
+package org.bozgeyik.paymentservice.service;
+
+import org.bozgeyik.paymentservice.dto.DepositRequest;
+import org.bozgeyik.paymentservice.exception.IdempotencyException;
+import org.bozgeyik.paymentservice.idempotency.IdempotencyKeyFilter;
+import org.bozgeyik.paymentservice.model.AccountStatus;
+import org.bozgeyik.paymentservice.model.Transaction;
+import org.bozgeyik.paymentservice.model.WalletRef;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DepositPipelineTest {
+
+    private static final int BATCH_SIZE = 3;
+
+    private final ExecutorService callers = Executors.newFixedThreadPool(BATCH_SIZE);
+
+    private PaymentOrchestratorService orchestratorService;
+    private IdempotencyKeyFilter idempotencyKeyFilter;
+    private DepositPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        orchestratorService = mock(PaymentOrchestratorService.class);
+        idempotencyKeyFilter = mock(IdempotencyKeyFilter.class);
+        WalletService walletService = mock(WalletService.class);
+        when(walletService.resolveWallet("a@x.com", "TRY")).thenReturn(new WalletRef(1L, 10L, "cus_1", AccountStatus.ACTIVE));
+
+        pipeline = new DepositPipeline(orchestratorService, walletService, idempotencyKeyFilter);
+        ReflectionTestUtils.setField(pipeline, "enabled", true);
+        // Gruplar süre dolmadan, kuyruk dolduğunda işlenir.
+        ReflectionTestUtils.setField(pipeline, "lingerMillis", 60_000L);
+        ReflectionTestUtils.setField(pipeline, "maxBatchSize", BATCH_SIZE);
+        ReflectionTestUtils.setField(pipeline, "workerThreads", 1);
+        ReflectionTestUtils.setField(pipeline, "resultTimeoutMillis", 30_000L);
+        pipeline.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        pipeline.stop();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void rejectsStoredAndRepeatedKeysBeforeTheBatch() throws Exception {
+        when(idempotencyKeyFilter.findExisting(any(Collection.class))).thenReturn(Set.of("old"));
+        when(orchestratorService.applyDepositBatch(eq(1L), eq("TRY"), anyList()))
+                .thenAnswer(invocation -> transactionsFor(invocation.getArgument(2)));
+
+        List<CompletableFuture<Transaction>> results = submit("k1", "k1", "old");
+
+        int succeeded = 0;
+        int rejected = 0;
+        for (CompletableFuture<Transaction> result : results) {
+            try {
+                assertEquals("k1", result.get(5, TimeUnit.SECONDS).getIdempotencyKey());
+                succeeded++;
+            } catch (ExecutionException e) {
+                assertInstanceOf(IdempotencyException.class, e.getCause());
+                rejected++;
+            }
+        }
+        assertEquals(1, succeeded);
+        assertEquals(2, rejected);
+        verify(orchestratorService).applyDepositBatch(eq(1L), eq("TRY"), anyList());
+        verify(orchestratorService, never()).depositOnRamp(any());
+    }
+
+    @Test
+    void retriesRequestsOneByOneWhenTheBatchFails() throws Exception {
+        when(idempotencyKeyFilter.findExisting(any(Collection.class))).thenReturn(Set.of());
+        when(orchestratorService.applyDepositBatch(eq(1L), eq("TRY"), anyList()))
+                .thenThrow(new IllegalStateException("eş zamanlı anahtar"));
+        when(orchestratorService.depositOnRamp(any())).thenAnswer(invocation -> {
+            DepositRequest request = invocation.getArgument(0);
+            if (request.getIdempotencyKey().equals("k2")) {
+                throw new IdempotencyException("Bu işlem daha önce gerçekleştirildi: k2");
+            }
+            return transactionsFor(List.of(request)).get(0);
+        });
+
+        List<CompletableFuture<Transaction>> results = submit("k1", "k2", "k3");
+
+        // Her çağıran kendi isteğinin sonucunu alır; tek tek işlemede hata veren istek diğerlerini etkilemez.
+        assertEquals("k1", results.get(0).get(5, TimeUnit.SECONDS).getIdempotencyKey());
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> results.get(1).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IdempotencyException.class, failure.getCause());
+        assertEquals("k3", results.get(2).get(5, TimeUnit.SECONDS).getIdempotencyKey());
+        verify(orchestratorService, times(3)).depositOnRamp(any());
+    }
+
+    @Test
+    void failsEveryCallerWhenTheBatchThrowsAnError() {
+        when(idempotencyKeyFilter.findExisting(any(Collection.class))).thenReturn(Set.of());
+        when(orchestratorService.applyDepositBatch(eq(1L), eq("TRY"), anyList())).thenThrow(new LinkageError("sınıf yüklenemedi"));
+
+        List<CompletableFuture<Transaction>> results = submit("k1", "k2", "k3");
+
+        for (CompletableFuture<Transaction> result : results) {
+            ExecutionException failure = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(LinkageError.class, failure.getCause());
+        }
+    }
+
+    @Test
+    void timesOutAndDropsARequestThatWasNeverBatched() {
+        ReflectionTestUtils.setField(pipeline, "resultTimeoutMillis", 50L);
+
+        CompletableFuture<Transaction> result = submit("k1").get(0);
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+        // Kuyruktan çıkarılan istek kapanışta da işlenmez.
+        verify(orchestratorService, never()).applyDepositBatch(any(), any(), anyList());
+        verify(orchestratorService, never()).depositOnRamp(any());
+    }
+
+    @Test
+    void processesRequestsDirectlyOnceStopped() throws Exception {
+        when(orchestratorService.depositOnRamp(any())).thenAnswer(invocation -> {
+            DepositRequest request = invocation.getArgument(0);
+            return transactionsFor(List.of(request)).get(0);
+        });
+        pipeline.stop();
+
+        assertEquals("k1", submit("k1").get(0).get(5, TimeUnit.SECONDS).getIdempotencyKey());
+        verify(orchestratorService, never()).applyDepositBatch(any(), any(), anyList());
+    }
+
+    private List<CompletableFuture<Transaction>> submit(String... keys) {
+        List<CompletableFuture<Transaction>> results = new ArrayList<>();
+        for (String key : keys) {
+            DepositRequest request = new DepositRequest();
+            request.setIdempotencyKey(key);
+            request.setCustomerId("a@x.com");
+            request.setCurrency("TRY");
+            request.setAmount(BigDecimal.TEN);
+            results.add(CompletableFuture.supplyAsync(() -> pipeline.deposit(request), callers));
+        }
+        return results;
+    }
+
+    private static List<Transaction> transactionsFor(List<DepositRequest> requests) {
+        List<Transaction> transactions = new ArrayList<>();
+        for (DepositRequest request : requests) {
+            Transaction transaction = new Transaction();
+            transaction.setIdempotencyKey(request.getIdempotencyKey());
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+}
@@ -0,0 +1,167 @@
+package org.bozgeyik.paymentservice.service;
+
+import org.bozgeyik.paymentservice.audit.LedgerAuditLog;
+import org.bozgeyik.paymentservice.exception.InsufficientFundsException;
+import org.bozgeyik.paymentservice.model.BalanceKey;
+import org.bozgeyik.paymentservice.model.Money;
+import org.bozgeyik.paymentservice.model.Wallet;
+import org.bozgeyik.paymentservice.model.WalletBalance;
+import org.bozgeyik.paymentservice.repository.WalletBalanceRepository;
+import org.bozgeyik.paymentservice.repository.WalletRepository;
+import org.bozgeyik.paymentservice.service.ledger.BalanceChange;
+import org.bozgeyik.paymentservice.service.ledger.ConditionalLedgerEngine;
+import org.bozgeyik.paymentservice.service.ledger.InMemoryLedgerEngine;
+import org.bozgeyik.paymentservice.service.ledger.JournalLedgerEngine;
+import org.bozgeyik.paymentservice.service.ledger.LedgerJournal;
+import org.bozgeyik.paymentservice.service.ledger.LedgerMode;
+import org.bozgeyik.paymentservice.service.ledger.OptimisticLedgerEngine;
+import org.bozgeyik.paymentservice.service.ledger.ShardedBalanceEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LedgerServiceTest {
+
+    private WalletRepository walletRepository;
+    private WalletBalanceRepository balanceRepository;
+    private ConditionalLedgerEngine conditionalLedgerEngine;
+    private LedgerAuditLog ledgerAuditLog;
+    private LedgerService ledgerService;
+
+    @BeforeEach
+    void setUp() {
+        walletRepository = mock(WalletRepository.class);
+        balanceRepository = mock(WalletBalanceRepository.class);
+        conditionalLedgerEngine = mock(ConditionalLedgerEngine.class);
+        ledgerAuditLog = mock(LedgerAuditLog.class);
+        ledgerService = new LedgerService(walletRepository, balanceRepository, conditionalLedgerEngine,
+                mock(OptimisticLedgerEngine.class), mock(ShardedBalanceEngine.class), mock(JournalLedgerEngine.class),
+                mock(InMemoryLedgerEngine.class), mock(LedgerJournal.class), ledgerAuditLog);
+        ReflectionTestUtils.setField(ledgerService, "ledgerMode", LedgerMode.PESSIMISTIC);
+    }
+
+    @Test
+    void locksAllRowsInOneSortedBatch() {
+        Wallet first = wallet(1L);
+        Wallet second = wallet(2L);
+        WalletBalance firstTry = balance(first, "TRY", "100");
+        WalletBalance firstUsd = balance(first, "USD", "5");
+        WalletBalance secondTry = balance(second, "TRY", "0");
+        when(balanceRepository.lockAllForUpdate(anyList())).thenReturn(List.of(firstTry, firstUsd, secondTry));
+
+        // B→A ve A→B yönlerinin aynı sırayla kilitlenmesi için anahtarlar verilen sıradan bağımsız sıralanır.
+        ledgerService.updateBalances(List.of(
+                BalanceChange.of(2L, "TRY", new BigDecimal("30")),
+                BalanceChange.of(1L, "USD", new BigDecimal("-1")),
+                BalanceChange.of(1L, "TRY", new BigDecimal("-30")),
+                BalanceChange.of(2L, "TRY", new BigDecimal("1"))));
+
+        verify(balanceRepository).lockAllForUpdate(List.of(
+                new BalanceKey(1L, "TRY"), new BalanceKey(1L, "USD"), new BalanceKey(2L, "TRY")));
+        assertEquals(0, new BigDecimal("70").compareTo(firstTry.getBalance()));
+        assertEquals(0, new BigDecimal("4").compareTo(firstUsd.getBalance()));
+        assertEquals(0, new BigDecimal("31").compareTo(secondTry.getBalance()));
+        verify(balanceRepository).saveAll(any());
+        verify(walletRepository, never()).findById(any());
+    }
+
+    @Test
+    void createsMissingRowsAfterTheBatchLock() {
+        Wallet wallet = wallet(1L);
+        when(balanceRepository.lockAllForUpdate(anyList())).thenReturn(List.of());
+        when(walletRepository.findById(1L)).thenReturn(Optional.of(wallet));
+
+        ledgerService.updateBalances(List.of(BalanceChange.of(1L, "EUR", new BigDecimal("10"))));
+
+        InOrder order = inOrder(balanceRepository, walletRepository);
+        order.verify(balanceRepository).lockAllForUpdate(List.of(new BalanceKey(1L, "EUR")));
+        order.verify(walletRepository).findById(1L);
+        order.verify(balanceRepository).saveAll(any());
+    }
+
+    @Test
+    void rejectsBatchWhenAnyDebitOverdraws() {
+        Wallet wallet = wallet(1L);
+        when(balanceRepository.lockAllForUpdate(anyList())).thenReturn(List.of(balance(wallet, "TRY", "10")));
+
+        assertThrows(InsufficientFundsException.class, () -> ledgerService.updateBalances(List.of(
+                BalanceChange.of(1L, "TRY", new BigDecimal("-11")))));
+        verify(balanceRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void otherModesApplyRowsInTheSameGlobalOrder() {
+        ReflectionTestUtils.setField(ledgerService, "ledgerMode", LedgerMode.CONDITIONAL);
+
+        ledgerService.updateBalances(List.of(
+                BalanceChange.of(2L, "TRY", new BigDecimal("5")),
+                BalanceChange.of(1L, "USD", new BigDecimal("-5")),
+                BalanceChange.of(1L, "TRY", new BigDecimal("-5"))));
+
+        InOrder order = inOrder(conditionalLedgerEngine);
+        order.verify(conditionalLedgerEngine).apply(1L, "TRY", new BigDecimal("-5.0000"));
+        order.verify(conditionalLedgerEngine).apply(1L, "USD", new BigDecimal("-5.0000"));
+        order.verify(conditionalLedgerEngine).apply(2L, "TRY", new BigDecimal("5.0000"));
+        verify(balanceRepository, never()).lockAllForUpdate(anyList());
+    }
+
+    @Test
+    void appliesBatchOnceAndAuditsEachRequest() {
+        Wallet wallet = wallet(1L);
+        WalletBalance balance = balance(wallet, "TRY", "100");
+        when(walletRepository.findById(1L)).thenReturn(Optional.of(wallet));
+        when(balanceRepository.findByWalletAndCurrencyForUpdate(wallet, "TRY")).thenReturn(Optional.of(balance));
+
+        ledgerService.updateBalanceBatch(1L, List.of(try_("10"), try_("5")), List.of("k1", "k2"));
+
+        assertEquals(0, new BigDecimal("115").compareTo(balance.getBalance()));
+        verify(balanceRepository).save(balance);
+        InOrder order = inOrder(ledgerAuditLog);
+        order.verify(ledgerAuditLog).record(1L, try_("10"), try_("110"), "k1");
+        order.verify(ledgerAuditLog).record(1L, try_("5"), try_("115"), "k2");
+    }
+
+    @Test
+    void auditsBatchWithoutBalanceWhenTheEngineDoesNotReadIt() {
+        ReflectionTestUtils.setField(ledgerService, "ledgerMode", LedgerMode.CONDITIONAL);
+
+        ledgerService.updateBalanceBatch(1L, List.of(try_("10"), try_("5")), List.of("k1", "k2"));
+
+        verify(conditionalLedgerEngine).apply(1L, "TRY", new BigDecimal("15.0000"));
+        verify(ledgerAuditLog).record(1L, try_("10"), null, "k1");
+        verify(ledgerAuditLog).record(1L, try_("5"), null, "k2");
+    }
+
+    private static Money try_(String amount) {
+        return Money.of(new BigDecimal(amount), "TRY");
+    }
+
+    private static Wallet wallet(Long id) {
+        Wallet wallet = new Wallet();
+        wallet.setId(id);
+        return wallet;
+    }
+
+    private static WalletBalance balance(Wallet wallet, String currency, String amount) {
+        WalletBalance balance = new WalletBalance();
+        balance.setWallet(wallet);
+        balance.setCurrency(currency);
+        balance.setBalance(new BigDecimal(amount));
+        return balance;
+    }
+}
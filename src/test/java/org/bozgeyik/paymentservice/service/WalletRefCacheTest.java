@@ -0,0 +1,58 @@
+package org.bozgeyik.paymentservice.service;
+
+import org.bozgeyik.paymentservice.model.AccountStatus;
+import org.bozgeyik.paymentservice.model.WalletRef;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class WalletRefCacheTest {
+
+    private static final WalletRef TRY_WALLET = new WalletRef(1L, 10L, "cus_1", AccountStatus.ACTIVE);
+    private static final WalletRef USD_WALLET = new WalletRef(2L, 10L, "cus_1", AccountStatus.ACTIVE);
+    private static final WalletRef OTHER_USER = new WalletRef(3L, 20L, "cus_2", AccountStatus.ACTIVE);
+
+    @Test
+    void invalidatesByWalletAndByUser() {
+        WalletRefCache cache = new WalletRefCache(100, TimeUnit.MINUTES.toNanos(1));
+        cache.put("a@x.com", "TRY", TRY_WALLET, cache.generation());
+        cache.put("a@x.com", "USD", USD_WALLET, cache.generation());
+        cache.put("b@x.com", "TRY", OTHER_USER, cache.generation());
+
+        cache.invalidateWallet(1L);
+        assertNull(cache.get("a@x.com", "TRY"));
+        assertEquals(USD_WALLET, cache.get("a@x.com", "USD"));
+
+        cache.invalidateUser(10L);
+        assertNull(cache.get("a@x.com", "USD"));
+        assertEquals(OTHER_USER, cache.get("b@x.com", "TRY"));
+    }
+
+    @Test
+    void dropsReadsThatStartedBeforeAnInvalidation() {
+        WalletRefCache cache = new WalletRefCache(100, TimeUnit.MINUTES.toNanos(1));
+        long generation = cache.generation();
+        // Okuma sürerken e-posta değişti; okunan eski çözümleme önbelleğe girmemeli.
+        cache.invalidateUser(10L);
+        cache.put("a@x.com", "TRY", TRY_WALLET, generation);
+
+        assertNull(cache.get("a@x.com", "TRY"));
+    }
+
+    @Test
+    void evictsEldestBeyondCapacityAndExpiredEntries() {
+        WalletRefCache cache = new WalletRefCache(2, TimeUnit.MINUTES.toNanos(1));
+        cache.put("a@x.com", "TRY", TRY_WALLET, cache.generation());
+        cache.put("a@x.com", "USD", USD_WALLET, cache.generation());
+        cache.put("b@x.com", "TRY", OTHER_USER, cache.generation());
+        assertNull(cache.get("a@x.com", "TRY"));
+        assertEquals(OTHER_USER, cache.get("b@x.com", "TRY"));
+
+        WalletRefCache expiring = new WalletRefCache(2, 0);
+        expiring.put("a@x.com", "TRY", TRY_WALLET, expiring.generation());
+        assertNull(expiring.get("a@x.com", "TRY"));
+    }
+}
@@ -0,0 +1,148 @@
+package org.bozgeyik.paymentservice.service.archive;
+
+import org.bozgeyik.paymentservice.model.Transaction;
+import org.bozgeyik.paymentservice.model.TransactionStatus;
+import org.bozgeyik.paymentservice.model.TransactionType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArchiveSegmentTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @TempDir
+    Path directory;
+
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        connection = DriverManager.getConnection("jdbc:h2:mem:archive;MODE=MySQL", "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE transactions (id BIGINT PRIMARY KEY, idempotency_key VARCHAR(100), "
+                    + "from_wallet_id BIGINT, to_wallet_id BIGINT, original_amount DECIMAL(19,4), original_currency VARCHAR(3), "
+                    + "converted_amount DECIMAL(19,4), target_currency VARCHAR(3), exchange_rate_used DECIMAL(19,8), "
+                    + "exchange_rate_path VARCHAR(64), fee_amount DECIMAL(19,4), description VARCHAR(1000), "
+                    + "transaction_type VARCHAR(32), status VARCHAR(32), transaction_date TIMESTAMP(6))");
+        }
+        // 10 işlem: cüzdan 42 yalnızca 5. (alıcı) ve 9. (gönderen) işlemlerde
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO transactions VALUES (?, ?, ?, ?, ?, 'TRY', ?, 'TRY', 1, NULL, ?, ?, ?, 'COMPLETED', ?)")) {
+            for (int i = 0; i < 10; i++) {
+                insert.setLong(1, 100 + i);
+                insert.setString(2, "k" + i);
+                insert.setObject(3, i == 0 ? null : i == 9 ? 42L : 1L);
+                insert.setObject(4, i == 5 ? 42L : 2L);
+                insert.setBigDecimal(5, new BigDecimal("10.5").add(BigDecimal.valueOf(i)));
+                insert.setBigDecimal(6, new BigDecimal("10.5").add(BigDecimal.valueOf(i)));
+                insert.setBigDecimal(7, i == 3 ? new BigDecimal("0.2500") : null);
+                insert.setString(8, i == 5 ? "Şubat kirası, \"ev\"" : null);
+                insert.setString(9, i == 0 ? "DEPOSIT" : "TRANSFER");
+                insert.setTimestamp(10, Timestamp.valueOf(START.plusHours(i).plusNanos(123_456_000)));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE transactions");
+        }
+        connection.close();
+    }
+
+    @Test
+    void roundTripsRowsThroughCompressedBlocks() throws Exception {
+        Path file = write(4);
+
+        List<Transaction> rows = new ArrayList<>();
+        try (ArchiveSegmentReader reader = ArchiveSegmentReader.open(file)) {
+            assertEquals(10, reader.rowCount());
+            assertEquals(3, reader.blockCount());
+            for (int block = 0; block < reader.blockCount(); block++) {
+                ArchiveBlock data = reader.readBlock(block);
+                for (int row = 0; row < data.rows(); row++) {
+                    rows.add(data.transaction(row));
+                }
+            }
+        }
+
+        assertEquals(10, rows.size());
+        Transaction deposit = rows.get(0);
+        assertEquals(100L, deposit.getId());
+        assertNull(deposit.getFromWalletId());
+        assertEquals(TransactionType.DEPOSIT, deposit.getTransactionType());
+        assertEquals(TransactionStatus.COMPLETED, deposit.getStatus());
+        assertNull(deposit.getFeeAmount());
+        assertEquals(START.plusNanos(123_456_000), deposit.getTransactionDate());
+
+        assertEquals(new BigDecimal("0.2500"), rows.get(3).getFeeAmount());
+        assertEquals(new BigDecimal("15.5000"), rows.get(5).getOriginalAmount());
+        assertEquals("Şubat kirası, \"ev\"", rows.get(5).getDescription());
+        assertEquals(new BigDecimal("1.00000000"), rows.get(9).getExchangeRateUsed());
+        assertEquals(42L, rows.get(9).getFromWalletId());
+    }
+
+    @Test
+    void walletIndexPointsOnlyToBlocksTouchingWallet() throws Exception {
+        Path file = write(4);
+
+        try (ArchiveSegmentReader reader = ArchiveSegmentReader.open(file)) {
+            assertArrayEquals(new int[]{1, 2}, reader.blocksOf(new long[]{42}));
+            assertArrayEquals(new int[]{0, 1, 2}, reader.blocksOf(new long[]{2, 42}));
+            assertArrayEquals(new int[0], reader.blocksOf(new long[]{7}));
+
+            ArchiveBlock block = reader.readBlock(1);
+            assertTrue(block.touches(1, new long[]{42}));
+            assertFalse(block.touches(0, new long[]{42}));
+            assertEquals(START.plusHours(4).plusNanos(123_456_000), ArchiveSegmentFormat.fromMicros(reader.blockMinMicros(1)));
+        }
+    }
+
+    @Test
+    void rejectsUnfinishedSegment() throws Exception {
+        Path file = directory.resolve("unfinished.seg");
+        try (ArchiveSegmentWriter writer = new ArchiveSegmentWriter(file, 4);
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT " + ArchiveSegmentFormat.SELECT_COLUMNS + " FROM transactions")) {
+            rs.next();
+            writer.append(rs);
+        }
+        assertThrows(IOException.class, () -> ArchiveSegmentReader.open(file));
+    }
+
+    private Path write(int blockRows) throws Exception {
+        Path file = directory.resolve("segment.seg");
+        try (ArchiveSegmentWriter writer = new ArchiveSegmentWriter(file, blockRows);
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT " + ArchiveSegmentFormat.SELECT_COLUMNS
+                     + " FROM transactions ORDER BY transaction_date, id")) {
+            while (rs.next()) {
+                writer.append(rs);
+            }
+            writer.finish();
+            assertEquals(100L, writer.minId());
+            assertEquals(109L, writer.maxId());
+        }
+        return file;
+    }
+}
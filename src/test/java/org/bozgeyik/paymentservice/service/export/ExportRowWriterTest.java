@@ -0,0 +1,75 @@
+package org.bozgeyik.paymentservice.service.export;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ExportRowWriterTest {
+
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        connection = DriverManager.getConnection("jdbc:h2:mem:export;MODE=MySQL", "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE transactions (id BIGINT PRIMARY KEY, idempotency_key VARCHAR(100), "
+                    + "from_wallet_id BIGINT, to_wallet_id BIGINT, original_amount DECIMAL(19,4), original_currency VARCHAR(3), "
+                    + "converted_amount DECIMAL(19,4), target_currency VARCHAR(3), exchange_rate_used DECIMAL(19,8), "
+                    + "exchange_rate_path VARCHAR(64), fee_amount DECIMAL(19,4), description VARCHAR(1000), "
+                    + "transaction_type VARCHAR(32), status VARCHAR(32), transaction_date TIMESTAMP(6))");
+            statement.execute("INSERT INTO transactions VALUES (1, 'k1', NULL, 7, 100, 'TRY', 100, 'TRY', 1, NULL, NULL, "
+                    + "'Kira, \"Ocak\"', 'DEPOSIT', 'COMPLETED', TIMESTAMP '2024-01-02 03:04:05.123456')");
+            statement.execute("INSERT INTO transactions VALUES (2, 'k2', 7, 9, 10, 'USD', 330.5, 'TRY', 33.05, 'USD>TRY', NULL, "
+                    + "'=HYPERLINK(1)', 'TRANSFER', 'COMPLETED', TIMESTAMP '2024-01-03 00:00:00')");
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        connection.close();
+    }
+
+    @Test
+    void writesNdjsonWithEntityFieldNames() throws Exception {
+        assertEquals("""
+                {"id":1,"idempotencyKey":"k1","fromWalletId":null,"toWalletId":7,"originalAmount":100.0000,\
+                "originalCurrency":"TRY","convertedAmount":100.0000,"targetCurrency":"TRY","exchangeRateUsed":1.00000000,\
+                "exchangeRatePath":null,"feeAmount":null,"description":"Kira, \\"Ocak\\"","transactionType":"DEPOSIT",\
+                "status":"COMPLETED","transactionDate":"2024-01-02T03:04:05.123456"}
+                """, export(ExportFormat.NDJSON).lines().findFirst().orElseThrow() + "\n");
+        assertEquals(2, export(ExportFormat.NDJSON).lines().count());
+    }
+
+    @Test
+    void writesCsvWithQuotingAndFormulaGuard() throws Exception {
+        String[] lines = export(ExportFormat.CSV).split("\r\n");
+
+        assertEquals(3, lines.length);
+        assertEquals(ExportRowWriter.SELECT_COLUMNS.replace(", ", ","), lines[0]);
+        assertEquals("1,k1,,7,100.0000,TRY,100.0000,TRY,1.00000000,,,\"Kira, \"\"Ocak\"\"\",DEPOSIT,COMPLETED,"
+                + "2024-01-02T03:04:05.123456", lines[1]);
+        assertEquals("2,k2,7,9,10.0000,USD,330.5000,TRY,33.05000000,USD>TRY,,'=HYPERLINK(1),TRANSFER,COMPLETED,"
+                + "2024-01-03T00:00", lines[2]);
+    }
+
+    private String export(ExportFormat format) throws Exception {
+        StringWriter out = new StringWriter();
+        ExportRowWriter writer = format.open(out);
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT " + ExportRowWriter.SELECT_COLUMNS + " FROM transactions ORDER BY id")) {
+            while (rs.next()) {
+                writer.writeRow(rs);
+            }
+        }
+        writer.finish();
+        return out.toString();
+    }
+}
@@ -0,0 +1,51 @@
+package org.bozgeyik.paymentservice.service.fx;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpiryWheelTest {
+
+    private static final long TICK = 100;
+
+    @Test
+    void expiresEntriesAtTheirDeadlineTick() {
+        ExpiryWheel<String> wheel = new ExpiryWheel<>(8, TICK, 1_000);
+        wheel.schedule("a", 1_250);
+        wheel.schedule("b", 1_300);
+        wheel.schedule("c", 1_301);
+        List<String> expired = new ArrayList<>();
+
+        assertEquals(0, wheel.advance(1_299, expired::add));
+        assertEquals(2, wheel.advance(1_300, expired::add));
+        assertEquals(List.of("a", "b"), expired);
+        assertEquals(1, wheel.advance(1_400, expired::add));
+        assertEquals("c", expired.get(2));
+    }
+
+    @Test
+    void keepsEntriesLongerThanOneRotation() {
+        ExpiryWheel<String> wheel = new ExpiryWheel<>(4, TICK, 0);
+        wheel.schedule("long", 1_000);
+        List<String> expired = new ArrayList<>();
+
+        assertEquals(0, wheel.advance(999, expired::add));
+        assertEquals(1, wheel.advance(1_000, expired::add));
+        assertEquals(List.of("long"), expired);
+    }
+
+    @Test
+    void movesPastDeadlinesToTheNextTick() {
+        ExpiryWheel<String> wheel = new ExpiryWheel<>(16, TICK, 0);
+        wheel.advance(500, key -> { });
+        wheel.schedule("late", 200);
+        List<String> expired = new ArrayList<>();
+
+        assertEquals(1, wheel.advance(600, expired::add));
+        assertTrue(expired.contains("late"));
+    }
+}
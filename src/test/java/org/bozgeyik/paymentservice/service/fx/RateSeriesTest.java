@@ -0,0 +1,64 @@
+package org.bozgeyik.paymentservice.service.fx;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateSeriesTest {
+
+    @Test
+    void matchesNaiveLookupAcrossBlocks() {
+        RateSeries series = new RateSeries();
+        TreeMap<Long, Long> expected = new TreeMap<>();
+        Random random = new Random(42);
+        long time = 1_700_000_000_000L;
+        long units = 3_250_000_000L;
+        for (int i = 0; i < RateSeries.BLOCK_SIZE * 5 + 17; i++) {
+            // Aynı milisaniyede birden fazla tik de olabilir; son gelen geçerlidir.
+            time += random.nextInt(4) == 0 ? 0 : random.nextInt(60_000);
+            units += random.nextInt(20_001) - 10_000;
+            assertTrue(series.append(time, units));
+            expected.put(time, units);
+        }
+
+        assertEquals(RateSeries.BLOCK_SIZE * 5 + 17, series.size());
+        assertEquals(RateSeries.MISSING, series.unitsAt(expected.firstKey() - 1));
+        for (int i = 0; i < 10_000; i++) {
+            long at = expected.firstKey() + (long) (random.nextDouble() * (time - expected.firstKey() + 120_000));
+            Map.Entry<Long, Long> entry = expected.floorEntry(at);
+            assertEquals(entry.getValue(), series.unitsAt(at), "t=" + at);
+        }
+        for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), series.unitsAt(entry.getKey()));
+        }
+    }
+
+    @Test
+    void rejectsOlderAndDuplicatePoints() {
+        RateSeries series = new RateSeries();
+        assertTrue(series.append(1_000, 5));
+        assertFalse(series.append(1_000, 5));
+        assertFalse(series.append(999, 7));
+        assertTrue(series.append(1_000, 6));
+
+        assertEquals(2, series.size());
+        assertEquals(6, series.unitsAt(1_000));
+        assertEquals(RateSeries.MISSING, series.unitsAt(999));
+    }
+
+    @Test
+    void compressesSealedBlocks() {
+        RateSeries series = new RateSeries();
+        for (int i = 0; i < RateSeries.BLOCK_SIZE * 100; i++) {
+            series.append(1_700_000_000_000L + i * 1_000L, 3_250_000_000L + (i % 7) * 100);
+        }
+        long rawBytes = (long) series.size() * 2 * Long.BYTES;
+        assertTrue(series.memoryBytes() * 3 < rawBytes, "bellek: " + series.memoryBytes());
+    }
+}
@@ -0,0 +1,132 @@
+package org.bozgeyik.paymentservice.service.fx;
+
+import org.bozgeyik.paymentservice.model.ExchangeRate;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateTableTest {
+
+    private static final Set<String> PIVOTS = Set.of("USD", "EUR");
+
+    @Test
+    void looksUpRatesByCodeAndDenseId() {
+        RateTable table = table(rate("USD", "TRY", "32.5"), rate("TRY", "USD", "0.03"), rate("EUR", "USD", "1.08"));
+
+        assertEquals(3, table.size());
+        assertEquals(3, table.directCount());
+        assertEquals(new CrossRate(new BigDecimal("32.5"), "USD>TRY"), table.crossRate("USD", "TRY"));
+        assertEquals(0, new BigDecimal("32.5").compareTo(table.rate("usd", "try")));
+        assertEquals("EUR>USD", table.crossRate(table.idOf("EUR"), table.idOf("USD")).path());
+        assertEquals(CrossRate.SAME_CURRENCY, table.crossRate("EUR", "EUR"));
+        assertEquals("EUR", table.currency(table.idOf("EUR")));
+
+        assertNull(table.rate("GBP", "USD"));
+        assertEquals(-1, table.idOf("US"));
+        assertEquals(-1, table.idOf("U$D"));
+    }
+
+    @Test
+    void derivesInverseAndCrossRates() {
+        RateTable table = table(rate("TRY", "USD", "0.03"), rate("EUR", "USD", "1.08"));
+
+        assertEquals(new CrossRate(new BigDecimal("0.92592593"), "USD~EUR"), table.crossRate("USD", "EUR"));
+        assertEquals(new CrossRate(new BigDecimal("33.33333333"), "USD~TRY"), table.crossRate("USD", "TRY"));
+        assertEquals(new CrossRate(new BigDecimal("0.02777778"), "TRY>USD~EUR"), table.crossRate("TRY", "EUR"));
+        assertEquals(new CrossRate(new BigDecimal("36.00000000"), "EUR>USD~TRY"), table.crossRate("EUR", "TRY"));
+        assertEquals(4, table.derivedCount());
+    }
+
+    @Test
+    void prefersDirectRowsAndPivotCurrencies() {
+        // GBP -> JPY: TRY (pivot değil) veya USD (pivot) üzerinden iki satırla ulaşılabilir.
+        RateTable table = table(
+                rate("GBP", "TRY", "40"), rate("TRY", "JPY", "4.5"),
+                rate("GBP", "USD", "1.25"), rate("USD", "JPY", "150"),
+                rate("TRY", "GBP", "0.025"));
+
+        assertEquals(new CrossRate(new BigDecimal("187.50000000"), "GBP>USD>JPY"), table.crossRate("GBP", "JPY"));
+        // Ters kur yerine TRY -> GBP satırı kullanılır.
+        assertEquals("TRY>GBP", table.crossRate("TRY", "GBP").path());
+    }
+
+    @Test
+    void limitsPathLength() {
+        List<ExchangeRate> chain = List.of(
+                rate("AAA", "BBB", "2"), rate("BBB", "CCC", "2"), rate("CCC", "DDD", "2"), rate("DDD", "EEE", "2"));
+
+        assertEquals("AAA>BBB>CCC>DDD", RateTable.of(1, chain, PIVOTS, 3).crossRate("AAA", "DDD").path());
+        assertNull(RateTable.of(1, chain, PIVOTS, 3).crossRate("AAA", "EEE"));
+        assertEquals(new BigDecimal("16.00000000"), RateTable.of(1, chain, PIVOTS, 4).rate("AAA", "EEE"));
+    }
+
+    @Test
+    void skipsRowsWithInvalidCodes() {
+        RateTable table = table(rate("USD", "TR1", "32.5"), rate("EUR", "USD", "1.08"));
+
+        assertEquals(2, table.size());
+        assertNull(table.rate("USD", "TR1"));
+    }
+
+    @Test
+    void incrementalUpdateMatchesFullRebuild() {
+        String[] codes = {"USD", "EUR", "TRY", "GBP", "JPY", "CHF", "AUD", "CAD"};
+        Random random = new Random(7);
+        List<ExchangeRate> rows = new ArrayList<>();
+        for (String from : codes) {
+            for (String to : codes) {
+                if (!from.equals(to) && random.nextInt(4) == 0) {
+                    rows.add(rate(from, to, BigDecimal.valueOf(random.nextInt(1_000_000) + 1, 4).toPlainString()));
+                }
+            }
+        }
+        RateTable table = RateTable.of(1, rows, PIVOTS, 3);
+        for (int i = 0; i < 50; i++) {
+            ExchangeRate changed = rows.get(random.nextInt(rows.size()));
+            changed.setRate(BigDecimal.valueOf(random.nextInt(1_000_000) + 1, 4));
+            table = table.withRate(table.version() + 1, changed.getFromCurrency(), changed.getToCurrency(), changed.getRate());
+            assertNotNull(table);
+
+            RateTable rebuilt = RateTable.of(table.version(), rows, PIVOTS, 3);
+            assertTrue(table.sameRatesAs(rebuilt));
+            for (String from : codes) {
+                for (String to : codes) {
+                    assertEquals(rebuilt.crossRate(from, to), table.crossRate(from, to), from + " -> " + to);
+                }
+            }
+        }
+        assertNull(table.withRate(table.version() + 1, "USD", "XYZ", BigDecimal.ONE));
+    }
+
+    @Test
+    void comparesDirectRatesIndependentOfRowOrder() {
+        RateTable table = table(rate("USD", "TRY", "32.5"), rate("EUR", "USD", "1.08"));
+
+        assertTrue(table.sameRatesAs(table(rate("EUR", "USD", "1.080"), rate("USD", "TRY", "32.5"))));
+        assertFalse(table.sameRatesAs(table(rate("USD", "TRY", "32.6"), rate("EUR", "USD", "1.08"))));
+        assertFalse(table.sameRatesAs(table(rate("USD", "TRY", "32.5"), rate("USD", "EUR", "0.92"))));
+        assertFalse(table.sameRatesAs(RateTable.empty()));
+    }
+
+    private static RateTable table(ExchangeRate... rows) {
+        return RateTable.of(1, List.of(rows), PIVOTS, 3);
+    }
+
+    private static ExchangeRate rate(String from, String to, String rate) {
+        ExchangeRate row = new ExchangeRate();
+        row.setFromCurrency(from);
+        row.setToCurrency(to);
+        row.setRate(new BigDecimal(rate));
+        return row;
+    }
+}
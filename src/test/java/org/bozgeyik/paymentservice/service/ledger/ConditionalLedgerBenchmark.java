@@ -0,0 +1,126 @@
+package org.bozgeyik.paymentservice.service.ledger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Bakiye güncellemesi başına süre ve iş hacmi: kötümser yol ({@code SELECT ... FOR UPDATE} + {@code UPDATE}, iki
+ * round trip) ile {@link ConditionalLedgerEngine}'in tek koşullu {@code UPDATE}'i karşılaştırması (H2, bellek içi,
+ * çok iş parçacıklı, az sayıda sıcak cüzdan). Varsayılan test çalıştırmasında atlanır:
+ * {@code mvn test -Dtest=ConditionalLedgerBenchmark -Dbenchmark=true}
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ConditionalLedgerBenchmark {
+
+    private static final String URL = "jdbc:h2:mem:conditional-benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000";
+    private static final int[] THREADS = {1, 4, 16};
+    private static final int WALLETS = 8;
+    private static final int OPERATIONS_PER_THREAD = 5_000;
+
+    private static final String LOCK_SQL = "SELECT balance FROM wallet_balances WHERE wallet_id = ? AND currency = 'TRY' FOR UPDATE";
+    private static final String SET_SQL = "UPDATE wallet_balances SET balance = ?, version = version + 1 "
+            + "WHERE wallet_id = ? AND currency = 'TRY'";
+    // Uygulamadaki WalletBalanceRepository.applyDeltaIfSufficient sorgusunun aynısı.
+    private static final String CONDITIONAL_SQL = "UPDATE wallet_balances SET balance = balance + ?, version = version + 1 "
+            + "WHERE wallet_id = ? AND currency = 'TRY' AND balance + ? >= 0";
+
+    private interface Operation {
+        void apply(Connection connection, long walletId, BigDecimal delta) throws SQLException;
+    }
+
+    @Test
+    void updateThroughputByThreadCount() throws Exception {
+        try (Connection setup = DriverManager.getConnection(URL, "sa", "")) {
+            try (Statement statement = setup.createStatement()) {
+                statement.execute("CREATE TABLE wallet_balances (id BIGINT AUTO_INCREMENT PRIMARY KEY, wallet_id BIGINT NOT NULL, "
+                        + "currency VARCHAR(3) NOT NULL, balance DECIMAL(19,4) NOT NULL, version BIGINT NOT NULL, "
+                        + "UNIQUE (wallet_id, currency))");
+                for (int w = 1; w <= WALLETS; w++) {
+                    statement.execute("INSERT INTO wallet_balances (wallet_id, currency, balance, version) VALUES ("
+                            + w + ", 'TRY', 1000000, 0)");
+                }
+            }
+
+            System.out.printf("%8s %16s %16s%n", "thread", "kötümser op/s", "koşullu op/s");
+            for (int threads : THREADS) {
+                long pessimistic = run(threads, ConditionalLedgerBenchmark::pessimistic);
+                long conditional = run(threads, ConditionalLedgerBenchmark::conditional);
+                System.out.printf("%8d %16d %16d%n", threads, pessimistic, conditional);
+            }
+        }
+    }
+
+    private static long run(int threads, Operation operation) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            long started = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                int seed = t;
+                futures.add(pool.submit(() -> {
+                    try (Connection connection = DriverManager.getConnection(URL, "sa", "")) {
+                        connection.setAutoCommit(false);
+                        for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                            // Para girişi ve çıkışı sırayla; bakiye hiçbir zaman yetersiz kalmaz.
+                            BigDecimal delta = i % 2 == 0 ? BigDecimal.ONE : BigDecimal.ONE.negate();
+                            operation.apply(connection, 1 + (seed + i) % WALLETS, delta);
+                            connection.commit();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            long elapsedNanos = System.nanoTime() - started;
+            return (long) threads * OPERATIONS_PER_THREAD * 1_000_000_000L / elapsedNanos;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void pessimistic(Connection connection, long walletId, BigDecimal delta) throws SQLException {
+        BigDecimal balance;
+        try (PreparedStatement lock = connection.prepareStatement(LOCK_SQL)) {
+            lock.setLong(1, walletId);
+            try (ResultSet rs = lock.executeQuery()) {
+                rs.next();
+                balance = rs.getBigDecimal(1);
+            }
+        }
+        BigDecimal updated = balance.add(delta);
+        if (updated.signum() < 0) {
+            throw new IllegalStateException("Yetersiz bakiye");
+        }
+        try (PreparedStatement set = connection.prepareStatement(SET_SQL)) {
+            set.setBigDecimal(1, updated);
+            set.setLong(2, walletId);
+            set.executeUpdate();
+        }
+    }
+
+    private static void conditional(Connection connection, long walletId, BigDecimal delta) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement(CONDITIONAL_SQL)) {
+            update.setBigDecimal(1, delta);
+            update.setLong(2, walletId);
+            update.setBigDecimal(3, delta);
+            if (update.executeUpdate() != 1) {
+                throw new IllegalStateException("Yetersiz bakiye");
+            }
+        }
+    }
+}
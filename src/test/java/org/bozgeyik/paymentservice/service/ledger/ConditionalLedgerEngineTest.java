@@ -0,0 +1,75 @@
+package org.bozgeyik.paymentservice.service.ledger;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.bozgeyik.paymentservice.exception.InsufficientFundsException;
+import org.bozgeyik.paymentservice.repository.WalletBalanceRepository;
+import org.bozgeyik.paymentservice.repository.WalletRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class ConditionalLedgerEngineTest {
+
+    private static final BigDecimal TEN = new BigDecimal("10.00");
+
+    private WalletRepository walletRepository;
+    private WalletBalanceRepository balanceRepository;
+    private ConditionalLedgerEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        walletRepository = mock(WalletRepository.class);
+        balanceRepository = mock(WalletBalanceRepository.class);
+        engine = new ConditionalLedgerEngine(walletRepository, balanceRepository);
+    }
+
+    @Test
+    void fastPathRunsASingleStatement() {
+        when(balanceRepository.applyDeltaIfSufficient(1L, "TRY", TEN.negate())).thenReturn(1);
+
+        engine.apply(1L, "TRY", TEN.negate());
+
+        verifyNoInteractions(walletRepository);
+        verify(balanceRepository, never()).upsertCredit(anyLong(), anyString(), any());
+    }
+
+    @Test
+    void rejectsDebitWhenConditionFails() {
+        when(balanceRepository.applyDeltaIfSufficient(1L, "TRY", TEN.negate())).thenReturn(0);
+        when(walletRepository.existsById(1L)).thenReturn(true);
+
+        assertThrows(InsufficientFundsException.class, () -> engine.apply(1L, "TRY", TEN.negate()));
+        verify(balanceRepository, never()).upsertCredit(anyLong(), anyString(), any());
+    }
+
+    @Test
+    void rejectsUnknownWalletBeforeCheckingFunds() {
+        when(balanceRepository.applyDeltaIfSufficient(anyLong(), anyString(), any())).thenReturn(0);
+        when(walletRepository.existsById(2L)).thenReturn(false);
+
+        assertThrows(EntityNotFoundException.class, () -> engine.apply(2L, "TRY", TEN.negate()));
+        assertThrows(EntityNotFoundException.class, () -> engine.apply(2L, "TRY", TEN));
+        verify(balanceRepository, never()).upsertCredit(anyLong(), anyString(), any());
+    }
+
+    @Test
+    void creditToMissingRowCreatesIt() {
+        when(balanceRepository.applyDeltaIfSufficient(1L, "USD", TEN)).thenReturn(0);
+        when(walletRepository.existsById(1L)).thenReturn(true);
+
+        engine.apply(1L, "USD", TEN);
+
+        verify(balanceRepository).upsertCredit(1L, "USD", TEN);
+    }
+}
@@ -0,0 +1,164 @@
+package org.bozgeyik.paymentservice.service.ledger;
+
+import org.bozgeyik.paymentservice.model.BalanceState;
+import org.bozgeyik.paymentservice.repository.LedgerCheckpointRepository;
+import org.bozgeyik.paymentservice.repository.TransactionRepository;
+import org.bozgeyik.paymentservice.repository.WalletBalanceRepository;
+import org.bozgeyik.paymentservice.repository.WalletRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Az sayıda sıcak cüzdanda bakiye güncellemesi iş hacmi: kötümser yol ({@code SELECT ... FOR UPDATE} + {@code UPDATE}
+ * + commit, H2 dosya veritabanı) ile {@link InMemoryLedgerEngine} (bölüm başına tek yazıcı, grup halinde fsync edilen
+ * WAL) karşılaştırması. Motorun veritabanına arka planda işlemesi ölçüme dahil değildir. Varsayılan test
+ * çalıştırmasında atlanır: {@code mvn test -Dtest=InMemoryLedgerBenchmark -Dbenchmark=true}
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class InMemoryLedgerBenchmark {
+
+    private static final int[] THREADS = {1, 4, 16, 64};
+    private static final int WALLETS = 8;
+    private static final int OPERATIONS_PER_THREAD = 2_000;
+
+    private static final String LOCK_SQL = "SELECT balance FROM wallet_balances WHERE wallet_id = ? AND currency = 'TRY' FOR UPDATE";
+    private static final String SET_SQL = "UPDATE wallet_balances SET balance = ? WHERE wallet_id = ? AND currency = 'TRY'";
+
+    @TempDir
+    Path directory;
+
+    private interface Operation {
+        void apply(long walletId, BigDecimal delta) throws Exception;
+    }
+
+    @Test
+    void updateThroughputByThreadCount() throws Exception {
+        String url = "jdbc:h2:file:" + directory.resolve("ledger") + ";MODE=MySQL;LOCK_TIMEOUT=10000";
+        try (Connection setup = DriverManager.getConnection(url, "sa", "")) {
+            try (Statement statement = setup.createStatement()) {
+                statement.execute("CREATE TABLE wallet_balances (wallet_id BIGINT NOT NULL, currency VARCHAR(3) NOT NULL, "
+                        + "balance DECIMAL(19,4) NOT NULL, PRIMARY KEY (wallet_id, currency))");
+                for (int w = 1; w <= WALLETS; w++) {
+                    statement.execute("INSERT INTO wallet_balances VALUES (" + w + ", 'TRY', 1000000)");
+                }
+            }
+            InMemoryLedgerEngine engine = engine();
+            Queue<Connection> opened = new ConcurrentLinkedQueue<>();
+            try {
+                System.out.printf("%8s %16s %16s%n", "thread", "kötümser op/s", "bellek içi op/s");
+                for (int threads : THREADS) {
+                    ThreadLocal<Connection> connections = ThreadLocal.withInitial(() -> connect(url, opened));
+                    long pessimistic = run(threads, (walletId, delta) -> pessimistic(connections.get(), walletId, delta));
+                    long inMemory = run(threads, (walletId, delta) -> engine.apply(walletId, "TRY", delta, null));
+                    System.out.printf("%8d %16d %16d%n", threads, pessimistic, inMemory);
+                }
+            } finally {
+                engine.stop();
+                for (Connection connection : opened) {
+                    connection.close();
+                }
+            }
+        }
+    }
+
+    private InMemoryLedgerEngine engine() throws Exception {
+        WalletBalanceRepository balanceRepository = mock(WalletBalanceRepository.class);
+        when(balanceRepository.findState(anyLong(), anyString()))
+                .thenReturn(Optional.of(new BalanceState(1L, new BigDecimal("1000000"), 0L)));
+        LedgerCheckpointRepository checkpointRepository = mock(LedgerCheckpointRepository.class);
+        when(checkpointRepository.findById(anyInt())).thenReturn(Optional.empty());
+
+        InMemoryLedgerEngine engine = new InMemoryLedgerEngine(mock(WalletRepository.class), balanceRepository,
+                checkpointRepository, mock(TransactionRepository.class), mock(TransactionTemplate.class));
+        ReflectionTestUtils.setField(engine, "ledgerMode", LedgerMode.IN_MEMORY);
+        ReflectionTestUtils.setField(engine, "partitionCount", 4);
+        ReflectionTestUtils.setField(engine, "walDirectory", directory.resolve("wal"));
+        ReflectionTestUtils.setField(engine, "walSegmentBytes", 64L << 20);
+        ReflectionTestUtils.setField(engine, "queueCapacity", 65_536);
+        ReflectionTestUtils.setField(engine, "maxGroupSize", 1024);
+        ReflectionTestUtils.setField(engine, "commandTimeoutMillis", 30_000L);
+        ReflectionTestUtils.setField(engine, "applyIntervalMillis", 3_600_000L);
+        engine.start();
+        return engine;
+    }
+
+    private static long run(int threads, Operation operation) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            long started = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                int seed = t;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        // Para girişi ve çıkışı sırayla; bakiye hiçbir zaman yetersiz kalmaz.
+                        BigDecimal delta = i % 2 == 0 ? BigDecimal.ONE : BigDecimal.ONE.negate();
+                        operation.apply(1 + (seed + i) % WALLETS, delta);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            long elapsedNanos = System.nanoTime() - started;
+            return (long) threads * OPERATIONS_PER_THREAD * 1_000_000_000L / elapsedNanos;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static Connection connect(String url, Queue<Connection> opened) {
+        try {
+            Connection connection = DriverManager.getConnection(url, "sa", "");
+            connection.setAutoCommit(false);
+            opened.add(connection);
+            return connection;
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void pessimistic(Connection connection, long walletId, BigDecimal delta) throws SQLException {
+        BigDecimal balance;
+        try (PreparedStatement lock = connection.prepareStatement(LOCK_SQL)) {
+            lock.setLong(1, walletId);
+            try (ResultSet rs = lock.executeQuery()) {
+                rs.next();
+                balance = rs.getBigDecimal(1);
+            }
+        }
+        try (PreparedStatement set = connection.prepareStatement(SET_SQL)) {
+            set.setBigDecimal(1, balance.add(delta));
+            set.setLong(2, walletId);
+            set.executeUpdate();
+        }
+        connection.commit();
+    }
+}
@@ -0,0 +1,267 @@
+package org.bozgeyik.paymentservice.service.ledger;
+
+import org.bozgeyik.paymentservice.model.BalanceState;
+import org.bozgeyik.paymentservice.model.LedgerCheckpoint;
+import org.bozgeyik.paymentservice.exception.InsufficientFundsException;
+import org.bozgeyik.paymentservice.repository.LedgerCheckpointRepository;
+import org.bozgeyik.paymentservice.repository.TransactionRepository;
+import org.bozgeyik.paymentservice.repository.WalletBalanceRepository;
+import org.bozgeyik.paymentservice.repository.WalletRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InMemoryLedgerEngineTest {
+
+    @TempDir
+    Path walDirectory;
+
+    private WalletBalanceRepository balanceRepository;
+    private LedgerCheckpointRepository checkpointRepository;
+    private TransactionRepository transactionRepository;
+    private TransactionTemplate transactionTemplate;
+    private InMemoryLedgerEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        balanceRepository = mock(WalletBalanceRepository.class);
+        checkpointRepository = mock(LedgerCheckpointRepository.class);
+        transactionRepository = mock(TransactionRepository.class);
+        transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            invocation.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(checkpointRepository.findById(0)).thenReturn(Optional.empty());
+        when(balanceRepository.findState(10L, "TRY")).thenReturn(Optional.of(new BalanceState(1L, new BigDecimal("100"), 0L)));
+        engine = newEngine();
+    }
+
+    private InMemoryLedgerEngine newEngine() {
+        InMemoryLedgerEngine engine = new InMemoryLedgerEngine(mock(WalletRepository.class), balanceRepository,
+                checkpointRepository, transactionRepository, transactionTemplate);
+        ReflectionTestUtils.setField(engine, "ledgerMode", LedgerMode.IN_MEMORY);
+        ReflectionTestUtils.setField(engine, "partitionCount", 1);
+        ReflectionTestUtils.setField(engine, "walDirectory", walDirectory);
+        ReflectionTestUtils.setField(engine, "walSegmentBytes", 1L << 20);
+        ReflectionTestUtils.setField(engine, "queueCapacity", 1024);
+        ReflectionTestUtils.setField(engine, "maxGroupSize", 64);
+        ReflectionTestUtils.setField(engine, "commandTimeoutMillis", 5_000L);
+        // Veritabanına işleme testlerde açıkça (açılış ve kapanışta) tetiklenir.
+        ReflectionTestUtils.setField(engine, "applyIntervalMillis", TimeUnit.HOURS.toMillis(1));
+        return engine;
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        engine.stop();
+    }
+
+    @Test
+    void replaysRecordsAfterTheCheckpointOnStartup() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(walDirectory, 0, 1 << 20)) {
+            wal.open(0, r -> { });
+            wal.append(new WriteAheadLog.Record(1, 10, "TRY", new BigDecimal("100"), "k1"));
+            wal.append(new WriteAheadLog.Record(2, 10, "TRY", new BigDecimal("-30"), "k2"));
+            wal.append(new WriteAheadLog.Record(3, 11, "USD", new BigDecimal("5"), "k3"));
+            wal.append(new WriteAheadLog.Record(4, 10, "TRY", new BigDecimal("-20"), "k4"));
+            // Çökme anında transaction'ı commit edilmemiş bir giriş.
+            wal.append(new WriteAheadLog.Record(5, 10, "TRY", new BigDecimal("1000"), "k5"));
+            wal.sync();
+        }
+        when(transactionRepository.findExistingIdempotencyKeys(anyCollection())).thenReturn(Set.of("k2", "k3", "k4"));
+        LedgerCheckpoint checkpoint = new LedgerCheckpoint();
+        checkpoint.setPartitionNo(0);
+        checkpoint.setLastSequence(1L);
+        when(checkpointRepository.findById(0)).thenReturn(Optional.of(checkpoint));
+
+        engine.start();
+
+        // Checkpoint'e kadarki kayıt ve commit edilmemiş işlemin kaydı atlanır; diğerleri bakiye başına net toplam
+        // olarak işlenir.
+        verify(balanceRepository).upsertCredit(10L, "TRY", new BigDecimal("-50.0000"));
+        verify(balanceRepository).upsertCredit(11L, "USD", new BigDecimal("5.0000"));
+        verify(checkpointRepository).saveCheckpoint(0, 5);
+        verify(balanceRepository, never()).upsertCredit(10L, "TRY", new BigDecimal("100.0000"));
+        verify(balanceRepository, never()).upsertCredit(10L, "TRY", new BigDecimal("950.0000"));
+
+        // Yeni komutlar günlükteki son sıra numarasından devam eder.
+        engine.apply(10L, "TRY", BigDecimal.ONE, "k6");
+        assertEquals(List.of(6L), sequencesAfter(5));
+    }
+
+    @Test
+    void dropsTheLegsOfATransactionThatNeverCommittedAfterACrash() throws Exception {
+        engine.start();
+        TransactionSynchronizationManager.initSynchronization();
+        engine.apply(10L, "TRY", new BigDecimal("50"), "k1");
+        // Çökme: transaction sonuçlanmadan süreç durur. Sonucu belli olmayan kayıt veritabanına işlenmez.
+        TransactionSynchronizationManager.clearSynchronization();
+        engine.stop();
+        verify(balanceRepository, never()).upsertCredit(any(), any(), any());
+
+        when(transactionRepository.findExistingIdempotencyKeys(anyCollection())).thenReturn(Set.of());
+        engine = newEngine();
+        engine.start();
+
+        verify(transactionRepository).findExistingIdempotencyKeys(List.of("k1"));
+        verify(balanceRepository, never()).upsertCredit(any(), any(), any());
+        verify(checkpointRepository).saveCheckpoint(0, 1);
+    }
+
+    @Test
+    void hidesACreditFromTheFundsCheckUntilTheCallerCommits() throws Exception {
+        engine.start();
+        TransactionSynchronizationManager.initSynchronization();
+
+        engine.apply(10L, "TRY", new BigDecimal("50"), "k1");
+        List<TransactionSynchronization> synchronizations = complete();
+        assertEquals(0, new BigDecimal("100").compareTo(engine.balancesOf(10L).get("TRY")));
+        // Commit edilmemiş giriş harcanamaz.
+        assertThrows(InsufficientFundsException.class, () -> engine.apply(10L, "TRY", new BigDecimal("-120"), "k2"));
+
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        awaitBalance(10L, "TRY", new BigDecimal("150"));
+        engine.apply(10L, "TRY", new BigDecimal("-120"), "k3");
+
+        engine.stop();
+        verify(balanceRepository).upsertCredit(10L, "TRY", new BigDecimal("-70.0000"));
+    }
+
+    @Test
+    void dropsACreditAndRefundsADebitWhenTheCallerRollsBack() throws Exception {
+        engine.start();
+        TransactionSynchronizationManager.initSynchronization();
+
+        engine.apply(10L, "TRY", new BigDecimal("50"), "k1");
+        engine.apply(10L, "TRY", new BigDecimal("-30"), "k1");
+        List<TransactionSynchronization> synchronizations = complete();
+        // Çıkış hemen düşülür.
+        assertEquals(0, new BigDecimal("70").compareTo(engine.balancesOf(10L).get("TRY")));
+
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        awaitBalance(10L, "TRY", new BigDecimal("100"));
+
+        // Ters kayıt yazılmaz; geri alınan kayıtlar veritabanına işlenmeden checkpoint'i geçer.
+        assertEquals(List.of(new BigDecimal("50.0000"), new BigDecimal("-30.0000")), deltasAfter(0));
+        verify(balanceRepository, never()).upsertCredit(any(), any(), any());
+        verify(checkpointRepository).saveCheckpoint(0, 2);
+    }
+
+    @Test
+    void compensatesATimedOutCommandOnceItIsApplied() throws Exception {
+        ReflectionTestUtils.setField(engine, "commandTimeoutMillis", 100L);
+        CountDownLatch release = new CountDownLatch(1);
+        when(balanceRepository.findState(20L, "TRY")).thenAnswer(invocation -> {
+            release.await();
+            return Optional.of(new BalanceState(2L, new BigDecimal("10"), 0L));
+        });
+        engine.start();
+
+        // Yazıcı komutu almış ama bakiye yüklemesinde bekliyor; çağırana zaman aşımı döner (transaction yok).
+        assertThrows(IllegalStateException.class, () -> engine.apply(20L, "TRY", new BigDecimal("5"), "k1"));
+        release.countDown();
+
+        awaitBalance(20L, "TRY", new BigDecimal("10"));
+        assertEquals(List.of(new BigDecimal("5.0000"), new BigDecimal("-5.0000")), deltasAfter(0));
+    }
+
+    @Test
+    void cancelsATimedOutCommandThatIsStillQueued() throws Exception {
+        ReflectionTestUtils.setField(engine, "commandTimeoutMillis", 100L);
+        CountDownLatch release = new CountDownLatch(1);
+        when(balanceRepository.findState(20L, "TRY")).thenAnswer(invocation -> {
+            release.await();
+            return Optional.of(new BalanceState(2L, new BigDecimal("10"), 0L));
+        });
+        engine.start();
+
+        Thread blocked = Thread.ofPlatform().start(() -> {
+            try {
+                engine.apply(20L, "TRY", new BigDecimal("5"), "k1");
+            } catch (IllegalStateException ignored) {
+                // Zaman aşımı beklenir; komut sonra uygulanıp telafi edilir.
+            }
+        });
+        Thread.sleep(20);
+        // İkinci komut, yazıcı ilkini beklerken kuyrukta kalır ve zaman aşımında kuyruktan çıkarılır.
+        assertThrows(IllegalStateException.class, () -> engine.apply(10L, "TRY", new BigDecimal("7"), "k2"));
+        release.countDown();
+        blocked.join();
+
+        awaitBalance(20L, "TRY", new BigDecimal("10"));
+        assertTrue(deltasAfter(0).stream().noneMatch(d -> d.compareTo(new BigDecimal("7")) == 0));
+        verify(balanceRepository, never()).findState(10L, "TRY");
+    }
+
+    // Çağıranın transaction'ı biter; senkronizasyonlar sonuçla birlikte çağrılmak üzere döner.
+    private static List<TransactionSynchronization> complete() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        return synchronizations;
+    }
+
+    private void awaitBalance(Long walletId, String currency, BigDecimal expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            BigDecimal current = engine.balancesOf(walletId).get(currency);
+            if (current != null && current.compareTo(expected) == 0) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Bakiye beklenen değere ulaşmadı: " + engine.balancesOf(walletId));
+    }
+
+    // Motor durdurulup günlük yeniden okunur.
+    private List<WriteAheadLog.Record> recordsAfter(long sequence) throws Exception {
+        engine.stop();
+        List<WriteAheadLog.Record> records = new ArrayList<>();
+        try (WriteAheadLog wal = new WriteAheadLog(walDirectory, 0, 1 << 20)) {
+            wal.open(sequence, records::add);
+        }
+        return records;
+    }
+
+    private List<Long> sequencesAfter(long sequence) {
+        try {
+            return recordsAfter(sequence).stream().map(WriteAheadLog.Record::sequence).toList();
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private List<BigDecimal> deltasAfter(long sequence) throws Exception {
+        return recordsAfter(sequence).stream().map(WriteAheadLog.Record::delta).toList();
+    }
+}
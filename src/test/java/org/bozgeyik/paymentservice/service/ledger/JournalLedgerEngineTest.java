@@ -0,0 +1,75 @@
+package org.bozgeyik.paymentservice.service.ledger;
+
+import org.bozgeyik.paymentservice.exception.InsufficientFundsException;
+import org.bozgeyik.paymentservice.repository.WalletBalanceRepository;
+import org.bozgeyik.paymentservice.repository.WalletRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JournalLedgerEngineTest {
+
+    private WalletRepository walletRepository;
+    private WalletBalanceRepository balanceRepository;
+    private LedgerJournal journal;
+    private JournalLedgerEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        walletRepository = mock(WalletRepository.class);
+        balanceRepository = mock(WalletBalanceRepository.class);
+        journal = mock(LedgerJournal.class);
+        engine = new JournalLedgerEngine(walletRepository, balanceRepository, journal);
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.unbindResourceIfPossible(engine);
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void debitChecksFundsWithLockedReadsAfterAnEarlierConsistentRead() {
+        // Transferin alacak tarafı önce sıralanır: ana satır kontrolü, transaction'ın okuma görüntüsünü kilitten önce alır.
+        when(balanceRepository.existsByWallet_IdAndCurrency(2L, "TRY")).thenReturn(true);
+        engine.apply(2L, "TRY", new BigDecimal("50"));
+
+        // Görüntüdeki bakiye 100; kilidi beklerken commit edilen bir çıkış sonrası gerçek bakiye 30.
+        when(journal.balanceOf(1L, "TRY")).thenReturn(new BigDecimal("100"));
+        when(balanceRepository.lockBalanceAmount(1L, "TRY")).thenReturn(Optional.of(BigDecimal.TEN));
+        when(journal.lockedBalanceOf(1L, "TRY", BigDecimal.TEN)).thenReturn(new BigDecimal("30"));
+
+        assertThrows(InsufficientFundsException.class, () -> engine.apply(1L, "TRY", new BigDecimal("-50")));
+
+        InOrder order = inOrder(balanceRepository, journal);
+        order.verify(balanceRepository).existsByWallet_IdAndCurrency(2L, "TRY");
+        order.verify(balanceRepository).lockBalanceAmount(1L, "TRY");
+        order.verify(journal).lockedBalanceOf(1L, "TRY", BigDecimal.TEN);
+        verify(journal, never()).balanceOf(anyLong(), anyString());
+    }
+
+    @Test
+    void debitWithinTheLockedBalanceIsAccepted() {
+        when(balanceRepository.lockBalanceAmount(1L, "TRY")).thenReturn(Optional.of(BigDecimal.ZERO));
+        when(journal.lockedBalanceOf(1L, "TRY", BigDecimal.ZERO)).thenReturn(new BigDecimal("30"));
+
+        engine.apply(1L, "TRY", new BigDecimal("-30"));
+        // Bekleyen çıkış, aynı transaction'daki sonraki çıkışın kontrolüne eklenir.
+        assertThrows(InsufficientFundsException.class, () -> engine.apply(1L, "TRY", new BigDecimal("-1")));
+    }
+}
@@ -0,0 +1,140 @@
+package org.bozgeyik.paymentservice.service.ledger;
+
+import org.bozgeyik.paymentservice.model.BalanceKey;
+import org.bozgeyik.paymentservice.model.BalanceSnapshot;
+import org.bozgeyik.paymentservice.model.BalanceState;
+import org.bozgeyik.paymentservice.repository.BalanceSnapshotRepository;
+import org.bozgeyik.paymentservice.repository.LedgerEntryRepository;
+import org.bozgeyik.paymentservice.repository.WalletBalanceRepository;
+import org.bozgeyik.paymentservice.service.CommitWatermark;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LedgerJournalTest {
+
+    private LedgerEntryRepository entryRepository;
+    private BalanceSnapshotRepository snapshotRepository;
+    private WalletBalanceRepository balanceRepository;
+    private TransactionTemplate transactionTemplate;
+    private CommitWatermark commitWatermark;
+    private LedgerJournal journal;
+
+    @BeforeEach
+    void setUp() {
+        entryRepository = mock(LedgerEntryRepository.class);
+        snapshotRepository = mock(BalanceSnapshotRepository.class);
+        balanceRepository = mock(WalletBalanceRepository.class);
+        transactionTemplate = mock(TransactionTemplate.class);
+        commitWatermark = mock(CommitWatermark.class);
+        doAnswer(invocation -> {
+            invocation.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        journal = new LedgerJournal(mock(JdbcTemplate.class), entryRepository, snapshotRepository, balanceRepository,
+                transactionTemplate, commitWatermark);
+        ReflectionTestUtils.setField(journal, "ledgerMode", LedgerMode.JOURNAL);
+    }
+
+    @Test
+    void balanceIsLatestSnapshotPlusTail() {
+        when(snapshotRepository.findFirstByWalletIdAndCurrencyOrderByIdDesc(1L, "TRY"))
+                .thenReturn(Optional.of(snapshot(1L, "TRY", "100", 40L)));
+        when(entryRepository.sumWalletEntries(1L, "TRY", 40L, Long.MAX_VALUE)).thenReturn(new BigDecimal("-15"));
+
+        assertEquals(new BigDecimal("85"), journal.balanceOf(1L, "TRY"));
+    }
+
+    @Test
+    void balanceStartsFromOpeningBalanceBeforeTheFirstSnapshot() {
+        when(snapshotRepository.findFirstByWalletIdAndCurrencyOrderByIdDesc(1L, "USD")).thenReturn(Optional.empty());
+        when(balanceRepository.findState(1L, "USD")).thenReturn(Optional.of(new BalanceState(5L, new BigDecimal("20"), 0L)));
+        when(entryRepository.sumWalletEntries(1L, "USD", 0L, Long.MAX_VALUE)).thenReturn(new BigDecimal("7"));
+
+        assertEquals(new BigDecimal("27"), journal.balanceOf(1L, "USD"));
+    }
+
+    @Test
+    void snapshotsUpToTheCommitWatermark() {
+        when(snapshotRepository.findMaxLastEntryId()).thenReturn(40L);
+        when(commitWatermark.settle("ledger_entries", 40L)).thenReturn(55L);
+        when(entryRepository.findWalletKeysBetween(40L, 55L)).thenReturn(List.of(new BalanceKey(1L, "TRY")));
+        when(snapshotRepository.findFirstByWalletIdAndCurrencyOrderByIdDesc(1L, "TRY"))
+                .thenReturn(Optional.of(snapshot(1L, "TRY", "100", 40L)));
+        when(entryRepository.sumWalletEntries(1L, "TRY", 40L, 55L)).thenReturn(new BigDecimal("5"));
+
+        journal.takeSnapshots();
+
+        ArgumentCaptor<BalanceSnapshot> saved = ArgumentCaptor.forClass(BalanceSnapshot.class);
+        verify(snapshotRepository).save(saved.capture());
+        assertEquals(new BigDecimal("105"), saved.getValue().getBalance());
+        assertEquals(55L, saved.getValue().getLastEntryId());
+
+        // Yeni satır yoksa bir sonraki turda snapshot alınmaz.
+        when(commitWatermark.settle("ledger_entries", 55L)).thenReturn(55L);
+        journal.takeSnapshots();
+        verify(entryRepository, never()).findWalletKeysBetween(55L, 55L);
+    }
+
+    @Test
+    void lockedBalanceSumsTheRowsAfterTheLatestSnapshot() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(
+                new DriverManagerDataSource("jdbc:h2:mem:journal-locked;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE balance_snapshots (id BIGINT AUTO_INCREMENT PRIMARY KEY, wallet_id BIGINT, " +
+                "currency VARCHAR(3), balance DECIMAL(19,4), last_entry_id BIGINT)");
+        jdbcTemplate.execute("CREATE TABLE ledger_entries (id BIGINT AUTO_INCREMENT PRIMARY KEY, account_type VARCHAR(20), " +
+                "wallet_id BIGINT, currency VARCHAR(3), direction VARCHAR(6), amount DECIMAL(19,4))");
+        String entry = "INSERT INTO ledger_entries (account_type, wallet_id, currency, direction, amount) VALUES (?, ?, ?, ?, ?)";
+        jdbcTemplate.update(entry, "WALLET", 1L, "TRY", "CREDIT", new BigDecimal("50"));
+        jdbcTemplate.update(entry, "WALLET", 1L, "TRY", "DEBIT", new BigDecimal("20"));
+        LedgerJournal lockingJournal = new LedgerJournal(jdbcTemplate, entryRepository, snapshotRepository,
+                balanceRepository, transactionTemplate, commitWatermark);
+
+        // Snapshot yokken açılış bakiyesinden başlanır.
+        assertEquals(0, new BigDecimal("40").compareTo(lockingJournal.lockedBalanceOf(1L, "TRY", BigDecimal.TEN)));
+
+        jdbcTemplate.update("INSERT INTO balance_snapshots (wallet_id, currency, balance, last_entry_id) VALUES (1, 'TRY', 40, 2)");
+        jdbcTemplate.update(entry, "WALLET", 1L, "TRY", "DEBIT", new BigDecimal("15"));
+        jdbcTemplate.update("INSERT INTO ledger_entries (account_type, wallet_id, currency, direction, amount) " +
+                "VALUES ('FEE', NULL, 'TRY', 'CREDIT', 1)");
+        jdbcTemplate.update(entry, "WALLET", 2L, "TRY", "CREDIT", new BigDecimal("99"));
+
+        assertEquals(0, new BigDecimal("25").compareTo(lockingJournal.lockedBalanceOf(1L, "TRY", BigDecimal.TEN)));
+    }
+
+    @Test
+    void doesNothingOutsideJournalMode() {
+        ReflectionTestUtils.setField(journal, "ledgerMode", LedgerMode.PESSIMISTIC);
+
+        journal.takeSnapshots();
+
+        verify(commitWatermark, never()).settle(any(), anyLong());
+    }
+
+    private static BalanceSnapshot snapshot(Long walletId, String currency, String balance, Long lastEntryId) {
+        BalanceSnapshot snapshot = new BalanceSnapshot();
+        snapshot.setWalletId(walletId);
+        snapshot.setCurrency(currency);
+        snapshot.setBalance(new BigDecimal(balance));
+        snapshot.setLastEntryId(lastEntryId);
+        return snapshot;
+    }
+}
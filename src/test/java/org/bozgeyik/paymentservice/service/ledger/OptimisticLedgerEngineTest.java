@@ -0,0 +1,74 @@
+package org.bozgeyik.paymentservice.service.ledger;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bozgeyik.paymentservice.model.BalanceState;
+import org.bozgeyik.paymentservice.repository.WalletBalanceRepository;
+import org.bozgeyik.paymentservice.repository.WalletRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OptimisticLedgerEngineTest {
+
+    private WalletBalanceRepository balanceRepository;
+    private WalletContentionTracker contentionTracker;
+    private OptimisticLedgerEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        balanceRepository = mock(WalletBalanceRepository.class);
+        contentionTracker = mock(WalletContentionTracker.class);
+        engine = new OptimisticLedgerEngine(mock(WalletRepository.class), balanceRepository, contentionTracker,
+                new SimpleMeterRegistry());
+    }
+
+    @Test
+    void writesWhenVersionIsUnchanged() {
+        when(balanceRepository.findState(1L, "TRY")).thenReturn(Optional.of(new BalanceState(7L, new BigDecimal("100"), 3L)));
+        when(balanceRepository.compareAndSetBalance(7L, 3L, new BigDecimal("90"))).thenReturn(1);
+
+        assertTrue(engine.tryApply(1L, "TRY", new BigDecimal("-10")));
+        verify(contentionTracker).recordSuccess(1L);
+    }
+
+    @Test
+    void fallsBackOnFirstConflictWithoutRereading() {
+        when(balanceRepository.findState(1L, "TRY")).thenReturn(Optional.of(new BalanceState(7L, new BigDecimal("100"), 3L)));
+        when(balanceRepository.compareAndSetBalance(anyLong(), anyLong(), any())).thenReturn(0);
+
+        assertFalse(engine.tryApply(1L, "TRY", new BigDecimal("-10")));
+        verify(balanceRepository, times(1)).findState(1L, "TRY");
+        verify(contentionTracker).recordConflict(1L);
+    }
+
+    @Test
+    void leavesInsufficientFundsDecisionToTheLockedPath() {
+        // Anlık görüntüden okunan bakiye eski olabilir; hata fırlatılmaz, kilitli yol kesin kontrolü yapar.
+        when(balanceRepository.findState(1L, "TRY")).thenReturn(Optional.of(new BalanceState(7L, new BigDecimal("5"), 3L)));
+
+        assertFalse(engine.tryApply(1L, "TRY", new BigDecimal("-10")));
+        when(balanceRepository.findState(1L, "USD")).thenReturn(Optional.empty());
+        assertFalse(engine.tryApply(1L, "USD", new BigDecimal("-10")));
+        verify(balanceRepository, never()).compareAndSetBalance(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void skipsHotWallets() {
+        when(contentionTracker.isHot(1L)).thenReturn(true);
+
+        assertFalse(engine.tryApply(1L, "TRY", BigDecimal.ONE));
+        verify(balanceRepository, never()).findState(anyLong(), any());
+    }
+}
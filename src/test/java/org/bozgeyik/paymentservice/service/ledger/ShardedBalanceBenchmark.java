@@ -0,0 +1,113 @@
+package org.bozgeyik.paymentservice.service.ledger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tek bir sıcak cüzdana eş zamanlı para girişlerinin iş hacmi, parça sayısına göre ({@link ShardedBalanceEngine}; H2,
+ * bellek içi). Her giriş kendi transaction'ında rastgele bir parçaya eklenir ve uygulamadaki gibi aynı transaction'da
+ * bir işlem kaydı yazılır; parça satırının kilidi commit'e kadar tutulur. Tek parça, parçalamanın olmadığı duruma
+ * karşılık gelir. Bellek içi H2'de commit diske yazmadığından kilit kısa tutulur; kilidin commit fsync'i boyunca
+ * tutulduğu MySQL'de parça sayısının etkisi daha büyüktür. Varsayılan test çalıştırmasında atlanır:
+ * {@code mvn test -Dtest=ShardedBalanceBenchmark -Dbenchmark=true}
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ShardedBalanceBenchmark {
+
+    private static final String URL = "jdbc:h2:mem:shard-benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000";
+    private static final int[] SHARDS = {1, 2, 4, 8};
+    private static final int THREADS = 16;
+    private static final int OPERATIONS_PER_THREAD = 2_000;
+    private static final long HOT_WALLET_ID = 1L;
+    // H2'nin AUTO_INCREMENT'i yoğun eş zamanlı eklemede çakışan ID verebiliyor; işlem ID'leri burada üretilir.
+    private static final AtomicLong TRANSACTION_IDS = new AtomicLong();
+
+    // Uygulamadaki WalletBalanceShardRepository.credit sorgusunun aynısı.
+    private static final String CREDIT_SQL = "INSERT INTO wallet_balance_shards (wallet_id, currency, shard_no, balance, version) "
+            + "VALUES (?, 'TRY', ?, ?, 0) "
+            + "ON DUPLICATE KEY UPDATE balance = balance + VALUES(balance), version = version + 1";
+    private static final String TRANSACTION_SQL = "INSERT INTO transactions (id, to_wallet_id, amount) VALUES (?, ?, ?)";
+
+    @Test
+    void creditThroughputByShardCount() throws Exception {
+        try (Connection setup = DriverManager.getConnection(URL, "sa", "");
+             Statement statement = setup.createStatement()) {
+            statement.execute("CREATE TABLE wallet_balance_shards (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                    + "wallet_id BIGINT NOT NULL, currency VARCHAR(3) NOT NULL, shard_no INT NOT NULL, "
+                    + "balance DECIMAL(19,4) NOT NULL, version BIGINT NOT NULL, UNIQUE (wallet_id, currency, shard_no))");
+            statement.execute("CREATE TABLE transactions (id BIGINT PRIMARY KEY, to_wallet_id BIGINT, "
+                    + "amount DECIMAL(19,4))");
+
+            // Isınma: JIT ve H2 önbellekleri ölçümü etkilemesin.
+            run(statement, SHARDS[SHARDS.length - 1]);
+
+            System.out.printf("%8s %12s %10s%n", "parça", "giriş/s", "oran");
+            long baseline = 0;
+            for (int shards : SHARDS) {
+                long throughput = run(statement, shards);
+                if (baseline == 0) {
+                    baseline = throughput;
+                }
+                System.out.printf("%8d %12d %9.2fx%n", shards, throughput, (double) throughput / baseline);
+            }
+        }
+    }
+
+    private static long run(Statement statement, int shards) throws Exception {
+        statement.execute("DELETE FROM wallet_balance_shards");
+        statement.execute("DELETE FROM transactions");
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            long started = System.nanoTime();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    try (Connection connection = DriverManager.getConnection(URL, "sa", "")) {
+                        connection.setAutoCommit(false);
+                        for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                            credit(connection, ThreadLocalRandom.current().nextInt(shards), BigDecimal.ONE);
+                            connection.commit();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            long elapsedNanos = System.nanoTime() - started;
+            return (long) THREADS * OPERATIONS_PER_THREAD * 1_000_000_000L / elapsedNanos;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void credit(Connection connection, int shardNo, BigDecimal amount) throws SQLException {
+        try (PreparedStatement credit = connection.prepareStatement(CREDIT_SQL)) {
+            credit.setLong(1, HOT_WALLET_ID);
+            credit.setInt(2, shardNo);
+            credit.setBigDecimal(3, amount);
+            credit.executeUpdate();
+        }
+        try (PreparedStatement transaction = connection.prepareStatement(TRANSACTION_SQL)) {
+            transaction.setLong(1, TRANSACTION_IDS.incrementAndGet());
+            transaction.setLong(2, HOT_WALLET_ID);
+            transaction.setBigDecimal(3, amount);
+            transaction.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.bozgeyik.paymentservice.service.ledger;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.bozgeyik.paymentservice.exception.InsufficientFundsException;
+import org.bozgeyik.paymentservice.repository.WalletBalanceRepository;
+import org.bozgeyik.paymentservice.repository.WalletBalanceShardRepository;
+import org.bozgeyik.paymentservice.repository.WalletBalanceShardRepository.ShardAmount;
+import org.bozgeyik.paymentservice.repository.WalletRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ShardedBalanceEngineTest {
+
+    private static final int SHARDS = 4;
+
+    private WalletRepository walletRepository;
+    private WalletBalanceRepository balanceRepository;
+    private WalletBalanceShardRepository shardRepository;
+    private ShardedBalanceEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        walletRepository = mock(WalletRepository.class);
+        balanceRepository = mock(WalletBalanceRepository.class);
+        shardRepository = mock(WalletBalanceShardRepository.class);
+        engine = new ShardedBalanceEngine(walletRepository, balanceRepository, shardRepository);
+        ReflectionTestUtils.setField(engine, "hotWalletIds", Set.of(1L));
+        ReflectionTestUtils.setField(engine, "shardCount", SHARDS);
+    }
+
+    @Test
+    void creditsGoToASingleShard() {
+        when(balanceRepository.existsByWallet_IdAndCurrency(1L, "TRY")).thenReturn(true);
+
+        engine.apply(1L, "TRY", BigDecimal.TEN);
+
+        verify(shardRepository).credit(eq(1L), eq("TRY"), anyInt(), eq(BigDecimal.TEN));
+        verify(balanceRepository, never()).applyDeltaIfSufficient(anyLong(), anyString(), any());
+    }
+
+    @Test
+    void debitsTheMainRowFirst() {
+        when(balanceRepository.applyDeltaIfSufficient(1L, "TRY", new BigDecimal("-5"))).thenReturn(1);
+
+        engine.apply(1L, "TRY", new BigDecimal("-5"));
+
+        verify(shardRepository, never()).debitIfSufficient(anyLong(), anyString(), anyInt(), any());
+        verify(shardRepository, never()).lockShards(anyLong(), anyString());
+    }
+
+    @Test
+    void fallsBackToTheFirstShardThatCoversTheDebit() {
+        when(shardRepository.debitIfSufficient(1L, "TRY", 2, new BigDecimal("5"))).thenReturn(1);
+
+        engine.apply(1L, "TRY", new BigDecimal("-5"));
+
+        verify(shardRepository).debitIfSufficient(1L, "TRY", 2, new BigDecimal("5"));
+        verify(shardRepository, never()).lockShards(anyLong(), anyString());
+        verify(balanceRepository, never()).setBalance(anyLong(), anyString(), any());
+    }
+
+    @Test
+    void foldsShardsIntoTheMainRowWhenNoSingleRowIsEnough() {
+        when(balanceRepository.lockBalanceAmount(1L, "TRY")).thenReturn(Optional.of(new BigDecimal("10")));
+        when(shardRepository.lockShards(1L, "TRY")).thenReturn(List.of(shard(0, "5"), shard(3, "7")));
+
+        engine.apply(1L, "TRY", new BigDecimal("-20"));
+
+        // Ana satır parçalardan önce kilitlenir; yalnızca kilitlenen parçalar sıfırlanır.
+        InOrder order = inOrder(balanceRepository, shardRepository);
+        order.verify(balanceRepository).lockBalanceAmount(1L, "TRY");
+        order.verify(shardRepository).lockShards(1L, "TRY");
+        order.verify(shardRepository).clearShards(1L, "TRY", List.of(0, 3));
+        order.verify(balanceRepository).setBalance(1L, "TRY", new BigDecimal("2"));
+    }
+
+    @Test
+    void foldCreatesTheMainRowWhenOnlyShardsExist() {
+        when(balanceRepository.lockBalanceAmount(1L, "TRY")).thenReturn(Optional.empty());
+        when(walletRepository.existsById(1L)).thenReturn(true);
+        when(shardRepository.lockShards(1L, "TRY")).thenReturn(List.of(shard(1, "4"), shard(2, "4")));
+
+        engine.apply(1L, "TRY", new BigDecimal("-6"));
+
+        verify(shardRepository).clearShards(1L, "TRY", List.of(1, 2));
+        verify(balanceRepository).upsertCredit(1L, "TRY", new BigDecimal("2"));
+    }
+
+    @Test
+    void rejectsDebitAboveTheTotalWithoutTouchingShards() {
+        when(balanceRepository.lockBalanceAmount(1L, "TRY")).thenReturn(Optional.of(new BigDecimal("1")));
+        when(shardRepository.lockShards(1L, "TRY")).thenReturn(List.of(shard(0, "2")));
+
+        assertThrows(InsufficientFundsException.class, () -> engine.apply(1L, "TRY", new BigDecimal("-4")));
+        verify(shardRepository, never()).clearShards(anyLong(), anyString(), anyList());
+        verify(balanceRepository, never()).setBalance(anyLong(), anyString(), any());
+    }
+
+    @Test
+    void rejectsUnknownWallet() {
+        when(balanceRepository.lockBalanceAmount(9L, "TRY")).thenReturn(Optional.empty());
+        when(walletRepository.existsById(9L)).thenReturn(false);
+
+        assertThrows(EntityNotFoundException.class, () -> engine.apply(9L, "TRY", new BigDecimal("-1")));
+        verify(shardRepository, never()).lockShards(anyLong(), anyString());
+    }
+
+    private static ShardAmount shard(int shardNo, String balance) {
+        return new ShardAmount() {
+            @Override
+            public Integer getShardNo() {
+                return shardNo;
+            }
+
+            @Override
+            public BigDecimal getBalance() {
+                return new BigDecimal(balance);
+            }
+        };
+    }
+}
@@ -0,0 +1,87 @@
+package org.bozgeyik.paymentservice.service.ledger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysSyncedRecordsAndDropsTornTailAfterCrash() throws IOException {
+        WriteAheadLog wal = new WriteAheadLog(directory, 0, 1 << 20);
+        wal.open(0, r -> { });
+        wal.append(new WriteAheadLog.Record(1, 10, "TRY", new BigDecimal("100"), "ödeme-1"));
+        wal.append(new WriteAheadLog.Record(2, 10, "TRY", new BigDecimal("-25.5"), "k2"));
+        wal.append(new WriteAheadLog.Record(3, 11, "USD", new BigDecimal("0.0001"), null));
+        wal.sync();
+        long synced = Files.size(onlySegment());
+        // Çökme: dosya kapatılmadan, yarım yazılmış bir kayıt bırakılır.
+        Path segment = onlySegment();
+        Files.write(segment, new byte[WriteAheadLog.FIXED_SIZE + 2], StandardOpenOption.APPEND);
+
+        List<WriteAheadLog.Record> replayed = new ArrayList<>();
+        WriteAheadLog recovered = new WriteAheadLog(directory, 0, 1 << 20);
+        long last = recovered.open(0, replayed::add);
+
+        assertEquals(3, last);
+        assertEquals(List.of(
+                new WriteAheadLog.Record(1, 10, "TRY", new BigDecimal("100.0000"), "ödeme-1"),
+                new WriteAheadLog.Record(2, 10, "TRY", new BigDecimal("-25.5000"), "k2"),
+                new WriteAheadLog.Record(3, 11, "USD", new BigDecimal("0.0001"), null)), replayed);
+        assertEquals(synced, Files.size(segment));
+
+        // Kurtarılan günlüğe yazmaya devam edilebilir; checkpoint öncesi kayıtlar atlanır.
+        recovered.append(new WriteAheadLog.Record(4, 10, "TRY", new BigDecimal("7"), "k4"));
+        recovered.close();
+        replayed.clear();
+        assertEquals(4, new WriteAheadLog(directory, 0, 1 << 20).open(2, replayed::add));
+        assertEquals(List.of(3L, 4L), replayed.stream().map(WriteAheadLog.Record::sequence).toList());
+    }
+
+    @Test
+    void deletesOnlyFullyAppliedSegments() throws IOException {
+        WriteAheadLog wal = new WriteAheadLog(directory, 1, 2L * WriteAheadLog.FIXED_SIZE);
+        wal.open(0, r -> { });
+        for (long sequence = 1; sequence <= 5; sequence++) {
+            wal.append(new WriteAheadLog.Record(sequence, 1, "EUR", BigDecimal.ONE, null));
+        }
+        wal.sync();
+        assertEquals(3, segmentCount());
+
+        wal.deleteSegmentsUpTo(3);
+        assertEquals(2, segmentCount());
+        wal.close();
+
+        List<WriteAheadLog.Record> replayed = new ArrayList<>();
+        new WriteAheadLog(directory, 1, 2L * WriteAheadLog.FIXED_SIZE).open(3, replayed::add);
+        assertEquals(List.of(4L, 5L), replayed.stream().map(WriteAheadLog.Record::sequence).toList());
+    }
+
+    private Path onlySegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = files.toList();
+            assertTrue(segments.size() == 1);
+            return segments.get(0);
+        }
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package org.bozgeyik.paymentservice.service.posting;
+
+import org.bozgeyik.paymentservice.model.EntryDirection;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WalletPostingsTest {
+
+    @Test
+    void writesOneSidePerWalletAndSignsTheSender() {
+        assertEquals(List.of(new WalletPostings.Side(7L, EntryDirection.CREDIT, new BigDecimal("100"), "TRY")),
+                WalletPostings.sidesOf(null, 7L, new BigDecimal("100"), "TRY", new BigDecimal("100"), "TRY"));
+
+        assertEquals(List.of(
+                        new WalletPostings.Side(7L, EntryDirection.DEBIT, new BigDecimal("-10"), "USD"),
+                        new WalletPostings.Side(9L, EntryDirection.CREDIT, new BigDecimal("330"), "TRY")),
+                WalletPostings.sidesOf(7L, 9L, new BigDecimal("10"), "USD", new BigDecimal("330"), "TRY"));
+    }
+
+    @Test
+    void fxTradeWritesBothSidesToTheSameWallet() {
+        List<WalletPostings.Side> sides = WalletPostings.sidesOf(7L, 7L, new BigDecimal("10"), "USD", new BigDecimal("330"), "TRY");
+
+        assertEquals(2, sides.size());
+        assertEquals(EntryDirection.DEBIT, sides.get(0).direction());
+        assertEquals(EntryDirection.CREDIT, sides.get(1).direction());
+        assertEquals(sides.get(0).walletId(), sides.get(1).walletId());
+    }
+}
@@ -0,0 +1,46 @@
+package org.bozgeyik.paymentservice.service.reconciliation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BalanceTotalsTest {
+
+    private static final String[] CURRENCIES = {"TRY", "USD", "EUR", "GBP"};
+
+    @Test
+    void packsWalletIdAndCurrencyIntoKey() {
+        long key = BalanceTotals.key(123_456_789L, "EUR");
+        assertEquals(123_456_789L, BalanceTotals.walletIdOf(key));
+        assertEquals("EUR", BalanceTotals.currencyOf(key));
+    }
+
+    @Test
+    void matchesHashMapWhileGrowingAndMerging() {
+        Random random = new Random(42);
+        BalanceTotals left = new BalanceTotals(16);
+        BalanceTotals right = new BalanceTotals(16);
+        Map<Long, Long> expected = new HashMap<>();
+        for (int i = 0; i < 50_000; i++) {
+            long key = BalanceTotals.key(1 + random.nextInt(5_000), CURRENCIES[random.nextInt(CURRENCIES.length)]);
+            long units = random.nextLong(-1_000_000L, 1_000_000L);
+            (i % 2 == 0 ? left : right).add(key, units);
+            expected.merge(key, units, Long::sum);
+        }
+        left.addAll(right);
+
+        assertEquals(expected.size(), left.size());
+        expected.forEach((key, units) -> {
+            assertTrue(left.containsKey(key));
+            assertEquals(units, left.get(key));
+        });
+        assertFalse(left.containsKey(BalanceTotals.key(9_999, "TRY")));
+        assertEquals(0L, left.get(BalanceTotals.key(9_999, "TRY")));
+    }
+}
@@ -0,0 +1,84 @@
+package org.bozgeyik.paymentservice.service.stats;
+
+import org.bozgeyik.paymentservice.model.Transaction;
+import org.bozgeyik.paymentservice.model.TransactionStatus;
+import org.bozgeyik.paymentservice.model.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DailyTotalsTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 15);
+
+    @Test
+    void transfersOnTheSameDayCollapseIntoOneRowPerSide() {
+        DailyTotals totals = new DailyTotals();
+        totals.add(tx(7L, 9L, "10", "USD", "330", "TRY", null, TransactionType.TRANSFER, DAY.atTime(9, 0)));
+        totals.add(tx(7L, 9L, "5", "USD", "165", "TRY", null, TransactionType.TRANSFER, DAY.atTime(23, 59)));
+
+        assertEquals(2, totals.size());
+        DailyTotals.Totals sender = totals.get(new DailyTotals.Key(7L, "USD", DAY, TransactionType.TRANSFER));
+        assertEquals(2, sender.debitCount);
+        assertEquals(0, new BigDecimal("15").compareTo(sender.debitAmount));
+        assertEquals(0, sender.creditCount);
+        DailyTotals.Totals receiver = totals.get(new DailyTotals.Key(9L, "TRY", DAY, TransactionType.TRANSFER));
+        assertEquals(2, receiver.creditCount);
+        assertEquals(0, new BigDecimal("495").compareTo(receiver.creditAmount));
+    }
+
+    @Test
+    void fxTradeAndFeesLandOnTheSendingWallet() {
+        DailyTotals totals = new DailyTotals();
+        totals.add(tx(7L, 7L, "10", "USD", "330", "TRY", null, TransactionType.FX_TRADE, DAY.atTime(12, 0)));
+        totals.add(tx(7L, null, "100", "USD", null, "USD", "2.5", TransactionType.EXTERNAL_TRANSFER, DAY.atTime(12, 0)));
+
+        assertEquals(1, totals.get(new DailyTotals.Key(7L, "USD", DAY, TransactionType.FX_TRADE)).debitCount);
+        assertEquals(1, totals.get(new DailyTotals.Key(7L, "TRY", DAY, TransactionType.FX_TRADE)).creditCount);
+        DailyTotals.Totals external = totals.get(new DailyTotals.Key(7L, "USD", DAY, TransactionType.EXTERNAL_TRANSFER));
+        assertEquals(0, new BigDecimal("100").compareTo(external.debitAmount));
+        assertEquals(0, new BigDecimal("2.5").compareTo(external.feeAmount));
+    }
+
+    @Test
+    void skipsUncompletedTransactionsAndWritesRowsInKeyOrder() {
+        DailyTotals totals = new DailyTotals();
+        Transaction failed = tx(3L, 4L, "1", "TRY", "1", "TRY", null, TransactionType.TRANSFER, DAY.atTime(8, 0));
+        failed.setStatus(TransactionStatus.FAILED);
+        totals.add(failed);
+        assertTrue(totals.isEmpty());
+        assertNull(totals.get(new DailyTotals.Key(3L, "TRY", DAY, TransactionType.TRANSFER)));
+
+        totals.add(tx(null, 9L, "1", "TRY", "1", "TRY", null, TransactionType.DEPOSIT, DAY.plusDays(1).atTime(8, 0)));
+        totals.add(tx(null, 9L, "1", "TRY", "1", "TRY", null, TransactionType.DEPOSIT, DAY.atTime(8, 0)));
+        totals.add(tx(null, 2L, "1", "TRY", "1", "TRY", null, TransactionType.DEPOSIT, DAY.atTime(8, 0)));
+
+        List<Object[]> rows = totals.rows();
+        assertEquals(List.of(2L, 9L, 9L), rows.stream().map(row -> row[0]).toList());
+        assertEquals(java.sql.Date.valueOf(DAY), rows.get(1)[1]);
+        assertEquals(java.sql.Date.valueOf(DAY.plusDays(1)), rows.get(2)[1]);
+    }
+
+    private static Transaction tx(Long from, Long to, String amount, String currency, String converted,
+                                  String targetCurrency, String fee, TransactionType type, LocalDateTime date) {
+        Transaction tx = new Transaction();
+        tx.setFromWalletId(from);
+        tx.setToWalletId(to);
+        tx.setOriginalAmount(new BigDecimal(amount));
+        tx.setOriginalCurrency(currency);
+        tx.setConvertedAmount(converted != null ? new BigDecimal(converted) : null);
+        tx.setTargetCurrency(targetCurrency);
+        tx.setFeeAmount(fee != null ? new BigDecimal(fee) : null);
+        tx.setTransactionType(type);
+        tx.setStatus(TransactionStatus.COMPLETED);
+        tx.setTransactionDate(date);
+        return tx;
+    }
+}
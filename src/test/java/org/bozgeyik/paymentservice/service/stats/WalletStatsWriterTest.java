@@ -0,0 +1,94 @@
+package org.bozgeyik.paymentservice.service.stats;
+
+import org.bozgeyik.paymentservice.event.TransactionCompletedEvent;
+import org.bozgeyik.paymentservice.model.Transaction;
+import org.bozgeyik.paymentservice.model.TransactionStatus;
+import org.bozgeyik.paymentservice.model.TransactionType;
+import org.bozgeyik.paymentservice.service.ClusterLock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WalletStatsWriterTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private ClusterLock clusterLock;
+    private WalletStatsWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:walletstats;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE wallet_daily_stats (id BIGINT AUTO_INCREMENT PRIMARY KEY, wallet_id BIGINT NOT NULL, "
+                + "stat_date DATE NOT NULL, currency VARCHAR(3) NOT NULL, transaction_type VARCHAR(20) NOT NULL, "
+                + "debit_count BIGINT NOT NULL, debit_amount DECIMAL(19,4) NOT NULL, credit_count BIGINT NOT NULL, "
+                + "credit_amount DECIMAL(19,4) NOT NULL, fee_amount DECIMAL(19,4) NOT NULL, "
+                + "UNIQUE (wallet_id, stat_date, currency, transaction_type))");
+        jdbcTemplate.execute("CREATE TABLE wallet_stats_rebuild (id INT PRIMARY KEY, running BOOLEAN NOT NULL, "
+                + "counted_through_id BIGINT NOT NULL, started_at TIMESTAMP)");
+        clusterLock = new ClusterLock(dataSource);
+        writer = new WalletStatsWriter(jdbcTemplate, new DataSourceTransactionManager(dataSource), clusterLock);
+        ReflectionTestUtils.setField(writer, "maxPendingKeys", 5000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE wallet_daily_stats");
+        jdbcTemplate.execute("DROP TABLE wallet_stats_rebuild");
+    }
+
+    @Test
+    void holdsWritesWhileAnotherInstanceRebuildsAndSkipsWhatTheRebuildCounted() {
+        // Yeniden oluşturma başka bir instance'ta sürüyor: küme kilidi ve paylaşılan satır onda.
+        try (ClusterLock.Held rebuilding = clusterLock.tryAcquire(WalletStatsRebuild.LOCK_NAME).orElseThrow()) {
+            writer.markRebuildStarted();
+            complete(1L);
+            complete(2L);
+
+            assertEquals(0, writer.flush());
+            assertEquals(0, creditCount());
+
+            // Yeniden oluşturma 1 numaralı işleme kadar saydı.
+            writer.markRebuildFinished(1L);
+        }
+        complete(3L);
+
+        assertEquals(1, writer.flush());
+        assertEquals(2, creditCount());
+    }
+
+    @Test
+    void releasesARebuildWhoseInstanceDied() {
+        writer.markRebuildStarted();
+        complete(1L);
+
+        assertEquals(1, writer.flush());
+        assertEquals(1, creditCount());
+        assertEquals(Boolean.FALSE, jdbcTemplate.queryForObject("SELECT running FROM wallet_stats_rebuild", Boolean.class));
+    }
+
+    private void complete(long id) {
+        Transaction tx = new Transaction();
+        tx.setId(id);
+        tx.setToWalletId(7L);
+        tx.setConvertedAmount(BigDecimal.TEN);
+        tx.setTargetCurrency("TRY");
+        tx.setTransactionType(TransactionType.DEPOSIT);
+        tx.setStatus(TransactionStatus.COMPLETED);
+        tx.setTransactionDate(LocalDateTime.of(2024, 3, 15, 12, 0));
+        writer.onTransactionCompleted(new TransactionCompletedEvent(this, tx));
+    }
+
+    private Long creditCount() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(credit_count), 0) FROM wallet_daily_stats", Long.class);
+    }
+}